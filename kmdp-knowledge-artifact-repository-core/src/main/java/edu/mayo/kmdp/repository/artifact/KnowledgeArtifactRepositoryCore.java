@@ -182,10 +182,12 @@ public abstract class KnowledgeArtifactRepositoryCore implements DisposableBean,
   }
 
   @Override
+  @Failsafe(traces = @Track(throwable = RepositoryNotFoundException.class, value = LogLevel.WARN))
   @Loggable(beforeCode = "KART-035.A", level = LogLevel.WARN)
   public Answer<Void> clearKnowledgeRepository(String repositoryId,
       Boolean deleted) {
-    return unsupported();
+    dao.clearRepository(repositoryId, deleted);
+    return Answer.of(NoContent);
   }
 
   @Override
@@ -83,6 +83,170 @@ public class KnowledgeArtifactRepositoryServerProperties extends
             null,
             "Base namespace",
             String.class,
+            false)),
+
+    DICTIONARY_COMPRESSION(
+        Opt.of("edu.mayo.kmdp.repository.artifact.compression.dictionary",
+            "false",
+            "Compress artifacts with a dictionary trained on each repository's content",
+            Boolean.class,
+            false)),
+
+    DICTIONARY_SAMPLE_SIZE(
+        Opt.of("edu.mayo.kmdp.repository.artifact.compression.dictionary.samples",
+            "200",
+            "Number of stored versions sampled to train a compression dictionary",
+            Integer.class,
+            false)),
+
+    DICTIONARY_RETRAIN_INTERVAL(
+        Opt.of("edu.mayo.kmdp.repository.artifact.compression.dictionary.retrain",
+            "0",
+            "Minutes between background dictionary retrainings (0 disables)",
+            Integer.class,
+            false)),
+
+    PARTITIONS(
+        Opt.of("edu.mayo.kmdp.repository.artifact.partitions",
+            null,
+            "Assignment of repositories to storage partitions, as repositoryId=partition pairs",
+            String.class,
+            false)),
+
+    SEGMENT_MEMORY_MAPPING(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.segment.mmap",
+            "true",
+            "Memory-map the tar files of the persistent JCR segment store",
+            Boolean.class,
+            false)),
+
+    SEGMENT_CACHE_SIZE(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.segment.cache",
+            "256",
+            "Size (in MB) of the segment cache of the persistent JCR segment store",
+            Integer.class,
+            false)),
+
+    BLOB_STORE(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.blob.store",
+            "FILE",
+            "Store of the large binaries of the persistent JCR segment store: FILE (blocks) or "
+                + "DATASTORE (whole files), both deduplicated by content digest",
+            String.class,
+            false)),
+
+    BLOB_INLINE_THRESHOLD(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.blob.inline",
+            "16384",
+            "Size (in bytes) below which binaries are stored in the segments, "
+                + "rather than in the blob store",
+            Integer.class,
+            false)),
+
+    SEGMENT_MAINTENANCE_INTERVAL(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.segment.maintenance.interval",
+            "0",
+            "Minutes between the revision and blob garbage collections of the persistent JCR "
+                + "segment store (0 disables)",
+            Integer.class,
+            false)),
+
+    SEGMENT_MAINTENANCE_WINDOW(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.segment.maintenance.window",
+            null,
+            "Time of day (HH:mm-HH:mm) when the segment store garbage collections may run",
+            String.class,
+            false)),
+
+    SEGMENT_MAINTENANCE_COMPACTION(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.segment.maintenance.compaction",
+            "TAIL",
+            "Compaction of the segment store revision GC: TAIL (the latest revisions) or FULL",
+            String.class,
+            false)),
+
+    SEGMENT_MAINTENANCE_MAX_LATENCY(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.segment.maintenance.maxLatency",
+            "50",
+            "Mean latency (in ms) of the repository operations above which the garbage "
+                + "collections are postponed, or interrupted",
+            Integer.class,
+            false)),
+
+    BLOB_GC_MAX_AGE(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.blob.gc.maxAge",
+            "24",
+            "Age (in hours) below which unreferenced binaries are kept by the blob GC",
+            Integer.class,
+            false)),
+
+    JCR_SHARDED_LAYOUT(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.sharded",
+            "false",
+            "Place the JCR series nodes in shards derived from their UUID, "
+                + "rather than directly under the repository node",
+            Boolean.class,
+            false)),
+
+    JCR_VERSION_LAYOUT(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.versions",
+            "VERSIONABLE",
+            "Storage of the JCR versions: VERSIONABLE (version histories of mix:versionable "
+                + "series) or NODES (a child node of the series per version)",
+            String.class,
+            false)),
+
+    JCR_NODESTATE_READS(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.nodestate.reads",
+            "false",
+            "Read series and versions directly from the Oak node states, "
+                + "rather than through JCR sessions",
+            Boolean.class,
+            false)),
+
+    JCR_INDEXED_METADATA(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.index.metadata",
+            null,
+            "Comma-separated metadata keys indexed at bootstrap, "
+                + "to filter the JCR listings without traversal",
+            String.class,
+            false)),
+
+    JCR_ASYNC_INDEXING_INTERVAL(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.index.async",
+            "0",
+            "Interval (in seconds) of the asynchronous lane that updates the JCR metadata indexes, "
+                + "or 0 to update them as the content is saved",
+            Integer.class,
+            false)),
+
+    DOCUMENT_CLUSTER_ID(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.document.clusterId",
+            "0",
+            "Cluster node id of a JCR document store shared by several nodes (0 to acquire one)",
+            Integer.class,
+            false)),
+
+    DOCUMENT_ASYNC_DELAY(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.document.asyncDelay",
+            "1000",
+            "Interval (in ms) of the background reads and writes that make the changes of a "
+                + "cluster node visible to the others",
+            Integer.class,
+            false)),
+
+    DOCUMENT_LEASE_CHECK(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.document.leaseCheck",
+            "STRICT",
+            "Lease check mode of a cluster node (STRICT, LENIENT or DISABLED)",
+            String.class,
+            false)),
+
+    DOCUMENT_TABLE_PREFIX(
+        Opt.of("edu.mayo.kmdp.repository.artifact.jcr.document.tablePrefix",
+            "",
+            "Prefix of the tables of a JCR document store",
+            String.class,
             false));
 
 
@@ -0,0 +1,70 @@
+package edu.mayo.kmdp.repository.artifact.compression;
+
+import edu.mayo.kmdp.repository.artifact.exceptions.DaoRuntimeException;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * DEFLATE with a preset (trained) dictionary, see {@link DictionaryTrainer}
+ */
+public final class DictionaryCodec {
+
+  private static final int BUFFER_SIZE = 8 * 1024;
+
+  private DictionaryCodec() {
+    // static functions only
+  }
+
+  public static byte[] compress(byte[] data, byte[] dictionary) {
+    var deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    try {
+      if (dictionary != null && dictionary.length > 0) {
+        deflater.setDictionary(dictionary);
+      }
+      deflater.setInput(data);
+      deflater.finish();
+
+      var out = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+      var buffer = new byte[BUFFER_SIZE];
+      while (!deflater.finished()) {
+        int n = deflater.deflate(buffer);
+        out.write(buffer, 0, n);
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  public static byte[] decompress(byte[] data, byte[] dictionary) {
+    var inflater = new Inflater();
+    try {
+      inflater.setInput(data);
+
+      var out = new ByteArrayOutputStream(data.length * 4);
+      var buffer = new byte[BUFFER_SIZE];
+      while (!inflater.finished()) {
+        int n = inflater.inflate(buffer);
+        if (n == 0) {
+          if (inflater.needsDictionary()) {
+            if (dictionary == null) {
+              throw new DaoRuntimeException("Compression dictionary required, but not available");
+            }
+            inflater.setDictionary(dictionary);
+          } else if (inflater.needsInput()) {
+            throw new DaoRuntimeException("Truncated compressed artifact");
+          }
+        }
+        out.write(buffer, 0, n);
+      }
+      return out.toByteArray();
+    } catch (DataFormatException e) {
+      throw new DaoRuntimeException(e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+}
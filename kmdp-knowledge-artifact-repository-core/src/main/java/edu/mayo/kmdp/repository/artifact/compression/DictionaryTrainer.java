@@ -0,0 +1,127 @@
+package edu.mayo.kmdp.repository.artifact.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Builds a preset dictionary from a sample of (similar) documents.
+ * <p>
+ * Samples are split into content-defined chunks, so that the same boilerplate produces the same
+ * chunks regardless of its offset within a document. Chunks that recur across documents are
+ * ranked by the number of bytes they would save, and the best ones are packed into the
+ * dictionary. The most valuable chunks are placed at the end of the dictionary, where DEFLATE
+ * can reference them with the shortest distances.
+ */
+public final class DictionaryTrainer {
+
+  /**
+   * DEFLATE can only reference the last 32KB of a preset dictionary
+   */
+  public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+  private static final int MIN_CHUNK = 16;
+  private static final int MAX_CHUNK = 256;
+  private static final int BOUNDARY_MASK = (1 << 5) - 1;
+
+  private static final int[] GEAR = gear();
+
+  private DictionaryTrainer() {
+    // static functions only
+  }
+
+  /**
+   * Trains a dictionary of at most {@link #MAX_DICTIONARY_SIZE} bytes
+   *
+   * @param samples the sample documents
+   * @return the dictionary, possibly empty if the samples share no content
+   */
+  public static byte[] train(List<byte[]> samples) {
+    return train(samples, MAX_DICTIONARY_SIZE);
+  }
+
+  /**
+   * Trains a dictionary
+   *
+   * @param samples           the sample documents
+   * @param maxDictionarySize the upper bound on the size of the dictionary
+   * @return the dictionary, possibly empty if the samples share no content
+   */
+  public static byte[] train(List<byte[]> samples, int maxDictionarySize) {
+    int limit = Math.min(maxDictionarySize, MAX_DICTIONARY_SIZE);
+
+    // number of documents each chunk occurs in
+    Map<ByteBuffer, Integer> frequencies = new HashMap<>();
+    for (byte[] sample : samples) {
+      Set<ByteBuffer> seen = new HashSet<>();
+      for (ByteBuffer chunk : chunk(sample)) {
+        if (seen.add(chunk)) {
+          frequencies.merge(chunk, 1, Integer::sum);
+        }
+      }
+    }
+
+    List<ByteBuffer> ranked = frequencies.entrySet().stream()
+        .filter(e -> e.getValue() > 1)
+        .sorted(Comparator.<Map.Entry<ByteBuffer, Integer>>comparingLong(DictionaryTrainer::score)
+            .reversed())
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toList());
+
+    int size = 0;
+    int selected = 0;
+    while (selected < ranked.size() && size + ranked.get(selected).remaining() <= limit) {
+      size += ranked.get(selected).remaining();
+      selected++;
+    }
+
+    var dictionary = new ByteArrayOutputStream(size);
+    for (int j = selected - 1; j >= 0; j--) {
+      ByteBuffer chunk = ranked.get(j);
+      dictionary.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+    }
+    return dictionary.toByteArray();
+  }
+
+  private static long score(Map.Entry<ByteBuffer, Integer> entry) {
+    return (long) entry.getKey().remaining() * entry.getValue();
+  }
+
+  private static List<ByteBuffer> chunk(byte[] data) {
+    List<ByteBuffer> chunks = new ArrayList<>();
+    int start = 0;
+    int hash = 0;
+    for (int j = 0; j < data.length; j++) {
+      hash = (hash << 1) + GEAR[data[j] & 0xFF];
+      int len = j - start + 1;
+      if ((len >= MIN_CHUNK && (hash & BOUNDARY_MASK) == 0) || len >= MAX_CHUNK) {
+        chunks.add(ByteBuffer.wrap(data, start, len).slice());
+        start = j + 1;
+        hash = 0;
+      }
+    }
+    if (data.length - start >= MIN_CHUNK) {
+      chunks.add(ByteBuffer.wrap(data, start, data.length - start).slice());
+    }
+    return chunks;
+  }
+
+  private static int[] gear() {
+    // fixed seed: chunk boundaries must be stable across trainings
+    var rnd = new Random(0x5EEDL);
+    int[] table = new int[256];
+    for (int j = 0; j < table.length; j++) {
+      table[j] = rnd.nextInt();
+    }
+    return table;
+  }
+
+}
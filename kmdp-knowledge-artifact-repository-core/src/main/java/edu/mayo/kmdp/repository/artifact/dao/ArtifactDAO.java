@@ -50,6 +50,25 @@ public interface ArtifactDAO {
 
   void clear();
 
+  /**
+   * Removes all the artifacts in a repository
+   *
+   * @param repositoryId
+   * @param deleted      if true, hard-deletes the artifacts, otherwise soft-deletes them
+   */
+  default void clearRepository(String repositoryId, Boolean deleted) {
+    boolean remove = Boolean.TRUE.equals(deleted);
+    try (DaoResult<List<Artifact>> series = listResources(repositoryId, remove)) {
+      for (Artifact artifact : series.getValue()) {
+        if (remove) {
+          removeResourceSeries(repositoryId, artifact.getArtifactId());
+        } else {
+          deleteResourceSeries(repositoryId, artifact.getArtifactId());
+        }
+      }
+    }
+  }
+
   /**
    * Soft-delete
    *
@@ -0,0 +1,22 @@
+package edu.mayo.kmdp.repository.artifact.dao;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries {@link InvalidationEvent}s from the sources that observe changes to a repository, to
+ * the caches that hold copies of its content.
+ * <p>
+ * The sources see the changes made by any writer of the underlying store, not only the ones made
+ * through a given {@link ArtifactDAO}, so that caches can keep their entries for long periods
+ * without serving stale content. Implementations may deliver the events locally (see
+ * {@link LocalInvalidationBus}), or relay them to other processes.
+ */
+public interface InvalidationBus {
+
+  void publish(InvalidationEvent event);
+
+  void subscribe(Consumer<InvalidationEvent> listener);
+
+  void unsubscribe(Consumer<InvalidationEvent> listener);
+
+}
@@ -0,0 +1,87 @@
+package edu.mayo.kmdp.repository.artifact.dao;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Signals that the content of a repository has changed, and that the copies of that content held
+ * by a cache are no longer valid.
+ * <p>
+ * An event covers a version of a series, a whole series (the version tag is null) or a whole
+ * repository (the artifact id is null), depending on what the source of the event could tell.
+ */
+public final class InvalidationEvent {
+
+  private final String repositoryId;
+
+  private final UUID artifactId;
+
+  private final String versionTag;
+
+  private InvalidationEvent(String repositoryId, UUID artifactId, String versionTag) {
+    this.repositoryId = Objects.requireNonNull(repositoryId);
+    this.artifactId = artifactId;
+    this.versionTag = artifactId != null ? versionTag : null;
+  }
+
+  public static InvalidationEvent repository(String repositoryId) {
+    return new InvalidationEvent(repositoryId, null, null);
+  }
+
+  public static InvalidationEvent series(String repositoryId, UUID artifactId) {
+    return new InvalidationEvent(repositoryId, Objects.requireNonNull(artifactId), null);
+  }
+
+  public static InvalidationEvent version(String repositoryId, UUID artifactId,
+      String versionTag) {
+    return new InvalidationEvent(repositoryId, Objects.requireNonNull(artifactId), versionTag);
+  }
+
+  public String getRepositoryId() {
+    return repositoryId;
+  }
+
+  public UUID getArtifactId() {
+    return artifactId;
+  }
+
+  public String getVersionTag() {
+    return versionTag;
+  }
+
+  /**
+   * @return true if the content of a series, including its versions and its listing in the
+   * repository, may have been changed by this event
+   */
+  public boolean affects(String repositoryId, UUID artifactId) {
+    return this.repositoryId.equals(repositoryId)
+        && (this.artifactId == null || this.artifactId.equals(artifactId));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof InvalidationEvent)) {
+      return false;
+    }
+    InvalidationEvent that = (InvalidationEvent) o;
+    return repositoryId.equals(that.repositoryId)
+        && Objects.equals(artifactId, that.artifactId)
+        && Objects.equals(versionTag, that.versionTag);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(repositoryId, artifactId, versionTag);
+  }
+
+  @Override
+  public String toString() {
+    return "InvalidationEvent{" + repositoryId
+        + (artifactId != null ? "/" + artifactId : "")
+        + (versionTag != null ? "/" + versionTag : "")
+        + '}';
+  }
+}
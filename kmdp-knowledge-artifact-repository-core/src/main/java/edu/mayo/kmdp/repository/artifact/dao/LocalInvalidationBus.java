@@ -0,0 +1,39 @@
+package edu.mayo.kmdp.repository.artifact.dao;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers the events to the listeners of the same process, on the publishing thread. A failing
+ * listener does not prevent the delivery to the other listeners.
+ */
+public class LocalInvalidationBus implements InvalidationBus {
+
+  private static final Logger logger = LoggerFactory.getLogger(LocalInvalidationBus.class);
+
+  private final List<Consumer<InvalidationEvent>> listeners = new CopyOnWriteArrayList<>();
+
+  @Override
+  public void publish(InvalidationEvent event) {
+    for (Consumer<InvalidationEvent> listener : listeners) {
+      try {
+        listener.accept(event);
+      } catch (RuntimeException e) {
+        logger.warn("Unable to deliver {}: {}", event, e.getMessage());
+      }
+    }
+  }
+
+  @Override
+  public void subscribe(Consumer<InvalidationEvent> listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public void unsubscribe(Consumer<InvalidationEvent> listener) {
+    listeners.remove(listener);
+  }
+}
@@ -0,0 +1,642 @@
+package edu.mayo.kmdp.repository.artifact.fs;
+
+import static edu.mayo.kmdp.repository.artifact.fs.FileSystemResult.ofFile;
+import static org.omg.spec.api4kp._20200801.id.SemanticIdentifier.newId;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+import edu.mayo.kmdp.repository.artifact.dao.Artifact;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactDAO;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
+import edu.mayo.kmdp.repository.artifact.dao.DaoResult;
+import edu.mayo.kmdp.repository.artifact.exceptions.DaoRuntimeException;
+import edu.mayo.kmdp.repository.artifact.exceptions.RepositoryNotFoundException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNoContentException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNotFoundException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.omg.spec.api4kp._20200801.id.ResourceIdentifier;
+
+/**
+ * An {@link ArtifactDAO} that stores the artifacts in a directory tree, under the configured base
+ * directory:
+ * <pre>
+ *   [base]/artifacts/[repository]/[series]/series.idx
+ *   [base]/artifacts/[repository]/[series]/[n].bin
+ * </pre>
+ * Each series has a sidecar index ({@link SeriesIndex}) with the order, the status and the
+ * content file of its versions, and one content file per version.
+ * <p>
+ * Every file is written to a temporary file in the same directory, forced to disk, then moved
+ * over the previous file with an atomic move, and the directory is forced to disk in turn:
+ * readers see either the previous or the new content, and a crash leaves at most a stray
+ * temporary file behind. The content of a version is written before the index that references
+ * it. Writes to the same series are serialized, while reads take no lock: they read the current
+ * index, then the content file.
+ */
+public class FileSystemArtifactDAO implements ArtifactDAO {
+
+  static final String ARTIFACTS_DIR = "artifacts";
+  static final String INDEX_FILE = "series.idx";
+  static final String DATA_SUFFIX = ".bin";
+  static final String TEMP_SUFFIX = ".tmp";
+
+  private final Path root;
+
+  private final String defaultRepositoryId;
+
+  private final Map<Path, Object> seriesLocks = new ConcurrentHashMap<>();
+
+  public FileSystemArtifactDAO(KnowledgeArtifactRepositoryServerProperties cfg) {
+    this(baseDir(cfg), cfg);
+  }
+
+  public FileSystemArtifactDAO(File baseDir, KnowledgeArtifactRepositoryServerProperties cfg) {
+    this.root = baseDir.toPath().resolve(ARTIFACTS_DIR);
+    this.defaultRepositoryId =
+        cfg.getTyped(KnowledgeArtifactRepositoryOptions.DEFAULT_REPOSITORY_ID);
+    try {
+      Files.createDirectories(root);
+    } catch (IOException e) {
+      throw new DaoRuntimeException(e);
+    }
+  }
+
+  private static File baseDir(KnowledgeArtifactRepositoryServerProperties cfg) {
+    File baseDir = cfg.getTyped(KnowledgeArtifactRepositoryOptions.BASE_DIR);
+    if (baseDir == null) {
+      throw new IllegalStateException(
+          "A filesystem repository requires a base directory");
+    }
+    return baseDir;
+  }
+
+  @Override
+  public void shutdown() throws DaoRuntimeException {
+    seriesLocks.clear();
+  }
+
+  @Override
+  public void clear() {
+    try (DirectoryStream<Path> repositories = Files.newDirectoryStream(root)) {
+      for (Path repository : repositories) {
+        deleteTree(repository);
+      }
+    } catch (IOException e) {
+      throw new DaoRuntimeException(e);
+    }
+  }
+
+  @Override
+  public void clearRepository(String repositoryId, Boolean deleted) {
+    if (!Boolean.TRUE.equals(deleted)) {
+      ArtifactDAO.super.clearRepository(repositoryId, deleted);
+      return;
+    }
+    checkHasRepository(repositoryId);
+    try (DirectoryStream<Path> series = Files.newDirectoryStream(repositoryDir(repositoryId))) {
+      for (Path seriesDir : series) {
+        inSeries(seriesDir, () -> {
+          deleteTree(seriesDir);
+          seriesLocks.remove(seriesDir);
+        });
+      }
+    } catch (NoSuchFileException e) {
+      // the default repository, before anything is saved in it
+    } catch (IOException e) {
+      throw new DaoRuntimeException(e);
+    }
+  }
+
+  /***********************************************************************************/
+
+  @Override
+  public DaoResult<List<Artifact>> listResources(String repositoryId, Boolean deleted,
+      Map<String, String> config) {
+    checkHasRepository(repositoryId);
+    boolean includeDeleted = Boolean.TRUE.equals(deleted);
+    List<Artifact> artifacts = new ArrayList<>();
+    try (DirectoryStream<Path> series = Files.newDirectoryStream(repositoryDir(repositoryId))) {
+      for (Path seriesDir : series) {
+        Optional<UUID> artifactId = toArtifactId(seriesDir);
+        Optional<SeriesIndex> index = artifactId.isPresent()
+            ? readIndex(seriesDir)
+            : Optional.empty();
+        if (index.isPresent()
+            && (includeDeleted || index.get().isAvailable())
+            && matches(index.get(), config)) {
+          artifacts.add(new SeriesAdapter(artifactId.get(), index.get().isAvailable()));
+        }
+      }
+    } catch (NoSuchFileException e) {
+      // the default repository, before anything is saved in it
+    } catch (IOException e) {
+      throw new DaoRuntimeException(e);
+    }
+    return ofFile(artifacts);
+  }
+
+  @Override
+  public DaoResult<ArtifactVersion> getResourceVersion(String repositoryId, UUID artifactId,
+      String versionTag, Boolean deleted) {
+    SeriesIndex index = fetchIndex(repositoryId, artifactId);
+    SeriesIndex.Entry version = index.getVersion(versionTag)
+        .orElseThrow(() -> new ResourceNotFoundException(artifactId, versionTag, repositoryId));
+    if (!Boolean.TRUE.equals(deleted) && !version.isAvailable()) {
+      throw new ResourceNoContentException("The version is known but currently unavailable.");
+    }
+    return ofFile(toVersion(repositoryId, artifactId, version));
+  }
+
+  @Override
+  public DaoResult<Artifact> getResourceSeries(String repositoryId, UUID artifactId) {
+    SeriesIndex index = fetchIndex(repositoryId, artifactId);
+    return ofFile(new SeriesAdapter(artifactId, index.isAvailable()));
+  }
+
+  @Override
+  public DaoResult<Boolean> hasResourceSeries(String repositoryId, UUID artifactId) {
+    if (Files.isRegularFile(seriesDir(repositoryId, artifactId).resolve(INDEX_FILE))) {
+      return ofFile(true);
+    }
+    checkHasRepository(repositoryId);
+    return ofFile(false);
+  }
+
+  @Override
+  public DaoResult<Boolean> hasResourceVersions(String repositoryId, UUID artifactId,
+      Boolean deleted) {
+    return ofFile(!fetchVersions(repositoryId, artifactId, deleted).isEmpty());
+  }
+
+  @Override
+  public DaoResult<List<ArtifactVersion>> getResourceVersions(String repositoryId,
+      UUID artifactId, Boolean deleted) {
+    return ofFile(fetchVersions(repositoryId, artifactId, deleted).stream()
+        .map(version -> toVersion(repositoryId, artifactId, version))
+        .collect(Collectors.toList()));
+  }
+
+  @Override
+  public DaoResult<ArtifactVersion> getLatestResourceVersion(String repositoryId,
+      UUID artifactId, Boolean deleted) {
+    List<SeriesIndex.Entry> versions = fetchVersions(repositoryId, artifactId, deleted);
+    if (versions.isEmpty()) {
+      throw new ResourceNoContentException(
+          "Artifact known but either not available, or no versions are available");
+    }
+    return ofFile(toVersion(repositoryId, artifactId, versions.get(versions.size() - 1)));
+  }
+
+  @Override
+  public byte[] getData(String repositoryId, ArtifactVersion version) {
+    if (version instanceof VersionAdapter) {
+      return ((VersionAdapter) version).readData();
+    }
+    try (InputStream is = version.getDataStream()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      is.transferTo(out);
+      return out.toByteArray();
+    } catch (IOException e) {
+      throw new DaoRuntimeException(e);
+    }
+  }
+
+  /***********************************************************************************/
+
+  @Override
+  public void deleteResourceVersion(String repositoryId, UUID artifactId, String versionTag) {
+    updateIndex(repositoryId, artifactId, index -> {
+      index.getVersion(versionTag)
+          .orElseThrow(() -> new ResourceNotFoundException(artifactId, versionTag, repositoryId))
+          .setAvailable(false);
+      return true;
+    });
+  }
+
+  @Override
+  public void removeResourceVersion(String repositoryId, UUID artifactId, String versionTag) {
+    Path seriesDir = seriesDir(repositoryId, artifactId);
+    inSeries(seriesDir, () -> {
+      Optional<SeriesIndex> index = readIndex(seriesDir);
+      Optional<SeriesIndex.Entry> version = index.flatMap(i -> i.getVersion(versionTag));
+      if (version.isPresent()) {
+        index.get().removeVersion(version.get());
+        writeIndex(seriesDir, index.get());
+        deleteIfExists(seriesDir.resolve(version.get().getFile()));
+      }
+    });
+  }
+
+  @Override
+  public void deleteResourceSeries(String repositoryId, UUID artifactId) {
+    updateIndex(repositoryId, artifactId, index -> {
+      index.setAvailable(false);
+      index.getVersions().forEach(version -> version.setAvailable(false));
+      return true;
+    });
+  }
+
+  @Override
+  public void removeResourceSeries(String repositoryId, UUID artifactId) {
+    Path seriesDir = seriesDir(repositoryId, artifactId);
+    inSeries(seriesDir, () -> {
+      // the series is gone for the readers once its index is
+      deleteIfExists(seriesDir.resolve(INDEX_FILE));
+      deleteTree(seriesDir);
+      seriesLocks.remove(seriesDir);
+    });
+  }
+
+  @Override
+  public void enableResourceVersion(String repositoryId, UUID artifactId, String versionTag) {
+    updateIndex(repositoryId, artifactId, index -> {
+      SeriesIndex.Entry version = index.getVersion(versionTag)
+          .orElseThrow(() -> new ResourceNotFoundException(artifactId, versionTag, repositoryId));
+      boolean changed = !version.isAvailable() || !index.isAvailable();
+      version.setAvailable(true);
+      index.setAvailable(true);
+      return changed;
+    });
+  }
+
+  @Override
+  public void enableResourceSeries(String repositoryId, UUID artifactId) {
+    Path seriesDir = seriesDir(repositoryId, artifactId);
+    inSeries(seriesDir, () -> {
+      Optional<SeriesIndex> existing = readIndex(seriesDir);
+      if (existing.isEmpty() && !hasRepository(repositoryId)) {
+        throw new ResourceNotFoundException(artifactId, repositoryId);
+      }
+      SeriesIndex index = existing.orElseGet(SeriesIndex::new);
+      index.setAvailable(true);
+      index.getVersions().forEach(version -> version.setAvailable(true));
+      createDirectories(seriesDir);
+      writeIndex(seriesDir, index);
+    });
+  }
+
+  @Override
+  public DaoResult<ArtifactVersion> saveResource(String repositoryId, UUID artifactId,
+      String versionTag, byte[] document, Map<String, String> config) {
+    Path seriesDir = seriesDir(repositoryId, artifactId);
+    return inSeries(seriesDir, () -> {
+      SeriesIndex index = readIndex(seriesDir).orElseGet(SeriesIndex::new);
+      // new versions are added at the end of the series, while overwritten ones keep their place
+      SeriesIndex.Entry version = index.ensureVersion(versionTag);
+      version.setCreated(System.currentTimeMillis());
+      version.setAvailable(true);
+      index.setAvailable(true);
+      if (config != null) {
+        index.getMetadata().putAll(config);
+      }
+      createDirectories(seriesDir);
+      writeAtomically(seriesDir.resolve(version.getFile()), document);
+      writeIndex(seriesDir, index);
+      return ofFile(toVersion(repositoryId, artifactId, version));
+    });
+  }
+
+  @Override
+  public DaoResult<Artifact> saveResource(String repositoryId, UUID artifactId) {
+    Path seriesDir = seriesDir(repositoryId, artifactId);
+    return inSeries(seriesDir, () -> {
+      Optional<SeriesIndex> existing = readIndex(seriesDir);
+      if (existing.isEmpty() || !existing.get().isAvailable()) {
+        SeriesIndex index = existing.orElseGet(SeriesIndex::new);
+        index.setAvailable(true);
+        createDirectories(seriesDir);
+        writeIndex(seriesDir, index);
+      }
+      return ofFile(new SeriesAdapter(artifactId, true));
+    });
+  }
+
+  /***********************************************************************************/
+
+  /**
+   * A change to the index of an existing series
+   */
+  @FunctionalInterface
+  private interface IndexUpdate {
+
+    /**
+     * @return true if the index has changed, and must be written
+     */
+    boolean apply(SeriesIndex index);
+  }
+
+  private void updateIndex(String repositoryId, UUID artifactId, IndexUpdate update) {
+    Path seriesDir = seriesDir(repositoryId, artifactId);
+    inSeries(seriesDir, () -> {
+      SeriesIndex index = readIndex(seriesDir)
+          .orElseThrow(() -> notFound(repositoryId, artifactId));
+      if (update.apply(index)) {
+        writeIndex(seriesDir, index);
+      }
+    });
+  }
+
+  private SeriesIndex fetchIndex(String repositoryId, UUID artifactId) {
+    return readIndex(seriesDir(repositoryId, artifactId))
+        .orElseThrow(() -> notFound(repositoryId, artifactId));
+  }
+
+  private List<SeriesIndex.Entry> fetchVersions(String repositoryId, UUID artifactId,
+      Boolean deleted) {
+    SeriesIndex index = fetchIndex(repositoryId, artifactId);
+    if (Boolean.TRUE.equals(deleted)) {
+      return index.getVersions();
+    }
+    if (!index.isAvailable()) {
+      throw new ResourceNoContentException("Artifact known, but not available.");
+    }
+    return index.getVersions().stream()
+        .filter(SeriesIndex.Entry::isAvailable)
+        .collect(Collectors.toList());
+  }
+
+  private RuntimeException notFound(String repositoryId, UUID artifactId) {
+    return hasRepository(repositoryId)
+        ? new ResourceNotFoundException(artifactId, repositoryId)
+        : new RepositoryNotFoundException(repositoryId);
+  }
+
+  private boolean matches(SeriesIndex index, Map<String, String> query) {
+    return query == null || query.entrySet().stream()
+        .allMatch(entry -> entry.getValue().equals(index.getMetadata().get(entry.getKey())));
+  }
+
+  private ArtifactVersion toVersion(String repositoryId, UUID artifactId,
+      SeriesIndex.Entry version) {
+    return new VersionAdapter(artifactId, version.getTag(), version.isAvailable(),
+        version.getCreated(), seriesDir(repositoryId, artifactId).resolve(version.getFile()));
+  }
+
+  /**
+   * Runs a write to a series, serialized with the other writes to the series. The lock of a
+   * series is dropped when the series is removed: a writer that was waiting on it takes the new
+   * lock of the series instead, so that writers never hold different locks for the same series.
+   */
+  private <T> T inSeries(Path seriesDir, Supplier<T> write) {
+    while (true) {
+      Object lock = seriesLocks.computeIfAbsent(seriesDir, dir -> new Object());
+      synchronized (lock) {
+        if (seriesLocks.get(seriesDir) == lock) {
+          return write.get();
+        }
+      }
+    }
+  }
+
+  private void inSeries(Path seriesDir, Runnable write) {
+    inSeries(seriesDir, () -> {
+      write.run();
+      return null;
+    });
+  }
+
+  /***********************************************************************************/
+
+  public boolean hasRepository(String repositoryId) {
+    return repositoryId.equals(defaultRepositoryId)
+        || Files.isDirectory(repositoryDir(repositoryId));
+  }
+
+  private void checkHasRepository(String repositoryId) {
+    if (!hasRepository(repositoryId)) {
+      throw new RepositoryNotFoundException(repositoryId);
+    }
+  }
+
+  Path repositoryDir(String repositoryId) {
+    return root.resolve(encode(repositoryId));
+  }
+
+  Path seriesDir(String repositoryId, UUID artifactId) {
+    return repositoryDir(repositoryId).resolve(artifactId.toString());
+  }
+
+  private Optional<UUID> toArtifactId(Path seriesDir) {
+    try {
+      return Optional.of(UUID.fromString(seriesDir.getFileName().toString()));
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Encodes a repository identifier as a directory name. Only letters, digits, '-' and '_' are
+   * kept: everything else, including '.', is percent-encoded, so that no identifier can name a
+   * path outside of the tree
+   */
+  static String encode(String id) {
+    StringBuilder sb = new StringBuilder();
+    for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+      char c = (char) (b & 0xFF);
+      if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+          || c == '-' || c == '_') {
+        sb.append(c);
+      } else {
+        sb.append('%').append(String.format("%02X", b & 0xFF));
+      }
+    }
+    return sb.toString();
+  }
+
+  /***********************************************************************************/
+
+  private Optional<SeriesIndex> readIndex(Path seriesDir) {
+    try {
+      return Optional.of(SeriesIndex.fromBytes(Files.readAllBytes(seriesDir.resolve(INDEX_FILE))));
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    } catch (IOException e) {
+      throw new DaoRuntimeException(e);
+    }
+  }
+
+  private void writeIndex(Path seriesDir, SeriesIndex index) {
+    writeAtomically(seriesDir.resolve(INDEX_FILE), index.toBytes());
+  }
+
+  /**
+   * Writes a file to a temporary file in the same directory, then moves it over the target, and
+   * forces the directory, so that the move itself survives a crash
+   */
+  static void writeAtomically(Path target, byte[] bytes) {
+    Path temp = null;
+    try {
+      temp = Files.createTempFile(target.getParent(), ".", TEMP_SUFFIX);
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(true);
+      }
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      temp = null;
+      forceDirectory(target.getParent());
+    } catch (IOException e) {
+      throw new DaoRuntimeException(e);
+    } finally {
+      if (temp != null) {
+        deleteIfExists(temp);
+      }
+    }
+  }
+
+  /**
+   * Forces the entries of a directory to disk. Directories cannot be opened on every platform
+   * (e.g. Windows), where the durability of a move is left to the file system.
+   */
+  private static void forceDirectory(Path dir) {
+    try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // not supported on this platform
+    }
+  }
+
+  static byte[] readFile(Path file) {
+    try {
+      return Files.readAllBytes(file);
+    } catch (NoSuchFileException e) {
+      throw new ResourceNotFoundException("No content at " + file.getFileName());
+    } catch (IOException e) {
+      throw new DaoRuntimeException(e);
+    }
+  }
+
+  private static void createDirectories(Path dir) {
+    try {
+      Files.createDirectories(dir);
+    } catch (IOException e) {
+      throw new DaoRuntimeException(e);
+    }
+  }
+
+  private static void deleteIfExists(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      throw new DaoRuntimeException(e);
+    }
+  }
+
+  private static void deleteTree(Path dir) {
+    if (!Files.exists(dir)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(dir)) {
+      paths.sorted(Comparator.reverseOrder())
+          .forEach(FileSystemArtifactDAO::deleteIfExists);
+    } catch (IOException e) {
+      throw new DaoRuntimeException(e);
+    }
+  }
+
+  /***********************************************************************************/
+
+  public static class SeriesAdapter implements Artifact {
+
+    private final UUID artifactId;
+
+    private final boolean available;
+
+    SeriesAdapter(UUID artifactId, boolean available) {
+      this.artifactId = artifactId;
+      this.available = available;
+    }
+
+    @Override
+    public UUID getArtifactId() {
+      return artifactId;
+    }
+
+    @Override
+    public boolean isUnavailable() {
+      return !available;
+    }
+
+    @Override
+    public boolean isAvailable() {
+      return available;
+    }
+  }
+
+  public static class VersionAdapter implements ArtifactVersion {
+
+    private final UUID artifactId;
+
+    private final String versionTag;
+
+    private final boolean available;
+
+    private final long created;
+
+    private final Path file;
+
+    VersionAdapter(UUID artifactId, String versionTag, boolean available, long created,
+        Path file) {
+      this.artifactId = artifactId;
+      this.versionTag = versionTag;
+      this.available = available;
+      this.created = created;
+      this.file = file;
+    }
+
+    @Override
+    public ResourceIdentifier getResourceIdentifier() {
+      return newId(artifactId, versionTag);
+    }
+
+    @Override
+    public boolean isUnavailable() {
+      return !available;
+    }
+
+    @Override
+    public boolean isAvailable() {
+      return available;
+    }
+
+    public long getCreated() {
+      return created;
+    }
+
+    @Override
+    public InputStream getDataStream() throws DaoRuntimeException {
+      return new ByteArrayInputStream(readData());
+    }
+
+    byte[] readData() {
+      return readFile(file);
+    }
+  }
+
+}
@@ -0,0 +1,21 @@
+package edu.mayo.kmdp.repository.artifact.fs;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryCore;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactDAO;
+import org.omg.spec.api4kp._20200801.services.KPServer;
+
+@KPServer
+public class FileSystemKnowledgeArtifactRepository extends KnowledgeArtifactRepositoryCore
+    implements FileSystemKnowledgeArtifactRepositoryService {
+
+  public FileSystemKnowledgeArtifactRepository(ArtifactDAO dao,
+      KnowledgeArtifactRepositoryServerProperties cfg) {
+    super(dao, cfg);
+  }
+
+  public FileSystemKnowledgeArtifactRepository(KnowledgeArtifactRepositoryServerProperties cfg) {
+    this(new FileSystemArtifactDAO(cfg), cfg);
+  }
+
+}
@@ -0,0 +1,18 @@
+package edu.mayo.kmdp.repository.artifact.fs;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryService;
+import java.util.Properties;
+
+public interface FileSystemKnowledgeArtifactRepositoryService extends
+    KnowledgeArtifactRepositoryService {
+
+  /**
+   * Builds a repository stored in files, under the configured base directory
+   */
+  static KnowledgeArtifactRepositoryService fileSystemArtifactRepository(Properties properties) {
+    return new FileSystemKnowledgeArtifactRepository(
+        new KnowledgeArtifactRepositoryServerProperties(properties));
+  }
+
+}
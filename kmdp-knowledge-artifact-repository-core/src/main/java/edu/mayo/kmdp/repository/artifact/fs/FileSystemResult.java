@@ -0,0 +1,21 @@
+package edu.mayo.kmdp.repository.artifact.fs;
+
+import edu.mayo.kmdp.repository.artifact.dao.DaoResult;
+
+public class FileSystemResult<T> implements DaoResult<T> {
+
+  private final T value;
+
+  <X extends T> FileSystemResult(X value) {
+    this.value = value;
+  }
+
+  public T getValue() {
+    return value;
+  }
+
+  public static <T> FileSystemResult<T> ofFile(T value) {
+    return new FileSystemResult<>(value);
+  }
+
+}
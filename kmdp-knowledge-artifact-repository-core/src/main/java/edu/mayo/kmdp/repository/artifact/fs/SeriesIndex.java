@@ -0,0 +1,204 @@
+package edu.mayo.kmdp.repository.artifact.fs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The sidecar index of a series, stored next to the content of its versions: the status of the
+ * series, its metadata, and its versions, in the order they were first saved, each with its
+ * status, its creation time and the name of its content file.
+ * <p>
+ * An index is read and written as a whole: it is small, and it is replaced atomically, so that
+ * readers always see a consistent series.
+ */
+class SeriesIndex {
+
+  private static final int MAGIC = 0x4B415249;
+
+  /**
+   * Strings are written as their length in bytes, then their UTF-8 bytes. The first format wrote
+   * them with {@link DataOutputStream#writeUTF(String)}, which fails above 64 KB
+   */
+  private static final int FORMAT = 2;
+  private static final int FORMAT_MODIFIED_UTF8 = 1;
+
+  private boolean available = true;
+
+  private long nextFile = 0;
+
+  private final Map<String, String> metadata = new LinkedHashMap<>();
+
+  private final List<Entry> versions = new ArrayList<>();
+
+  boolean isAvailable() {
+    return available;
+  }
+
+  void setAvailable(boolean available) {
+    this.available = available;
+  }
+
+  Map<String, String> getMetadata() {
+    return metadata;
+  }
+
+  List<Entry> getVersions() {
+    return Collections.unmodifiableList(versions);
+  }
+
+  Optional<Entry> getVersion(String versionTag) {
+    return versions.stream()
+        .filter(version -> version.tag.equals(versionTag))
+        .findFirst();
+  }
+
+  /**
+   * @return the version with the tag, added at the end of the series if it is new
+   */
+  Entry ensureVersion(String versionTag) {
+    return getVersion(versionTag).orElseGet(() -> {
+      Entry entry = new Entry(versionTag, (nextFile++) + FileSystemArtifactDAO.DATA_SUFFIX);
+      versions.add(entry);
+      return entry;
+    });
+  }
+
+  boolean removeVersion(Entry entry) {
+    return versions.remove(entry);
+  }
+
+  byte[] toBytes() {
+    try (ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT);
+      out.writeBoolean(available);
+      out.writeLong(nextFile);
+      out.writeInt(metadata.size());
+      for (Map.Entry<String, String> entry : metadata.entrySet()) {
+        writeString(out, entry.getKey());
+        writeString(out, entry.getValue());
+      }
+      out.writeInt(versions.size());
+      for (Entry version : versions) {
+        writeString(out, version.tag);
+        writeString(out, version.file);
+        out.writeLong(version.created);
+        out.writeBoolean(version.available);
+      }
+      out.flush();
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static SeriesIndex fromBytes(byte[] bytes) throws IOException {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a series index");
+      }
+      int format = in.readInt();
+      if (format != FORMAT && format != FORMAT_MODIFIED_UTF8) {
+        throw new IOException("Unknown series index format " + format);
+      }
+      StringReader strings = format == FORMAT
+          ? SeriesIndex::readString
+          : stream -> stream.readUTF();
+      SeriesIndex index = new SeriesIndex();
+      index.available = in.readBoolean();
+      index.nextFile = in.readLong();
+      int metadataSize = in.readInt();
+      for (int j = 0; j < metadataSize; j++) {
+        index.metadata.put(strings.read(in), strings.read(in));
+      }
+      int versionCount = in.readInt();
+      for (int j = 0; j < versionCount; j++) {
+        Entry entry = new Entry(strings.read(in), strings.read(in));
+        entry.created = in.readLong();
+        entry.available = in.readBoolean();
+        index.versions.add(entry);
+      }
+      return index;
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > in.available()) {
+      throw new IOException("Corrupt series index: string of " + length + " bytes");
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @FunctionalInterface
+  private interface StringReader {
+
+    String read(DataInputStream in) throws IOException;
+  }
+
+  /**
+   * A version of the series
+   */
+  static class Entry {
+
+    private final String tag;
+
+    private final String file;
+
+    private long created;
+
+    private boolean available = true;
+
+    private Entry(String tag, String file) {
+      this.tag = tag;
+      this.file = file;
+    }
+
+    String getTag() {
+      return tag;
+    }
+
+    /**
+     * @return the name of the content file, in the directory of the series. The file keeps its
+     * name when the version is saved again, so that its content is replaced atomically
+     */
+    String getFile() {
+      return file;
+    }
+
+    long getCreated() {
+      return created;
+    }
+
+    void setCreated(long created) {
+      this.created = created;
+    }
+
+    boolean isAvailable() {
+      return available;
+    }
+
+    void setAvailable(boolean available) {
+      this.available = available;
+    }
+  }
+}
@@ -0,0 +1,532 @@
+package edu.mayo.kmdp.repository.artifact.memory;
+
+import static edu.mayo.kmdp.repository.artifact.memory.InMemoryResult.ofMemory;
+import static org.omg.spec.api4kp._20200801.id.SemanticIdentifier.newId;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+import edu.mayo.kmdp.repository.artifact.dao.Artifact;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactDAO;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
+import edu.mayo.kmdp.repository.artifact.dao.DaoResult;
+import edu.mayo.kmdp.repository.artifact.exceptions.DaoRuntimeException;
+import edu.mayo.kmdp.repository.artifact.exceptions.RepositoryNotFoundException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNoContentException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNotFoundException;
+import edu.mayo.kmdp.repository.artifact.memory.PayloadStore.Payload;
+import edu.mayo.kmdp.repository.artifact.memory.PayloadStore.Slab;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.omg.spec.api4kp._20200801.id.ResourceIdentifier;
+
+/**
+ * An {@link ArtifactDAO} that keeps the artifacts in memory, for tests and ephemeral
+ * environments.
+ * <p>
+ * The repositories, their series and the versions of each series are held in concurrent maps,
+ * keyed by repository, artifact and version tag. The versions are immutable records, replaced as
+ * a whole when they change, and the content of the versions is stored outside of the heap, in a
+ * {@link PayloadStore}. The reads take no lock. The writes to the same series are serialized.
+ * <p>
+ * The space of the content that is replaced or removed is reclaimed by {@link #compact()}. Once
+ * the garbage exceeds half of the allocated space, a write schedules a compaction on a background
+ * thread, so that the writes do not wait for the content to be copied.
+ */
+public class InMemoryArtifactDAO implements ArtifactDAO {
+
+  private final Map<String, Map<UUID, Series>> repositories = new ConcurrentHashMap<>();
+
+  private final PayloadStore payloads;
+
+  private final String defaultRepositoryId;
+
+  private final AtomicBoolean compacting = new AtomicBoolean();
+
+  private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+  private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+    var t = new Thread(r, "kart-memory-compactor");
+    t.setDaemon(true);
+    return t;
+  });
+
+  public InMemoryArtifactDAO(KnowledgeArtifactRepositoryServerProperties cfg) {
+    this(cfg, PayloadStore.DEFAULT_SLAB_SIZE);
+  }
+
+  /**
+   * @param slabSize the size of the off-heap slabs that hold the content of the versions
+   */
+  public InMemoryArtifactDAO(KnowledgeArtifactRepositoryServerProperties cfg, int slabSize) {
+    this.payloads = new PayloadStore(slabSize);
+    this.defaultRepositoryId =
+        cfg.getTyped(KnowledgeArtifactRepositoryOptions.DEFAULT_REPOSITORY_ID);
+  }
+
+  @Override
+  public void shutdown() throws DaoRuntimeException {
+    compactor.shutdownNow();
+    clear();
+  }
+
+  @Override
+  public void clear() {
+    repositories.clear();
+    payloads.reset();
+  }
+
+  /***********************************************************************************/
+
+  @Override
+  public DaoResult<List<Artifact>> listResources(String repositoryId, Boolean deleted,
+      Map<String, String> config) {
+    boolean includeDeleted = Boolean.TRUE.equals(deleted);
+    return ofMemory(repository(repositoryId).values().stream()
+        .filter(series -> includeDeleted || series.available)
+        .filter(series -> matches(series, config))
+        .map(series -> new SeriesAdapter(series.artifactId, series.available))
+        .collect(Collectors.toList()));
+  }
+
+  @Override
+  public DaoResult<ArtifactVersion> getResourceVersion(String repositoryId, UUID artifactId,
+      String versionTag, Boolean deleted) {
+    Version version = fetchSeries(repositoryId, artifactId).versions.get(versionTag);
+    if (version == null) {
+      throw new ResourceNotFoundException(artifactId, versionTag, repositoryId);
+    }
+    if (!Boolean.TRUE.equals(deleted) && !version.available) {
+      throw new ResourceNoContentException("The version is known but currently unavailable.");
+    }
+    return ofMemory(new VersionAdapter(artifactId, version));
+  }
+
+  @Override
+  public DaoResult<Artifact> getResourceSeries(String repositoryId, UUID artifactId) {
+    Series series = fetchSeries(repositoryId, artifactId);
+    return ofMemory(new SeriesAdapter(artifactId, series.available));
+  }
+
+  @Override
+  public DaoResult<Boolean> hasResourceSeries(String repositoryId, UUID artifactId) {
+    return ofMemory(repository(repositoryId).containsKey(artifactId));
+  }
+
+  @Override
+  public DaoResult<Boolean> hasResourceVersions(String repositoryId, UUID artifactId,
+      Boolean deleted) {
+    return ofMemory(!fetchVersions(repositoryId, artifactId, deleted).isEmpty());
+  }
+
+  @Override
+  public DaoResult<List<ArtifactVersion>> getResourceVersions(String repositoryId,
+      UUID artifactId, Boolean deleted) {
+    return ofMemory(fetchVersions(repositoryId, artifactId, deleted).stream()
+        .map(version -> new VersionAdapter(artifactId, version))
+        .collect(Collectors.toList()));
+  }
+
+  @Override
+  public DaoResult<ArtifactVersion> getLatestResourceVersion(String repositoryId,
+      UUID artifactId, Boolean deleted) {
+    List<Version> versions = fetchVersions(repositoryId, artifactId, deleted);
+    if (versions.isEmpty()) {
+      throw new ResourceNoContentException(
+          "Artifact known but either not available, or no versions are available");
+    }
+    return ofMemory(new VersionAdapter(artifactId, versions.get(versions.size() - 1)));
+  }
+
+  @Override
+  public byte[] getData(String repositoryId, ArtifactVersion version) {
+    if (version instanceof VersionAdapter) {
+      return ((VersionAdapter) version).version.payload.read();
+    }
+    try (InputStream is = version.getDataStream()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      is.transferTo(out);
+      return out.toByteArray();
+    } catch (IOException e) {
+      throw new DaoRuntimeException(e);
+    }
+  }
+
+  /***********************************************************************************/
+
+  @Override
+  public void deleteResourceVersion(String repositoryId, UUID artifactId, String versionTag) {
+    Series series = fetchSeries(repositoryId, artifactId);
+    synchronized (series) {
+      Version version = series.versions.get(versionTag);
+      if (version == null) {
+        throw new ResourceNotFoundException(artifactId, versionTag, repositoryId);
+      }
+      series.versions.put(versionTag, version.withAvailable(false));
+    }
+  }
+
+  @Override
+  public void removeResourceVersion(String repositoryId, UUID artifactId, String versionTag) {
+    Series series = repository(repositoryId).get(artifactId);
+    if (series == null) {
+      return;
+    }
+    synchronized (series) {
+      Version removed = series.versions.remove(versionTag);
+      if (removed != null) {
+        payloads.release(removed.payload);
+      }
+    }
+    compactIfNeeded();
+  }
+
+  @Override
+  public void deleteResourceSeries(String repositoryId, UUID artifactId) {
+    Series series = fetchSeries(repositoryId, artifactId);
+    synchronized (series) {
+      series.available = false;
+      series.versions.replaceAll((tag, version) -> version.withAvailable(false));
+    }
+  }
+
+  @Override
+  public void removeResourceSeries(String repositoryId, UUID artifactId) {
+    Map<UUID, Series> repository = repository(repositoryId);
+    Series series = repository.get(artifactId);
+    if (series == null) {
+      return;
+    }
+    synchronized (series) {
+      repository.remove(artifactId, series);
+      series.removed = true;
+      series.versions.values().forEach(version -> payloads.release(version.payload));
+    }
+    compactIfNeeded();
+  }
+
+  @Override
+  public void enableResourceVersion(String repositoryId, UUID artifactId, String versionTag) {
+    Series series = fetchSeries(repositoryId, artifactId);
+    synchronized (series) {
+      Version version = series.versions.get(versionTag);
+      if (version == null) {
+        throw new ResourceNotFoundException(artifactId, versionTag, repositoryId);
+      }
+      series.versions.put(versionTag, version.withAvailable(true));
+      series.available = true;
+    }
+  }
+
+  @Override
+  public void enableResourceSeries(String repositoryId, UUID artifactId) {
+    Map<UUID, Series> repository = repositories.get(repositoryId);
+    if (repository == null && !repositoryId.equals(defaultRepositoryId)) {
+      throw new ResourceNotFoundException(artifactId, repositoryId);
+    }
+    writeSeries(repositoryId, artifactId, series -> {
+      series.available = true;
+      series.versions.replaceAll((tag, version) -> version.withAvailable(true));
+      return null;
+    });
+  }
+
+  @Override
+  public DaoResult<ArtifactVersion> saveResource(String repositoryId, UUID artifactId,
+      String versionTag, byte[] document, Map<String, String> config) {
+    Version saved = writeSeries(repositoryId, artifactId, series -> {
+      Version previous = series.versions.get(versionTag);
+      // new versions are added at the end of the series, while overwritten ones keep their place
+      long seq = previous != null ? previous.seq : series.nextSeq++;
+      Version version = new Version(versionTag, seq, System.currentTimeMillis(), true,
+          payloads.store(document));
+      series.versions.put(versionTag, version);
+      series.available = true;
+      if (config != null) {
+        series.metadata.putAll(config);
+      }
+      if (previous != null) {
+        payloads.release(previous.payload);
+      }
+      return version;
+    });
+    compactIfNeeded();
+    return ofMemory(new VersionAdapter(artifactId, saved));
+  }
+
+  @Override
+  public DaoResult<Artifact> saveResource(String repositoryId, UUID artifactId) {
+    writeSeries(repositoryId, artifactId, series -> {
+      series.available = true;
+      return null;
+    });
+    return ofMemory(new SeriesAdapter(artifactId, true));
+  }
+
+  /***********************************************************************************/
+
+  /**
+   * Copies the content still in use out of the sparse slabs, then drops them
+   *
+   * @return the number of bytes released
+   */
+  public long compact() {
+    if (!compacting.compareAndSet(false, true)) {
+      return 0;
+    }
+    try {
+      Set<Slab> sparse = payloads.sparseSlabs();
+      if (sparse.isEmpty()) {
+        return 0;
+      }
+      for (Map<UUID, Series> repository : repositories.values()) {
+        for (Series series : repository.values()) {
+          synchronized (series) {
+            // the payloads of a series removed since it was listed have already been released
+            if (!series.removed) {
+              series.versions.replaceAll((tag, version) ->
+                  sparse.contains(version.payload.getSlab())
+                      ? version.withPayload(payloads.store(version.payload.read()))
+                      : version);
+            }
+          }
+        }
+      }
+      return payloads.drop(sparse);
+    } finally {
+      compacting.set(false);
+    }
+  }
+
+  /**
+   * Schedules a compaction, unless one is already scheduled. The compaction runs again as long as
+   * it releases space and the garbage still exceeds the threshold, since the writes made while it
+   * runs do not schedule another one.
+   */
+  private void compactIfNeeded() {
+    if (!needsCompaction() || !compactionScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      compactor.execute(() -> {
+        try {
+          while (compact() > 0 && needsCompaction()) {
+            // compact again
+          }
+        } finally {
+          compactionScheduled.set(false);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // shut down
+      compactionScheduled.set(false);
+    }
+  }
+
+  private boolean needsCompaction() {
+    long garbage = payloads.getGarbageBytes();
+    return garbage > payloads.getSlabSize() && garbage * 2 > payloads.getAllocatedBytes();
+  }
+
+  /**
+   * Waits for the compactions scheduled so far to complete
+   */
+  void awaitCompaction() throws InterruptedException, ExecutionException {
+    compactor.submit(() -> {
+    }).get();
+  }
+
+  PayloadStore getPayloadStore() {
+    return payloads;
+  }
+
+  /***********************************************************************************/
+
+  private Map<UUID, Series> repository(String repositoryId) {
+    Map<UUID, Series> repository = repositories.get(repositoryId);
+    if (repository != null) {
+      return repository;
+    }
+    if (repositoryId.equals(defaultRepositoryId)) {
+      return Map.of();
+    }
+    throw new RepositoryNotFoundException(repositoryId);
+  }
+
+  /**
+   * Changes a series, creating it if needed
+   */
+  private <T> T writeSeries(String repositoryId, UUID artifactId, Function<Series, T> update) {
+    while (true) {
+      Series series = repositories.computeIfAbsent(repositoryId, id -> new ConcurrentHashMap<>())
+          .computeIfAbsent(artifactId, Series::new);
+      synchronized (series) {
+        // a series removed since it was looked up is replaced by a new one
+        if (!series.removed) {
+          return update.apply(series);
+        }
+      }
+    }
+  }
+
+  private Series fetchSeries(String repositoryId, UUID artifactId) {
+    Series series = repository(repositoryId).get(artifactId);
+    if (series == null) {
+      throw new ResourceNotFoundException(artifactId, repositoryId);
+    }
+    return series;
+  }
+
+  private List<Version> fetchVersions(String repositoryId, UUID artifactId, Boolean deleted) {
+    Series series = fetchSeries(repositoryId, artifactId);
+    boolean includeDeleted = Boolean.TRUE.equals(deleted);
+    if (!includeDeleted && !series.available) {
+      throw new ResourceNoContentException("Artifact known, but not available.");
+    }
+    return series.versions.values().stream()
+        .filter(version -> includeDeleted || version.available)
+        .sorted(Comparator.comparingLong(version -> version.seq))
+        .collect(Collectors.toList());
+  }
+
+  private boolean matches(Series series, Map<String, String> query) {
+    return query == null || query.entrySet().stream()
+        .allMatch(entry -> entry.getValue().equals(series.metadata.get(entry.getKey())));
+  }
+
+  /***********************************************************************************/
+
+  private static class Series {
+
+    private final UUID artifactId;
+
+    private volatile boolean available = true;
+
+    /**
+     * Guarded by the series
+     */
+    private boolean removed = false;
+
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+
+    private final Map<String, String> metadata = new ConcurrentHashMap<>();
+
+    /**
+     * Guarded by the series
+     */
+    private long nextSeq = 0;
+
+    private Series(UUID artifactId) {
+      this.artifactId = artifactId;
+    }
+  }
+
+  private static class Version {
+
+    private final String tag;
+
+    private final long seq;
+
+    private final long created;
+
+    private final boolean available;
+
+    private final Payload payload;
+
+    private Version(String tag, long seq, long created, boolean available, Payload payload) {
+      this.tag = tag;
+      this.seq = seq;
+      this.created = created;
+      this.available = available;
+      this.payload = payload;
+    }
+
+    private Version withAvailable(boolean available) {
+      return available == this.available
+          ? this
+          : new Version(tag, seq, created, available, payload);
+    }
+
+    private Version withPayload(Payload payload) {
+      return new Version(tag, seq, created, available, payload);
+    }
+  }
+
+  public static class SeriesAdapter implements Artifact {
+
+    private final UUID artifactId;
+
+    private final boolean available;
+
+    SeriesAdapter(UUID artifactId, boolean available) {
+      this.artifactId = artifactId;
+      this.available = available;
+    }
+
+    @Override
+    public UUID getArtifactId() {
+      return artifactId;
+    }
+
+    @Override
+    public boolean isUnavailable() {
+      return !available;
+    }
+
+    @Override
+    public boolean isAvailable() {
+      return available;
+    }
+  }
+
+  public static class VersionAdapter implements ArtifactVersion {
+
+    private final UUID artifactId;
+
+    private final Version version;
+
+    private VersionAdapter(UUID artifactId, Version version) {
+      this.artifactId = artifactId;
+      this.version = version;
+    }
+
+    @Override
+    public ResourceIdentifier getResourceIdentifier() {
+      return newId(artifactId, version.tag);
+    }
+
+    @Override
+    public boolean isUnavailable() {
+      return !version.available;
+    }
+
+    @Override
+    public boolean isAvailable() {
+      return version.available;
+    }
+
+    public long getCreated() {
+      return version.created;
+    }
+
+    @Override
+    public InputStream getDataStream() throws DaoRuntimeException {
+      return new ByteArrayInputStream(version.payload.read());
+    }
+  }
+
+}
@@ -0,0 +1,21 @@
+package edu.mayo.kmdp.repository.artifact.memory;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryCore;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactDAO;
+import org.omg.spec.api4kp._20200801.services.KPServer;
+
+@KPServer
+public class InMemoryKnowledgeArtifactRepository extends KnowledgeArtifactRepositoryCore
+    implements InMemoryKnowledgeArtifactRepositoryService {
+
+  public InMemoryKnowledgeArtifactRepository(ArtifactDAO dao,
+      KnowledgeArtifactRepositoryServerProperties cfg) {
+    super(dao, cfg);
+  }
+
+  public InMemoryKnowledgeArtifactRepository(KnowledgeArtifactRepositoryServerProperties cfg) {
+    this(new InMemoryArtifactDAO(cfg), cfg);
+  }
+
+}
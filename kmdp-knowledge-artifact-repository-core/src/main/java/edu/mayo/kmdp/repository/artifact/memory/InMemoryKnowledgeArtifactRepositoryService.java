@@ -0,0 +1,18 @@
+package edu.mayo.kmdp.repository.artifact.memory;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryService;
+import java.util.Properties;
+
+public interface InMemoryKnowledgeArtifactRepositoryService extends
+    KnowledgeArtifactRepositoryService {
+
+  /**
+   * Builds a repository held in memory, which is lost when the repository is shut down
+   */
+  static KnowledgeArtifactRepositoryService inMemoryArtifactRepository(Properties properties) {
+    return new InMemoryKnowledgeArtifactRepository(
+        new KnowledgeArtifactRepositoryServerProperties(properties));
+  }
+
+}
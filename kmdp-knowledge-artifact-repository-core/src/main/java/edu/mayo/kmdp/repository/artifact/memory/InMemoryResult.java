@@ -0,0 +1,21 @@
+package edu.mayo.kmdp.repository.artifact.memory;
+
+import edu.mayo.kmdp.repository.artifact.dao.DaoResult;
+
+public class InMemoryResult<T> implements DaoResult<T> {
+
+  private final T value;
+
+  <X extends T> InMemoryResult(X value) {
+    this.value = value;
+  }
+
+  public T getValue() {
+    return value;
+  }
+
+  public static <T> InMemoryResult<T> ofMemory(T value) {
+    return new InMemoryResult<>(value);
+  }
+
+}
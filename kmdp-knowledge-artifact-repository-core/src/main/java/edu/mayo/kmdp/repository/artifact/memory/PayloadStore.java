@@ -0,0 +1,170 @@
+package edu.mayo.kmdp.repository.artifact.memory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores the content of the versions outside of the heap, in direct {@link ByteBuffer} slabs.
+ * <p>
+ * The content is appended to the current slab, and a new slab is allocated when the current one
+ * is full. The content larger than half a slab gets a slab of its own. The slabs are never
+ * written over: the space of the content that is replaced or removed is only counted as garbage,
+ * so that a {@link Payload} can be read at any time without a lock. The space is reclaimed by
+ * copying the content still in use out of the sparse slabs, then dropping them: a dropped slab
+ * is freed by the garbage collector once no reader references it anymore.
+ */
+class PayloadStore {
+
+  static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+
+  private final int slabSize;
+
+  private final List<Slab> slabs = new ArrayList<>();
+
+  private Slab current;
+
+  PayloadStore(int slabSize) {
+    this.slabSize = slabSize;
+  }
+
+  /**
+   * Copies content into the store
+   */
+  synchronized Payload store(byte[] bytes) {
+    if (bytes.length > slabSize / 2) {
+      Slab dedicated = new Slab(bytes.length);
+      slabs.add(dedicated);
+      return dedicated.append(bytes);
+    }
+    if (current == null || current.remaining() < bytes.length) {
+      current = new Slab(slabSize);
+      slabs.add(current);
+    }
+    return current.append(bytes);
+  }
+
+  /**
+   * Marks the space of content that is no longer used as garbage
+   */
+  void release(Payload payload) {
+    payload.slab.garbage.addAndGet(payload.length);
+  }
+
+  /**
+   * @return the slabs, other than the current one, at least half of which is garbage
+   */
+  synchronized Set<Slab> sparseSlabs() {
+    Set<Slab> sparse = new HashSet<>();
+    for (Slab slab : slabs) {
+      if (slab != current && slab.garbage.get() * 2L >= slab.used) {
+        sparse.add(slab);
+      }
+    }
+    return sparse;
+  }
+
+  /**
+   * Drops slabs, once their content still in use has been copied
+   *
+   * @return the number of bytes dropped
+   */
+  synchronized long drop(Collection<Slab> dropped) {
+    long bytes = 0;
+    for (Slab slab : dropped) {
+      if (slabs.remove(slab)) {
+        bytes += slab.buffer.capacity();
+      }
+    }
+    return bytes;
+  }
+
+  synchronized void reset() {
+    slabs.clear();
+    current = null;
+  }
+
+  synchronized long getAllocatedBytes() {
+    return slabs.stream().mapToLong(slab -> slab.buffer.capacity()).sum();
+  }
+
+  synchronized long getGarbageBytes() {
+    return slabs.stream().mapToLong(slab -> slab.garbage.get()).sum();
+  }
+
+  synchronized int getSlabCount() {
+    return slabs.size();
+  }
+
+  int getSlabSize() {
+    return slabSize;
+  }
+
+  static class Slab {
+
+    private final ByteBuffer buffer;
+
+    /**
+     * Guarded by the store
+     */
+    private int used = 0;
+
+    private final AtomicInteger garbage = new AtomicInteger();
+
+    private Slab(int capacity) {
+      this.buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    private int remaining() {
+      return buffer.capacity() - used;
+    }
+
+    private Payload append(byte[] bytes) {
+      // the writes and the reads go through views, so that the slab has no shared position
+      ByteBuffer view = buffer.duplicate();
+      view.position(used);
+      view.put(bytes);
+      Payload payload = new Payload(this, used, bytes.length);
+      used += bytes.length;
+      return payload;
+    }
+  }
+
+  /**
+   * The location of some content in a slab
+   */
+  static class Payload {
+
+    private final Slab slab;
+
+    private final int offset;
+
+    private final int length;
+
+    private Payload(Slab slab, int offset, int length) {
+      this.slab = slab;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    Slab getSlab() {
+      return slab;
+    }
+
+    int getLength() {
+      return length;
+    }
+
+    byte[] read() {
+      byte[] bytes = new byte[length];
+      ByteBuffer view = slab.buffer.duplicate();
+      view.position(offset);
+      view.get(bytes);
+      return bytes;
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package edu.mayo.kmdp.repository.artifact.compression;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.mayo.kmdp.repository.artifact.exceptions.DaoRuntimeException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class DictionaryCompressionTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(DictionaryCompressionTest.class);
+
+  @Test
+  void testRoundTrip() {
+    List<byte[]> corpus = corpus(50, 1);
+    byte[] dictionary = DictionaryTrainer.train(corpus.subList(0, 40));
+
+    for (byte[] doc : corpus.subList(40, 50)) {
+      byte[] compressed = DictionaryCodec.compress(doc, dictionary);
+      assertArrayEquals(doc, DictionaryCodec.decompress(compressed, dictionary));
+    }
+  }
+
+  @Test
+  void testRoundTripWithoutDictionary() {
+    byte[] doc = corpus(1, 2).get(0);
+    assertArrayEquals(doc, DictionaryCodec.decompress(DictionaryCodec.compress(doc, null), null));
+  }
+
+  @Test
+  void testMissingDictionary() {
+    List<byte[]> corpus = corpus(20, 3);
+    byte[] dictionary = DictionaryTrainer.train(corpus);
+    byte[] compressed = DictionaryCodec.compress(corpus.get(0), dictionary);
+
+    assertThrows(DaoRuntimeException.class, () -> DictionaryCodec.decompress(compressed, null));
+  }
+
+  @Test
+  void testDictionaryIsBounded() {
+    byte[] dictionary = DictionaryTrainer.train(corpus(500, 4), 4 * 1024);
+    assertTrue(dictionary.length <= 4 * 1024);
+  }
+
+  @Test
+  void testNoSharedContent() {
+    var rnd = new Random(5);
+    List<byte[]> noise = new ArrayList<>();
+    for (int j = 0; j < 10; j++) {
+      byte[] b = new byte[2048];
+      rnd.nextBytes(b);
+      noise.add(b);
+    }
+    assertEquals(0, DictionaryTrainer.train(noise).length);
+  }
+
+  /**
+   * Compares the compression ratio and the decoding throughput on a synthetic corpus of small,
+   * similar XML documents, with and without a trained dictionary
+   */
+  @Test
+  @EnabledIfSystemProperty(named = "kmdp.benchmark", matches = "true")
+  void testBenchmarkSimilarDocuments() {
+    List<byte[]> training = corpus(200, 6);
+    List<byte[]> test = corpus(500, 7);
+    byte[] dictionary = DictionaryTrainer.train(training);
+
+    long raw = test.stream().mapToLong(b -> b.length).sum();
+    List<byte[]> plain = new ArrayList<>();
+    List<byte[]> trained = new ArrayList<>();
+    for (byte[] doc : test) {
+      plain.add(DictionaryCodec.compress(doc, null));
+      trained.add(DictionaryCodec.compress(doc, dictionary));
+    }
+    long plainSize = plain.stream().mapToLong(b -> b.length).sum();
+    long trainedSize = trained.stream().mapToLong(b -> b.length).sum();
+
+    double plainThroughput = decodeThroughput(plain, null, raw);
+    double trainedThroughput = decodeThroughput(trained, dictionary, raw);
+
+    logger.info("Corpus of {} documents, {} bytes, dictionary of {} bytes",
+        test.size(), raw, dictionary.length);
+    logger.info("Plain deflate :: ratio {} :: decode {} MB/s",
+        String.format("%.2f", (double) raw / plainSize),
+        String.format("%.1f", plainThroughput));
+    logger.info("Dictionary deflate :: ratio {} :: decode {} MB/s",
+        String.format("%.2f", (double) raw / trainedSize),
+        String.format("%.1f", trainedThroughput));
+
+    assertTrue(trainedSize < plainSize);
+  }
+
+  private double decodeThroughput(List<byte[]> compressed, byte[] dictionary, long raw) {
+    int rounds = 5;
+    long start = System.nanoTime();
+    for (int r = 0; r < rounds; r++) {
+      for (byte[] b : compressed) {
+        DictionaryCodec.decompress(b, dictionary);
+      }
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    return (raw * rounds) / (1024.0 * 1024.0) / seconds;
+  }
+
+  /**
+   * Generates XML documents that share most of their structure, and differ in identifiers,
+   * labels and in the number and order of their elements
+   */
+  static List<byte[]> corpus(int size, long seed) {
+    var rnd = new Random(seed);
+    String[] terms = {"Diabetes Mellitus", "Hypertension", "Asthma", "Heart Failure",
+        "Chronic Kidney Disease", "Atrial Fibrillation", "Hyperlipidemia", "Obesity"};
+    List<byte[]> docs = new ArrayList<>();
+    for (int j = 0; j < size; j++) {
+      var sb = new StringBuilder();
+      sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+          .append("<surr:KnowledgeAsset xmlns:surr=\"https://www.omg.org/spec/API4KP/20200801/surrogate\" ")
+          .append("xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" ")
+          .append("xmlns:id=\"https://www.omg.org/spec/API4KP/20200801/id\">\n")
+          .append("  <surr:assetId>\n")
+          .append("    <id:resourceId>https://clinicalknowledgemanagement.mayo.edu/assets/")
+          .append(UUID.nameUUIDFromBytes(("" + seed + j).getBytes())).append("</id:resourceId>\n")
+          .append("    <id:versionTag>").append(rnd.nextInt(10)).append('.')
+          .append(rnd.nextInt(10)).append(".0</id:versionTag>\n")
+          .append("  </surr:assetId>\n")
+          .append("  <surr:name>").append(terms[rnd.nextInt(terms.length)])
+          .append(" Decision Rule</surr:name>\n");
+      List<String> annotations = new ArrayList<>();
+      int n = 3 + rnd.nextInt(10);
+      for (int k = 0; k < n; k++) {
+        annotations.add("  <surr:annotation>\n"
+            + "    <surr:rel>\n"
+            + "      <id:conceptId>https://www.omg.org/spec/API4KP/20200801/taxonomy/"
+            + "knowledgeassetrole#captures</id:conceptId>\n"
+            + "      <id:tag>captures</id:tag>\n"
+            + "    </surr:rel>\n"
+            + "    <surr:ref>\n"
+            + "      <id:conceptId>http://snomed.info/id/" + (100000 + rnd.nextInt(900000))
+            + "</id:conceptId>\n"
+            + "      <id:prefLabel>" + terms[rnd.nextInt(terms.length)] + "</id:prefLabel>\n"
+            + "    </surr:ref>\n"
+            + "  </surr:annotation>\n");
+      }
+      Collections.shuffle(annotations, rnd);
+      annotations.forEach(sb::append);
+      sb.append("</surr:KnowledgeAsset>\n");
+      docs.add(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    return docs;
+  }
+}
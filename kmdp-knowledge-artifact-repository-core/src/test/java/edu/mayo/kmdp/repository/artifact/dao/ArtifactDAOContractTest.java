@@ -0,0 +1,187 @@
+package edu.mayo.kmdp.repository.artifact.dao;
+
+import static java.util.Collections.emptyMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNotFoundException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The behavior expected of every {@link ArtifactDAO}, after the cases of the JPA and JCR DAO
+ * tests. A DAO test extends it with the DAO under test, and the tests specific to that DAO.
+ */
+public abstract class ArtifactDAOContractTest<T extends ArtifactDAO> {
+
+  protected T dao;
+
+  protected String repoId;
+
+  protected UUID artifactUUID;
+
+  protected UUID artifactUUID2;
+
+  /**
+   * @return a new, empty DAO
+   */
+  protected abstract T newDao();
+
+  /**
+   * @return the default repository of the DAO
+   */
+  protected abstract String defaultRepositoryId();
+
+  @BeforeEach
+  void repo() {
+    dao = newDao();
+    repoId = defaultRepositoryId();
+    artifactUUID = UUID.randomUUID();
+    artifactUUID2 = UUID.randomUUID();
+  }
+
+  @AfterEach
+  void cleanup() {
+    dao.shutdown();
+  }
+
+  @Test
+  void testHasNonExistentArtifact() {
+    assertFalse(dao.hasResourceSeries(repoId, UUID.randomUUID()).getValue());
+  }
+
+  @Test
+  void testHasArtifact() {
+    UUID random = UUID.randomUUID();
+    dao.saveResource(repoId, random);
+    assertTrue(dao.hasResourceSeries(repoId, random).getValue());
+  }
+
+  @Test
+  void testClear() {
+    dao.saveResource(repoId, artifactUUID, "new", "hi!".getBytes());
+    assertEquals(1, dao.listResources(repoId, false, new HashMap<>()).getValue().size());
+    assertEquals("hi!", d(dao.getResourceVersion(repoId, artifactUUID, "new", false).getValue()));
+
+    dao.clear();
+
+    UUID randomUuid = UUID.randomUUID();
+    dao.saveResource(repoId, randomUuid, "something", "new node".getBytes());
+    assertEquals(1, dao.listResources(repoId, false, new HashMap<>()).getValue().size());
+    assertEquals("new node",
+        d(dao.getResourceVersion(repoId, randomUuid, "something", false).getValue()));
+  }
+
+  @Test
+  void testRemoveSeriesRemovesVersions() {
+    dao.saveResource(repoId, artifactUUID, "v1", "hi!".getBytes());
+    dao.saveResource(repoId, artifactUUID2, "v1", "hi!".getBytes());
+
+    dao.removeResourceSeries(repoId, artifactUUID);
+    assertFalse(dao.hasResourceSeries(repoId, artifactUUID).getValue());
+    dao.clearRepository(repoId, true);
+    assertFalse(dao.hasResourceSeries(repoId, artifactUUID2).getValue());
+
+    // a series created again with the same id does not get the versions of the removed one back
+    dao.saveResource(repoId, artifactUUID2);
+    assertTrue(dao.getResourceVersions(repoId, artifactUUID2, true).getValue().isEmpty());
+  }
+
+  @Test
+  void testLoadAndGet() {
+    dao.saveResource(repoId, artifactUUID, "new", "hi!".getBytes());
+    ArtifactVersion result = dao.getResourceVersion(repoId, artifactUUID, "new", false).getValue();
+    assertEquals("hi!", d(result));
+    assertTrue(result.isAvailable());
+  }
+
+  @Test
+  void testLoadAndGetVersions() {
+    dao.saveResource(repoId, artifactUUID, "new1", "hi1".getBytes());
+    dao.saveResource(repoId, artifactUUID, "new2", "hi2".getBytes());
+
+    assertEquals("hi1", d(dao.getResourceVersion(repoId, artifactUUID, "new1", false).getValue()));
+    assertEquals("hi2", d(dao.getResourceVersion(repoId, artifactUUID, "new2", false).getValue()));
+    assertEquals(2, dao.getResourceVersions(repoId, artifactUUID, false).getValue().size());
+  }
+
+  @Test
+  void testLoadAndGetLatestVersion() {
+    for (int j = 1; j <= 4; j++) {
+      dao.saveResource(repoId, artifactUUID, "new" + j, ("hi" + j).getBytes());
+    }
+    assertEquals("hi4", d(dao.getLatestResourceVersion(repoId, artifactUUID, false).getValue()));
+  }
+
+  @Test
+  void testLoadAndGetLatestVersionNone() {
+    dao.saveResource(repoId, artifactUUID, "new1", "hi1".getBytes());
+    assertThrows(ResourceNotFoundException.class,
+        () -> dao.getLatestResourceVersion(repoId, artifactUUID2, false));
+  }
+
+  @Test
+  void testDeleteTagsVersionUnavailable() {
+    dao.saveResource(repoId, artifactUUID, "new1", "hi1".getBytes());
+    dao.saveResource(repoId, artifactUUID, "new2", "hi2".getBytes());
+
+    dao.deleteResourceVersion(repoId, artifactUUID, "new1");
+
+    assertTrue(dao.getResourceVersion(repoId, artifactUUID, "new1", true).getValue()
+        .isUnavailable());
+    assertTrue(dao.getResourceVersion(repoId, artifactUUID, "new2", true).getValue()
+        .isAvailable());
+  }
+
+  @Test
+  void testDeleteTagsArtifactsAndVersionsUnavailable() {
+    dao.saveResource(repoId, artifactUUID, "new1", "hi1".getBytes());
+    dao.saveResource(repoId, artifactUUID, "new2", "hi2".getBytes());
+
+    dao.deleteResourceSeries(repoId, artifactUUID);
+
+    assertTrue(dao.getResourceVersion(repoId, artifactUUID, "new1", true).getValue()
+        .isUnavailable());
+    assertTrue(dao.getResourceVersion(repoId, artifactUUID, "new2", true).getValue()
+        .isUnavailable());
+  }
+
+  @Test
+  void testQueryAll() {
+    dao.saveResource(repoId, UUID.randomUUID(), "new1", "hi1".getBytes(), m("type", "foobar"));
+    dao.saveResource(repoId, UUID.randomUUID(), "new1.1", "hi1.1".getBytes(), m("type", "foo"));
+    dao.saveResource(repoId, UUID.randomUUID(), "new2", "hi2".getBytes(), m("type", "foobar"));
+    dao.saveResource(repoId, UUID.randomUUID(), "new2.1", "hi2.1".getBytes(), m("type", "foo"));
+
+    List<Artifact> resources = dao.listResources(repoId, false, emptyMap()).getValue();
+    assertEquals(4, resources.size());
+    assertEquals(2, dao.listResources(repoId, false, m("type", "foo")).getValue().size());
+  }
+
+  @Test
+  void testQueryWithNumbers() {
+    dao.saveResource(repoId, artifactUUID, "new1", "hi1".getBytes());
+    dao.saveResource(repoId, artifactUUID, "new1.1", "hi1.1".getBytes());
+    dao.saveResource(repoId, artifactUUID2, "new2", "hi2".getBytes());
+    dao.saveResource(repoId, artifactUUID2, "new2.1", "hi2.1".getBytes());
+
+    assertEquals(2, dao.listResources(repoId, false, emptyMap()).getValue().size());
+  }
+
+  protected Map<String, String> m(String k, String v) {
+    Map<String, String> m = new HashMap<>();
+    m.put(k, v);
+    return m;
+  }
+
+  protected String d(ArtifactVersion version) {
+    return new String(dao.getData(repoId, version));
+  }
+}
@@ -0,0 +1,245 @@
+package edu.mayo.kmdp.repository.artifact.fs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
+import edu.mayo.kmdp.repository.artifact.exceptions.RepositoryNotFoundException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNoContentException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNotFoundException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileSystemArtifactDAOTest {
+
+  @TempDir
+  File baseDir;
+
+  private FileSystemArtifactDAO dao;
+
+  @BeforeEach
+  void repo() {
+    dao = new FileSystemArtifactDAO(cfg());
+  }
+
+  private KnowledgeArtifactRepositoryServerProperties cfg() {
+    return KnowledgeArtifactRepositoryServerProperties.emptyConfig()
+        .with(KnowledgeArtifactRepositoryOptions.BASE_DIR, baseDir.getAbsolutePath());
+  }
+
+  @Test
+  void testSaveAndLoad() {
+    UUID artifactId = UUID.randomUUID();
+    dao.saveResource("1", artifactId, "v1", "hi".getBytes()).close();
+    dao.saveResource("1", artifactId, "v2", "bye".getBytes()).close();
+
+    assertTrue(dao.hasResourceSeries("1", artifactId).getValue());
+    assertEquals("hi", data(dao.getResourceVersion("1", artifactId, "v1", false).getValue()));
+    assertEquals("bye", data(dao.getLatestResourceVersion("1", artifactId, false).getValue()));
+    assertEquals(List.of("v1", "v2"), tags(dao.getResourceVersions("1", artifactId, false)
+        .getValue()));
+  }
+
+  @Test
+  void testOverwriteKeepsOrder() {
+    UUID artifactId = UUID.randomUUID();
+    dao.saveResource("1", artifactId, "v1", "a".getBytes()).close();
+    dao.saveResource("1", artifactId, "v2", "b".getBytes()).close();
+    ArtifactVersion before = dao.getResourceVersion("1", artifactId, "v1", false).getValue();
+    dao.saveResource("1", artifactId, "v1", "c".getBytes()).close();
+
+    assertEquals(List.of("v1", "v2"), tags(dao.getResourceVersions("1", artifactId, false)
+        .getValue()));
+    // the content file of the version is replaced in place
+    assertEquals("c", data(before));
+    assertEquals("b", data(dao.getLatestResourceVersion("1", artifactId, false).getValue()));
+  }
+
+  @Test
+  void testSoftDeleteAndEnable() {
+    UUID artifactId = UUID.randomUUID();
+    dao.saveResource("1", artifactId, "v1", "a".getBytes()).close();
+    dao.saveResource("1", artifactId, "v2", "b".getBytes()).close();
+
+    dao.deleteResourceVersion("1", artifactId, "v2");
+    assertThrows(ResourceNoContentException.class,
+        () -> dao.getResourceVersion("1", artifactId, "v2", false));
+    assertEquals("b", data(dao.getResourceVersion("1", artifactId, "v2", true).getValue()));
+    assertEquals("a", data(dao.getLatestResourceVersion("1", artifactId, false).getValue()));
+    assertEquals("b", data(dao.getLatestResourceVersion("1", artifactId, true).getValue()));
+
+    dao.deleteResourceSeries("1", artifactId);
+    assertTrue(dao.listResources("1", false).getValue().isEmpty());
+    assertEquals(1, dao.listResources("1", true).getValue().size());
+    assertThrows(ResourceNoContentException.class,
+        () -> dao.getResourceVersions("1", artifactId, false));
+    assertEquals(2, dao.getResourceVersions("1", artifactId, true).getValue().size());
+
+    dao.enableResourceVersion("1", artifactId, "v1");
+    assertEquals(List.of("v1"), tags(dao.getResourceVersions("1", artifactId, false)
+        .getValue()));
+
+    dao.enableResourceSeries("1", artifactId);
+    assertEquals(List.of("v1", "v2"), tags(dao.getResourceVersions("1", artifactId, false)
+        .getValue()));
+  }
+
+  @Test
+  void testRemove() {
+    UUID artifactId = UUID.randomUUID();
+    dao.saveResource("1", artifactId, "v1", "a".getBytes()).close();
+    dao.saveResource("1", artifactId, "v2", "b".getBytes()).close();
+
+    dao.removeResourceVersion("1", artifactId, "v1");
+    assertThrows(ResourceNotFoundException.class,
+        () -> dao.getResourceVersion("1", artifactId, "v1", true));
+    assertEquals(1, dataFiles(artifactId));
+
+    dao.removeResourceSeries("1", artifactId);
+    assertFalse(dao.hasResourceSeries("1", artifactId).getValue());
+    assertFalse(Files.exists(dao.seriesDir("1", artifactId)));
+  }
+
+  @Test
+  void testErrors() {
+    UUID artifactId = UUID.randomUUID();
+    assertThrows(RepositoryNotFoundException.class, () -> dao.listResources("1", false));
+    assertThrows(RepositoryNotFoundException.class,
+        () -> dao.hasResourceSeries("1", artifactId));
+    assertThrows(ResourceNotFoundException.class,
+        () -> dao.enableResourceSeries("1", artifactId));
+
+    dao.saveResource("1", UUID.randomUUID(), "v1", "a".getBytes()).close();
+    assertFalse(dao.hasResourceSeries("1", artifactId).getValue());
+    assertThrows(ResourceNotFoundException.class,
+        () -> dao.getResourceVersions("1", artifactId, true));
+
+    // enabling an unknown series creates it, empty
+    dao.enableResourceSeries("1", artifactId);
+    assertFalse(dao.hasResourceVersions("1", artifactId, true).getValue());
+    assertThrows(ResourceNoContentException.class,
+        () -> dao.getLatestResourceVersion("1", artifactId, true));
+  }
+
+  @Test
+  void testMetadataQuery() {
+    dao.saveResource("1", UUID.randomUUID(), "v1", "a".getBytes(), m("type", "x")).close();
+    dao.saveResource("1", UUID.randomUUID(), "v1", "b".getBytes(), m("type", "y")).close();
+    dao.saveResource("1", UUID.randomUUID(), "v1", "c".getBytes(), m("type", "x")).close();
+
+    assertEquals(2, dao.listResources("1", false, m("type", "x")).getValue().size());
+    assertEquals(3, dao.listResources("1", false).getValue().size());
+  }
+
+  @Test
+  void testLargeMetadata() {
+    UUID artifactId = UUID.randomUUID();
+    // above the 64 KB that a modified UTF-8 string can hold
+    String value = "\u00e9".repeat(40 * 1024);
+    dao.saveResource("1", artifactId, "v1", "a".getBytes(), m("description", value)).close();
+    dao.shutdown();
+
+    FileSystemArtifactDAO reopened = new FileSystemArtifactDAO(cfg());
+    assertEquals(artifactId, reopened.listResources("1", false, m("description", value))
+        .getValue().get(0).getArtifactId());
+  }
+
+  @Test
+  void testRepositoryIdentifiers() {
+    UUID artifactId = UUID.randomUUID();
+    dao.saveResource("../escape", artifactId, "v1", "a".getBytes()).close();
+
+    assertTrue(dao.repositoryDir("../escape").startsWith(baseDir.toPath()));
+    assertEquals(artifactId, dao.listResources("../escape", false).getValue().get(0)
+        .getArtifactId());
+    assertThrows(RepositoryNotFoundException.class, () -> dao.listResources("..", false));
+  }
+
+  @Test
+  void testReopen() {
+    UUID artifactId = UUID.randomUUID();
+    byte[] large = new byte[128 * 1024];
+    new Random(42).nextBytes(large);
+    dao.saveResource("1", artifactId, "v1", "a".getBytes()).close();
+    dao.saveResource("1", artifactId, "v2", large).close();
+    dao.deleteResourceVersion("1", artifactId, "v1");
+    dao.shutdown();
+
+    FileSystemArtifactDAO reopened = new FileSystemArtifactDAO(cfg());
+    assertEquals(List.of("v2"), tags(reopened.getResourceVersions("1", artifactId, false)
+        .getValue()));
+    assertArrayEquals(large, reopened.getData("1",
+        reopened.getLatestResourceVersion("1", artifactId, false).getValue()));
+    assertEquals(List.of("v1", "v2"), tags(reopened.getResourceVersions("1", artifactId, true)
+        .getValue()));
+  }
+
+  @Test
+  void testNoTemporaryFiles() throws IOException {
+    UUID artifactId = UUID.randomUUID();
+    for (int j = 0; j < 5; j++) {
+      dao.saveResource("1", artifactId, "v" + (j % 2), ("x" + j).getBytes()).close();
+    }
+    try (Stream<Path> files = Files.list(dao.seriesDir("1", artifactId))) {
+      assertTrue(files.noneMatch(
+          file -> file.getFileName().toString().endsWith(FileSystemArtifactDAO.TEMP_SUFFIX)));
+    }
+    assertEquals(2, dataFiles(artifactId));
+  }
+
+  @Test
+  void testClear() {
+    dao.saveResource("1", UUID.randomUUID(), "v1", "a".getBytes()).close();
+    dao.saveResource("2", UUID.randomUUID(), "v1", "a".getBytes()).close();
+
+    dao.clearRepository("1", true);
+    assertTrue(dao.listResources("1", true).getValue().isEmpty());
+    assertEquals(1, dao.listResources("2", true).getValue().size());
+
+    dao.clear();
+    assertThrows(RepositoryNotFoundException.class, () -> dao.listResources("2", true));
+  }
+
+  private long dataFiles(UUID artifactId) {
+    try (Stream<Path> files = Files.list(dao.seriesDir("1", artifactId))) {
+      return files
+          .filter(file -> file.getFileName().toString().endsWith(FileSystemArtifactDAO.DATA_SUFFIX))
+          .count();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private String data(ArtifactVersion version) {
+    return new String(dao.getData("1", version));
+  }
+
+  private List<String> tags(List<ArtifactVersion> versions) {
+    return versions.stream()
+        .map(version -> version.getResourceIdentifier().getVersionTag())
+        .collect(Collectors.toList());
+  }
+
+  private Map<String, String> m(String k, String v) {
+    Map<String, String> m = new HashMap<>();
+    m.put(k, v);
+    return m;
+  }
+}
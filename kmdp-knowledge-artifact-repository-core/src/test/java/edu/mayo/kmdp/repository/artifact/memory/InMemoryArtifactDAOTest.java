@@ -0,0 +1,193 @@
+package edu.mayo.kmdp.repository.artifact.memory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactDAOContractTest;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
+import edu.mayo.kmdp.repository.artifact.exceptions.RepositoryNotFoundException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNoContentException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class InMemoryArtifactDAOTest extends ArtifactDAOContractTest<InMemoryArtifactDAO> {
+
+  private static final int SLAB_SIZE = 1024;
+
+  private final KnowledgeArtifactRepositoryServerProperties cfg =
+      KnowledgeArtifactRepositoryServerProperties.emptyConfig();
+
+  @Override
+  protected InMemoryArtifactDAO newDao() {
+    return new InMemoryArtifactDAO(cfg, SLAB_SIZE);
+  }
+
+  @Override
+  protected String defaultRepositoryId() {
+    return cfg.getTyped(KnowledgeArtifactRepositoryOptions.DEFAULT_REPOSITORY_ID);
+  }
+
+  @Test
+  void testOverwriteKeepsOrder() {
+    UUID artifactId = UUID.randomUUID();
+    dao.saveResource(repoId, artifactId, "v1", "hi1".getBytes());
+    dao.saveResource(repoId, artifactId, "v2", "hi2".getBytes());
+    dao.saveResource(repoId, artifactId, "v1", "hi3".getBytes());
+
+    assertEquals("hi3", data(dao.getResourceVersion(repoId, artifactId, "v1", false).getValue()));
+    assertEquals("hi2", data(dao.getLatestResourceVersion(repoId, artifactId, false).getValue()));
+    // overwritten versions keep their place in the series
+    assertEquals(List.of("v1", "v2"), tags(dao.getResourceVersions(repoId, artifactId, false)
+        .getValue()));
+  }
+
+  @Test
+  void testSoftDeleteAndEnable() {
+    UUID artifactId = UUID.randomUUID();
+    dao.saveResource(repoId, artifactId, "v1", "a".getBytes());
+    dao.saveResource(repoId, artifactId, "v2", "b".getBytes());
+
+    dao.deleteResourceVersion(repoId, artifactId, "v2");
+    assertThrows(ResourceNoContentException.class,
+        () -> dao.getResourceVersion(repoId, artifactId, "v2", false));
+    assertTrue(dao.getResourceVersion(repoId, artifactId, "v2", true).getValue().isUnavailable());
+    assertEquals("a", data(dao.getLatestResourceVersion(repoId, artifactId, false).getValue()));
+
+    dao.deleteResourceSeries(repoId, artifactId);
+    assertTrue(dao.listResources(repoId, false).getValue().isEmpty());
+    assertEquals(1, dao.listResources(repoId, true).getValue().size());
+    assertThrows(ResourceNoContentException.class,
+        () -> dao.getResourceVersions(repoId, artifactId, false));
+
+    dao.enableResourceVersion(repoId, artifactId, "v1");
+    assertEquals(List.of("v1"), tags(dao.getResourceVersions(repoId, artifactId, false)
+        .getValue()));
+
+    dao.enableResourceSeries(repoId, artifactId);
+    assertEquals(List.of("v1", "v2"), tags(dao.getResourceVersions(repoId, artifactId, false)
+        .getValue()));
+  }
+
+  @Test
+  void testRemoveVersion() {
+    UUID artifactId = UUID.randomUUID();
+    dao.saveResource(repoId, artifactId, "v1", "a".getBytes());
+    dao.saveResource(repoId, artifactId, "v2", "b".getBytes());
+
+    dao.removeResourceVersion(repoId, artifactId, "v1");
+    assertThrows(ResourceNotFoundException.class,
+        () -> dao.getResourceVersion(repoId, artifactId, "v1", true));
+    assertEquals(List.of("v2"), tags(dao.getResourceVersions(repoId, artifactId, true)
+        .getValue()));
+  }
+
+  @Test
+  void testErrors() {
+    UUID artifactId = UUID.randomUUID();
+    assertThrows(RepositoryNotFoundException.class, () -> dao.listResources("1", false));
+    assertThrows(ResourceNotFoundException.class,
+        () -> dao.enableResourceSeries("1", artifactId));
+    assertThrows(ResourceNotFoundException.class,
+        () -> dao.getResourceVersions(repoId, artifactId, true));
+
+    // enabling an unknown series creates it, empty
+    dao.enableResourceSeries(repoId, artifactId);
+    assertFalse(dao.hasResourceVersions(repoId, artifactId, true).getValue());
+    assertThrows(ResourceNoContentException.class,
+        () -> dao.getLatestResourceVersion(repoId, artifactId, true));
+  }
+
+  @Test
+  void testCompaction() throws Exception {
+    UUID artifactId = UUID.randomUUID();
+    byte[] content = new byte[100];
+    dao.saveResource(repoId, artifactId, "v0", content);
+    ArtifactVersion first = dao.getResourceVersion(repoId, artifactId, "v0", false).getValue();
+
+    for (int j = 0; j < 200; j++) {
+      content[0] = (byte) j;
+      dao.saveResource(repoId, artifactId, "v" + (j % 3), content.clone());
+    }
+    PayloadStore store = dao.getPayloadStore();
+    // the writes schedule the compactions, which run in the background
+    dao.awaitCompaction();
+    // 3 live versions of 100 bytes, and the garbage left since the last compaction
+    assertTrue(store.getAllocatedBytes() <= 4L * SLAB_SIZE);
+
+    dao.compact();
+    assertTrue(store.getGarbageBytes() * 2 <= store.getAllocatedBytes());
+    assertEquals((byte) 199,
+        dao.getData(repoId, dao.getResourceVersion(repoId, artifactId, "v1", false).getValue())[0]);
+    // a version read before its slab was dropped can still be read
+    assertEquals(0, dao.getData(repoId, first)[0]);
+  }
+
+  @Test
+  void testLargeContent() {
+    UUID artifactId = UUID.randomUUID();
+    byte[] large = new byte[SLAB_SIZE * 3];
+    large[large.length - 1] = 42;
+    dao.saveResource(repoId, artifactId, "v1", large);
+    assertArrayEquals(large,
+        dao.getData(repoId, dao.getLatestResourceVersion(repoId, artifactId, false).getValue()));
+
+    dao.removeResourceSeries(repoId, artifactId);
+    dao.compact();
+    assertEquals(0, dao.getPayloadStore().getGarbageBytes());
+  }
+
+  @Test
+  void testConcurrentReadsAndWrites() throws Exception {
+    UUID artifactId = UUID.randomUUID();
+    dao.saveResource(repoId, artifactId, "v", "0000".getBytes());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> tasks = new ArrayList<>();
+      for (int t = 0; t < 2; t++) {
+        int writer = t;
+        tasks.add(executor.submit(() -> {
+          for (int j = 0; j < 2000; j++) {
+            dao.saveResource(repoId, artifactId, "v",
+                String.format("%d%03d", writer, j % 1000).getBytes());
+          }
+        }));
+        tasks.add(executor.submit(() -> {
+          for (int j = 0; j < 2000; j++) {
+            String read = data(dao.getResourceVersion(repoId, artifactId, "v", false)
+                .getValue());
+            assertEquals(4, read.length());
+          }
+        }));
+      }
+      for (Future<?> task : tasks) {
+        task.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(1, dao.getResourceVersions(repoId, artifactId, false).getValue().size());
+  }
+
+  private String data(ArtifactVersion version) {
+    return new String(dao.getData(repoId, version));
+  }
+
+  private List<String> tags(List<ArtifactVersion> versions) {
+    return versions.stream()
+        .map(version -> version.getResourceIdentifier().getVersionTag())
+        .collect(Collectors.toList());
+  }
+}
@@ -4,6 +4,8 @@ import static edu.mayo.kmdp.repository.artifact.jpa.JPAResult.ofJPA;
 
 import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
 import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+import edu.mayo.kmdp.repository.artifact.compression.DictionaryCodec;
+import edu.mayo.kmdp.repository.artifact.compression.DictionaryTrainer;
 import edu.mayo.kmdp.repository.artifact.dao.Artifact;
 import edu.mayo.kmdp.repository.artifact.dao.ArtifactDAO;
 import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
@@ -13,40 +15,84 @@ import edu.mayo.kmdp.repository.artifact.exceptions.RepositoryNotFoundException;
 import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNoContentException;
 import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNotFoundException;
 import edu.mayo.kmdp.repository.artifact.jpa.entities.ArtifactVersionEntity;
+import edu.mayo.kmdp.repository.artifact.jpa.entities.CompressionDictionaryEntity;
 import edu.mayo.kmdp.repository.artifact.jpa.entities.KeyId;
+import edu.mayo.kmdp.repository.artifact.jpa.routing.RepositoryPartitionContext;
+import edu.mayo.kmdp.repository.artifact.jpa.routing.RepositoryPartitionDataSource;
 import edu.mayo.kmdp.repository.artifact.jpa.stores.ArtifactVersionRepository;
+import edu.mayo.kmdp.repository.artifact.jpa.stores.CompressionDictionaryRepository;
 import edu.mayo.kmdp.repository.artifact.jpa.stores.simple.SimpleArtifactVersionRepository;
+import edu.mayo.kmdp.repository.artifact.jpa.stores.simple.SimpleCompressionDictionaryRepository;
 import edu.mayo.kmdp.util.FileUtil;
 import edu.mayo.kmdp.util.StreamUtil;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 @Component
 public class JPAArtifactDAO implements ArtifactDAO {
 
+  private static final Logger logger = LoggerFactory.getLogger(JPAArtifactDAO.class);
+
+  /**
+   * The minimum reduction of the compressed size of a sample for a retrained dictionary to
+   * replace the active one
+   */
+  private static final double MIN_DICTIONARY_GAIN = 0.05;
+
   @Autowired
   private DataSource dataSource;
 
   @Autowired
   private ArtifactVersionRepository versionRepo;
 
+  @Autowired
+  private CompressionDictionaryRepository dictionaryRepo;
+
   @Autowired
   private KnowledgeArtifactRepositoryServerProperties cfg;
 
   private String defaultRepositoryId;
 
+  private boolean dictionaryCompression;
+
+  /**
+   * The dictionary currently used to compress new versions, by repository
+   */
+  private final Map<String, Optional<CompressionDictionaryEntity>> activeDictionaries =
+      new ConcurrentHashMap<>();
+
+  /**
+   * When a dictionary was last trained, by repository
+   */
+  private final Map<String, Date> lastTrainings = new ConcurrentHashMap<>();
+
+  private ScheduledExecutorService dictionaryTrainer;
+
   public JPAArtifactDAO() {
     //
   }
@@ -60,7 +106,9 @@ public class JPAArtifactDAO implements ArtifactDAO {
   public JPAArtifactDAO(DataSource source, KnowledgeArtifactRepositoryServerProperties cfg) {
     this.dataSource = source;
     this.cfg = cfg;
-    this.versionRepo = SimpleArtifactVersionRepository.simpleRepo(source, cfg);
+    var simpleRepo = SimpleArtifactVersionRepository.simpleRepo(source, cfg);
+    this.versionRepo = simpleRepo;
+    this.dictionaryRepo = SimpleCompressionDictionaryRepository.simpleRepo(simpleRepo);
     ensureInit();
   }
 
@@ -68,11 +116,82 @@ public class JPAArtifactDAO implements ArtifactDAO {
   void ensureInit() {
     if (defaultRepositoryId == null) {
       defaultRepositoryId = cfg.getTyped(KnowledgeArtifactRepositoryOptions.DEFAULT_REPOSITORY_ID);
+      dictionaryCompression = Boolean.TRUE.equals(
+          cfg.getTyped(KnowledgeArtifactRepositoryOptions.DICTIONARY_COMPRESSION));
+      Integer retrainMinutes =
+          cfg.getTyped(KnowledgeArtifactRepositoryOptions.DICTIONARY_RETRAIN_INTERVAL);
+      if (dictionaryCompression && retrainMinutes != null && retrainMinutes > 0) {
+        scheduleDictionaryTraining(retrainMinutes);
+      }
+      sequenceLegacyVersions();
     }
   }
 
+  /**
+   * Assigns a position to the versions stored before versions were sequenced, in each partition,
+   * so that the versions of a series can be ordered by position alone. Once every row has a
+   * position, the column of a schema created before versions were sequenced can be made non
+   * nullable.
+   */
+  private void sequenceLegacyVersions() {
+    for (String partitionRepositoryId : partitionRepresentatives()) {
+      inPartition(partitionRepositoryId, () -> versionRepo.findAllBySeqIsNull().stream()
+          .map(ArtifactVersionEntity::getKey)
+          .map(key -> new KeyId(key.getRepositoryId(), key.getArtifactId(), null))
+          .distinct()
+          .forEach(series -> inPartition(series.getRepositoryId(), () -> resequence(
+              ensureSeries(series.getRepositoryId(), series.getArtifactId())))));
+    }
+  }
+
+  /**
+   * @return one repository assigned to each configured partition, to route a statement to that
+   * partition, followed by null for the default partition
+   */
+  private List<String> partitionRepresentatives() {
+    Map<String, String> partitionRepositories = new LinkedHashMap<>();
+    RepositoryPartitionDataSource.assignments(cfg)
+        .forEach((repositoryId, partition) ->
+            partitionRepositories.putIfAbsent(partition, repositoryId));
+    List<String> targets = new ArrayList<>(partitionRepositories.values());
+    targets.add(null);
+    return targets;
+  }
+
+  /**
+   * Runs an operation on the partition that stores a repository
+   *
+   * @param repositoryId the repository targeted by the operation
+   * @param operation    the operation
+   * @return the result of the operation
+   */
+  private <T> T inPartition(String repositoryId, Supplier<T> operation) {
+    RepositoryPartitionContext.bind(repositoryId);
+    try {
+      return operation.get();
+    } finally {
+      RepositoryPartitionContext.release();
+    }
+  }
+
+  /**
+   * Runs an operation without a result on the partition that stores a repository
+   *
+   * @param repositoryId the repository targeted by the operation
+   * @param operation    the operation
+   */
+  private void inPartition(String repositoryId, Runnable operation) {
+    inPartition(repositoryId, () -> {
+      operation.run();
+      return null;
+    });
+  }
+
   @Override
   public void shutdown() throws DaoRuntimeException {
+    if (dictionaryTrainer != null) {
+      dictionaryTrainer.shutdownNow();
+    }
     try {
       dataSource.getConnection().close();
       if (versionRepo instanceof Closeable) {
@@ -83,10 +202,21 @@ public class JPAArtifactDAO implements ArtifactDAO {
     }
   }
 
+  /**
+   * Deletes the content of the default partition, and of each configured partition. Each
+   * partition is cleared in a transaction of its own, since a transaction is bound to the
+   * connection of a single partition.
+   */
   @Override
-  @Transactional
   public void clear() {
-    versionRepo.deleteAll();
+    for (String repositoryId : partitionRepresentatives()) {
+      inPartition(repositoryId, () -> {
+        versionRepo.deleteAll();
+        dictionaryRepo.deleteAll();
+      });
+    }
+    activeDictionaries.clear();
+    lastTrainings.clear();
   }
 
   ArtifactVersionRepository getPersistenceAdapter() {
@@ -97,176 +227,393 @@ public class JPAArtifactDAO implements ArtifactDAO {
 
 
   @Override
+  @Transactional(readOnly = true)
   public DaoResult<List<Artifact>> listResources(String repositoryId, Boolean includeSoftDeleted,
       Map<String, String> config) {
-    List<Artifact> artifacts;
-    if (includeSoftDeleted) {
-      artifacts =
-          versionRepo.findAllByKey_RepositoryIdAndSeries(repositoryId, true);
-    } else {
-      artifacts =
-          versionRepo.findAllByKey_RepositoryIdAndSeriesAndSoftDeleted(repositoryId, true, false);
-    }
-    if (artifacts.isEmpty()) {
-      checkHasRepository(repositoryId);
-    }
-    return ofJPA(artifacts);
+    return inPartition(repositoryId, () -> {
+      List<Artifact> artifacts;
+      if (includeSoftDeleted) {
+        artifacts =
+            versionRepo.findAllByKey_RepositoryIdAndSeries(repositoryId, true);
+      } else {
+        artifacts =
+            versionRepo.findAllByKey_RepositoryIdAndSeriesAndSoftDeleted(repositoryId, true, false);
+      }
+      if (artifacts.isEmpty()) {
+        checkHasRepository(repositoryId);
+      }
+      return ofJPA(artifacts);
+    });
   }
 
 
   @Override
+  @Transactional(readOnly = true)
   public DaoResult<ArtifactVersion> getResourceVersion(String repositoryId, UUID artifactId,
       String versionTag, Boolean includeSoftDeleted) {
-    return ofJPA(
-        fetchArtifactVersion(repositoryId, artifactId, versionTag, includeSoftDeleted));
+    return inPartition(repositoryId, () -> ofJPA(
+        fetchArtifactVersion(repositoryId, artifactId, versionTag, includeSoftDeleted)));
   }
 
 
   @Override
+  @Transactional(readOnly = true)
   public DaoResult<Boolean> hasResourceSeries(String repositoryId, UUID artifactId) {
-    return ofJPA(
+    return inPartition(repositoryId, () -> ofJPA(
         versionRepo.existsByKey_RepositoryIdAndKey_ArtifactIdAndSeries(
-            repositoryId, artifactId, true));
+            repositoryId, artifactId, true)));
   }
 
   @Override
+  @Transactional(readOnly = true)
   public DaoResult<Artifact> getResourceSeries(String repositoryId, UUID artifactId) {
-    return ofJPA(
-        fetchArtifactSeries(repositoryId, artifactId));
+    return inPartition(repositoryId, () -> ofJPA(
+        fetchArtifactSeries(repositoryId, artifactId)));
   }
 
   @Override
+  @Transactional(readOnly = true)
   public DaoResult<List<ArtifactVersion>> getResourceVersions(String repositoryId, UUID artifactId,
       Boolean includeSoftDeleted) {
-    return ofJPA(
-        fetchAllArtifactVersions(repositoryId, artifactId, includeSoftDeleted));
+    return inPartition(repositoryId, () -> ofJPA(
+        fetchAllArtifactVersions(repositoryId, artifactId, includeSoftDeleted)));
   }
 
   @Override
+  @Transactional(readOnly = true)
   public DaoResult<Boolean> hasResourceVersions(String repositoryId, UUID artifactId,
       Boolean includeSoftDeleted) {
-    return ofJPA(
+    return inPartition(repositoryId, () -> ofJPA(
         versionRepo.existsByKey_RepositoryIdAndKey_ArtifactIdAndSeriesAndSoftDeleted(
-            repositoryId, artifactId, false, includeSoftDeleted));
+            repositoryId, artifactId, false, includeSoftDeleted)));
   }
 
   @Override
+  @Transactional(readOnly = true)
   public DaoResult<ArtifactVersion> getLatestResourceVersion(String repositoryId, UUID artifactId,
       Boolean includeSoftDeleted) {
-    return ofJPA(
-        fetchLatestVersion(repositoryId, artifactId, includeSoftDeleted));
+    return inPartition(repositoryId, () -> ofJPA(
+        fetchLatestVersion(repositoryId, artifactId, includeSoftDeleted)));
   }
 
   @Override
   @Transactional
   public void deleteResourceVersion(String repositoryId, UUID artifactId, String versionTag) {
-    versionRepo.save(fetchArtifactVersion(repositoryId, artifactId, versionTag, true)
-        .withSoftDeleted(true));
+    inPartition(repositoryId, () -> {
+      versionRepo.save(fetchArtifactVersion(repositoryId, artifactId, versionTag, true)
+          .withSoftDeleted(true));
+      tryFetchArtifactSeries(repositoryId, artifactId).ifPresent(this::refreshLatestVersion);
+    });
   }
 
   @Override
   @Transactional
   public void removeResourceVersion(String repositoryId, UUID artifactId, String versionTag) {
-    if (versionRepo.existsByKey_RepositoryIdAndKey_ArtifactIdAndKey_VersionTag(
-        repositoryId, artifactId, versionTag)) {
-      versionRepo.deleteById(new KeyId(repositoryId, artifactId, versionTag));
-    }
+    inPartition(repositoryId, () -> {
+      if (versionRepo.existsByKey_RepositoryIdAndKey_ArtifactIdAndKey_VersionTag(
+          repositoryId, artifactId, versionTag)) {
+        versionRepo.deleteById(new KeyId(repositoryId, artifactId, versionTag));
+        tryFetchArtifactSeries(repositoryId, artifactId).ifPresent(this::refreshLatestVersion);
+      }
+    });
   }
 
   @Override
   @Transactional
   public void deleteResourceSeries(String repositoryId, UUID artifactId) {
-    List<ArtifactVersionEntity> versions =
-        fetchAllArtifactVersions(repositoryId, artifactId, true).stream()
-            .flatMap(StreamUtil.filterAs(ArtifactVersionEntity.class))
-            .collect(Collectors.toList());
+    inPartition(repositoryId, () -> {
+      List<ArtifactVersionEntity> versions =
+          fetchAllArtifactVersions(repositoryId, artifactId, true).stream()
+              .flatMap(StreamUtil.filterAs(ArtifactVersionEntity.class))
+              .collect(Collectors.toList());
 
-    // soft-deleting a series...
-    versionRepo.save(fetchArtifactSeries(repositoryId, artifactId).withSoftDeleted(true));
-    // ...soft-deletes all versions
-    versions.forEach(version -> versionRepo.save(version.withSoftDeleted(true)));
+      // soft-deleting a series...
+      ArtifactVersionEntity series = fetchArtifactSeries(repositoryId, artifactId);
+      series.setLatestAvailableVersionTag(null);
+      versionRepo.save(series.withSoftDeleted(true));
+      // ...soft-deletes all versions
+      versions.forEach(version -> versionRepo.save(version.withSoftDeleted(true)));
+    });
   }
 
   @Override
   @Transactional
   public void removeResourceSeries(String repositoryId, UUID artifactId) {
-    if (versionRepo.existsByKey_RepositoryIdAndKey_ArtifactIdAndSeries(
-        repositoryId, artifactId, true)) {
-      versionRepo.deleteById(new KeyId(repositoryId, artifactId, artifactId.toString()));
+    inPartition(repositoryId, () -> {
+      // the versions go with the series, so that a series created again with the same id starts empty
+      versionRepo.deleteAllInSeries(repositoryId, artifactId);
+    });
+  }
+
+  /**
+   * Soft-deletes each series of a repository, or hard-deletes all the series and the versions of
+   * the repository, and its compression dictionaries, in bulk
+   */
+  @Override
+  @Transactional
+  public void clearRepository(String repositoryId, Boolean deleted) {
+    if (!Boolean.TRUE.equals(deleted)) {
+      ArtifactDAO.super.clearRepository(repositoryId, deleted);
+      return;
     }
+    inPartition(repositoryId, () -> {
+      checkHasRepository(repositoryId);
+      versionRepo.deleteAllInRepository(repositoryId);
+      dictionaryRepo.deleteAllInRepository(repositoryId);
+      activeDictionaries.remove(repositoryId);
+      lastTrainings.remove(repositoryId);
+    });
   }
 
   @Override
   @Transactional
   public void enableResourceVersion(String repositoryId, UUID artifactId, String versionTag) {
-    ArtifactVersionEntity version = fetchArtifactVersion(repositoryId, artifactId, versionTag,
-        true);
-    if (version.isUnavailable()) {
-      versionRepo.save(version.withSoftDeleted(false));
-    }
+    inPartition(repositoryId, () -> {
+      ArtifactVersionEntity version = fetchArtifactVersion(repositoryId, artifactId, versionTag,
+          true);
+      if (version.isUnavailable()) {
+        versionRepo.save(version.withSoftDeleted(false));
+        tryFetchArtifactSeries(repositoryId, artifactId).ifPresent(this::refreshLatestVersion);
+      }
+    });
   }
 
   @Override
   @Transactional
   public void enableResourceSeries(String repositoryId, UUID artifactId) {
-    Optional<ArtifactVersionEntity> series = tryFetchArtifactSeries(repositoryId, artifactId);
-    if (series.isPresent() && series.get().isUnavailable()) {
-      versionRepo.save(series.get().withSoftDeleted(false));
-    } else if (series.isEmpty()) {
-      // save would activate the repository, but enable should not
-      checkHasRepository(repositoryId);
-      versionRepo.save(new ArtifactVersionEntity(repositoryId, artifactId));
-    }
+    inPartition(repositoryId, () -> {
+      Optional<ArtifactVersionEntity> series = tryFetchArtifactSeries(repositoryId, artifactId);
+      if (series.isPresent() && series.get().isUnavailable()) {
+        versionRepo.save(series.get().withSoftDeleted(false));
+      } else if (series.isEmpty()) {
+        // save would activate the repository, but enable should not
+        checkHasRepository(repositoryId);
+        versionRepo.save(new ArtifactVersionEntity(repositoryId, artifactId));
+      }
 
-    List<ArtifactVersionEntity> disabledVersions =
-        fetchAllArtifactVersions(repositoryId, artifactId, true).stream()
-            .flatMap(StreamUtil.filterAs(ArtifactVersionEntity.class))
-            .filter(ArtifactVersionEntity::isUnavailable)
-            .collect(Collectors.toList());
-    disabledVersions.forEach(version -> versionRepo.save(version.withSoftDeleted(false)));
+      List<ArtifactVersionEntity> disabledVersions =
+          fetchAllArtifactVersions(repositoryId, artifactId, true).stream()
+              .flatMap(StreamUtil.filterAs(ArtifactVersionEntity.class))
+              .filter(ArtifactVersionEntity::isUnavailable)
+              .collect(Collectors.toList());
+      disabledVersions.forEach(version -> versionRepo.save(version.withSoftDeleted(false)));
+      if (!disabledVersions.isEmpty()) {
+        tryFetchArtifactSeries(repositoryId, artifactId).ifPresent(this::refreshLatestVersion);
+      }
+    });
   }
 
   @Override
   @Transactional
   public DaoResult<ArtifactVersion> saveResource(String repositoryId, UUID artifactId,
       String versionTag, byte[] document, Map<String, String> config) {
+    return inPartition(repositoryId, () -> {
+      ArtifactVersionEntity series = ensureSeries(repositoryId, artifactId);
+
+      Optional<ArtifactVersionEntity> existing = tryFetchArtifactVersion(repositoryId, artifactId,
+          versionTag, true);
+      ArtifactVersionEntity entity = existing
+          .orElseGet(() -> new ArtifactVersionEntity(repositoryId, artifactId, versionTag));
+      boolean isNew = existing.isEmpty();
+      boolean wasUnavailable = entity.isUnavailable();
+      if (isNew) {
+        // new versions take the next position in the series, while overwritten ones keep theirs
+        entity.setSeq(series.nextSeq());
+      }
 
-    saveResource(repositoryId, artifactId);
-
-    ArtifactVersionEntity entity = tryFetchArtifactVersion(repositoryId, artifactId, versionTag,
-        true)
-        .orElseGet(() -> new ArtifactVersionEntity(repositoryId, artifactId, versionTag));
-
-    entity.setBinaryData(document);
-    entity.setSoftDeleted(false);
+      setPayload(entity, repositoryId, document);
+      entity.setSoftDeleted(false);
+      ArtifactVersionEntity saved = versionRepo.save(entity);
 
-    return ofJPA(versionRepo.save(entity));
+      if (isNew) {
+        series.setLatestVersionTag(versionTag);
+        series.setLatestAvailableVersionTag(versionTag);
+        versionRepo.save(series);
+      } else if (wasUnavailable) {
+        refreshLatestVersion(series);
+      }
+      return ofJPA(saved);
+    });
   }
 
   @Override
   @Transactional
   public DaoResult<Artifact> saveResource(String repositoryId, UUID artifactId) {
+    return inPartition(repositoryId, () -> ofJPA(ensureSeries(repositoryId, artifactId)));
+  }
 
+  private ArtifactVersionEntity ensureSeries(String repositoryId, UUID artifactId) {
     Optional<ArtifactVersionEntity> seriesOpt = tryFetchArtifactSeries(repositoryId, artifactId);
 
     ArtifactVersionEntity series = seriesOpt
         .orElseGet(() -> new ArtifactVersionEntity(repositoryId, artifactId));
     if (seriesOpt.isEmpty() || series.isSoftDeleted()) {
       series.setSoftDeleted(false);
-      versionRepo.save(series);
+      series = versionRepo.save(series);
     }
-
-    return ofJPA(series);
+    return series;
   }
 
 
   @Override
+  @Transactional(readOnly = true)
   public byte[] getData(String repositoryId, ArtifactVersion version) {
+    return inPartition(repositoryId, () -> {
+      InputStream is = ((ArtifactVersionEntity) version).getDataStream();
+      return FileUtil.readBytes(is)
+          .orElseThrow(() -> new ResourceNoContentException(
+              "Unable to load binary for " + version));
+    });
+  }
+
+  /***********************************************************************************/
+
+  /**
+   * Trains a new compression dictionary on a sample of the most recent versions stored in a
+   * repository. The new dictionary is used for the versions saved from now on, while the versions
+   * compressed with a previous dictionary keep referencing it.
+   * <p>
+   * A new dictionary only replaces the active one if it compresses the sample at least
+   * {@link #MIN_DICTIONARY_GAIN} better. The dictionaries older than the one it replaces are then
+   * deleted, unless a version still references them: the replaced one is kept, since the saves in
+   * progress, or the other nodes, may still be compressing with it.
+   *
+   * @param repositoryId the repository
+   * @return the new dictionary, if the sampled versions share enough content to build one, and it
+   * compresses them better than the active one
+   */
+  public Optional<CompressionDictionaryEntity> trainCompressionDictionary(String repositoryId) {
+    return inPartition(repositoryId, () -> {
+      lastTrainings.put(repositoryId, new Date());
+      List<byte[]> samples = versionRepo
+          .findAllByKey_RepositoryIdAndSeriesOrderByCreatedDesc(
+              repositoryId, false, PageRequest.of(0, dictionarySampleSize()))
+          .stream()
+          .map(version -> getData(repositoryId, version))
+          .collect(Collectors.toList());
+
+      byte[] dictionary = DictionaryTrainer.train(samples);
+      if (dictionary.length == 0) {
+        return Optional.empty();
+      }
+      Optional<CompressionDictionaryEntity> active =
+          dictionaryRepo.findFirstByRepositoryIdOrderByCreatedDesc(repositoryId);
+      if (active.isPresent()
+          && gain(samples, active.get().getDictionary(), dictionary) < MIN_DICTIONARY_GAIN) {
+        return Optional.empty();
+      }
+      Optional<CompressionDictionaryEntity> trained = Optional.of(
+          dictionaryRepo.save(new CompressionDictionaryEntity(repositoryId, dictionary)));
+      activeDictionaries.put(repositoryId, trained);
+      active.ifPresent(replaced ->
+          dictionaryRepo.deleteUnreferencedInRepository(repositoryId, replaced.getCreated()));
+      return trained;
+    });
+  }
+
+  /**
+   * @return the relative reduction of the compressed size of the samples, when compressed with
+   * the retrained dictionary instead of the current one
+   */
+  private static double gain(List<byte[]> samples, byte[] current, byte[] retrained) {
+    long before = 0;
+    long after = 0;
+    for (byte[] sample : samples) {
+      before += DictionaryCodec.compress(sample, current).length;
+      after += DictionaryCodec.compress(sample, retrained).length;
+    }
+    return before == 0 ? 0 : 1 - (double) after / before;
+  }
 
-    InputStream is = ((ArtifactVersionEntity) version).getDataStream();
-    return FileUtil.readBytes(is)
-        .orElseThrow(() -> new ResourceNoContentException(
-            "Unable to load binary for " + version));
+  /**
+   * @return true if a quarter of a sample of versions was stored in a repository since its
+   * dictionary was last trained, which makes it worth training again
+   */
+  private boolean needsDictionaryTraining(String repositoryId) {
+    return inPartition(repositoryId, () -> {
+      Date since = lastTrainings.computeIfAbsent(repositoryId, id -> getActiveDictionary(id)
+          .map(CompressionDictionaryEntity::getCreated)
+          .orElse(new Date(0)));
+      return versionRepo.countByKey_RepositoryIdAndSeriesAndCreatedAfter(repositoryId, false, since)
+          >= Math.max(1, dictionarySampleSize() / 4);
+    });
+  }
+
+  private int dictionarySampleSize() {
+    Integer sampleSize = cfg.getTyped(KnowledgeArtifactRepositoryOptions.DICTIONARY_SAMPLE_SIZE);
+    return sampleSize != null ? sampleSize : 200;
+  }
+
+  /**
+   * Renumbers the versions of a series. The versions stored before versions were sequenced are
+   * placed before the sequenced ones, in order of creation. Those versions are sequenced
+   * automatically when the DAO is initialized, so this is only needed for versions written
+   * since by a node that does not sequence them.
+   *
+   * @param repositoryId the repository
+   * @param artifactId   the series
+   * @return the number of versions in the series
+   */
+  @Transactional
+  public int resequenceResourceSeries(String repositoryId, UUID artifactId) {
+    return inPartition(repositoryId, () ->
+        resequence(fetchArtifactSeries(repositoryId, artifactId)));
+  }
+
+  private int resequence(ArtifactVersionEntity series) {
+    String repositoryId = series.getKey().getRepositoryId();
+    UUID artifactId = series.getArtifactId();
+    List<ArtifactVersionEntity> versions = new ArrayList<>(versionRepo
+        .getArtifactVersionEntityByKey_RepositoryIdAndKey_ArtifactIdAndSeries(
+            repositoryId, artifactId, false));
+    versions.sort(Comparator
+        .comparing(ArtifactVersionEntity::getSeq, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(ArtifactVersionEntity::getCreated));
+
+    series.setSeq(0L);
+    for (ArtifactVersionEntity version : versions) {
+      versionRepo.save(version.withSeq(series.nextSeq()));
+    }
+    refreshLatestVersion(series);
+    return versions.size();
+  }
+
+  private void scheduleDictionaryTraining(int minutes) {
+    dictionaryTrainer = Executors.newSingleThreadScheduledExecutor(r -> {
+      var t = new Thread(r, "kart-dictionary-trainer");
+      t.setDaemon(true);
+      return t;
+    });
+    dictionaryTrainer.scheduleWithFixedDelay(
+        () -> activeDictionaries.keySet().forEach(repositoryId -> {
+          try {
+            if (needsDictionaryTraining(repositoryId)) {
+              trainCompressionDictionary(repositoryId);
+            }
+          } catch (Exception e) {
+            logger.warn("Unable to train a compression dictionary for {} : {}",
+                repositoryId, e.getMessage());
+          }
+        }),
+        minutes, minutes, TimeUnit.MINUTES);
+  }
+
+  private Optional<CompressionDictionaryEntity> getActiveDictionary(String repositoryId) {
+    return activeDictionaries.computeIfAbsent(repositoryId,
+        dictionaryRepo::findFirstByRepositoryIdOrderByCreatedDesc);
+  }
+
+  private void setPayload(ArtifactVersionEntity entity, String repositoryId, byte[] document) {
+    Optional<CompressionDictionaryEntity> dictionary = dictionaryCompression
+        ? getActiveDictionary(repositoryId)
+        : Optional.empty();
+    if (dictionary.isPresent()) {
+      entity.setCompressedData(
+          DictionaryCodec.compress(document, dictionary.get().getDictionary()),
+          dictionary.get());
+    } else {
+      entity.setBinaryData(document);
+    }
   }
 
   /***********************************************************************************/
@@ -320,12 +667,12 @@ public class JPAArtifactDAO implements ArtifactDAO {
     List<ArtifactVersion> a;
     if (includeSoftDeleted) {
       a = versionRepo
-          .findAllByKey_RepositoryIdAndKey_ArtifactIdAndSeriesOrderByCreatedDesc(
-              repositoryId, artifactId, false);
+          .findVersionsLatestFirst(
+              repositoryId, artifactId, false, Pageable.unpaged());
     } else {
       a = versionRepo
-          .findAllByKey_RepositoryIdAndKey_ArtifactIdAndSeriesAndSoftDeletedOrderByCreatedDesc(
-              repositoryId, artifactId, false, false);
+          .findVersionsLatestFirstBySoftDeleted(
+              repositoryId, artifactId, false, false, Pageable.unpaged());
     }
     if (a.isEmpty()) {
       checkSeries(repositoryId, artifactId);
@@ -337,15 +684,17 @@ public class JPAArtifactDAO implements ArtifactDAO {
 
   private ArtifactVersion fetchLatestVersion(String repositoryId, UUID artifactId,
       Boolean includeSoftDeleted) {
+    Optional<ArtifactVersionEntity> series = tryFetchArtifactSeries(repositoryId, artifactId);
     Optional<ArtifactVersion> version;
-    if (includeSoftDeleted) {
-      version = versionRepo
-          .findFirstByKey_RepositoryIdAndKey_ArtifactIdAndSeriesOrderByCreatedDesc(
-              repositoryId, artifactId, false);
+    if (series.isPresent()) {
+      String latestTag = includeSoftDeleted
+          ? series.get().getLatestVersionTag()
+          : series.get().getLatestAvailableVersionTag();
+      version = Optional.ofNullable(latestTag)
+          .flatMap(tag -> versionRepo.findById(new KeyId(repositoryId, artifactId, tag)))
+          .map(ArtifactVersion.class::cast);
     } else {
-      version = versionRepo
-          .findFirstByKey_RepositoryIdAndKey_ArtifactIdAndSeriesAndSoftDeletedOrderByCreatedDesc(
-              repositoryId, artifactId, false, false);
+      version = queryLatestVersion(repositoryId, artifactId, includeSoftDeleted);
     }
     if (version.isEmpty()) {
       checkAll(repositoryId, artifactId);
@@ -353,6 +702,39 @@ public class JPAArtifactDAO implements ArtifactDAO {
     return version.orElseThrow(() -> new ResourceNotFoundException(artifactId, null, repositoryId));
   }
 
+  private Optional<ArtifactVersion> queryLatestVersion(String repositoryId, UUID artifactId,
+      boolean includeSoftDeleted) {
+    List<ArtifactVersion> latest;
+    if (includeSoftDeleted) {
+      latest = versionRepo
+          .findVersionsLatestFirst(
+              repositoryId, artifactId, false, PageRequest.of(0, 1));
+    } else {
+      latest = versionRepo
+          .findVersionsLatestFirstBySoftDeleted(
+              repositoryId, artifactId, false, false, PageRequest.of(0, 1));
+    }
+    return latest.stream().findFirst();
+  }
+
+  /**
+   * Recomputes the latest version pointers of a series, after the availability of one or more of
+   * its versions has changed
+   *
+   * @param series the series
+   */
+  private void refreshLatestVersion(ArtifactVersionEntity series) {
+    String repositoryId = series.getKey().getRepositoryId();
+    UUID artifactId = series.getArtifactId();
+    series.setLatestVersionTag(queryLatestVersion(repositoryId, artifactId, true)
+        .map(v -> ((ArtifactVersionEntity) v).getKey().getVersionTag())
+        .orElse(null));
+    series.setLatestAvailableVersionTag(queryLatestVersion(repositoryId, artifactId, false)
+        .map(v -> ((ArtifactVersionEntity) v).getKey().getVersionTag())
+        .orElse(null));
+    versionRepo.save(series);
+  }
+
 
   private void checkAll(String repositoryId, UUID artifactId) {
     // throws when neither series nor version associated to the repository (unless default repository)
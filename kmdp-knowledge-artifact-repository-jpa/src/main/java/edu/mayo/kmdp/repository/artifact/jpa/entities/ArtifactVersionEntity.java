@@ -4,8 +4,10 @@ import static org.omg.spec.api4kp._20200801.id.SemanticIdentifier.newId;
 
 import edu.mayo.kmdp.repository.artifact.dao.Artifact;
 import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
+import edu.mayo.kmdp.repository.artifact.compression.DictionaryCodec;
 import edu.mayo.kmdp.repository.artifact.dao.DaoResult;
 import edu.mayo.kmdp.repository.artifact.exceptions.DaoRuntimeException;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.sql.Blob;
 import java.sql.SQLException;
@@ -15,7 +17,11 @@ import java.util.UUID;
 import javax.persistence.Column;
 import javax.persistence.EmbeddedId;
 import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
 import javax.persistence.Lob;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.Transient;
 import javax.persistence.Version;
@@ -23,6 +29,7 @@ import javax.sql.rowset.serial.SerialBlob;
 import org.omg.spec.api4kp._20200801.id.ResourceIdentifier;
 
 @Entity(name = "KnowledgeArtifacts")
+@Table(indexes = @Index(name = "idx_artifact_seq", columnList = "repositoryId, artifactId, seq DESC"))
 public class ArtifactVersionEntity implements Artifact, ArtifactVersion,
     DaoResult<ArtifactVersionEntity> {
 
@@ -40,9 +47,37 @@ public class ArtifactVersionEntity implements Artifact, ArtifactVersion,
 
   private Boolean series;
 
+  /**
+   * Position of a version in the history of its series, assigned when the version is first saved.
+   * On the series itself, the last position assigned to one of its versions.
+   * <p>
+   * Unlike the creation timestamp, the sequence is strictly monotonic within a series, even when
+   * versions are saved within the same clock tick. A series without versions, and a version not
+   * yet saved, are at position 0.
+   */
+  @Column(nullable = false)
+  private Long seq;
+
+  /**
+   * On a series, the tag of its latest version
+   */
+  private String latestVersionTag;
+
+  /**
+   * On a series, the tag of its latest version that has not been soft-deleted
+   */
+  private String latestAvailableVersionTag;
+
   @Lob
   private Blob binaryData;
 
+  /**
+   * The dictionary the binary data was compressed with, if any
+   */
+  @ManyToOne
+  @JoinColumn(name = "dictionaryId")
+  private CompressionDictionaryEntity dictionary;
+
 
   public ArtifactVersionEntity() {
     // empty constructor
@@ -52,6 +87,7 @@ public class ArtifactVersionEntity implements Artifact, ArtifactVersion,
     this.key = new KeyId(repositoryId, artifactId, artifactId.toString());
     this.softDeleted = false;
     this.series = true;
+    this.seq = 0L;
     this.created = new Date();
   }
 
@@ -59,6 +95,7 @@ public class ArtifactVersionEntity implements Artifact, ArtifactVersion,
     this.key = new KeyId(repositoryId, artifactId, versionTag);
     this.softDeleted = false;
     this.series = false;
+    this.seq = 0L;
     this.created = new Date();
   }
 
@@ -66,6 +103,10 @@ public class ArtifactVersionEntity implements Artifact, ArtifactVersion,
     return new ArtifactVersionEntity();
   }
 
+  public KeyId getKey() {
+    return key;
+  }
+
   public ArtifactVersionEntity withRepositoryId(String repositoryId) {
     if (key == null) {
       key = new KeyId();
@@ -104,6 +145,48 @@ public class ArtifactVersionEntity implements Artifact, ArtifactVersion,
   }
 
 
+  public Long getSeq() {
+    return seq;
+  }
+
+  public void setSeq(Long seq) {
+    this.seq = seq;
+  }
+
+  public ArtifactVersionEntity withSeq(Long seq) {
+    setSeq(seq);
+    return this;
+  }
+
+  public String getLatestVersionTag() {
+    return latestVersionTag;
+  }
+
+  public void setLatestVersionTag(String latestVersionTag) {
+    this.latestVersionTag = latestVersionTag;
+  }
+
+  public String getLatestAvailableVersionTag() {
+    return latestAvailableVersionTag;
+  }
+
+  public void setLatestAvailableVersionTag(String latestAvailableVersionTag) {
+    this.latestAvailableVersionTag = latestAvailableVersionTag;
+  }
+
+  /**
+   * Reserves the next position in the history of this series. The series must be saved in the
+   * same transaction as the version that takes the position: concurrent reservations are then
+   * detected by the optimistic lock on the series record.
+   *
+   * @return the next sequence number
+   */
+  @Transient
+  public long nextSeq() {
+    return ++seq;
+  }
+
+
   public Blob getBinaryData() {
     return binaryData;
   }
@@ -121,11 +204,35 @@ public class ArtifactVersionEntity implements Artifact, ArtifactVersion,
   public void setBinaryData(byte[] binaryData) {
     try {
       this.binaryData = new SerialBlob(binaryData);
+      this.dictionary = null;
     } catch (SQLException sqle) {
       throw new DaoRuntimeException(sqle);
     }
   }
 
+  /**
+   * Sets binary data that has been compressed with the given dictionary
+   *
+   * @param compressedData the compressed binary data
+   * @param dictionary     the dictionary used to compress the data
+   */
+  @Transient
+  public void setCompressedData(byte[] compressedData, CompressionDictionaryEntity dictionary) {
+    setBinaryData(compressedData);
+    this.dictionary = dictionary;
+  }
+
+  @Transient
+  public ArtifactVersionEntity withCompressedData(byte[] compressedData,
+      CompressionDictionaryEntity dictionary) {
+    setCompressedData(compressedData, dictionary);
+    return this;
+  }
+
+  public CompressionDictionaryEntity getDictionary() {
+    return dictionary;
+  }
+
   @Transient
   public ArtifactVersionEntity withBinaryData(byte[] binaryData) {
     setBinaryData(binaryData);
@@ -135,7 +242,12 @@ public class ArtifactVersionEntity implements Artifact, ArtifactVersion,
   @Override
   public InputStream getDataStream() {
     try {
-      return getBinaryData().getBinaryStream();
+      if (dictionary == null) {
+        return getBinaryData().getBinaryStream();
+      }
+      byte[] compressed = getBinaryData().getBytes(1, (int) getBinaryData().length());
+      return new ByteArrayInputStream(
+          DictionaryCodec.decompress(compressed, dictionary.getDictionary()));
     } catch (SQLException sqle) {
       throw new DaoRuntimeException(sqle);
     }
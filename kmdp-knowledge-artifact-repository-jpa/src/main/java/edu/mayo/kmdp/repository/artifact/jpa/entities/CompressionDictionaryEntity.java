@@ -0,0 +1,80 @@
+package edu.mayo.kmdp.repository.artifact.jpa.entities;
+
+import java.util.Date;
+import java.util.Objects;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Temporal;
+import org.hibernate.annotations.Type;
+
+/**
+ * A compression dictionary, trained on a sample of the artifacts in a repository.
+ * <p>
+ * Dictionaries are immutable: retraining creates a new dictionary, while the artifacts compressed
+ * with an older one keep referencing it.
+ */
+@Entity(name = "KnowledgeArtifactDictionaries")
+public class CompressionDictionaryEntity {
+
+  @Id
+  @Type(type = "uuid-char")
+  private UUID dictionaryId;
+
+  @Column(updatable = false)
+  private String repositoryId;
+
+  @Column(updatable = false)
+  @Temporal(javax.persistence.TemporalType.TIMESTAMP)
+  private Date created;
+
+  @Lob
+  @Column(updatable = false)
+  private byte[] dictionary;
+
+  public CompressionDictionaryEntity() {
+    // empty constructor
+  }
+
+  public CompressionDictionaryEntity(String repositoryId, byte[] dictionary) {
+    this.dictionaryId = UUID.randomUUID();
+    this.repositoryId = repositoryId;
+    this.dictionary = dictionary;
+    this.created = new Date();
+  }
+
+  public UUID getDictionaryId() {
+    return dictionaryId;
+  }
+
+  public String getRepositoryId() {
+    return repositoryId;
+  }
+
+  public Date getCreated() {
+    return created;
+  }
+
+  public byte[] getDictionary() {
+    return dictionary;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    CompressionDictionaryEntity that = (CompressionDictionaryEntity) o;
+    return Objects.equals(dictionaryId, that.dictionaryId);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(dictionaryId);
+  }
+}
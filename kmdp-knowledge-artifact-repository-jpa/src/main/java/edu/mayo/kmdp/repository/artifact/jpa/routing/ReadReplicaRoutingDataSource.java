@@ -0,0 +1,126 @@
+package edu.mayo.kmdp.repository.artifact.jpa.routing;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes the connections of read-only transactions to a pool of read replicas (round robin), and
+ * all other connections to the primary.
+ * <p>
+ * Optionally, reads are kept on the primary for a short window after a write transaction has
+ * committed, so that a client can read its own writes regardless of the replication lag. The
+ * window is tracked per thread, from the commit of the last write transaction that used the
+ * primary in that thread: the writes of other threads, and the transactions that were rolled back,
+ * do not keep the reads on the primary.
+ * <p>
+ * The routing decision depends on the current transaction, so the connection must not be fetched
+ * before the transaction has started: use {@link #replicated(DataSource, List, Duration)}, which
+ * wraps the router in a {@link LazyConnectionDataSourceProxy}.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+  static final String PRIMARY = "primary";
+  static final String REPLICA = "replica-";
+
+  private final int replicaCount;
+  private final long readYourWritesMillis;
+
+  private final AtomicInteger next = new AtomicInteger();
+
+  /**
+   * The time of the last write committed by the current thread
+   */
+  private final ThreadLocal<Long> lastWrite = ThreadLocal.withInitial(() -> 0L);
+
+  /**
+   * @param primary        the read/write DataSource
+   * @param replicas       the read-only DataSources
+   * @param readYourWrites how long reads stay on the primary after a write (zero to disable)
+   * @return a DataSource that routes read-only transactions to the replicas
+   */
+  public static DataSource replicated(DataSource primary, List<DataSource> replicas,
+      Duration readYourWrites) {
+    var router = new ReadReplicaRoutingDataSource(primary, replicas, readYourWrites);
+    router.afterPropertiesSet();
+    return new LazyConnectionDataSourceProxy(router);
+  }
+
+  public ReadReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas,
+      Duration readYourWrites) {
+    Map<Object, Object> targets = new HashMap<>();
+    targets.put(PRIMARY, primary);
+    for (int j = 0; j < replicas.size(); j++) {
+      targets.put(REPLICA + j, replicas.get(j));
+    }
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+    this.replicaCount = replicas.size();
+    this.readYourWritesMillis = readYourWrites.toMillis();
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      if (readYourWritesMillis > 0
+          && TransactionSynchronizationManager.isActualTransactionActive()) {
+        trackWrite();
+      }
+      return PRIMARY;
+    }
+    if (replicaCount == 0 || isReadYourWritesWindow()) {
+      return PRIMARY;
+    }
+    return REPLICA + Math.floorMod(next.getAndIncrement(), replicaCount);
+  }
+
+  /**
+   * Opens the read-your-writes window of the current thread once the current write transaction
+   * has committed
+   */
+  private void trackWrite() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      // no commit callback available: assume the transaction commits
+      lastWrite.set(System.currentTimeMillis());
+      return;
+    }
+    for (TransactionSynchronization synchronization :
+        TransactionSynchronizationManager.getSynchronizations()) {
+      if (synchronization instanceof WriteTracker
+          && ((WriteTracker) synchronization).owner == this) {
+        return;
+      }
+    }
+    TransactionSynchronizationManager.registerSynchronization(new WriteTracker(this));
+  }
+
+  private boolean isReadYourWritesWindow() {
+    return readYourWritesMillis > 0
+        && System.currentTimeMillis() - lastWrite.get() < readYourWritesMillis;
+  }
+
+  /**
+   * Records the commit of a write transaction, in the thread that committed it
+   */
+  private static class WriteTracker implements TransactionSynchronization {
+
+    private final ReadReplicaRoutingDataSource owner;
+
+    private WriteTracker(ReadReplicaRoutingDataSource owner) {
+      this.owner = owner;
+    }
+
+    @Override
+    public void afterCommit() {
+      owner.lastWrite.set(System.currentTimeMillis());
+    }
+  }
+
+}
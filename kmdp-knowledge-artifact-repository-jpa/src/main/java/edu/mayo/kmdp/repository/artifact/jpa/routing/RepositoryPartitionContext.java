@@ -0,0 +1,91 @@
+package edu.mayo.kmdp.repository.artifact.jpa.routing;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Binds the repository targeted by the current DAO operation to the current thread, so that a
+ * {@link RepositoryPartitionDataSource} can route the operation's connection to the partition
+ * that stores that repository.
+ * <p>
+ * Each DAO operation binds its own repository: transactions must not span repositories that
+ * live in different partitions. An operation releases its binding when it ends, which restores
+ * the binding in place before it. Within a transaction, the connection can be fetched as late as
+ * the commit, so the bindings are only restored once the transaction has completed.
+ */
+public final class RepositoryPartitionContext {
+
+  private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+  /**
+   * The bindings replaced by the operations in progress, innermost first
+   */
+  private static final ThreadLocal<Deque<Optional<String>>> PREVIOUS =
+      ThreadLocal.withInitial(ArrayDeque::new);
+
+  private RepositoryPartitionContext() {
+    // static functions only
+  }
+
+  /**
+   * Binds the repository of an operation, until the operation {@link #release() releases} it
+   */
+  public static void bind(String repositoryId) {
+    Deque<Optional<String>> previous = PREVIOUS.get();
+    if (TransactionSynchronizationManager.isSynchronizationActive()
+        && !TransactionSynchronizationManager.hasResource(PREVIOUS)) {
+      int depth = previous.size();
+      TransactionSynchronizationManager.bindResource(PREVIOUS, depth);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResourceIfPossible(PREVIOUS);
+          restore(depth);
+        }
+      });
+    }
+    previous.push(Optional.ofNullable(CURRENT.get()));
+    CURRENT.set(repositoryId);
+  }
+
+  /**
+   * Restores the binding replaced by the last {@link #bind(String)}, or, within a transaction,
+   * the binding in place before the transaction once it completes
+   */
+  public static void release() {
+    if (!TransactionSynchronizationManager.hasResource(PREVIOUS)) {
+      restore(PREVIOUS.get().size() - 1);
+    }
+  }
+
+  /**
+   * Removes the binding of the current thread, and the bindings it replaced
+   */
+  public static void unbind() {
+    CURRENT.remove();
+    PREVIOUS.remove();
+  }
+
+  public static Optional<String> current() {
+    return Optional.ofNullable(CURRENT.get());
+  }
+
+  private static void restore(int depth) {
+    Deque<Optional<String>> previous = PREVIOUS.get();
+    Optional<String> binding = current();
+    while (previous.size() > Math.max(depth, 0)) {
+      binding = previous.pop();
+    }
+    if (depth < 0) {
+      binding = Optional.empty();
+    }
+    binding.ifPresentOrElse(CURRENT::set, CURRENT::remove);
+    if (previous.isEmpty()) {
+      PREVIOUS.remove();
+    }
+  }
+
+}
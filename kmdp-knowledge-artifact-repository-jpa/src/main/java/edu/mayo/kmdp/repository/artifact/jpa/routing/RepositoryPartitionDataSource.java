@@ -0,0 +1,94 @@
+package edu.mayo.kmdp.repository.artifact.jpa.routing;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+import java.util.HashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Routes the connections of each DAO operation to the partition that stores the targeted
+ * repository, as bound by {@link RepositoryPartitionContext}.
+ * <p>
+ * A partition is a DataSource, and can be a separate schema or a separate database, provisioned
+ * with the same tables as the default partition. Repositories that are not assigned to a
+ * partition are stored in the default partition. Partitions can in turn be
+ * {@link ReadReplicaRoutingDataSource}s.
+ * <p>
+ * The assignment of repositories to partitions is configured by
+ * {@link KnowledgeArtifactRepositoryOptions#PARTITIONS}, as a comma-separated list of
+ * repositoryId=partition pairs. The partition DataSources are specific to each deployment, so no
+ * DataSource is configured here: a deployment that partitions its repositories exposes the
+ * DataSource built by {@link #partitioned(KnowledgeArtifactRepositoryServerProperties, Map,
+ * DataSource)} as its primary DataSource bean, in place of the one Spring Boot configures.
+ */
+public class RepositoryPartitionDataSource extends AbstractRoutingDataSource {
+
+  private final Map<String, String> assignments;
+
+  /**
+   * @param cfg              the configuration that assigns repositories to partitions
+   * @param partitions       the partition DataSources, by partition name
+   * @param defaultPartition the DataSource for the repositories not assigned to a partition
+   * @return a DataSource that routes each operation to its repository's partition
+   */
+  public static DataSource partitioned(KnowledgeArtifactRepositoryServerProperties cfg,
+      Map<String, DataSource> partitions, DataSource defaultPartition) {
+    var router = new RepositoryPartitionDataSource(
+        assignments(cfg), partitions, defaultPartition);
+    router.afterPropertiesSet();
+    return new LazyConnectionDataSourceProxy(router);
+  }
+
+  public RepositoryPartitionDataSource(Map<String, String> assignments,
+      Map<String, DataSource> partitions, DataSource defaultPartition) {
+    for (String partition : assignments.values()) {
+      if (!partitions.containsKey(partition)) {
+        throw new IllegalArgumentException("No DataSource for partition " + partition);
+      }
+    }
+    this.assignments = Map.copyOf(assignments);
+    setTargetDataSources(new HashMap<>(partitions));
+    setDefaultTargetDataSource(defaultPartition);
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    return RepositoryPartitionContext.current()
+        .map(assignments::get)
+        .orElse(null);
+  }
+
+  public Map<String, String> getAssignments() {
+    return assignments;
+  }
+
+  /**
+   * @param cfg the configuration that assigns repositories to partitions
+   * @return the partition of each assigned repository
+   */
+  public static Map<String, String> assignments(KnowledgeArtifactRepositoryServerProperties cfg) {
+    return parseAssignments(cfg.getTyped(KnowledgeArtifactRepositoryOptions.PARTITIONS));
+  }
+
+  static Map<String, String> parseAssignments(String assignments) {
+    Map<String, String> map = new HashMap<>();
+    if (assignments == null || assignments.isBlank()) {
+      return map;
+    }
+    for (String pair : assignments.split(",")) {
+      if (pair.isBlank()) {
+        continue;
+      }
+      String[] kv = pair.split("=", 2);
+      if (kv.length != 2 || kv[0].isBlank() || kv[1].isBlank()) {
+        throw new IllegalArgumentException("Invalid partition assignment " + pair);
+      }
+      map.put(kv[0].trim(), kv[1].trim());
+    }
+    return map;
+  }
+
+}
@@ -0,0 +1,167 @@
+package edu.mayo.kmdp.repository.artifact.jpa.routing;
+
+import edu.mayo.kmdp.repository.artifact.exceptions.DaoRuntimeException;
+import edu.mayo.kmdp.repository.artifact.jpa.entities.ArtifactVersionEntity;
+import edu.mayo.kmdp.repository.artifact.jpa.entities.CompressionDictionaryEntity;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Moves the content of a repository from one partition to another, e.g. when a repository is
+ * assigned to a new partition (see {@link RepositoryPartitionDataSource}).
+ * <p>
+ * The rows are first copied to the target partition, in one transaction, and then deleted from
+ * the source partition, in a second transaction. The target partition must already provide the
+ * tables, and must not contain the repository yet. The repository should not be written to while
+ * it is being moved, and should be re-assigned before it is used again.
+ * <p>
+ * Table and column names depend on the naming strategy used to generate the schema: a migrator
+ * created {@link #forSchema(EntityManagerFactory, int) for an EntityManagerFactory} uses the names
+ * the entities are mapped to, while the default ones match the Spring Boot naming strategy.
+ */
+public class RepositoryPartitionMigrator {
+
+  private static final Logger logger = LoggerFactory.getLogger(RepositoryPartitionMigrator.class);
+
+  public static final String DEFAULT_ARTIFACT_TABLE = "knowledge_artifacts";
+  public static final String DEFAULT_DICTIONARY_TABLE = "knowledge_artifact_dictionaries";
+  public static final String DEFAULT_REPOSITORY_COLUMN = "repository_id";
+
+  private final String artifactTable;
+  private final String dictionaryTable;
+  private final String artifactRepositoryColumn;
+  private final String dictionaryRepositoryColumn;
+  private final int batchSize;
+
+  public RepositoryPartitionMigrator() {
+    this(DEFAULT_ARTIFACT_TABLE, DEFAULT_DICTIONARY_TABLE, DEFAULT_REPOSITORY_COLUMN, 500);
+  }
+
+  public RepositoryPartitionMigrator(String artifactTable, String dictionaryTable,
+      String repositoryColumn, int batchSize) {
+    this(artifactTable, repositoryColumn, dictionaryTable, repositoryColumn, batchSize);
+  }
+
+  private RepositoryPartitionMigrator(String artifactTable, String artifactRepositoryColumn,
+      String dictionaryTable, String dictionaryRepositoryColumn, int batchSize) {
+    this.artifactTable = artifactTable;
+    this.artifactRepositoryColumn = artifactRepositoryColumn;
+    this.dictionaryTable = dictionaryTable;
+    this.dictionaryRepositoryColumn = dictionaryRepositoryColumn;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * @param emf       the EntityManagerFactory that generated the schema of the partitions
+   * @param batchSize the number of rows inserted per batch
+   * @return a migrator for the tables and columns that the naming strategy of the factory maps
+   * the entities to
+   */
+  public static RepositoryPartitionMigrator forSchema(EntityManagerFactory emf, int batchSize) {
+    MetamodelImplementor metamodel = emf.unwrap(SessionFactoryImplementor.class).getMetamodel();
+    AbstractEntityPersister artifacts =
+        (AbstractEntityPersister) metamodel.entityPersister(ArtifactVersionEntity.class);
+    AbstractEntityPersister dictionaries =
+        (AbstractEntityPersister) metamodel.entityPersister(CompressionDictionaryEntity.class);
+    return new RepositoryPartitionMigrator(
+        artifacts.getTableName(), artifacts.getPropertyColumnNames("key.repositoryId")[0],
+        dictionaries.getTableName(), dictionaries.getPropertyColumnNames("repositoryId")[0],
+        batchSize);
+  }
+
+  /**
+   * Moves a repository between partitions
+   *
+   * @param repositoryId the repository to move
+   * @param source       the partition that currently stores the repository
+   * @param target       the partition that will store the repository
+   * @return the number of artifact rows moved
+   */
+  public long migrate(String repositoryId, DataSource source, DataSource target) {
+    long moved;
+    try (Connection from = source.getConnection(); Connection to = target.getConnection()) {
+      to.setAutoCommit(false);
+      try {
+        // dictionaries first: artifacts reference them
+        long dictionaries =
+            copy(dictionaryTable, dictionaryRepositoryColumn, repositoryId, from, to);
+        moved = copy(artifactTable, artifactRepositoryColumn, repositoryId, from, to);
+        to.commit();
+        logger.info("Copied {} artifact rows and {} dictionaries of repository {}",
+            moved, dictionaries, repositoryId);
+      } catch (SQLException e) {
+        to.rollback();
+        throw e;
+      }
+
+      from.setAutoCommit(false);
+      try {
+        delete(artifactTable, artifactRepositoryColumn, repositoryId, from);
+        delete(dictionaryTable, dictionaryRepositoryColumn, repositoryId, from);
+        from.commit();
+      } catch (SQLException e) {
+        from.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      throw new DaoRuntimeException("Unable to migrate repository " + repositoryId, e);
+    }
+    return moved;
+  }
+
+  private long copy(String table, String repositoryColumn, String repositoryId, Connection from,
+      Connection to) throws SQLException {
+    long count = 0;
+    try (PreparedStatement select = from.prepareStatement(
+        "SELECT * FROM " + table + " WHERE " + repositoryColumn + " = ?")) {
+      select.setString(1, repositoryId);
+      try (ResultSet rs = select.executeQuery()) {
+        ResultSetMetaData meta = rs.getMetaData();
+        List<String> columns = new ArrayList<>();
+        for (int j = 1; j <= meta.getColumnCount(); j++) {
+          columns.add(meta.getColumnName(j));
+        }
+        String insert = "INSERT INTO " + table
+            + " (" + String.join(", ", columns) + ") VALUES ("
+            + columns.stream().map(c -> "?").collect(Collectors.joining(", ")) + ")";
+
+        try (PreparedStatement ps = to.prepareStatement(insert)) {
+          while (rs.next()) {
+            for (int j = 1; j <= columns.size(); j++) {
+              ps.setObject(j, rs.getObject(j), meta.getColumnType(j));
+            }
+            ps.addBatch();
+            if (++count % batchSize == 0) {
+              ps.executeBatch();
+            }
+          }
+          ps.executeBatch();
+        }
+      }
+    }
+    return count;
+  }
+
+  private void delete(String table, String repositoryColumn, String repositoryId,
+      Connection from) throws SQLException {
+    try (PreparedStatement ps = from.prepareStatement(
+        "DELETE FROM " + table + " WHERE " + repositoryColumn + " = ?")) {
+      ps.setString(1, repositoryId);
+      ps.executeUpdate();
+    }
+  }
+
+}
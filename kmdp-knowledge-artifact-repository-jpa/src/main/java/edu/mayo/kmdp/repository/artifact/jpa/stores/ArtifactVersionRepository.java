@@ -4,9 +4,13 @@ import edu.mayo.kmdp.repository.artifact.dao.Artifact;
 import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
 import edu.mayo.kmdp.repository.artifact.jpa.entities.ArtifactVersionEntity;
 import edu.mayo.kmdp.repository.artifact.jpa.entities.KeyId;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,17 +25,26 @@ public interface ArtifactVersionRepository extends CrudRepository<ArtifactVersio
   List<Artifact> findAllByKey_RepositoryIdAndSeriesAndSoftDeleted(
       String repositoryId, boolean series, boolean softDeleted);
 
-  List<ArtifactVersion> findAllByKey_RepositoryIdAndKey_ArtifactIdAndSeriesAndSoftDeletedOrderByCreatedDesc(
-      String repositoryId, UUID artifactId, boolean series, boolean softDeleted);
+  List<ArtifactVersionEntity> findAllByKey_RepositoryIdAndSeriesOrderByCreatedDesc(
+      String repositoryId, boolean series, Pageable pageable);
 
-  List<ArtifactVersion> findAllByKey_RepositoryIdAndKey_ArtifactIdAndSeriesOrderByCreatedDesc(
-      String repositoryId, UUID artifactId, boolean series);
+  long countByKey_RepositoryIdAndSeriesAndCreatedAfter(
+      String repositoryId, boolean series, Date created);
 
-  Optional<ArtifactVersion> findFirstByKey_RepositoryIdAndKey_ArtifactIdAndSeriesAndSoftDeletedOrderByCreatedDesc(
-      String repositoryId, UUID artifactId, boolean series, boolean softDeleted);
+  /**
+   * Orders the versions of a series by position, latest first, along the idx_artifact_seq index
+   */
+  String SEQUENCE_ORDER = " order by v.seq desc";
 
-  Optional<ArtifactVersion> findFirstByKey_RepositoryIdAndKey_ArtifactIdAndSeriesOrderByCreatedDesc(
-      String repositoryId, UUID artifactId, boolean series);
+  @Query("select v from KnowledgeArtifacts v where v.key.repositoryId = ?1"
+      + " and v.key.artifactId = ?2 and v.series = ?3 and v.softDeleted = ?4" + SEQUENCE_ORDER)
+  List<ArtifactVersion> findVersionsLatestFirstBySoftDeleted(
+      String repositoryId, UUID artifactId, boolean series, boolean softDeleted, Pageable pageable);
+
+  @Query("select v from KnowledgeArtifacts v where v.key.repositoryId = ?1"
+      + " and v.key.artifactId = ?2 and v.series = ?3" + SEQUENCE_ORDER)
+  List<ArtifactVersion> findVersionsLatestFirst(
+      String repositoryId, UUID artifactId, boolean series, Pageable pageable);
 
 
   List<ArtifactVersionEntity> getArtifactVersionEntityByKey_RepositoryIdAndKey_ArtifactIdAndSeriesAndSoftDeleted(
@@ -55,6 +68,11 @@ public interface ArtifactVersionRepository extends CrudRepository<ArtifactVersio
   boolean existsByKey_RepositoryIdAndKey_ArtifactId(
       String repositoryId, UUID artifactId);
 
+  /**
+   * @return the series and versions stored before versions were sequenced
+   */
+  List<ArtifactVersionEntity> findAllBySeqIsNull();
+
   boolean existsByKey_RepositoryIdAndKey_ArtifactIdAndSoftDeleted(
       String repositoryId, UUID artifactId, boolean softDeleted);
 
@@ -63,4 +81,23 @@ public interface ArtifactVersionRepository extends CrudRepository<ArtifactVersio
 
   boolean existsByKey_RepositoryIdAndKey_ArtifactIdAndKey_VersionTag(
       String repositoryId, UUID artifactId, String versionTag);
+
+  /**
+   * Deletes the series and the versions of a repository, in one statement
+   *
+   * @return the number of rows deleted
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("delete from KnowledgeArtifacts v where v.key.repositoryId = ?1")
+  int deleteAllInRepository(String repositoryId);
+
+  /**
+   * Deletes a series and its versions, in one statement
+   *
+   * @return the number of rows deleted
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("delete from KnowledgeArtifacts v where v.key.repositoryId = ?1"
+      + " and v.key.artifactId = ?2")
+  int deleteAllInSeries(String repositoryId, UUID artifactId);
 }
@@ -0,0 +1,42 @@
+package edu.mayo.kmdp.repository.artifact.jpa.stores;
+
+import edu.mayo.kmdp.repository.artifact.jpa.entities.CompressionDictionaryEntity;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+@Transactional
+public interface CompressionDictionaryRepository
+    extends CrudRepository<CompressionDictionaryEntity, UUID> {
+
+  Optional<CompressionDictionaryEntity> findFirstByRepositoryIdOrderByCreatedDesc(
+      String repositoryId);
+
+  /**
+   * Deletes the dictionaries of a repository, once no version of the repository references them
+   *
+   * @return the number of rows deleted
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("delete from KnowledgeArtifactDictionaries d where d.repositoryId = ?1")
+  int deleteAllInRepository(String repositoryId);
+
+  /**
+   * Deletes the dictionaries of a repository created before a given date, that no version of the
+   * repository references
+   *
+   * @return the number of rows deleted
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("delete from KnowledgeArtifactDictionaries d where d.repositoryId = ?1"
+      + " and d.created < ?2 and d.dictionaryId not in (select v.dictionary.dictionaryId"
+      + " from KnowledgeArtifacts v where v.key.repositoryId = ?1 and v.dictionary is not null)")
+  int deleteUnreferencedInRepository(String repositoryId, Date createdBefore);
+
+}
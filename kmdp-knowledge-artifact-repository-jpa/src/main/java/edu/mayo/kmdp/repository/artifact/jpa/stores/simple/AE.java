@@ -6,6 +6,8 @@ public class AE {
   public static final String SERIES = "series";
   public static final String SOFT_DELETED = "softDeleted";
   public static final String CREATED = "created";
+  public static final String SEQ = "seq";
+  public static final String DICTIONARY = "dictionary";
 
   private AE() {
     // empty
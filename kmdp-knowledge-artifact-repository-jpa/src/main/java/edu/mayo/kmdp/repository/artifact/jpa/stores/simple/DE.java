@@ -0,0 +1,12 @@
+package edu.mayo.kmdp.repository.artifact.jpa.stores.simple;
+
+public class DE {
+
+  public static final String DICTIONARY_ID = "dictionaryId";
+  public static final String REPOSITORY_ID = "repositoryId";
+  public static final String CREATED = "created";
+
+  private DE() {
+    // empty
+  }
+}
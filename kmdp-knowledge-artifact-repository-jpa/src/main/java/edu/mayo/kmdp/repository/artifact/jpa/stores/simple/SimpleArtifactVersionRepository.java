@@ -10,6 +10,7 @@ import edu.mayo.kmdp.repository.artifact.jpa.entities.KeyId;
 import edu.mayo.kmdp.repository.artifact.jpa.stores.ArtifactVersionRepository;
 import java.io.Closeable;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
@@ -18,9 +19,14 @@ import java.util.function.BiFunction;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
 import javax.sql.DataSource;
 import org.springframework.data.domain.Example;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
 import org.springframework.orm.jpa.JpaVendorAdapter;
@@ -75,10 +81,6 @@ public class SimpleArtifactVersionRepository
     tx.commit();
   }
 
-  private Optional<ArtifactVersionEntity> findFirst(Specification<ArtifactVersionEntity> spec) {
-    return getQuery(spec, PageRequest.of(0, 1)).getResultStream().findFirst();
-  }
-
 
   @Override
   public List<Artifact> findAllByKey_RepositoryIdAndSeries(String repositoryId, boolean series) {
@@ -102,57 +104,66 @@ public class SimpleArtifactVersionRepository
   }
 
   @Override
-  public List<ArtifactVersion> findAllByKey_RepositoryIdAndKey_ArtifactIdAndSeriesAndSoftDeletedOrderByCreatedDesc(
-      String repositoryId, UUID artifactId, boolean series, boolean softDeleted) {
-    return new ArrayList<>(
-        findAll((root, cq, cb) ->
-            cb.and(
-                cb.equal(root.get(AE.KEY).get(K.REPOSITORY_ID), repositoryId),
-                cb.equal(root.get(AE.KEY).get(K.ARTIFACT_ID), artifactId),
-                cb.equal(root.get(AE.SERIES), series),
-                cb.equal(root.get(AE.SOFT_DELETED), softDeleted))));
+  public List<ArtifactVersionEntity> findAllByKey_RepositoryIdAndSeriesOrderByCreatedDesc(
+      String repositoryId, boolean series, Pageable pageable) {
+    return getQuery((root, cq, cb) -> {
+      cq.orderBy(cb.desc(root.get(AE.CREATED)));
+      return cb.and(
+          cb.equal(root.get(AE.KEY).get(K.REPOSITORY_ID), repositoryId),
+          cb.equal(root.get(AE.SERIES), series));
+    }, pageable)
+        .setFirstResult((int) pageable.getOffset())
+        .setMaxResults(pageable.getPageSize())
+        .getResultList();
   }
 
-
   @Override
-  public List<ArtifactVersion> findAllByKey_RepositoryIdAndKey_ArtifactIdAndSeriesOrderByCreatedDesc(
-      String repositoryId, UUID artifactId, boolean series) {
-    return new ArrayList<>(
-        findAll((root, cq, cb) -> {
-          cq.orderBy(cb.desc(root.get(AE.CREATED)));
-          return cb.and(
-              cb.equal(root.get(AE.KEY).get(K.REPOSITORY_ID), repositoryId),
-              cb.equal(root.get(AE.KEY).get(K.ARTIFACT_ID), artifactId),
-              cb.equal(root.get(AE.SERIES), series));
-        }));
+  public long countByKey_RepositoryIdAndSeriesAndCreatedAfter(
+      String repositoryId, boolean series, Date created) {
+    return count((root, cq, cb) ->
+        cb.and(
+            cb.equal(root.get(AE.KEY).get(K.REPOSITORY_ID), repositoryId),
+            cb.equal(root.get(AE.SERIES), series),
+            cb.greaterThan(root.<Date>get(AE.CREATED), created)));
   }
 
-  @Override
-  public Optional<ArtifactVersion> findFirstByKey_RepositoryIdAndKey_ArtifactIdAndSeriesAndSoftDeletedOrderByCreatedDesc(
-      String repositoryId, UUID artifactId, boolean series, boolean softDeleted) {
+  /**
+   * Lists versions in the order of {@link ArtifactVersionRepository#SEQUENCE_ORDER}
+   */
+  private List<ArtifactVersion> findAllInSequence(Specification<ArtifactVersionEntity> spec,
+      Pageable pageable) {
+    TypedQuery<ArtifactVersionEntity> query = getQuery((root, cq, cb) -> {
+      cq.orderBy(cb.desc(root.get(AE.SEQ)));
+      return spec.toPredicate(root, cq, cb);
+    }, pageable);
+    if (pageable.isPaged()) {
+      query.setFirstResult((int) pageable.getOffset())
+          .setMaxResults(pageable.getPageSize());
+    }
+    return new ArrayList<>(query.getResultList());
+  }
 
-    return
-        findFirst((root, cq, cb) -> {
-          cq.orderBy(cb.desc(root.get(AE.CREATED)));
-          return cb.and(
-              cb.equal(root.get(AE.KEY).get(K.REPOSITORY_ID), repositoryId),
-              cb.equal(root.get(AE.KEY).get(K.ARTIFACT_ID), artifactId),
-              cb.equal(root.get(AE.SOFT_DELETED), softDeleted),
-              cb.equal(root.get(AE.SERIES), series));
-        }).map(ArtifactVersion.class::cast);
+  @Override
+  public List<ArtifactVersion> findVersionsLatestFirstBySoftDeleted(
+      String repositoryId, UUID artifactId, boolean series, boolean softDeleted,
+      Pageable pageable) {
+    return findAllInSequence((root, cq, cb) ->
+        cb.and(
+            cb.equal(root.get(AE.KEY).get(K.REPOSITORY_ID), repositoryId),
+            cb.equal(root.get(AE.KEY).get(K.ARTIFACT_ID), artifactId),
+            cb.equal(root.get(AE.SERIES), series),
+            cb.equal(root.get(AE.SOFT_DELETED), softDeleted)), pageable);
   }
 
+
   @Override
-  public Optional<ArtifactVersion> findFirstByKey_RepositoryIdAndKey_ArtifactIdAndSeriesOrderByCreatedDesc(
-      String repositoryId, UUID artifactId, boolean series) {
-    return
-        findFirst((root, cq, cb) -> {
-          cq.orderBy(cb.desc(root.get(AE.CREATED)));
-          return cb.and(
-              cb.equal(root.get(AE.KEY).get(K.REPOSITORY_ID), repositoryId),
-              cb.equal(root.get(AE.KEY).get(K.ARTIFACT_ID), artifactId),
-              cb.equal(root.get(AE.SERIES), series));
-        }).map(ArtifactVersion.class::cast);
+  public List<ArtifactVersion> findVersionsLatestFirst(
+      String repositoryId, UUID artifactId, boolean series, Pageable pageable) {
+    return findAllInSequence((root, cq, cb) ->
+        cb.and(
+            cb.equal(root.get(AE.KEY).get(K.REPOSITORY_ID), repositoryId),
+            cb.equal(root.get(AE.KEY).get(K.ARTIFACT_ID), artifactId),
+            cb.equal(root.get(AE.SERIES), series)), pageable);
   }
 
 
@@ -236,6 +247,11 @@ public class SimpleArtifactVersionRepository
         ));
   }
 
+  @Override
+  public List<ArtifactVersionEntity> findAllBySeqIsNull() {
+    return findAll((root, cq, cb) -> cb.isNull(root.get(AE.SEQ)));
+  }
+
   @Override
   public boolean existsByKey_RepositoryIdAndKey_ArtifactIdAndSoftDeleted(String repositoryId,
       UUID artifactId, boolean softDeleted) {
@@ -283,6 +299,37 @@ public class SimpleArtifactVersionRepository
     }
   }
 
+  @Override
+  public int deleteAllInRepository(String repositoryId) {
+    return deleteWhere((root, cb) ->
+        cb.equal(root.get(AE.KEY).get(K.REPOSITORY_ID), repositoryId));
+  }
+
+  @Override
+  public int deleteAllInSeries(String repositoryId, UUID artifactId) {
+    return deleteWhere((root, cb) ->
+        cb.and(
+            cb.equal(root.get(AE.KEY).get(K.REPOSITORY_ID), repositoryId),
+            cb.equal(root.get(AE.KEY).get(K.ARTIFACT_ID), artifactId)));
+  }
+
+  /**
+   * Bulk deletes the matching rows. Bulk deletes bypass the persistence context, which is cleared
+   */
+  private int deleteWhere(
+      BiFunction<Root<ArtifactVersionEntity>, CriteriaBuilder, Predicate> condition) {
+    CriteriaBuilder cb = emRef.getCriteriaBuilder();
+    CriteriaDelete<ArtifactVersionEntity> delete =
+        cb.createCriteriaDelete(ArtifactVersionEntity.class);
+    delete.where(condition.apply(delete.from(ArtifactVersionEntity.class), cb));
+    EntityTransaction tx = emRef.getTransaction();
+    tx.begin();
+    int deleted = emRef.createQuery(delete).executeUpdate();
+    tx.commit();
+    emRef.clear();
+    return deleted;
+  }
+
   /*******************/
 
   private static LocalContainerEntityManagerFactoryBean emfProvider(
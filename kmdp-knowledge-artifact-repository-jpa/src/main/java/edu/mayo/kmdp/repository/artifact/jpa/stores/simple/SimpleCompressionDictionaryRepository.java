@@ -0,0 +1,105 @@
+package edu.mayo.kmdp.repository.artifact.jpa.stores.simple;
+
+import edu.mayo.kmdp.repository.artifact.jpa.entities.ArtifactVersionEntity;
+import edu.mayo.kmdp.repository.artifact.jpa.entities.CompressionDictionaryEntity;
+import edu.mayo.kmdp.repository.artifact.jpa.stores.CompressionDictionaryRepository;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+
+/**
+ * Static implementation of the internal JPA Compression Dictionary Repository interface. Shares
+ * the EntityManager of a {@link SimpleArtifactVersionRepository}. Should only be used for testing
+ * purpose.
+ */
+public class SimpleCompressionDictionaryRepository
+    extends SimpleJpaRepository<CompressionDictionaryEntity, UUID>
+    implements CompressionDictionaryRepository {
+
+  private final EntityManager emRef;
+
+  public static SimpleCompressionDictionaryRepository simpleRepo(
+      SimpleArtifactVersionRepository versionRepo) {
+    return new SimpleCompressionDictionaryRepository(versionRepo.getEMRef());
+  }
+
+  private SimpleCompressionDictionaryRepository(EntityManager em) {
+    super(CompressionDictionaryEntity.class, em);
+    this.emRef = em;
+  }
+
+  @Override
+  public <S extends CompressionDictionaryEntity> S save(S entity) {
+    EntityTransaction tx = emRef.getTransaction();
+    tx.begin();
+    var s = super.save(entity);
+    tx.commit();
+    return s;
+  }
+
+  @Override
+  public void deleteAll() {
+    EntityTransaction tx = emRef.getTransaction();
+    tx.begin();
+    super.deleteAll();
+    tx.commit();
+  }
+
+  @Override
+  public Optional<CompressionDictionaryEntity> findFirstByRepositoryIdOrderByCreatedDesc(
+      String repositoryId) {
+    return getQuery((root, cq, cb) -> {
+      cq.orderBy(cb.desc(root.get(DE.CREATED)));
+      return cb.equal(root.get(DE.REPOSITORY_ID), repositoryId);
+    }, PageRequest.of(0, 1)).getResultStream().findFirst();
+  }
+
+  @Override
+  public int deleteAllInRepository(String repositoryId) {
+    CriteriaBuilder cb = emRef.getCriteriaBuilder();
+    CriteriaDelete<CompressionDictionaryEntity> delete =
+        cb.createCriteriaDelete(CompressionDictionaryEntity.class);
+    delete.where(cb.equal(
+        delete.from(CompressionDictionaryEntity.class).get(DE.REPOSITORY_ID), repositoryId));
+    return execute(delete);
+  }
+
+  @Override
+  public int deleteUnreferencedInRepository(String repositoryId, Date createdBefore) {
+    CriteriaBuilder cb = emRef.getCriteriaBuilder();
+    CriteriaDelete<CompressionDictionaryEntity> delete =
+        cb.createCriteriaDelete(CompressionDictionaryEntity.class);
+    Root<CompressionDictionaryEntity> root = delete.from(CompressionDictionaryEntity.class);
+
+    Subquery<UUID> referenced = delete.subquery(UUID.class);
+    Root<ArtifactVersionEntity> version = referenced.from(ArtifactVersionEntity.class);
+    referenced.select(version.get(AE.DICTIONARY).get(DE.DICTIONARY_ID))
+        .where(
+            cb.equal(version.get(AE.KEY).get(K.REPOSITORY_ID), repositoryId),
+            cb.isNotNull(version.get(AE.DICTIONARY)));
+
+    delete.where(
+        cb.equal(root.get(DE.REPOSITORY_ID), repositoryId),
+        cb.lessThan(root.<Date>get(DE.CREATED), createdBefore),
+        cb.not(root.get(DE.DICTIONARY_ID).in(referenced)));
+    return execute(delete);
+  }
+
+  private int execute(CriteriaDelete<CompressionDictionaryEntity> delete) {
+    EntityTransaction tx = emRef.getTransaction();
+    tx.begin();
+    int deleted = emRef.createQuery(delete).executeUpdate();
+    tx.commit();
+    emRef.clear();
+    return deleted;
+  }
+
+}
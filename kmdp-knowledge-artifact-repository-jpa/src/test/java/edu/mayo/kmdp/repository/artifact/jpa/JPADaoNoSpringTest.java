@@ -18,6 +18,8 @@ package edu.mayo.kmdp.repository.artifact.jpa;
 import static java.util.Collections.emptyMap;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -28,13 +30,19 @@ import edu.mayo.kmdp.repository.artifact.dao.Artifact;
 import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
 import edu.mayo.kmdp.repository.artifact.dao.DaoResult;
 import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNotFoundException;
+import edu.mayo.kmdp.repository.artifact.jpa.entities.ArtifactVersionEntity;
+import edu.mayo.kmdp.repository.artifact.jpa.stores.ArtifactVersionRepository;
 import edu.mayo.kmdp.util.FileUtil;
+import java.sql.Connection;
+import java.sql.Statement;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -161,6 +169,111 @@ class JPADaoNoSpringTest {
     assertEquals("hi4", d(version));
   }
 
+  @Test
+  void testVersionsOrderedBySequence() {
+    // no pause between the saves: the versions may share the same creation timestamp
+    for (int j = 1; j <= 20; j++) {
+      dao.saveResource(repoId, artifactUUID, "v" + j, ("hi" + j).getBytes());
+    }
+    // overwriting a version does not move it in the history
+    dao.saveResource(repoId, artifactUUID, "v5", "hi5bis".getBytes());
+
+    ArtifactVersion latest = dao.getLatestResourceVersion(repoId, artifactUUID, false).getValue();
+    assertEquals("hi20", d(latest));
+
+    List<ArtifactVersion> versions = dao.getResourceVersions(repoId, artifactUUID, false).getValue();
+    assertEquals(20, versions.size());
+    for (int j = 0; j < versions.size(); j++) {
+      assertEquals("v" + (20 - j), versions.get(j).getResourceIdentifier().getVersionTag());
+    }
+  }
+
+  @Test
+  void testLatestVersionPointers() {
+    dao.saveResource(repoId, artifactUUID, "new1", "hi1".getBytes());
+    dao.saveResource(repoId, artifactUUID, "new2", "hi2".getBytes());
+    dao.saveResource(repoId, artifactUUID, "new3", "hi3".getBytes());
+
+    dao.deleteResourceVersion(repoId, artifactUUID, "new3");
+    assertEquals("hi2", d(dao.getLatestResourceVersion(repoId, artifactUUID, false).getValue()));
+    assertEquals("hi3", d(dao.getLatestResourceVersion(repoId, artifactUUID, true).getValue()));
+
+    ArtifactVersionEntity series = dao.fetchArtifactSeries(repoId, artifactUUID);
+    assertEquals("new3", series.getLatestVersionTag());
+    assertEquals("new2", series.getLatestAvailableVersionTag());
+
+    dao.enableResourceVersion(repoId, artifactUUID, "new3");
+    assertEquals("hi3", d(dao.getLatestResourceVersion(repoId, artifactUUID, false).getValue()));
+
+    dao.deleteResourceSeries(repoId, artifactUUID);
+    assertNull(dao.fetchArtifactSeries(repoId, artifactUUID).getLatestAvailableVersionTag());
+    dao.enableResourceSeries(repoId, artifactUUID);
+    assertEquals("new3",
+        dao.fetchArtifactSeries(repoId, artifactUUID).getLatestAvailableVersionTag());
+  }
+
+  @Test
+  void testResequenceSeries() {
+    dao.saveResource(repoId, artifactUUID, "new1", "hi1".getBytes());
+    dao.saveResource(repoId, artifactUUID, "new2", "hi2".getBytes());
+
+    assertEquals(2, dao.resequenceResourceSeries(repoId, artifactUUID));
+    dao.saveResource(repoId, artifactUUID, "new3", "hi3".getBytes());
+
+    ArtifactVersion latest = dao.getLatestResourceVersion(repoId, artifactUUID, false).getValue();
+    assertEquals("hi3", d(latest));
+    assertEquals(Long.valueOf(3), ((ArtifactVersionEntity) latest).getSeq());
+  }
+
+  @Test
+  void testUnsequencedVersions() throws Exception {
+    // versions stored before versions were sequenced, in a schema that predates the sequence
+    DataSource source = JPAKnowledgeArtifactRepositoryService.inMemoryDataSource();
+    JPAArtifactDAO legacy = new JPAArtifactDAO(source, cfg);
+    try (Connection connection = source.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute("alter table KnowledgeArtifacts alter column seq set null");
+    }
+    ArtifactVersionRepository store = legacy.getPersistenceAdapter();
+    store.save(new ArtifactVersionEntity(repoId, artifactUUID).withSeq(null));
+    store.save(new ArtifactVersionEntity(repoId, artifactUUID, "old1")
+        .withBinaryData("hi1".getBytes()).withSeq(null));
+    TimeUnit.MILLISECONDS.sleep(5);
+    store.save(new ArtifactVersionEntity(repoId, artifactUUID, "old2")
+        .withBinaryData("hi2".getBytes()).withSeq(null));
+    TimeUnit.MILLISECONDS.sleep(5);
+    // a version sequenced in a series that was not
+    store.save(new ArtifactVersionEntity(repoId, artifactUUID, "new1")
+        .withBinaryData("hi3".getBytes()).withSeq(1L));
+    legacy.shutdown();
+
+    // the versions are sequenced when the DAO is initialized, unsequenced ones first
+    dao.shutdown();
+    dao = new JPAArtifactDAO(source, cfg);
+    assertTrue(dao.getPersistenceAdapter().findAllBySeqIsNull().isEmpty());
+    assertEquals("hi3", d(dao.getLatestResourceVersion(repoId, artifactUUID, false).getValue()));
+    assertEquals(List.of("new1", "old2", "old1"), tags(repoId, artifactUUID));
+    assertEquals("new1", dao.fetchArtifactSeries(repoId, artifactUUID).getLatestVersionTag());
+
+    // an overwritten version keeps its place
+    dao.saveResource(repoId, artifactUUID, "old1", "hi1bis".getBytes());
+    assertEquals(List.of("new1", "old2", "old1"), tags(repoId, artifactUUID));
+    assertEquals(Long.valueOf(1), ((ArtifactVersionEntity) dao
+        .getResourceVersion(repoId, artifactUUID, "old1", false).getValue()).getSeq());
+
+    dao.saveResource(repoId, artifactUUID, "new2", "hi4".getBytes());
+    ArtifactVersion latest = dao.getLatestResourceVersion(repoId, artifactUUID, false).getValue();
+    assertEquals("hi4", d(latest));
+    assertEquals(Long.valueOf(4), ((ArtifactVersionEntity) latest).getSeq());
+    assertEquals("new2", dao.fetchArtifactSeries(repoId, artifactUUID).getLatestVersionTag());
+  }
+
+  private List<String> tags(String repositoryId, UUID artifactId) {
+    return dao.getResourceVersions(repositoryId, artifactId, false).getValue().stream()
+        .map(version -> version.getResourceIdentifier().getVersionTag())
+        .collect(Collectors.toList());
+  }
+
   @Test
   void testLoadAndGetLatestVersionNone() {
     dao.saveResource(repoId, artifactUUID, "new1", "hi1".getBytes());
@@ -232,6 +345,41 @@ class JPADaoNoSpringTest {
   }
 
 
+  @Test
+  void testDictionaryCompression() {
+    KnowledgeArtifactRepositoryServerProperties zipCfg =
+        new KnowledgeArtifactRepositoryServerProperties(
+            JPADaoNoSpringTest.class.getResourceAsStream("/application.test.properties"))
+            .with(KnowledgeArtifactRepositoryOptions.DICTIONARY_COMPRESSION, "true");
+    JPAArtifactDAO zipDao =
+        new JPAArtifactDAO(JPAKnowledgeArtifactRepositoryService.inMemoryDataSource(), zipCfg);
+
+    for (int j = 0; j < 10; j++) {
+      zipDao.saveResource(repoId, UUID.randomUUID(), "1", xml(j));
+    }
+    assertTrue(zipDao.trainCompressionDictionary(repoId).isPresent());
+    // retraining on the same content would not compress it any better
+    assertTrue(zipDao.trainCompressionDictionary(repoId).isEmpty());
+
+    ArtifactVersionEntity saved = (ArtifactVersionEntity)
+        zipDao.saveResource(repoId, artifactUUID, "1", xml(42)).getValue();
+    assertNotNull(saved.getDictionary());
+
+    ArtifactVersion loaded = zipDao.getResourceVersion(repoId, artifactUUID, "1", false).getValue();
+    assertEquals(new String(xml(42)), d(loaded));
+
+    zipDao.clear();
+    zipDao.shutdown();
+  }
+
+  private byte[] xml(int j) {
+    return ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<surr:KnowledgeAsset xmlns:surr=\"https://www.omg.org/spec/API4KP/20200801/surrogate\">\n"
+        + "  <surr:name>Asset " + j + "</surr:name>\n"
+        + "  <surr:description>A knowledge asset with a long, shared description</surr:description>\n"
+        + "</surr:KnowledgeAsset>\n").getBytes();
+  }
+
   private Map<String, String> m(String k, String v) {
     Map<String, String> m = new HashMap<>();
     m.put(k, v);
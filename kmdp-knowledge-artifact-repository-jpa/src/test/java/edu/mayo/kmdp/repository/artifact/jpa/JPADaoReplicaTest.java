@@ -0,0 +1,159 @@
+package edu.mayo.kmdp.repository.artifact.jpa;
+
+import static java.util.Collections.emptyMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNotFoundException;
+import edu.mayo.kmdp.repository.artifact.jpa.routing.ReadReplicaRoutingDataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Routes the transactions of the DAO, as managed by the JpaTransactionManager, between a primary
+ * and a replica which share the same database, and counts the connections each one serves
+ */
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ContextConfiguration(classes = {TestJPAConfiguration.class,
+    JPADaoReplicaTest.ReplicaConfiguration.class})
+@AutoConfigurationPackage
+class JPADaoReplicaTest {
+
+  private static final AtomicInteger primaryConnections = new AtomicInteger();
+  private static final AtomicInteger replicaConnections = new AtomicInteger();
+
+  @Autowired
+  private JPAArtifactDAO dao;
+
+  @Autowired
+  KnowledgeArtifactRepositoryServerProperties cfg;
+
+  private String repoId;
+
+  /**
+   * The read-your-writes window is kept per thread: each test uses threads of its own
+   */
+  private ExecutorService client;
+
+  private ExecutorService otherClient;
+
+  @BeforeEach
+  void repo() {
+    repoId = cfg.getTyped(KnowledgeArtifactRepositoryOptions.DEFAULT_REPOSITORY_ID);
+    client = Executors.newSingleThreadExecutor();
+    otherClient = Executors.newSingleThreadExecutor();
+    primaryConnections.set(0);
+    replicaConnections.set(0);
+  }
+
+  @AfterEach
+  void cleanup() {
+    client.shutdownNow();
+    otherClient.shutdownNow();
+  }
+
+  @Test
+  void testReadOnlyMethodsUseReplica() throws Exception {
+    UUID artifactId = UUID.randomUUID();
+    run(client, () -> {
+      dao.hasResourceSeries(repoId, artifactId);
+      dao.getResourceVersions(repoId, artifactId, true);
+    });
+
+    assertEquals(0, primaryConnections.get());
+    assertEquals(2, replicaConnections.get());
+  }
+
+  @Test
+  void testReadYourWritesInSameThread() throws Exception {
+    UUID artifactId = UUID.randomUUID();
+    // a write committed by another client does not move the reads of this client
+    run(otherClient, () -> save(artifactId));
+    assertTrue(primaryConnections.get() > 0);
+    int primary = primaryConnections.get();
+    run(client, () -> assertTrue(dao.hasResourceSeries(repoId, artifactId).getValue()));
+    assertEquals(primary, primaryConnections.get());
+    assertEquals(1, replicaConnections.get());
+
+    // a write committed by this client does
+    run(client, () -> save(artifactId));
+    int primaryAfterWrite = primaryConnections.get();
+    run(client, () -> assertTrue(dao.hasResourceSeries(repoId, artifactId).getValue()));
+    assertEquals(primaryAfterWrite + 1, primaryConnections.get());
+    assertEquals(1, replicaConnections.get());
+  }
+
+  @Test
+  void testRolledBackWriteIsIgnored() throws Exception {
+    UUID artifactId = UUID.randomUUID();
+    run(client, () -> assertThrows(ResourceNotFoundException.class,
+        () -> dao.deleteResourceVersion(repoId, artifactId, "v1")));
+    int primary = primaryConnections.get();
+    run(client, () -> dao.hasResourceSeries(repoId, artifactId));
+
+    assertEquals(primary, primaryConnections.get());
+    assertEquals(1, replicaConnections.get());
+  }
+
+  private void run(ExecutorService thread, Runnable task) throws Exception {
+    thread.submit(task).get(30, TimeUnit.SECONDS);
+  }
+
+  private void save(UUID artifactId) {
+    dao.saveResource(repoId, artifactId, "v1", "hi".getBytes(), emptyMap()).close();
+  }
+
+  @TestConfiguration
+  static class ReplicaConfiguration {
+
+    @Bean
+    DataSource dataSource() {
+      DataSource database = JPAKnowledgeArtifactRepositoryService.inMemoryDataSource();
+      return ReadReplicaRoutingDataSource.replicated(
+          counting(database, primaryConnections),
+          List.of(counting(database, replicaConnections)),
+          Duration.ofMinutes(1));
+    }
+
+    private DataSource counting(DataSource target, AtomicInteger connections) {
+      return new DelegatingDataSource(target) {
+        @Override
+        public Connection getConnection() throws SQLException {
+          connections.incrementAndGet();
+          return super.getConnection();
+        }
+      };
+    }
+  }
+
+}
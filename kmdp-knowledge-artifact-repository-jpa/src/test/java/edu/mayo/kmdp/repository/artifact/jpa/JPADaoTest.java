@@ -114,6 +114,21 @@ class JPADaoTest {
 
   }
 
+  @Test
+  void testRemoveSeriesRemovesVersions() {
+    dao.saveResource(repoId, artifactUUID, "v1", "hi!".getBytes());
+    dao.saveResource(repoId, artifactUUID2, "v1", "hi!".getBytes());
+
+    dao.removeResourceSeries(repoId, artifactUUID);
+    assertFalse(dao.hasResourceSeries(repoId, artifactUUID, true));
+    dao.clearRepository(repoId, true);
+    assertFalse(dao.hasResourceSeries(repoId, artifactUUID2, true));
+
+    // a series created again with the same id does not get the versions of the removed one back
+    dao.saveResource(repoId, artifactUUID2);
+    assertTrue(dao.getResourceVersions(repoId, artifactUUID2, true).getValue().isEmpty());
+  }
+
   @Test
   void testLoadAndGet() {
     dao.saveResource(repoId, artifactUUID, "new", "hi!".getBytes());
@@ -0,0 +1,80 @@
+package edu.mayo.kmdp.repository.artifact.jpa.routing;
+
+import static edu.mayo.kmdp.repository.artifact.jpa.JPAKnowledgeArtifactRepositoryService.inMemoryDataSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ReadReplicaRoutingDataSourceTest {
+
+  private DataSource primary;
+  private DataSource replica;
+
+  private String primaryUrl;
+  private String replicaUrl;
+
+  @BeforeEach
+  void init() throws SQLException {
+    primary = inMemoryDataSource();
+    replica = inMemoryDataSource();
+    primaryUrl = url(primary);
+    replicaUrl = url(replica);
+  }
+
+  @Test
+  void testReadOnlyUsesReplica() {
+    DataSource ds = ReadReplicaRoutingDataSource
+        .replicated(primary, List.of(replica), Duration.ZERO);
+
+    assertEquals(replicaUrl, urlInTransaction(ds, true));
+    assertEquals(primaryUrl, urlInTransaction(ds, false));
+    assertEquals(replicaUrl, urlInTransaction(ds, true));
+  }
+
+  @Test
+  void testReadYourWrites() {
+    DataSource ds = ReadReplicaRoutingDataSource
+        .replicated(primary, List.of(replica), Duration.ofMinutes(1));
+
+    assertEquals(replicaUrl, urlInTransaction(ds, true));
+    assertEquals(primaryUrl, urlInTransaction(ds, false));
+    assertEquals(primaryUrl, urlInTransaction(ds, true));
+  }
+
+  @Test
+  void testNoReplicas() {
+    DataSource ds = ReadReplicaRoutingDataSource
+        .replicated(primary, Collections.emptyList(), Duration.ZERO);
+
+    assertEquals(primaryUrl, urlInTransaction(ds, true));
+  }
+
+  private String urlInTransaction(DataSource ds, boolean readOnly) {
+    var tx = new TransactionTemplate(new DataSourceTransactionManager(ds));
+    tx.setReadOnly(readOnly);
+    return tx.execute(status -> {
+      try {
+        return DataSourceUtils.getConnection(ds).getMetaData().getURL();
+      } catch (SQLException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+  }
+
+  private String url(DataSource ds) throws SQLException {
+    try (Connection c = ds.getConnection()) {
+      return c.getMetaData().getURL();
+    }
+  }
+
+}
@@ -0,0 +1,159 @@
+package edu.mayo.kmdp.repository.artifact.jpa.routing;
+
+import static edu.mayo.kmdp.repository.artifact.jpa.JPAKnowledgeArtifactRepositoryService.inMemoryDataSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
+import edu.mayo.kmdp.repository.artifact.jpa.JPAArtifactDAO;
+import edu.mayo.kmdp.repository.artifact.jpa.stores.simple.SimpleArtifactVersionRepository;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RepositoryPartitionDataSourceTest {
+
+  private DataSource shared;
+  private DataSource hot;
+
+  @BeforeEach
+  void init() {
+    RepositoryPartitionContext.unbind();
+    shared = inMemoryDataSource();
+    hot = inMemoryDataSource();
+    // provisions the partition with the same schema as the shared store
+    new JPAArtifactDAO(hot, cfg(null)).shutdown();
+  }
+
+  @Test
+  void testRouting() throws SQLException {
+    var cfg = cfg("hotRepo=hot");
+    var dao = new JPAArtifactDAO(
+        RepositoryPartitionDataSource.partitioned(cfg, Map.of("hot", hot), shared), cfg);
+
+    dao.saveResource("hotRepo", UUID.randomUUID(), "1", "hot".getBytes());
+    dao.saveResource("coldRepo", UUID.randomUUID(), "1", "cold".getBytes());
+
+    // one series and one version row each
+    assertEquals(2, count(hot, "hotRepo"));
+    assertEquals(0, count(shared, "hotRepo"));
+    assertEquals(2, count(shared, "coldRepo"));
+    assertEquals(0, count(hot, "coldRepo"));
+
+    dao.shutdown();
+  }
+
+  @Test
+  void testOperationsReleaseTheirRepository() {
+    var cfg = cfg("hotRepo=hot");
+    var dao = new JPAArtifactDAO(
+        RepositoryPartitionDataSource.partitioned(cfg, Map.of("hot", hot), shared), cfg);
+
+    dao.saveResource("hotRepo", UUID.randomUUID(), "1", "hot".getBytes());
+    assertEquals(Optional.empty(), RepositoryPartitionContext.current());
+
+    // an operation nested in another one restores the repository of the outer one
+    RepositoryPartitionContext.bind("coldRepo");
+    dao.listResources("hotRepo", false);
+    assertEquals(Optional.of("coldRepo"), RepositoryPartitionContext.current());
+    RepositoryPartitionContext.release();
+    assertEquals(Optional.empty(), RepositoryPartitionContext.current());
+
+    dao.shutdown();
+  }
+
+  @Test
+  void testClearAllPartitions() throws SQLException {
+    var cfg = cfg("hotRepo=hot");
+    var dao = new JPAArtifactDAO(
+        RepositoryPartitionDataSource.partitioned(cfg, Map.of("hot", hot), shared), cfg);
+    dao.saveResource("hotRepo", UUID.randomUUID(), "1", "hot".getBytes());
+    dao.saveResource("coldRepo", UUID.randomUUID(), "1", "cold".getBytes());
+
+    dao.clear();
+
+    assertEquals(0, count(hot, "hotRepo"));
+    assertEquals(0, count(shared, "coldRepo"));
+
+    dao.shutdown();
+  }
+
+  @Test
+  void testMigration() throws SQLException {
+    var unassigned = cfg(null);
+    var dao = new JPAArtifactDAO(shared, unassigned);
+    UUID artifactId = UUID.randomUUID();
+    dao.saveResource("coldRepo", artifactId, "1", "cold".getBytes());
+    dao.shutdown();
+
+    // the table and column names are those the schema was generated with
+    SimpleArtifactVersionRepository schema =
+        SimpleArtifactVersionRepository.simpleRepo(shared, unassigned);
+    long moved = RepositoryPartitionMigrator
+        .forSchema(schema.getEMRef().getEntityManagerFactory(), 10)
+        .migrate("coldRepo", shared, hot);
+    schema.close();
+
+    assertEquals(2, moved);
+    assertEquals(0, count(shared, "coldRepo"));
+    assertEquals(2, count(hot, "coldRepo"));
+
+    var assigned = cfg("coldRepo=hot");
+    var routed = new JPAArtifactDAO(
+        RepositoryPartitionDataSource.partitioned(assigned, Map.of("hot", hot), shared), assigned);
+    ArtifactVersion version =
+        routed.getResourceVersion("coldRepo", artifactId, "1", false).getValue();
+    assertEquals("cold", new String(routed.getData("coldRepo", version)));
+
+    routed.shutdown();
+  }
+
+  @Test
+  void testUnknownPartition() {
+    Map<String, String> assignments = Map.of("hotRepo", "hot");
+    Map<String, DataSource> partitions = Collections.emptyMap();
+    assertThrows(IllegalArgumentException.class,
+        () -> new RepositoryPartitionDataSource(assignments, partitions, shared));
+  }
+
+  @Test
+  void testParseAssignments() {
+    assertEquals(Map.of("a", "hot", "b", "cold"),
+        RepositoryPartitionDataSource.parseAssignments(" a=hot, b = cold ,"));
+    assertEquals(Collections.emptyMap(), RepositoryPartitionDataSource.parseAssignments(null));
+    assertThrows(IllegalArgumentException.class,
+        () -> RepositoryPartitionDataSource.parseAssignments("a"));
+  }
+
+  private KnowledgeArtifactRepositoryServerProperties cfg(String partitions) {
+    var cfg = new KnowledgeArtifactRepositoryServerProperties(
+        RepositoryPartitionDataSourceTest.class.getResourceAsStream(
+            "/application.test.properties"));
+    return partitions != null
+        ? cfg.with(KnowledgeArtifactRepositoryOptions.PARTITIONS, partitions)
+        : cfg;
+  }
+
+  private long count(DataSource ds, String repositoryId) throws SQLException {
+    try (Connection c = ds.getConnection();
+        PreparedStatement ps = c.prepareStatement(
+            "SELECT COUNT(*) FROM KnowledgeArtifacts WHERE repositoryId = ?")) {
+      ps.setString(1, repositoryId);
+      try (ResultSet rs = ps.executeQuery()) {
+        rs.next();
+        return rs.getLong(1);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,337 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import edu.mayo.kmdp.repository.artifact.exceptions.DaoRuntimeException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.version.Version;
+import javax.jcr.version.VersionHistory;
+import javax.jcr.version.VersionManager;
+import org.apache.jackrabbit.util.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Imports a large number of versions in a repository of a {@link JcrDao}.
+ * <p>
+ * {@link JcrDao#saveResource(String, UUID, String, byte[], Map)} logs in, saves, checks in,
+ * labels and logs out for each version. An import, instead, uses one session for all the
+ * versions, and stages them in batches: each batch is saved at once, then its series are checked
+ * in, and the new versions are labeled once all of them are checked in. A series can only have
+ * one version staged at a time, so a second version of a series already in the batch saves the
+ * batch first.
+ * <p>
+ * The property indexes can be suspended during the import: the saves do not update them, and
+ * the indexes are rebuilt, in one traversal of the content, when the import is finished. The
+ * indexes are global: until then, the queries that use them traverse the content, in every
+ * repository and for every reader. The indexes left suspended by an import that did not finish
+ * are resumed when the repository is next bootstrapped. The indexes of the metadata keys
+ * are not created by the import: they are provisioned ahead of it (see
+ * {@link JcrDao#provisionIndexes(java.util.Collection, String)}).
+ * <p>
+ * The versions of a batch are not visible until the batch is saved. If a batch fails to save,
+ * its versions are discarded, while the batches already saved remain. Once a batch is saved, its
+ * series already track the new versions (see {@link JcrDao#stageVersion}), while their latest
+ * version pointers keep naming labeled versions until the batch is complete. A batch that fails
+ * to be checked in or labeled is kept as unfinished, and completed before anything else is
+ * staged, or when the import is finished: the series it could not complete are logged, and stay
+ * checked out, if the import is closed while the batch is still unfinished.
+ * <p>
+ * The suspended indexes are resumed when the import is finished, even if it fails.
+ */
+public class BulkImport implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(BulkImport.class);
+
+  private final JcrDao dao;
+
+  private final Session session;
+
+  private final String encodedRepositoryId;
+
+  private final int batchSize;
+
+  private final boolean suspendIndexes;
+
+  private final List<Staged> staged = new ArrayList<>();
+
+  private final Set<String> stagedSeries = new HashSet<>();
+
+  private final List<Staged> unfinished = new ArrayList<>();
+
+  private final Set<String> series = new HashSet<>();
+
+  private List<String> suspended = Collections.emptyList();
+
+  private boolean resumed = false;
+
+  private final long start = System.nanoTime();
+
+  private long versions = 0;
+
+  private long batches = 0;
+
+  private Report report;
+
+  BulkImport(JcrDao dao, Session session, String encodedRepositoryId, int batchSize,
+      boolean suspendIndexes) {
+    this.dao = dao;
+    this.session = session;
+    this.encodedRepositoryId = encodedRepositoryId;
+    this.batchSize = Math.max(1, batchSize);
+    this.suspendIndexes = suspendIndexes;
+    if (suspendIndexes) {
+      try {
+        suspended = dao.suspendIndexes(session);
+        session.save();
+        logger.info("Suspended indexes {} for the import", suspended);
+      } catch (RepositoryException e) {
+        session.logout();
+        throw new DaoRuntimeException(e);
+      }
+    }
+  }
+
+  /**
+   * Stages a new version of a series
+   *
+   * @param artifactId the series, which is created if needed
+   * @param versionTag the tag of the version
+   * @param payload    the content of the version
+   * @param metadata   the metadata of the series
+   */
+  public void add(UUID artifactId, String versionTag, byte[] payload,
+      Map<String, String> metadata) {
+    if (report != null) {
+      throw new IllegalStateException("The import is finished");
+    }
+    // the series of an unfinished batch are still checked out, and must not be staged again
+    complete();
+    String id = Text.escapeIllegalJcrChars(artifactId.toString());
+    if (stagedSeries.contains(id)) {
+      flush();
+    }
+    try {
+      Node node = dao.stageVersion(session, encodedRepositoryId, id, versionTag, payload,
+          metadata);
+      staged.add(new Staged(node.getPath(), versionTag));
+      stagedSeries.add(id);
+      series.add(id);
+    } catch (RepositoryException e) {
+      discard();
+      throw new DaoRuntimeException(e);
+    }
+    if (staged.size() >= batchSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Saves the staged versions, checks them in, then labels them
+   */
+  public void flush() {
+    if (!staged.isEmpty()) {
+      try {
+        session.save();
+      } catch (RepositoryException e) {
+        discard();
+        throw new DaoRuntimeException(e);
+      }
+      unfinished.addAll(staged);
+      staged.clear();
+      stagedSeries.clear();
+    }
+    complete();
+  }
+
+  /**
+   * Checks in and labels the versions of the batch that was saved last, then points their series
+   * to them, unless the batch is complete.
+   * The series already checked in, and the versions already labeled, are skipped, so that a batch
+   * can be completed after a failure.
+   */
+  private void complete() {
+    if (unfinished.isEmpty()) {
+      return;
+    }
+    try {
+      VersionManager versionManager = session.getWorkspace().getVersionManager();
+      List<Version> checkedIn = new ArrayList<>(unfinished.size());
+      for (Staged version : unfinished) {
+        checkedIn.add(versionManager.isCheckedOut(version.path)
+            ? versionManager.checkin(version.path)
+            : versionManager.getBaseVersion(version.path));
+      }
+      for (int j = 0; j < unfinished.size(); j++) {
+        Version version = checkedIn.get(j);
+        VersionHistory history = version.getContainingHistory();
+        String versionTag = unfinished.get(j).versionTag;
+        if (!Arrays.asList(history.getVersionLabels(version)).contains(versionTag)) {
+          history.addVersionLabel(version.getName(), versionTag, true);
+        }
+      }
+      // the series only point to the new versions once these are labeled
+      for (Staged version : unfinished) {
+        dao.publishLatestVersion(session, version.path, version.versionTag);
+      }
+      session.save();
+      versions += unfinished.size();
+      batches++;
+      unfinished.clear();
+    } catch (RepositoryException e) {
+      throw new DaoRuntimeException(e);
+    }
+  }
+
+  /**
+   * Saves the versions still staged, resumes and rebuilds the indexes, and releases the session.
+   * The indexes are resumed even if the versions fail to be saved. If the last batch fails to be
+   * completed, the session is kept, so that the import can be finished again.
+   *
+   * @return the throughput of the import
+   */
+  public Report finish() {
+    if (report != null) {
+      return report;
+    }
+    RuntimeException failure = null;
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      failure = e;
+    }
+    try {
+      resumeIndexes();
+    } catch (RuntimeException e) {
+      if (failure == null) {
+        failure = e;
+      } else {
+        failure.addSuppressed(e);
+      }
+    }
+    if (failure != null && !unfinished.isEmpty()) {
+      throw failure;
+    }
+    session.logout();
+    report = new Report(versions, series.size(), batches, System.nanoTime() - start);
+    if (failure != null) {
+      throw failure;
+    }
+    logger.info("Imported {}", report);
+    return report;
+  }
+
+  /**
+   * Finishes the import, and releases the session even if the last batch can not be completed
+   */
+  @Override
+  public void close() {
+    try {
+      finish();
+    } finally {
+      if (report == null) {
+        logger.error("Unable to complete the import of {} versions, whose series stay checked out:"
+            + " {}", unfinished.size(), unfinished);
+        session.logout();
+        report = new Report(versions, series.size(), batches, System.nanoTime() - start);
+      }
+    }
+  }
+
+  private void resumeIndexes() {
+    if (!suspendIndexes || resumed) {
+      return;
+    }
+    try {
+      // the changes of a batch that failed to save must not be saved with the indexes
+      session.refresh(false);
+      dao.resumeIndexes(session, suspended);
+      session.save();
+      resumed = true;
+    } catch (RepositoryException e) {
+      throw new DaoRuntimeException(e);
+    }
+  }
+
+  private void discard() {
+    try {
+      session.refresh(false);
+    } catch (RepositoryException e) {
+      logger.warn("Unable to discard the staged versions: {}", e.getMessage());
+    }
+    staged.clear();
+    stagedSeries.clear();
+  }
+
+  private static class Staged {
+
+    private final String path;
+
+    private final String versionTag;
+
+    private Staged(String path, String versionTag) {
+      this.path = path;
+      this.versionTag = versionTag;
+    }
+
+    @Override
+    public String toString() {
+      return path + "@" + versionTag;
+    }
+  }
+
+  /**
+   * The volume and the throughput of an import
+   */
+  public static class Report {
+
+    private final long versions;
+    private final long series;
+    private final long batches;
+    private final long nanos;
+
+    Report(long versions, long series, long batches, long nanos) {
+      this.versions = versions;
+      this.series = series;
+      this.batches = batches;
+      this.nanos = nanos;
+    }
+
+    public long getVersions() {
+      return versions;
+    }
+
+    public long getSeries() {
+      return series;
+    }
+
+    public long getBatches() {
+      return batches;
+    }
+
+    public long getMillis() {
+      return nanos / 1_000_000;
+    }
+
+    /**
+     * @return the number of versions imported per second
+     */
+    public double getArtifactsPerSecond() {
+      return nanos > 0 ? versions * 1e9 / nanos : 0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d versions of %d series in %d batches, in %d ms (%.1f artifacts/s)",
+          versions, series, batches, getMillis(), getArtifactsPerSecond());
+    }
+  }
+}
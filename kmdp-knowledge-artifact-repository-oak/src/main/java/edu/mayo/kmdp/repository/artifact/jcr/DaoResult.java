@@ -9,15 +9,24 @@ public class DaoResult<T> implements edu.mayo.kmdp.repository.artifact.dao.DaoRe
 
   private T value;
   private Session session;
+  private boolean shared;
 
   DaoResult(T value, Session session) {
+    this(value, session, false);
+  }
+
+  DaoResult(T value, Session session, boolean shared) {
     this.value = value;
     this.session = session;
+    this.shared = shared;
   }
 
   @Override
   public void close() {
-    session.logout();
+    // shared sessions outlive the results they produce
+    if (!shared) {
+      session.logout();
+    }
   }
 
   public T getValue() {
@@ -29,7 +38,7 @@ public class DaoResult<T> implements edu.mayo.kmdp.repository.artifact.dao.DaoRe
   }
 
   public <X> edu.mayo.kmdp.repository.artifact.dao.DaoResult<X> map(Function<T,X> mapper) {
-    return new DaoResult<>(mapper.apply(value),session);
+    return new DaoResult<>(mapper.apply(value), session, shared);
   }
 }
 
@@ -0,0 +1,87 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.jcr.Repository;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.apache.jackrabbit.oak.spi.state.NodeStore;
+
+/**
+ * The indexes provisioned when a repository is bootstrapped.
+ * <p>
+ * The metadata keys used to filter the listings of series are indexed by property indexes, which
+ * are only provisioned ahead of time, as the repository is bootstrapped: saving a key does not
+ * create its index, and the queries on a key that is not configured here traverse the repository.
+ * The indexes are updated synchronously, as the content is saved, unless an asynchronous indexing
+ * lane is configured: the indexes are then updated in the background, at the configured interval,
+ * which keeps the cost of indexing out of the saves, but lets the filtered listings lag behind the
+ * saves until the next run of the lane. The status of the series is always indexed synchronously.
+ */
+public class IndexConfiguration {
+
+  public static final String ASYNC_LANE = "async";
+
+  private final Set<String> metadataKeys;
+
+  private final long asyncIntervalSeconds;
+
+  /**
+   * @param metadataKeys         the metadata keys to index
+   * @param asyncIntervalSeconds the interval of the asynchronous indexing lane, or 0 to index
+   *                             synchronously
+   */
+  public IndexConfiguration(Set<String> metadataKeys, long asyncIntervalSeconds) {
+    this.metadataKeys = Collections.unmodifiableSet(new LinkedHashSet<>(metadataKeys));
+    this.asyncIntervalSeconds = Math.max(0, asyncIntervalSeconds);
+  }
+
+  public static IndexConfiguration none() {
+    return new IndexConfiguration(Collections.emptySet(), 0);
+  }
+
+  public static IndexConfiguration from(KnowledgeArtifactRepositoryServerProperties cfg) {
+    String keys = cfg.getTyped(KnowledgeArtifactRepositoryOptions.JCR_INDEXED_METADATA);
+    Integer interval = cfg.getTyped(KnowledgeArtifactRepositoryOptions.JCR_ASYNC_INDEXING_INTERVAL);
+    return new IndexConfiguration(
+        keys == null ? Collections.emptySet() : Arrays.stream(keys.split(","))
+            .map(String::trim)
+            .filter(key -> !key.isEmpty())
+            .collect(Collectors.toCollection(LinkedHashSet::new)),
+        interval != null ? interval : 0);
+  }
+
+  public Set<String> getMetadataKeys() {
+    return metadataKeys;
+  }
+
+  public boolean isAsync() {
+    return asyncIntervalSeconds > 0;
+  }
+
+  /**
+   * @return a JCR repository over a node store, which runs the asynchronous indexing lane, if one
+   * is configured
+   */
+  public Repository createRepository(NodeStore nodeStore) {
+    Oak oak = new Oak(nodeStore);
+    if (isAsync()) {
+      oak.withAsyncIndexing(ASYNC_LANE, asyncIntervalSeconds);
+    }
+    return new Jcr(oak).createRepository();
+  }
+
+  /**
+   * Provisions the indexes in the repository of a DAO: the index on the status of the series,
+   * and the indexes of the configured metadata keys. Called as the repository is bootstrapped, on
+   * every application node, since provisioning is idempotent
+   */
+  public void provision(JcrDao dao) {
+    dao.provisionIndexes(metadataKeys, isAsync() ? ASYNC_LANE : null);
+  }
+}
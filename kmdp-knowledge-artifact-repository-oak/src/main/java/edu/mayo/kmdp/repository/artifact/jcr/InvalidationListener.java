@@ -0,0 +1,205 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import edu.mayo.kmdp.repository.artifact.dao.InvalidationBus;
+import edu.mayo.kmdp.repository.artifact.dao.InvalidationEvent;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+import javax.jcr.observation.ObservationManager;
+import org.apache.jackrabbit.util.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Translates the JCR observation events of a repository into {@link InvalidationEvent}s.
+ * <p>
+ * Oak reports the changes committed by any session, including the sessions of other cluster
+ * nodes of a document store, once they are visible locally. The changes under a series node
+ * (the series, its version nodes, and its entry in the {@link VersionStatusMap}) invalidate the
+ * series, or one of its versions when the change is below a version node. The changes that cannot
+ * be attributed to a single series, such as the removal of a repository node or of a shard, or
+ * the move of series across layouts, invalidate the whole repository.
+ * <p>
+ * Checking in a version changes the series node, but labeling it only changes its version
+ * history, under /jcr:system, which is saved separately. The changes to the labels of a version
+ * history invalidate the series it belongs to, found by the identifier of the versionable node,
+ * so that a series read between the check-in and the labeling of a version is read again. The
+ * other changes under /jcr:system are ignored.
+ * <p>
+ * The events of an observation batch are coalesced before they are published. The listener holds
+ * a session, which is logged out when the listener is closed.
+ */
+public class InvalidationListener implements EventListener, AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(InvalidationListener.class);
+
+  private static final int EVENT_TYPES = Event.NODE_ADDED | Event.NODE_REMOVED | Event.NODE_MOVED
+      | Event.PROPERTY_ADDED | Event.PROPERTY_CHANGED | Event.PROPERTY_REMOVED;
+
+  private static final String JCR_SYSTEM = "jcr:system";
+  private static final String VERSION_STORAGE = "jcr:versionStorage";
+  private static final String VERSION_LABELS = "jcr:versionLabels";
+  private static final String VERSIONABLE_UUID = "jcr:versionableUuid";
+
+  private static final Set<String> IGNORED_ROOTS =
+      new LinkedHashSet<>(Arrays.asList("oak:index", "rep:security"));
+
+  private final Session session;
+
+  private final SeriesLayout layout;
+
+  private final InvalidationBus bus;
+
+  InvalidationListener(Session session, SeriesLayout layout, InvalidationBus bus)
+      throws RepositoryException {
+    this.session = session;
+    this.layout = layout;
+    this.bus = bus;
+    session.getWorkspace().getObservationManager()
+        .addEventListener(this, EVENT_TYPES, "/", true, null, null, false);
+  }
+
+  @Override
+  public void onEvent(EventIterator events) {
+    Set<InvalidationEvent> invalidations = new LinkedHashSet<>();
+    while (events.hasNext()) {
+      try {
+        InvalidationEvent invalidation = toInvalidation(events.nextEvent());
+        if (invalidation != null) {
+          invalidations.add(invalidation);
+        }
+      } catch (RepositoryException e) {
+        logger.warn("Unable to read an observation event: {}", e.getMessage());
+      }
+    }
+    invalidations.forEach(bus::publish);
+  }
+
+  /**
+   * @return the invalidation implied by an event, or null if the event does not change the
+   * content of a repository
+   */
+  InvalidationEvent toInvalidation(Event event) throws RepositoryException {
+    String path = event.getPath();
+    if ((event.getType() & (Event.PROPERTY_ADDED | Event.PROPERTY_CHANGED
+        | Event.PROPERTY_REMOVED)) != 0) {
+      path = Text.getRelativeParent(path, 1);
+    }
+    List<String> names = Arrays.asList(Text.explode(path, '/'));
+    if (names.isEmpty() || IGNORED_ROOTS.contains(names.get(0))) {
+      return null;
+    }
+    if (JCR_SYSTEM.equals(names.get(0))) {
+      return toLabelInvalidation(names);
+    }
+    int seriesIndex = layout.depth() + 1;
+    if (VersionStatusMap.STATUS_ROOT.equals(names.get(0))
+        || VersionTagOrder.ORDER_ROOT.equals(names.get(0))) {
+      // /kmdp.status|kmdp.tags/[repository]/[shards]/[series], as the series under their repository
+      return names.size() <= seriesIndex + 1
+          ? null
+          : toInvalidation(names.get(1), names.get(seriesIndex + 1), null);
+    }
+
+    String repositoryId = names.get(0);
+    if (event.getType() == Event.NODE_MOVED || names.size() <= seriesIndex) {
+      return InvalidationEvent.repository(Text.unescapeIllegalJcrChars(repositoryId));
+    }
+    return toInvalidation(repositoryId, names.get(seriesIndex),
+        names.size() > seriesIndex + 1 ? names.get(seriesIndex + 1) : null);
+  }
+
+  /**
+   * @param names the path of a node under /jcr:system
+   * @return the invalidation of the series whose version labels changed, or null if the node is
+   * not the labels of a version history, or if the series no longer exists
+   */
+  private InvalidationEvent toLabelInvalidation(List<String> names) throws RepositoryException {
+    int labels = names.indexOf(VERSION_LABELS);
+    if (labels < 0 || names.size() < 2 || !VERSION_STORAGE.equals(names.get(1))) {
+      return null;
+    }
+    Node history = lookup("/" + String.join("/", names.subList(0, labels)));
+    if (history == null || !history.hasProperty(VERSIONABLE_UUID)) {
+      return null;
+    }
+    Node series = lookupByIdentifier(history.getProperty(VERSIONABLE_UUID).getString());
+    if (series == null) {
+      return null;
+    }
+    List<String> seriesNames = Arrays.asList(Text.explode(series.getPath(), '/'));
+    int seriesIndex = layout.depth() + 1;
+    if (seriesNames.size() != seriesIndex + 1
+        || VersionStatusMap.STATUS_ROOT.equals(seriesNames.get(0))) {
+      return null;
+    }
+    return toInvalidation(seriesNames.get(0), seriesNames.get(seriesIndex), null);
+  }
+
+  /**
+   * @return the node at a path, refreshing the session if the node is not visible yet, or null
+   */
+  private Node lookup(String path) throws RepositoryException {
+    if (!session.nodeExists(path)) {
+      session.refresh(false);
+    }
+    return session.nodeExists(path) ? session.getNode(path) : null;
+  }
+
+  /**
+   * @return the node with an identifier, refreshing the session if the node is not visible yet,
+   * or null
+   */
+  private Node lookupByIdentifier(String identifier) throws RepositoryException {
+    for (int attempt = 0; attempt < 2; attempt++) {
+      try {
+        return session.getNodeByIdentifier(identifier);
+      } catch (ItemNotFoundException e) {
+        session.refresh(false);
+      }
+    }
+    return null;
+  }
+
+  private InvalidationEvent toInvalidation(String repositoryId, String seriesName,
+      String versionName) {
+    String repository = Text.unescapeIllegalJcrChars(repositoryId);
+    UUID artifactId;
+    try {
+      artifactId = UUID.fromString(Text.unescapeIllegalJcrChars(seriesName));
+    } catch (IllegalArgumentException e) {
+      return InvalidationEvent.repository(repository);
+    }
+    return versionName != null
+        ? InvalidationEvent.version(repository, artifactId,
+        Text.unescapeIllegalJcrChars(versionName))
+        : InvalidationEvent.series(repository, artifactId);
+  }
+
+  /**
+   * Stops observing the repository
+   */
+  @Override
+  public void close() {
+    if (!session.isLive()) {
+      return;
+    }
+    try {
+      ObservationManager observation = session.getWorkspace().getObservationManager();
+      observation.removeEventListener(this);
+    } catch (RepositoryException e) {
+      logger.warn("Unable to remove the observation listener: {}", e.getMessage());
+    } finally {
+      session.logout();
+    }
+  }
+}
@@ -2,8 +2,8 @@ package edu.mayo.kmdp.repository.artifact.jcr;
 
 import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_DATA;
 import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_ID;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_SERIES_STATUS;
 import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_STATUS;
-import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.STATUS_AVAILABLE;
 import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.STATUS_UNAVAILABLE;
 
 import edu.mayo.kmdp.repository.artifact.dao.Artifact;
@@ -13,7 +13,6 @@ import edu.mayo.kmdp.repository.artifact.dao.DaoResult;
 import edu.mayo.kmdp.repository.artifact.exceptions.DaoRuntimeException;
 import edu.mayo.kmdp.repository.artifact.exceptions.ResourceIdentificationException;
 import java.io.InputStream;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -31,8 +30,18 @@ public class JcrAdapter implements ArtifactDAO {
 
   private final JcrDao innerDao;
 
+  /**
+   * Serves the reads that need no query straight from the node store, if set
+   */
+  private final NodeStateReader reader;
+
   public JcrAdapter(JcrDao dao) {
+    this(dao, null);
+  }
+
+  public JcrAdapter(JcrDao dao, NodeStateReader reader) {
     this.innerDao = dao;
+    this.reader = reader;
   }
 
   public JcrAdapter(Repository delegate) {
@@ -51,6 +60,9 @@ public class JcrAdapter implements ArtifactDAO {
   @Override
   public DaoResult<List<Artifact>> listResources(String repositoryId, Boolean deleted,
       Map<String, String> config) {
+    if (reader != null && (config == null || config.isEmpty())) {
+      return result(reader.getResources(repositoryId, deleted, 0, Long.MAX_VALUE));
+    }
     return innerDao.getResources(repositoryId, deleted, config)
         .map(nodes -> mapAll(nodes, this::toArtifact));
   }
@@ -59,15 +71,16 @@ public class JcrAdapter implements ArtifactDAO {
   @Override
   public DaoResult<ArtifactVersion> getResourceVersion(String repositoryId, UUID artifactId,
       String versionTag, Boolean deleted) {
+    if (reader != null) {
+      return result(reader.getResource(repositoryId, artifactId, versionTag, deleted));
+    }
     return innerDao.getResource(repositoryId, artifactId, versionTag, deleted)
         .map(this::toArtifactVersion);
   }
 
   @Override
   public DaoResult<Boolean> hasResourceSeries(String repositoryId, UUID artifactId) {
-    return innerDao.getResources(repositoryId, true, Collections.emptyMap())
-        .map(nodes -> mapAll(nodes, this::toArtifact)
-            .stream().anyMatch(x -> x.getArtifactId().equals(artifactId)));
+    return innerDao.hasResource(repositoryId, artifactId);
   }
 
   @Override
@@ -78,20 +91,29 @@ public class JcrAdapter implements ArtifactDAO {
   @Override
   public DaoResult<Boolean> hasResourceVersions(String repositoryId, UUID artifactId,
       Boolean deleted) {
-    return innerDao.getResourceVersions(repositoryId, artifactId, deleted)
+    if (reader != null) {
+      return result(!reader.getResourceVersions(repositoryId, artifactId, deleted).isEmpty());
+    }
+    return innerDao.getResourceVersionSnapshots(repositoryId, artifactId, deleted)
         .map(l -> !l.isEmpty());
   }
 
   @Override
   public DaoResult<List<ArtifactVersion>> getResourceVersions(String repositoryId, UUID artifactId,
       Boolean deleted) {
-    return innerDao.getResourceVersions(repositoryId, artifactId, deleted)
-        .map(nodes -> mapAll(nodes, this::toArtifactVersion));
+    if (reader != null) {
+      return result(reader.getResourceVersions(repositoryId, artifactId, deleted));
+    }
+    return innerDao.getResourceVersionSnapshots(repositoryId, artifactId, deleted)
+        .map(snapshots -> mapAll(snapshots, VersionAdapter::new));
   }
 
   @Override
   public DaoResult<ArtifactVersion> getLatestResourceVersion(String repositoryId, UUID artifactId,
       Boolean deleted) {
+    if (reader != null) {
+      return result(reader.getLatestResource(repositoryId, artifactId, deleted));
+    }
     return innerDao.getLatestResource(repositoryId, artifactId, deleted)
         .map(this::toArtifactVersion);
   }
@@ -101,6 +123,15 @@ public class JcrAdapter implements ArtifactDAO {
     innerDao.clear();
   }
 
+  @Override
+  public void clearRepository(String repositoryId, Boolean deleted) {
+    if (Boolean.TRUE.equals(deleted)) {
+      innerDao.clear(repositoryId, JcrDao.DEFAULT_PURGE_BATCH, null);
+    } else {
+      ArtifactDAO.super.clearRepository(repositoryId, deleted);
+    }
+  }
+
   @Override
   public void deleteResourceVersion(String repositoryId, UUID artifactId, String versionTag) {
     innerDao.deleteResource(repositoryId, artifactId, versionTag);
@@ -147,59 +178,63 @@ public class JcrAdapter implements ArtifactDAO {
   }
 
   private ArtifactVersion toArtifactVersion(Version version) {
-    return new VersionAdapter(version);
+    return new VersionAdapter(innerDao.snapshot(version));
   }
 
   private Artifact toArtifact(Node node) {
     return new NodeAdapter(node);
   }
 
+  /**
+   * Wraps a value read from the node store, which holds no session
+   */
+  private <T> DaoResult<T> result(T value) {
+    return new edu.mayo.kmdp.repository.artifact.jcr.DaoResult<>(value, null, true);
+  }
+
   private <X, T> List<X> mapAll(List<T> source, Function<T, X> mapper) {
     return source.stream()
         .map(mapper)
         .collect(Collectors.toList());
   }
 
+  /**
+   * A version, whose identity and status are captured when the adapter is created, so that they
+   * can be read after the session is closed. Only the content is read from the session, on demand.
+   */
   public static class VersionAdapter implements ArtifactVersion {
 
-    private final Version version;
+    private final VersionSnapshot snapshot;
+
+    private final ResourceIdentifier resourceIdentifier;
 
-    public VersionAdapter(Version version) {
-      this.version = version;
+    public VersionAdapter(VersionSnapshot snapshot) {
+      this.snapshot = snapshot;
+      this.resourceIdentifier =
+          SemanticIdentifier.newId(snapshot.getArtifactId(), snapshot.getLabel());
     }
 
     public Version getJCRVersion() {
-      return version;
+      return snapshot.getVersion();
+    }
+
+    public VersionSnapshot getSnapshot() {
+      return snapshot;
     }
 
     @Override
     public ResourceIdentifier getResourceIdentifier() {
-      try {
-        var artifactId = version.getFrozenNode().getProperty("jcr:id").getString();
-        var versionTag = version.getContainingHistory().getVersionLabels(version)[0];
-        return SemanticIdentifier.newId(artifactId, versionTag);
-      } catch (RepositoryException e) {
-        throw new IllegalStateException(e.getMessage(), e);
-      }
+      return resourceIdentifier;
     }
 
     @Override
-    public boolean isUnavailable() throws DaoRuntimeException {
-      try {
-        return STATUS_UNAVAILABLE
-            .equals(version.getFrozenNode().getProperty(JCR_STATUS).getString());
-      } catch (RepositoryException e) {
-        throw new DaoRuntimeException(e.getMessage(), e);
-      }
+    public boolean isUnavailable() {
+      return !snapshot.isAvailable();
     }
 
     @Override
-    public boolean isAvailable() throws DaoRuntimeException {
-      try {
-        return STATUS_AVAILABLE.equals(version.getFrozenNode().getProperty(JCR_STATUS).getString());
-      } catch (RepositoryException e) {
-        throw new DaoRuntimeException(e.getMessage(), e);
-      }
+    public boolean isAvailable() {
+      return snapshot.isAvailable();
     }
 
     @Override
@@ -214,44 +249,57 @@ public class JcrAdapter implements ArtifactDAO {
     }
   }
 
+  /**
+   * A series, whose identity and status are captured when the adapter is created, so that they
+   * can be read after the session is closed
+   */
   public static class NodeAdapter implements Artifact {
 
-    private final Node node;
+    private final String artifactTag;
 
-    public NodeAdapter(Node node) {
-      this.node = node;
-    }
+    private final UUID artifactId;
 
-    @Override
-    public String getArtifactTag() {
+    private final boolean available;
+
+    public NodeAdapter(Node node) {
       try {
-        return node.getProperty(JCR_ID).getString();
+        this.artifactTag = node.getProperty(JCR_ID).getString();
+        this.artifactId = UUID.fromString(artifactTag);
+        this.available = !STATUS_UNAVAILABLE.equals(status(node));
       } catch (RepositoryException e) {
         throw new IllegalStateException(e.getMessage(), e);
       }
     }
 
+    /**
+     * The status of the series: series saved without a version have no version status, and the
+     * status of the last version saved is not the status of the series
+     */
+    private static String status(Node node) throws RepositoryException {
+      if (node.hasProperty(JCR_SERIES_STATUS)) {
+        return node.getProperty(JCR_SERIES_STATUS).getString();
+      }
+      return node.hasProperty(JCR_STATUS) ? node.getProperty(JCR_STATUS).getString() : null;
+    }
+
+    @Override
+    public String getArtifactTag() {
+      return artifactTag;
+    }
+
     @Override
     public UUID getArtifactId() {
-      return UUID.fromString(getArtifactTag());
+      return artifactId;
     }
 
     @Override
     public boolean isUnavailable() {
-      try {
-        return STATUS_UNAVAILABLE.equals(node.getProperty(JCR_STATUS).getString());
-      } catch (RepositoryException e) {
-        throw new IllegalStateException(e);
-      }
+      return !available;
     }
 
     @Override
     public boolean isAvailable() {
-      try {
-        return STATUS_AVAILABLE.equals(node.getProperty(JCR_STATUS).getString());
-      } catch (RepositoryException e) {
-        throw new IllegalStateException(e);
-      }
+      return available;
     }
   }
 }
@@ -16,30 +16,43 @@
 package edu.mayo.kmdp.repository.artifact.jcr;
 
 import static javax.jcr.nodetype.NodeType.MIX_VERSIONABLE;
+import static org.apache.jackrabbit.JcrConstants.JCR_VERSIONLABELS;
 
 import com.google.common.collect.Sets;
+import edu.mayo.kmdp.repository.artifact.dao.InvalidationBus;
 import edu.mayo.kmdp.repository.artifact.exceptions.DaoRuntimeException;
 import edu.mayo.kmdp.repository.artifact.exceptions.RepositoryNotFoundException;
 import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNoContentException;
 import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNotFoundException;
 import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import javax.jcr.InvalidItemStateException;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
+import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
-import javax.jcr.SimpleCredentials;
-import javax.jcr.query.QueryResult;
+import javax.jcr.query.Query;
 import javax.jcr.version.Version;
 import javax.jcr.version.VersionHistory;
+import javax.jcr.version.VersionIterator;
 import javax.jcr.version.VersionManager;
 import org.apache.jackrabbit.util.ISO9075;
 import org.apache.jackrabbit.util.Text;
@@ -54,12 +67,36 @@ public class JcrDao {
   protected static final String JCR_DATA = "jcr:data";
   protected static final String JCR_STATUS = "status";
   protected static final String JCR_SERIES_STATUS = "seriesStatus";
+  protected static final String JCR_LATEST_VERSION = "latestVersion";
+  protected static final String JCR_LATEST_AVAILABLE_VERSION = "latestAvailableVersion";
   protected static final String STATUS_AVAILABLE = "available";
   protected static final String STATUS_UNAVAILABLE = "unavailable";
 
-  private final Set<String> nodesNotToDelete = Sets.newHashSet("rep:security", "jcr:system", "oak:index");
+  private static final String OAK_INDEX = "oak:index";
+  private static final String OAK_INDEX_DEFINITION = "oak:QueryIndexDefinition";
+  private static final String INDEX_PREFIX = "kmdp.";
+  private static final String ASYNC = "async";
+  private static final String INDEX_PROPERTY = "property";
+  private static final String INDEX_DISABLED = "disabled";
 
-  private javax.jcr.Repository delegate;
+  public static final int DEFAULT_PURGE_BATCH = 1000;
+
+  private static final int MAX_PROVISION_ATTEMPTS = 3;
+
+  private final Set<String> nodesNotToDelete = Sets.newHashSet("rep:security", "jcr:system", OAK_INDEX);
+
+  private final JcrSessions sessions;
+
+  private final SeriesLayout layout;
+
+  private final LatencyMonitor latency = new LatencyMonitor();
+
+  private final Set<InvalidationListener> listeners = ConcurrentHashMap.newKeySet();
+
+  /**
+   * The metadata keys queried without an index, which have already been reported
+   */
+  private final Set<String> unindexedKeys = ConcurrentHashMap.newKeySet();
 
   private Runnable cleanup;
 
@@ -69,35 +106,127 @@ public class JcrDao {
 
 
   public JcrDao(javax.jcr.Repository delegate, Runnable cleanup) {
-    this.delegate = delegate;
+    this(delegate, cleanup, true);
+  }
+
+  /**
+   * @param delegate          the JCR repository
+   * @param cleanup           releases the resources of the repository, on shutdown
+   * @param reuseReadSessions if true, read operations reuse a session bound to the calling thread,
+   *                          instead of logging in each time (see {@link JcrSessions})
+   */
+  public JcrDao(javax.jcr.Repository delegate, Runnable cleanup, boolean reuseReadSessions) {
+    this(delegate, cleanup, reuseReadSessions, SeriesLayout.FLAT);
+  }
+
+  /**
+   * @param delegate          the JCR repository
+   * @param cleanup           releases the resources of the repository, on shutdown
+   * @param reuseReadSessions if true, read operations reuse a session bound to the calling thread,
+   *                          instead of logging in each time (see {@link JcrSessions})
+   * @param layout            where the series nodes are placed under the repository nodes. A
+   *                          repository created with a different layout must be migrated first
+   *                          (see {@link #migrateLayout(String, SeriesLayout, int)})
+   */
+  public JcrDao(javax.jcr.Repository delegate, Runnable cleanup, boolean reuseReadSessions,
+      SeriesLayout layout) {
+    this.sessions = new JcrSessions(delegate, reuseReadSessions);
     this.cleanup = cleanup;
+    this.layout = layout;
   }
 
   public <T> DaoResult<T> execute(Function<Session, T> f) {
     try {
-      Session session = delegate.login(
-          new SimpleCredentials("admin", "admin".toCharArray())
-      );
+      long t0 = System.nanoTime();
+      Session session = sessions.writeSession();
       T result = f.apply(session);
       session.save();
+      latency.record(System.nanoTime() - t0);
       return new DaoResult<>(result, session);
     } catch (RepositoryException e) {
       throw new DaoRuntimeException(e);
     }
   }
 
+  /**
+   * Executes a read-only operation, with the read session bound to the current thread. The
+   * operation must not log out the session.
+   */
+  public <T> DaoResult<T> executeRead(Function<Session, T> f) {
+    long t0 = System.nanoTime();
+    Session session;
+    try {
+      session = sessions.readSession();
+    } catch (RepositoryException e) {
+      throw new DaoRuntimeException(e);
+    }
+    boolean shared = sessions.isShared(session);
+    try {
+      DaoResult<T> result = new DaoResult<>(f.apply(session), session, shared);
+      latency.record(System.nanoTime() - t0);
+      return result;
+    } catch (RuntimeException e) {
+      if (!shared) {
+        session.logout();
+      }
+      throw e;
+    }
+  }
+
+  public JcrSessions.Metrics getSessionMetrics() {
+    return sessions.getMetrics();
+  }
+
+  /**
+   * Publishes the changes to the repositories, made by any writer, as invalidation events (see
+   * {@link InvalidationListener}). The listener is closed when the DAO is shut down.
+   *
+   * @param bus the bus the events are published to
+   * @return the listener, which can be closed to stop publishing
+   */
+  public InvalidationListener publishInvalidations(InvalidationBus bus) {
+    Session session = null;
+    try {
+      session = sessions.writeSession();
+      InvalidationListener listener = new InvalidationListener(session, layout, bus);
+      listeners.add(listener);
+      return listener;
+    } catch (RepositoryException e) {
+      if (session != null) {
+        session.logout();
+      }
+      throw new DaoRuntimeException(e);
+    }
+  }
+
+  public LatencyMonitor getLatencyMonitor() {
+    return latency;
+  }
+
   public DaoResult<List<Version>> getResourceVersions(String repositoryId,
       UUID uuid, Boolean deleted) {
+    return getResourceVersionSnapshots(repositoryId, uuid, deleted)
+        .map(snapshots -> snapshots.stream()
+            .map(VersionSnapshot::getVersion)
+            .collect(Collectors.toList()));
+  }
+
+  /**
+   * @return the labeled versions of a series, in the order they were first saved (see
+   * {@link #sortVersions(List, List, Function, Function)})
+   */
+  public DaoResult<List<VersionSnapshot>> getResourceVersionSnapshots(String repositoryId,
+      UUID uuid, Boolean deleted) {
     String id = this.encode(uuid.toString());
 
     String encodedRepositoryId = this.encode(repositoryId);
 
-    return execute((Session session) -> {
+    return executeRead((Session session) -> {
       try {
         Node rootNode = session.getRootNode();
         if (artifactSeriesExists(rootNode, encodedRepositoryId, id)) {
 
-          Node resource = session.getRootNode().getNode(encodedRepositoryId).getNode(id);
+          Node resource = session.getRootNode().getNode(encodedRepositoryId).getNode(layout.path(id));
           if ((Boolean.FALSE.equals(deleted)) && resource.getProperty(JCR_SERIES_STATUS).getString()
               .equals(STATUS_UNAVAILABLE)) {
             throw new ResourceNoContentException("Artifact known, but not available.");
@@ -107,58 +236,152 @@ public class JcrDao {
           throw new ResourceNotFoundException();
         }
       } catch (ResourceNotFoundException | ResourceNoContentException e) {
-        session.logout();
         throw e;
       } catch (Exception e) {
-        session.logout();
         throw new DaoRuntimeException(e);
       }
     });
   }
 
-  private List<Version> getArtifactVersions(Session session, Node resource,
+  /**
+   * Reads the labeled versions of a series in one traversal of the version history. The labels
+   * are read from the history's label node, which maps each label to the identifier of a version,
+   * rather than resolving each label separately.
+   */
+  private List<VersionSnapshot> getArtifactVersions(Session session, Node resource,
       Boolean deleted) throws RepositoryException {
     VersionHistory history = session.getWorkspace().getVersionManager()
         .getVersionHistory(resource.getPath());
-    String[] versions = history.getVersionLabels();
-
-    return Arrays.stream(versions)
-        .map(label -> {
-          try {
-            return history.getVersionByLabel(label);
-          } catch (RepositoryException e) {
-            throw new DaoRuntimeException(e);
-          }
-        })
-        .filter(version -> {
-          //If deleted != true, filter out unavailable versions
-          try {
-            return deleted || !versionIsUnavailable(version);
-          } catch (RepositoryException e) {
-            throw new DaoRuntimeException(e);
-          }
-        })
+    VersionStatusMap statuses = statusMap(session, resource);
+    String artifactId = resource.getProperty(JCR_ID).getString();
+
+    Map<String, List<String>> labelsByVersion = new HashMap<>();
+    PropertyIterator labels = history.getNode(JCR_VERSIONLABELS).getProperties();
+    while (labels.hasNext()) {
+      Property label = labels.nextProperty();
+      if (label.getType() == PropertyType.REFERENCE) {
+        labelsByVersion.computeIfAbsent(label.getString(), k -> new ArrayList<>(1))
+            .add(label.getName());
+      }
+    }
 
-        .collect(Collectors.toList());
+    List<VersionSnapshot> snapshots = new ArrayList<>(labelsByVersion.size());
+    VersionIterator versions = history.getAllVersions();
+    while (versions.hasNext()) {
+      Version version = versions.nextVersion();
+      List<String> versionLabels = labelsByVersion.get(version.getIdentifier());
+      if (versionLabels == null) {
+        continue;
+      }
+      for (String label : versionLabels) {
+        boolean available = statuses.isAvailable(label, version);
+        //If deleted != true, filter out unavailable versions
+        if (Boolean.TRUE.equals(deleted) || available) {
+          snapshots.add(new VersionSnapshot(label, version.getCreated().getTime(), available,
+              artifactId, version));
+        }
+      }
+    }
+    sortVersions(snapshots, tagOrder(session, resource).tags(),
+        VersionSnapshot::getLabel, VersionSnapshot::getCreated);
+    return snapshots;
   }
 
-  public DaoResult<Version> getLatestResource(String repositoryId, UUID id, Boolean deleted) {
-    DaoResult<List<Version>> result = getResourceVersions(repositoryId, id, deleted);
-    List<Version> versions = result.getValue();
-    if (versions.isEmpty()) {
-      result.close();
-      throw new ResourceNoContentException(
-          "Artifact known but either not available, or no versions are available");
+  /**
+   * Sorts the versions of a series in the order their tags were first saved, which is the order
+   * the latest version pointers follow: an overwritten version keeps its place, although its
+   * version node is newer. The versions of a series stored before the tags were tracked are
+   * sorted by creation.
+   *
+   * @param versions the versions
+   * @param tags     the tags of the series, in the order they were first saved, or null if the
+   *                 series does not track them
+   * @param label    the tag of a version
+   * @param created  the creation of a version
+   */
+  static <T> void sortVersions(List<T> versions, List<String> tags, Function<T, String> label,
+      Function<T, Date> created) {
+    versions.sort(Comparator.comparing(created));
+    if (tags != null) {
+      Map<String, Integer> positions = new HashMap<>();
+      for (int j = 0; j < tags.size(); j++) {
+        positions.putIfAbsent(tags.get(j), j);
+      }
+      // stable: the versions whose tag is not tracked stay last, by creation
+      versions.sort(Comparator.comparing(
+          (T version) -> positions.getOrDefault(label.apply(version), Integer.MAX_VALUE)));
     }
-    versions.sort((Version v1, Version v2) -> {
+  }
+
+  /**
+   * Captures the label, creation and status of a version
+   *
+   * @param version a labeled version, obtained from this DAO
+   * @return the snapshot of the version
+   */
+  public VersionSnapshot snapshot(Version version) {
+    try {
+      Session session = version.getSession();
+      VersionHistory history = version.getContainingHistory();
+      Node resource = session.getNodeByIdentifier(history.getVersionableIdentifier());
+      String label = history.getVersionLabels(version)[0];
+      return new VersionSnapshot(label, version.getCreated().getTime(),
+          statusMap(session, resource).isAvailable(label, version),
+          resource.getProperty(JCR_ID).getString(), version);
+    } catch (RepositoryException e) {
+      throw new DaoRuntimeException(e);
+    }
+  }
+
+  public DaoResult<Version> getLatestResource(String repositoryId, UUID uuid, Boolean deleted) {
+    String id = this.encode(uuid.toString());
+
+    String encodedRepositoryId = this.encode(repositoryId);
+
+    return executeRead((Session session) -> {
       try {
-        return v2.getCreated().compareTo(v1.getCreated());
-      } catch (RepositoryException e) {
-        result.close();
+        Node rootNode = session.getRootNode();
+        if (!artifactSeriesExists(rootNode, encodedRepositoryId, id)) {
+          throw new ResourceNotFoundException();
+        }
+        Node resource = rootNode.getNode(encodedRepositoryId).getNode(layout.path(id));
+        if ((Boolean.FALSE.equals(deleted)) && resource.getProperty(JCR_SERIES_STATUS).getString()
+            .equals(STATUS_UNAVAILABLE)) {
+          throw new ResourceNoContentException("Artifact known, but not available.");
+        }
+        if (!tagOrder(session, resource).isTracked()) {
+          return getLatestArtifactVersion(session, resource, deleted);
+        }
+        String pointer = Boolean.TRUE.equals(deleted)
+            ? JCR_LATEST_VERSION
+            : JCR_LATEST_AVAILABLE_VERSION;
+        if (!resource.hasProperty(pointer)) {
+          throw new ResourceNoContentException(
+              "Artifact known but either not available, or no versions are available");
+        }
+        return session.getWorkspace().getVersionManager()
+            .getVersionHistory(resource.getPath())
+            .getVersionByLabel(resource.getProperty(pointer).getString());
+      } catch (ResourceNotFoundException | ResourceNoContentException e) {
+        throw e;
+      } catch (Exception e) {
         throw new DaoRuntimeException(e);
       }
     });
-    return new DaoResult<>(versions.get(0), result.getSession());
+  }
+
+  /**
+   * Finds the latest version of a series that was stored before the latest version pointers
+   * were maintained, sorting the versions by creation
+   */
+  private Version getLatestArtifactVersion(Session session, Node resource, Boolean deleted)
+      throws RepositoryException {
+    List<VersionSnapshot> versions = getArtifactVersions(session, resource, deleted);
+    if (versions.isEmpty()) {
+      throw new ResourceNoContentException(
+          "Artifact known but either not available, or no versions are available");
+    }
+    return versions.get(versions.size() - 1).getVersion();
   }
 
   public DaoResult<Version> getResource(String repositoryId, UUID uuid,
@@ -167,27 +390,44 @@ public class JcrDao {
 
     String id = this.encode(uuid.toString());
 
-    return execute((Session session) -> {
+    return executeRead((Session session) -> {
       try {
         Node rootNode = session.getRootNode();
         if (!artifactSeriesExists(rootNode, encodedRepositoryId, id)) {
           throw new ResourceNotFoundException();
         }
-        Node resource = session.getRootNode().getNode(encodedRepositoryId).getNode(id);
+        Node resource = session.getRootNode().getNode(encodedRepositoryId).getNode(layout.path(id));
         VersionHistory history = session.getWorkspace().getVersionManager()
             .getVersionHistory(resource.getPath());
         if (!history.hasVersionLabel(version)) {
           throw new ResourceNotFoundException();
         }
-        if (!getUnavailable && versionIsUnavailable(history.getVersionByLabel(version))) {
+        if (!getUnavailable && !statusMap(session, resource)
+            .isAvailable(version, history.getVersionByLabel(version))) {
           throw new ResourceNoContentException("The version is known but currently unavailable.");
         }
         return history.getVersionByLabel(version);
       } catch (ResourceNoContentException | ResourceNotFoundException e) {
-        session.logout();
         throw e;
       } catch (Exception e) {
-        session.logout();
+        throw new DaoRuntimeException(e);
+      }
+    });
+  }
+
+  public DaoResult<Boolean> hasResource(String repositoryId, UUID uuid) {
+    String id = this.encode(uuid.toString());
+
+    String encodedRepositoryId = this.encode(repositoryId);
+
+    return executeRead((Session session) -> {
+      try {
+        Node rootNode = session.getRootNode();
+        if (!rootNode.hasNode(encodedRepositoryId)) {
+          throw new RepositoryNotFoundException(encodedRepositoryId);
+        }
+        return rootNode.getNode(encodedRepositoryId).hasNode(layout.path(id));
+      } catch (RepositoryException e) {
         throw new DaoRuntimeException(e);
       }
     });
@@ -195,50 +435,200 @@ public class JcrDao {
 
   public DaoResult<List<Node>> getResources(String repositoryId,
       Boolean deleted, Map<String, String> query) {
+    return getResources(repositoryId, deleted, query, 0, Long.MAX_VALUE);
+  }
+
+  /**
+   * Lists the series in a repository, optionally filtered by metadata. Unless the unavailable
+   * series are included, their status is a constraint of the query, resolved by the status index,
+   * so that Oak only yields the matching series, lazily, and applies the offset and limit. The
+   * metadata keys are resolved by their indexes, if provisioned (see
+   * {@link #provisionIndexes(Collection, String)}): the queries on the other keys traverse the
+   * repository.
+   *
+   * @param repositoryId the repository
+   * @param deleted      if true, includes the series that are not available
+   * @param query        the metadata the series must have, if any
+   * @param offset       the number of matching series to skip
+   * @param limit        the maximum number of series to return
+   * @return the series
+   */
+  public DaoResult<List<Node>> getResources(String repositoryId,
+      Boolean deleted, Map<String, String> query, long offset, long limit) {
     String encodedRepositoryId = this.encode(repositoryId);
 
-    return execute((Session session) -> {
+    return executeRead((Session session) -> {
       try {
         if (!session.getRootNode().hasNode(encodedRepositoryId)) {
           throw new RepositoryNotFoundException(encodedRepositoryId);
         }
-        String queryString;
-        if (query.isEmpty()) {
-          queryString = "";
+        String xpath = seriesQuery(encodedRepositoryId, deleted, query);
+        if (query != null) {
+          checkIndexes(session, query.keySet());
+        }
+        Iterator<Node> nodes;
+        long toSkip = 0;
+        if (xpath == null) {
+          // the series are the children (or shards' children) of the repository node: no need for a query
+          nodes = layout.series(session.getRootNode().getNode(encodedRepositoryId));
+          toSkip = offset;
         } else {
-          String q = query.entrySet().stream()
-              .map(entry -> String.format("jcr:%s='%s'",
-                  ISO9075.encode(this.encode(entry.getKey())), this.encode(ISO9075.encode(entry.getValue()))))
-              .collect(Collectors.joining(" AND "));
-          queryString = "[" + q + "]";
+          Query q = session.getWorkspace().getQueryManager().createQuery(xpath, "xpath");
+          q.setOffset(offset);
+          if (limit < Long.MAX_VALUE) {
+            q.setLimit(limit);
+          }
+          nodes = SeriesLayout.nodes(q.execute().getNodes());
         }
-        QueryResult queryResult = session.getWorkspace().getQueryManager()
-            .createQuery(String.format("//%s/*%s", ISO9075.encode(encodedRepositoryId), queryString), "xpath")
-            .execute();
 
-        NodeIterator nodes = queryResult.getNodes();
         List<Node> result = new ArrayList<>();
-        while (nodes.hasNext()) {
-          Node node = nodes.nextNode();
-          if (Boolean.FALSE.equals(deleted) && node.hasProperty(JCR_SERIES_STATUS) && node
-              .getProperty(JCR_SERIES_STATUS)
-              .getString().equals(STATUS_UNAVAILABLE)) {
+        while (nodes.hasNext() && result.size() < limit) {
+          Node node = nodes.next();
+          if (toSkip > 0) {
+            toSkip--;
             continue;
           }
           result.add(node);
         }
         return result;
       } catch (RepositoryNotFoundException e) {
-        session.logout();
         throw e;
       } catch (Exception e) {
-        session.logout();
         throw new DaoRuntimeException(e);
       }
     });
 
   }
 
+  /**
+   * Builds the query that selects the series of a repository, constrained to the children (or
+   * shards' children) of the repository node, and resolved by the property indexes
+   *
+   * @return the XPath query, or null if all the series are selected
+   */
+  String seriesQuery(String encodedRepositoryId, Boolean deleted, Map<String, String> query) {
+    List<String> constraints = new ArrayList<>();
+    if (Boolean.FALSE.equals(deleted)) {
+      // every series has a status, since it is created
+      constraints.add(String.format("@%s='%s'", JCR_SERIES_STATUS, STATUS_AVAILABLE));
+    }
+    if (query != null) {
+      query.forEach((key, value) -> constraints.add(String.format("jcr:%s='%s'",
+          ISO9075.encode(this.encode(key)), this.encode(ISO9075.encode(value)))));
+    }
+    if (constraints.isEmpty()) {
+      return null;
+    }
+    return String.format("/jcr:root/%s/%s[%s]", ISO9075.encode(encodedRepositoryId),
+        layout.queryStep(), String.join(" AND ", constraints));
+  }
+
+  /**
+   * Warns, once per key, about the metadata keys that are queried without an index
+   */
+  private void checkIndexes(Session session, Collection<String> metadataKeys)
+      throws RepositoryException {
+    for (String key : metadataKeys) {
+      String indexPath = "/" + OAK_INDEX + "/" + INDEX_PREFIX + this.encode("jcr:" + key);
+      if (!unindexedKeys.contains(key) && !session.nodeExists(indexPath)
+          && unindexedKeys.add(key)) {
+        logger.warn("No index on the metadata key {}: the queries on it traverse the repository, "
+            + "until its index is provisioned", key);
+      }
+    }
+  }
+
+  /**
+   * Provisions the property index used to look up series by a property, unless it exists, and
+   * enables it, if it was left suspended
+   *
+   * @param session  the session, which is saved by the caller
+   * @param property the name of the indexed property
+   */
+  void ensurePropertyIndex(Session session, String property) throws RepositoryException {
+    Node indexes = session.getRootNode().getNode(OAK_INDEX);
+    String indexName = INDEX_PREFIX + this.encode(property);
+    if (!indexes.hasNode(indexName)) {
+      Node index = indexes.addNode(indexName, OAK_INDEX_DEFINITION);
+      index.setProperty("type", INDEX_PROPERTY);
+      index.setProperty("propertyNames", new String[]{property}, PropertyType.NAME);
+      index.setProperty("reindex", true);
+      logger.info("Provisioned property index {} on {}", indexName, property);
+    } else {
+      resumeIndex(indexes.getNode(indexName));
+    }
+  }
+
+  /**
+   * Provisions the property index on the status of the series, and the property indexes of the
+   * metadata used to look up series (see {@link #getResources(String, Boolean, Map)}), so that
+   * queries on the keys never traverse the repository. The indexes are only created here, when
+   * the repository is bootstrapped (see {@link IndexConfiguration#provision(JcrDao)}), and never
+   * as the content is saved. Indexes already provisioned are moved to the given indexing lane,
+   * and reindexed, if they were in another lane.
+   * <p>
+   * The indexes left disabled by a bulk import that did not finish (see
+   * {@link #bulkImport(String, int, boolean)}) are enabled again, and rebuilt.
+   * <p>
+   * Provisioning is idempotent. The application nodes that share a clustered store all provision
+   * the indexes as they start: a node whose commit conflicts with the one of another node
+   * refreshes its session, and finds the indexes already provisioned.
+   *
+   * @param metadataKeys the metadata keys
+   * @param asyncLane    the asynchronous indexing lane that updates the indexes, which must be
+   *                     registered with the repository, or null to update the indexes as the
+   *                     content is saved
+   */
+  public void provisionIndexes(Collection<String> metadataKeys, String asyncLane) {
+    Session session = null;
+    try {
+      session = sessions.writeSession();
+      for (int attempt = 1; ; attempt++) {
+        try {
+          resumeSuspendedIndexes(session);
+          ensurePropertyIndex(session, JCR_SERIES_STATUS);
+          for (String key : metadataKeys) {
+            provisionIndex(session, key, asyncLane);
+          }
+          session.save();
+          break;
+        } catch (InvalidItemStateException e) {
+          if (attempt >= MAX_PROVISION_ATTEMPTS) {
+            throw e;
+          }
+          logger.info("Indexes provisioned concurrently, retrying :: {}", e.getMessage());
+          session.refresh(false);
+        }
+      }
+    } catch (RepositoryException e) {
+      throw new DaoRuntimeException(e);
+    } finally {
+      if (session != null) {
+        session.logout();
+      }
+    }
+    unindexedKeys.removeAll(metadataKeys);
+  }
+
+  private void provisionIndex(Session session, String key, String asyncLane)
+      throws RepositoryException {
+    String property = "jcr:" + key;
+    ensurePropertyIndex(session, property);
+    Node index = session.getRootNode().getNode(OAK_INDEX)
+        .getNode(INDEX_PREFIX + this.encode(property));
+    String lane = index.hasProperty(ASYNC) ? index.getProperty(ASYNC).getString() : null;
+    if (!Objects.equals(lane, asyncLane)) {
+      if (asyncLane != null) {
+        index.setProperty(ASYNC, asyncLane);
+      } else {
+        index.getProperty(ASYNC).remove();
+      }
+      index.setProperty("reindex", true);
+      logger.info("Moved property index {} to the {} indexing lane", index.getName(),
+          asyncLane != null ? asyncLane : "synchronous");
+    }
+  }
+
   private String encode(String id) {
     return Text.escapeIllegalJcrChars(id);
   }
@@ -252,23 +642,15 @@ public class JcrDao {
       try {
         Node rootNode = session.getRootNode();
         if (artifactSeriesExists(rootNode, encodedRepositoryId, id)) {
-          Node resource = session.getRootNode().getNode(encodedRepositoryId).getNode(id);
+          Node resource = session.getRootNode().getNode(encodedRepositoryId).getNode(layout.path(id));
           VersionManager versionManager = session.getWorkspace().getVersionManager();
-          VersionHistory history = session.getWorkspace().getVersionManager()
-              .getVersionHistory(resource.getPath());
-          String[] labels = history.getVersionLabels();
+          //Assign each version as 'unavailable'
+          VersionStatusMap.write(session, layout, encodedRepositoryId, id).reset(false);
           versionManager.checkout(resource.getPath());
           resource.setProperty(JCR_SERIES_STATUS, STATUS_UNAVAILABLE);
+          trackedTagOrder(session, resource);
+          setOrRemove(resource, JCR_LATEST_AVAILABLE_VERSION, null);
           session.save();
-          for (String label : labels) {
-            //Assign each version as 'unavailable'
-            versionManager.checkout(resource.getPath());
-            resource.setProperty(JCR_STATUS, STATUS_UNAVAILABLE);
-            session.save();
-            Version newNode = versionManager.checkin(resource.getPath());
-            versionManager.getVersionHistory(resource.getPath())
-                .addVersionLabel(newNode.getName(), label, true);
-          }
         } else {
           session.logout();
           throw new ResourceNotFoundException();
@@ -296,14 +678,20 @@ public class JcrDao {
         VersionManager versionManager = session.getWorkspace().getVersionManager();
         Node rootNode = session.getRootNode();
         if (artifactSeriesExists(rootNode, encodedRepositoryId, id)) {
-          Node node = session.getRootNode().getNode(encodedRepositoryId).getNode(id);
-          if (versionManager.getVersionHistory(node.getPath()).hasVersionLabel(version)) {
+          Node node = session.getRootNode().getNode(encodedRepositoryId).getNode(layout.path(id));
+          VersionHistory history = versionManager.getVersionHistory(node.getPath());
+          if (history.hasVersionLabel(version)) {
+            VersionStatusMap statuses =
+                VersionStatusMap.write(session, layout, encodedRepositoryId, id);
+            statuses.setStatus(version, false);
             versionManager.checkout(node.getPath());
-            node.setProperty(JCR_STATUS, STATUS_UNAVAILABLE);
+            VersionTagOrder order = trackedTagOrder(session, node);
+            if (node.hasProperty(JCR_LATEST_AVAILABLE_VERSION)
+                && version.equals(node.getProperty(JCR_LATEST_AVAILABLE_VERSION).getString())) {
+              updateLatestAvailableVersion(node, order.tags(),
+                  tag -> isAvailable(statuses, history, tag));
+            }
             session.save();
-            Version newNode = versionManager.checkin(node.getPath());
-            versionManager.getVersionHistory(node.getPath())
-                .addVersionLabel(newNode.getName(), version, true);
             return null;
           } else {
             throw new ResourceNotFoundException();
@@ -340,43 +728,15 @@ public class JcrDao {
 
     return execute((Session session) -> {
       try {
-        long t0;
         VersionManager versionManager = session.getWorkspace().getVersionManager();
-        // check if repository node exists
-        if (!session.getRootNode().hasNode(encodedRepositoryId)) {
-          session.getRootNode().addNode(encodedRepositoryId);
-        }
-
-        Node assetNode = session.getRootNode().getNode(encodedRepositoryId);
-
-        Node node;
-        if (assetNode.hasNode(id)) {
-          node = assetNode.getNode(id);
-          versionManager.checkout(node.getPath());
-        } else {
-          node = assetNode.addNode(id);
-          node.addMixin(MIX_VERSIONABLE);
-          node.setProperty("jcr:id", id);
-        }
-
-        node.setProperty(JCR_DATA,
-            session.getValueFactory().createBinary(new ByteArrayInputStream(payload)));
-        node.setProperty(JCR_STATUS, STATUS_AVAILABLE);
-        node.setProperty(JCR_SERIES_STATUS, STATUS_AVAILABLE);
-        if (metadata != null) {
-          metadata.forEach((key, value) -> {
-            try {
-              node.setProperty("jcr:" + key, value);
-            } catch (RepositoryException e) {
-              throw new DaoRuntimeException(e);
-            }
-          });
-        }
+        Node node = stageVersion(session, encodedRepositoryId, id, version, payload, metadata);
         session.save();
         Version newNode = versionManager.checkin(node.getPath());
 
         versionManager.getVersionHistory(node.getPath())
             .addVersionLabel(newNode.getName(), version, true);
+        publishLatestVersion(session, node.getPath(), version);
+        session.save();
         return newNode;
       } catch (Exception e) {
         session.logout();
@@ -385,6 +745,156 @@ public class JcrDao {
     });
   }
 
+  /**
+   * Stages the content of a new version of a series, creating the series if needed, and checking
+   * it out otherwise. The caller saves the session, then checks in and labels the version, and
+   * finally points the series to it (see {@link #publishLatestVersion(Session, String, String)}):
+   * until then, the latest version pointers keep naming versions that are already labeled.
+   *
+   * @return the series node
+   */
+  Node stageVersion(Session session, String encodedRepositoryId, String id, String version,
+      byte[] payload, Map<String, String> metadata) throws RepositoryException {
+    VersionManager versionManager = session.getWorkspace().getVersionManager();
+    // check if repository node exists
+    if (!session.getRootNode().hasNode(encodedRepositoryId)) {
+      session.getRootNode().addNode(encodedRepositoryId);
+    }
+
+    Node assetNode = session.getRootNode().getNode(encodedRepositoryId);
+
+    Node node;
+    VersionHistory history;
+    VersionTagOrder order;
+    if (assetNode.hasNode(layout.path(id))) {
+      node = assetNode.getNode(layout.path(id));
+      versionManager.checkout(node.getPath());
+      history = versionManager.getVersionHistory(node.getPath());
+      order = trackedTagOrder(session, node);
+    } else {
+      node = layout.addSeries(assetNode, id);
+      node.addMixin(MIX_VERSIONABLE);
+      node.setProperty("jcr:id", id);
+      history = null;
+      order = VersionTagOrder.write(session, layout, encodedRepositoryId, id);
+    }
+    order.append(version);
+    VersionStatusMap.write(session, layout, encodedRepositoryId, id).setStatus(version, true);
+    if (history != null && history.hasVersionLabel(version)) {
+      // a version saved again is available, while a new one is pointed to once labeled
+      order.advance(node, JCR_LATEST_AVAILABLE_VERSION, version);
+    }
+
+    node.setProperty(JCR_DATA,
+        session.getValueFactory().createBinary(new ByteArrayInputStream(payload)));
+    node.setProperty(JCR_STATUS, STATUS_AVAILABLE);
+    node.setProperty(JCR_SERIES_STATUS, STATUS_AVAILABLE);
+    if (metadata != null) {
+      for (Map.Entry<String, String> entry : metadata.entrySet()) {
+        node.setProperty("jcr:" + entry.getKey(), entry.getValue());
+      }
+    }
+    return node;
+  }
+
+  /**
+   * Points a series to its latest versions, once its staged version is checked in and labeled
+   * (see {@link #stageVersion}). The series is checked out, and the session is saved by the
+   * caller.
+   *
+   * @param session    the session
+   * @param seriesPath the path of the series node
+   * @param versionTag the tag of the version
+   */
+  void publishLatestVersion(Session session, String seriesPath, String versionTag)
+      throws RepositoryException {
+    VersionManager versionManager = session.getWorkspace().getVersionManager();
+    Node node = session.getNode(seriesPath);
+    VersionHistory history = versionManager.getVersionHistory(seriesPath);
+    VersionTagOrder order = tagOrder(session, node);
+    versionManager.checkout(seriesPath);
+    order.advance(node, JCR_LATEST_VERSION, versionTag);
+    if (isAvailable(statusMap(session, node), history, versionTag)) {
+      order.advance(node, JCR_LATEST_AVAILABLE_VERSION, versionTag);
+    }
+  }
+
+  /**
+   * Starts a bulk import of versions in a repository (see {@link BulkImport})
+   *
+   * @param repositoryId   the repository
+   * @param batchSize      the number of versions saved at once
+   * @param suspendIndexes if true, the property indexes are disabled during the import, and
+   *                       rebuilt once it is finished. The indexes are shared by all the
+   *                       repositories: while they are suspended, the indexed queries of every
+   *                       repository, and of every reader, traverse the content
+   * @return the import, to be finished by the caller
+   */
+  public BulkImport bulkImport(String repositoryId, int batchSize, boolean suspendIndexes) {
+    try {
+      return new BulkImport(this, sessions.writeSession(), this.encode(repositoryId),
+          batchSize, suspendIndexes);
+    } catch (RepositoryException e) {
+      throw new DaoRuntimeException(e);
+    }
+  }
+
+  /**
+   * Disables the property indexes provisioned by this DAO, so that saves no longer update them
+   *
+   * @param session the session, which is saved by the caller
+   * @return the names of the indexes disabled
+   */
+  List<String> suspendIndexes(Session session) throws RepositoryException {
+    List<String> suspended = new ArrayList<>();
+    NodeIterator indexes = session.getRootNode().getNode(OAK_INDEX).getNodes();
+    while (indexes.hasNext()) {
+      Node index = indexes.nextNode();
+      if (index.getName().startsWith(INDEX_PREFIX)
+          && INDEX_PROPERTY.equals(index.getProperty("type").getString())) {
+        index.setProperty("type", INDEX_DISABLED);
+        suspended.add(index.getName());
+      }
+    }
+    return suspended;
+  }
+
+  /**
+   * Enables the property indexes disabled by {@link #suspendIndexes(Session)}, and rebuilds them
+   *
+   * @param session the session, which is saved by the caller
+   * @param names   the names of the indexes
+   */
+  void resumeIndexes(Session session, List<String> names) throws RepositoryException {
+    Node indexes = session.getRootNode().getNode(OAK_INDEX);
+    for (String name : names) {
+      if (indexes.hasNode(name)) {
+        resumeIndex(indexes.getNode(name));
+      }
+    }
+  }
+
+  /**
+   * Enables the property indexes left disabled by an import that did not finish
+   */
+  private void resumeSuspendedIndexes(Session session) throws RepositoryException {
+    NodeIterator indexes = session.getRootNode().getNode(OAK_INDEX).getNodes();
+    while (indexes.hasNext()) {
+      Node index = indexes.nextNode();
+      if (index.getName().startsWith(INDEX_PREFIX)) {
+        resumeIndex(index);
+      }
+    }
+  }
+
+  private void resumeIndex(Node index) throws RepositoryException {
+    if (INDEX_DISABLED.equals(index.getProperty("type").getString())) {
+      index.setProperty("type", INDEX_PROPERTY);
+      index.setProperty("reindex", true);
+      logger.info("Resumed property index {}", index.getName());
+    }
+  }
+
   public DaoResult<Node> saveResource(String repositoryId, UUID uuid) {
     String id = this.encode(uuid.toString());
 
@@ -397,10 +907,11 @@ public class JcrDao {
           session.getRootNode().addNode(encodedRepositoryId);
         }
         Node assetNode = session.getRootNode().getNode(encodedRepositoryId);
-        Node node = assetNode.addNode(id);
+        Node node = layout.addSeries(assetNode, id);
         node.addMixin(MIX_VERSIONABLE);
         node.setProperty("jcr:id", id);
         node.setProperty(JCR_SERIES_STATUS, STATUS_AVAILABLE);
+        VersionTagOrder.write(session, layout, encodedRepositoryId, id);
         session.save();
 
         return node;
@@ -419,23 +930,18 @@ public class JcrDao {
     try (DaoResult<?> ignored = execute((Session session) -> {
       try {
         if (session.getRootNode().hasNode(encodedRepositoryId)) {
-          if (session.getRootNode().getNode(encodedRepositoryId).hasNode(id)) {
-            Node node = session.getRootNode().getNode(encodedRepositoryId).getNode(id);
+          if (session.getRootNode().getNode(encodedRepositoryId).hasNode(layout.path(id))) {
+            Node node = session.getRootNode().getNode(encodedRepositoryId).getNode(layout.path(id));
             VersionManager versionManager = session.getWorkspace().getVersionManager();
-            VersionHistory history = versionManager.getVersionHistory(node.getPath());
+            //Assign each version as 'available'
+            VersionStatusMap.write(session, layout, encodedRepositoryId, id).reset(true);
             versionManager.checkout(node.getPath());
             node.setProperty(JCR_SERIES_STATUS, STATUS_AVAILABLE);
+            trackedTagOrder(session, node);
+            setOrRemove(node, JCR_LATEST_AVAILABLE_VERSION, node.hasProperty(JCR_LATEST_VERSION)
+                ? node.getProperty(JCR_LATEST_VERSION).getString()
+                : null);
             session.save();
-            String[] labels = history.getVersionLabels();
-            for (String label : labels) {
-              //Assign each version as 'avaiable'
-              versionManager.checkout(node.getPath());
-              node.setProperty(JCR_STATUS, STATUS_AVAILABLE);
-              session.save();
-              Version updatedNode = versionManager.checkin(node.getPath());
-              versionManager.getVersionHistory(node.getPath())
-                  .addVersionLabel(updatedNode.getName(), label, true);
-            }
           } else {
             //If artifact series doesn't exist, create it.
             saveResource(encodedRepositoryId, uuid);
@@ -465,19 +971,19 @@ public class JcrDao {
       try {
         Node rootNode = session.getRootNode();
         if (artifactSeriesExists(rootNode, encodedRepositoryId, id)) {
-          Node node = session.getRootNode().getNode(encodedRepositoryId).getNode(id);
+          Node node = session.getRootNode().getNode(encodedRepositoryId).getNode(layout.path(id));
           VersionManager versionManager = session.getWorkspace().getVersionManager();
-          if (!versionManager.getVersionHistory(node.getPath()).hasVersionLabel(versionId)) {
+          VersionHistory history = versionManager.getVersionHistory(node.getPath());
+          if (!history.hasVersionLabel(versionId)) {
             throw new ResourceNotFoundException();
           }
-          session.save();
+          VersionStatusMap statuses =
+              VersionStatusMap.write(session, layout, encodedRepositoryId, id);
+          statuses.setStatus(versionId, true);
           versionManager.checkout(node.getPath());
           node.setProperty(JCR_SERIES_STATUS, STATUS_AVAILABLE);
-          node.setProperty(JCR_STATUS, STATUS_AVAILABLE);
+          trackedTagOrder(session, node).advance(node, JCR_LATEST_AVAILABLE_VERSION, versionId);
           session.save();
-          Version updatedNode = versionManager.checkin(node.getPath());
-          versionManager.getVersionHistory(node.getPath())
-              .addVersionLabel(updatedNode.getName(), versionId, true);
 
         } else {
           session.logout();
@@ -496,41 +1002,289 @@ public class JcrDao {
     }
   }
 
-  private boolean versionIsUnavailable(Version version) throws RepositoryException {
-    return version.getFrozenNode().getProperty(JCR_STATUS).getString().equals(STATUS_UNAVAILABLE);
+  /**
+   * The order of the tags of a series, which is tracked from now on. The order of a series stored
+   * before it was tracked is reconstructed from the versions' creation, and the series is pointed
+   * to its latest versions. The node must be checked out.
+   */
+  private VersionTagOrder trackedTagOrder(Session session, Node resource)
+      throws RepositoryException {
+    VersionTagOrder order = tagOrder(session, resource);
+    if (order.isTracked()) {
+      return order;
+    }
+    List<VersionSnapshot> versions = getArtifactVersions(session, resource, true);
+    order = VersionTagOrder.write(session, layout, layout.repositoryOf(resource).getName(),
+        resource.getName());
+    String latest = null;
+    String latestAvailable = null;
+    for (VersionSnapshot version : versions) {
+      order.append(version.getLabel());
+      latest = version.getLabel();
+      latestAvailable = version.isAvailable() ? version.getLabel() : latestAvailable;
+    }
+    setOrRemove(resource, JCR_LATEST_VERSION, latest);
+    setOrRemove(resource, JCR_LATEST_AVAILABLE_VERSION, latestAvailable);
+    return order;
+  }
+
+  private VersionTagOrder tagOrder(Session session, Node resource) throws RepositoryException {
+    return VersionTagOrder.read(session, layout, layout.repositoryOf(resource).getName(),
+        resource.getName());
+  }
+
+  /**
+   * Points a series to its latest available version, looking back from its latest version. The
+   * node must be checked out.
+   *
+   * @param resource    the series node
+   * @param tags        the tags of the series, in the order they were first saved
+   * @param isAvailable tests whether a version will be available once the changes are saved
+   */
+  private void updateLatestAvailableVersion(Node resource, List<String> tags,
+      Predicate<String> isAvailable) throws RepositoryException {
+    String latestAvailable = null;
+    for (int j = tags.size() - 1; j >= 0 && latestAvailable == null; j--) {
+      latestAvailable = isAvailable.test(tags.get(j)) ? tags.get(j) : null;
+    }
+    setOrRemove(resource, JCR_LATEST_AVAILABLE_VERSION, latestAvailable);
+  }
+
+  private void setOrRemove(Node node, String property, String value)
+      throws RepositoryException {
+    if (value != null) {
+      node.setProperty(property, value);
+    } else if (node.hasProperty(property)) {
+      node.getProperty(property).remove();
+    }
+  }
+
+  private boolean isAvailable(VersionStatusMap statuses, VersionHistory history, String tag) {
+    try {
+      Boolean status = statuses.getStatus(tag);
+      if (status != null) {
+        return status;
+      }
+      return history != null
+          && history.hasVersionLabel(tag)
+          && statuses.isAvailable(tag, history.getVersionByLabel(tag));
+    } catch (RepositoryException e) {
+      throw new DaoRuntimeException(e);
+    }
+  }
+
+  /**
+   * @param version a version, obtained from this DAO
+   * @return true if the version is available
+   */
+  public boolean isAvailable(Version version) {
+    return snapshot(version).isAvailable();
+  }
+
+  private VersionStatusMap statusMap(Session session, Node resource) throws RepositoryException {
+    return VersionStatusMap.read(session, layout, layout.repositoryOf(resource).getName(),
+        resource.getName());
   }
 
   private boolean artifactSeriesExists(Node rootNode, String encodedRepositoryId, String artifactId)
       throws RepositoryException {
-    return rootNode.hasNode(encodedRepositoryId) && rootNode.getNode(encodedRepositoryId).hasNode(artifactId);
+    return rootNode.hasNode(encodedRepositoryId)
+        && rootNode.getNode(encodedRepositoryId).hasNode(layout.path(artifactId));
   }
 
   protected void shutdown() {
+    listeners.forEach(InvalidationListener::close);
+    listeners.clear();
+    sessions.close();
     if (cleanup != null) {
       cleanup.run();
     }
   }
 
+  /**
+   * Moves the series of a repository from a layout to the layout used by this DAO. The series
+   * nodes are moved, not copied, so they keep their identity and their version history. Their
+   * status maps (see {@link VersionStatusMap}) and their tag orders (see {@link VersionTagOrder})
+   * are moved along with them. Changes are saved in batches, so that an interrupted migration can
+   * be resumed.
+   *
+   * @param repositoryId the repository
+   * @param from         the current layout of the repository
+   * @param batchSize    the number of series moved between saves
+   * @return the number of series moved
+   */
+  public long migrateLayout(String repositoryId, SeriesLayout from, int batchSize) {
+    String encodedRepositoryId = this.encode(repositoryId);
+    if (from == layout) {
+      return 0;
+    }
+
+    try (DaoResult<Long> moved = execute((Session session) -> {
+      try {
+        if (!session.getRootNode().hasNode(encodedRepositoryId)) {
+          throw new RepositoryNotFoundException(encodedRepositoryId);
+        }
+        Node repositoryNode = session.getRootNode().getNode(encodedRepositoryId);
+        List<String> ids = new ArrayList<>();
+        Iterator<Node> series = from.series(repositoryNode);
+        while (series.hasNext()) {
+          Node node = series.next();
+          // skips the shards of a partially migrated repository
+          if (node.hasProperty(JCR_ID)) {
+            ids.add(node.getName());
+          }
+        }
+
+        long count = 0;
+        for (String id : ids) {
+          Node parent = layout.ensureParent(repositoryNode, id);
+          session.move(repositoryNode.getNode(from.path(id)).getPath(),
+              parent.getPath() + "/" + id);
+          from.pruneShards(repositoryNode, id);
+          VersionStatusMap.move(session, encodedRepositoryId, id, from, layout);
+          VersionTagOrder.move(session, encodedRepositoryId, id, from, layout);
+          if (++count % batchSize == 0) {
+            session.save();
+            logger.info("Migrated {} of {} series in repository {} to the {} layout",
+                count, ids.size(), repositoryId, layout);
+          }
+        }
+        return count;
+      } catch (RepositoryNotFoundException e) {
+        session.logout();
+        throw e;
+      } catch (Exception e) {
+        session.logout();
+        throw new DaoRuntimeException(e);
+      }
+    })) {
+      return moved.getValue();
+    }
+  }
+
+  public SeriesLayout getLayout() {
+    return layout;
+  }
+
+  /**
+   * Removes all the content, except the system and index nodes
+   */
   public void clear() {
-    try (DaoResult<?> ignored = this.execute(session -> {
+    clear(DEFAULT_PURGE_BATCH, null);
+  }
+
+  /**
+   * Removes all the content, except the system and index nodes. The top-level nodes are removed
+   * with their subtrees, and the removals are saved in batches.
+   *
+   * @param batchSize the number of top-level nodes removed between saves
+   * @param progress  notified with the number of nodes removed so far, after each save (optional)
+   * @return the number of nodes removed
+   */
+  public long clear(int batchSize, LongConsumer progress) {
+    try (DaoResult<Long> removed = this.execute(session -> {
       try {
+        List<Node> topLevel = new ArrayList<>();
         NodeIterator itr = session.getRootNode().getNodes();
-
         while (itr.hasNext()) {
           Node node = itr.nextNode();
-
-          if (! this.nodesNotToDelete.contains(node.getName())) {
-            node.remove();
+          if (!this.nodesNotToDelete.contains(node.getName())) {
+            topLevel.add(node);
           }
         }
+        long count = 0;
+        for (Node node : topLevel) {
+          count = purge(session, node, batchSize, count, progress);
+        }
+        return count;
       } catch (Exception e) {
-        throw new RuntimeException(e);
+        session.logout();
+        throw new DaoRuntimeException(e);
       }
+    })) {
+      return removed.getValue();
+    }
+  }
 
-      return null;
+  /**
+   * Empties a repository, removing its series (or their shards), their version status maps and
+   * their tag orders. The children of the repository node are removed with their subtrees, and
+   * the removals are saved in batches, so that the pending changes stay small regardless of the
+   * number of series.
+   *
+   * @param repositoryId the repository
+   * @param batchSize    the number of nodes removed between saves
+   * @param progress     notified with the number of nodes removed so far, after each save
+   *                     (optional)
+   * @return the number of nodes removed
+   */
+  public long clear(String repositoryId, int batchSize, LongConsumer progress) {
+    String encodedRepositoryId = this.encode(repositoryId);
+
+    try (DaoResult<Long> removed = this.execute(session -> {
+      try {
+        Node rootNode = session.getRootNode();
+        if (!rootNode.hasNode(encodedRepositoryId)) {
+          throw new RepositoryNotFoundException(encodedRepositoryId);
+        }
+        long count = purgeChildren(session, rootNode.getNode(encodedRepositoryId), batchSize, 0,
+            progress);
+        for (String root : new String[]{VersionStatusMap.STATUS_ROOT,
+            VersionTagOrder.ORDER_ROOT}) {
+          String path = root + "/" + encodedRepositoryId;
+          if (rootNode.hasNode(path)) {
+            count = purge(session, rootNode.getNode(path), batchSize, count, progress);
+          }
+        }
+        return count;
+      } catch (RepositoryNotFoundException e) {
+        session.logout();
+        throw e;
+      } catch (Exception e) {
+        session.logout();
+        throw new DaoRuntimeException(e);
+      }
     })) {
-      // nothing to do
+      return removed.getValue();
     }
   }
 
+  /**
+   * Removes a node, with its whole subtree, saving every batchSize removals
+   */
+  private long purge(Session session, Node node, int batchSize, long removed,
+      LongConsumer progress) throws RepositoryException {
+    node.remove();
+    long count = removed + 1;
+    if (count % batchSize == 0) {
+      session.save();
+      logger.debug("Removed {} nodes", count);
+      if (progress != null) {
+        progress.accept(count);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Removes the children of a node, with their subtrees. The children are listed in chunks, so
+   * that a node with many children is never fully loaded.
+   */
+  private long purgeChildren(Session session, Node node, int batchSize, long removed,
+      LongConsumer progress) throws RepositoryException {
+    long count = removed;
+    while (node.hasNodes()) {
+      List<Node> chunk = new ArrayList<>();
+      NodeIterator children = node.getNodes();
+      while (children.hasNext() && chunk.size() < batchSize) {
+        chunk.add(children.nextNode());
+      }
+      for (Node child : chunk) {
+        count = purge(session, child, batchSize, count, progress);
+      }
+    }
+    return count;
+  }
+
+
 }
@@ -0,0 +1,272 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.jcr.Credentials;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+
+/**
+ * Provides the sessions used by a {@link JcrDao}.
+ * <p>
+ * Write sessions are logged in for each operation, and logged out when the result of the
+ * operation is closed. Read sessions, instead, are bound to the calling thread and reused across
+ * operations: before each use, a read session is refreshed (discarding any transient change) so
+ * that it sees the latest persisted state. Since a thread only uses its own read session, read
+ * sessions are never shared between threads.
+ * <p>
+ * The read sessions of the threads that have ended, and the read sessions that have not been
+ * used for longer than an idle timeout, are logged out by the thread that next acquires a read
+ * session, at most once per sweep interval and whenever a new read session is logged in. The
+ * number of read sessions is thus bounded by the number of threads that use the DAO concurrently,
+ * rather than by the number of threads that have ever used it. A thread whose read session has
+ * been logged out gets a new one. The idle timeout must be longer than any single operation.
+ * <p>
+ * Logging in to Oak authenticates the user and builds a new session state, which is expensive
+ * compared to small reads. Read sessions make that a one-time cost per thread.
+ */
+public class JcrSessions {
+
+  private final Repository repository;
+
+  private final Credentials credentials;
+
+  private final boolean reuseReadSessions;
+
+  static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(10);
+
+  private static final long MAX_SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private final long idleTimeoutNanos;
+
+  private final long sweepIntervalNanos;
+
+  private final ThreadLocal<ReadSession> readSession = new ThreadLocal<>();
+
+  private final Set<ReadSession> readSessions = ConcurrentHashMap.newKeySet();
+
+  private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+  private final LongAdder logins = new LongAdder();
+  private final LongAdder reuses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder acquisitions = new LongAdder();
+  private final LongAdder acquisitionNanos = new LongAdder();
+  private final LongAccumulator maxAcquisitionNanos = new LongAccumulator(Long::max, 0);
+
+  public JcrSessions(Repository repository) {
+    this(repository, true);
+  }
+
+  public JcrSessions(Repository repository, boolean reuseReadSessions) {
+    this(repository, reuseReadSessions, DEFAULT_IDLE_TIMEOUT);
+  }
+
+  /**
+   * @param repository        the repository
+   * @param reuseReadSessions true to bind a read session to each thread
+   * @param idleTimeout       how long a read session can stay unused before it is logged out
+   */
+  public JcrSessions(Repository repository, boolean reuseReadSessions, Duration idleTimeout) {
+    this.repository = repository;
+    this.credentials = new SimpleCredentials("admin", "admin".toCharArray());
+    this.reuseReadSessions = reuseReadSessions;
+    this.idleTimeoutNanos = idleTimeout.toNanos();
+    this.sweepIntervalNanos = Math.min(idleTimeoutNanos, MAX_SWEEP_INTERVAL_NANOS);
+  }
+
+  /**
+   * @return a new session, to be logged out by the caller
+   */
+  public Session writeSession() throws RepositoryException {
+    long t0 = System.nanoTime();
+    Session session = login();
+    track(t0);
+    return session;
+  }
+
+  /**
+   * @return the read session bound to the current thread, refreshed to the latest persisted
+   * state. The caller must not log it out, unless it is unusable.
+   */
+  public Session readSession() throws RepositoryException {
+    if (!reuseReadSessions) {
+      return writeSession();
+    }
+    long t0 = System.nanoTime();
+    ReadSession current = readSession.get();
+    boolean live = current != null && current.session.isLive();
+    if (!live || t0 - lastSweep.get() >= sweepIntervalNanos) {
+      sweep(t0);
+    }
+    if (live) {
+      current.lastUsed = t0;
+      current.session.refresh(false);
+      reuses.increment();
+    } else {
+      if (current != null) {
+        readSessions.remove(current);
+      }
+      current = new ReadSession(login(), t0);
+      readSession.set(current);
+      readSessions.add(current);
+    }
+    track(t0);
+    return current.session;
+  }
+
+  /**
+   * Logs out the read sessions of the threads that have ended, and the idle read sessions of
+   * the other threads
+   */
+  private void sweep(long now) {
+    lastSweep.set(now);
+    Thread self = Thread.currentThread();
+    for (ReadSession candidate : readSessions) {
+      Thread owner = candidate.owner.get();
+      boolean orphan = owner == null || !owner.isAlive();
+      boolean idle = owner != self && now - candidate.lastUsed > idleTimeoutNanos;
+      if ((orphan || idle || !candidate.session.isLive()) && readSessions.remove(candidate)
+          && candidate.session.isLive()) {
+        candidate.session.logout();
+        evictions.increment();
+      }
+    }
+  }
+
+  /**
+   * @param session a session provided by this object
+   * @return true if the session is reused, and should not be logged out once the result of the
+   * operation is no longer needed
+   */
+  public boolean isShared(Session session) {
+    ReadSession current = readSession.get();
+    return reuseReadSessions && current != null && current.session == session;
+  }
+
+  /**
+   * Logs out the read sessions of all threads
+   */
+  public void close() {
+    readSessions.forEach(current -> {
+      if (current.session.isLive()) {
+        current.session.logout();
+      }
+    });
+    readSessions.clear();
+    readSession.remove();
+  }
+
+  /**
+   * @return the number of read sessions currently logged in
+   */
+  int getReadSessionCount() {
+    return readSessions.size();
+  }
+
+  /**
+   * @return the number of read sessions logged out because their thread had ended, or because
+   * they were idle
+   */
+  long getEvictions() {
+    return evictions.sum();
+  }
+
+  public Metrics getMetrics() {
+    return new Metrics(
+        logins.sum(),
+        reuses.sum(),
+        acquisitions.sum(),
+        acquisitionNanos.sum(),
+        maxAcquisitionNanos.get());
+  }
+
+  private Session login() throws RepositoryException {
+    Session session = repository.login(credentials);
+    logins.increment();
+    return session;
+  }
+
+  private void track(long t0) {
+    long elapsed = System.nanoTime() - t0;
+    acquisitions.increment();
+    acquisitionNanos.add(elapsed);
+    maxAcquisitionNanos.accumulate(elapsed);
+  }
+
+  /**
+   * A read session, and the thread it is bound to
+   */
+  private static class ReadSession {
+
+    private final Session session;
+
+    private final WeakReference<Thread> owner;
+
+    private volatile long lastUsed;
+
+    private ReadSession(Session session, long lastUsed) {
+      this.session = session;
+      this.owner = new WeakReference<>(Thread.currentThread());
+      this.lastUsed = lastUsed;
+    }
+  }
+
+  /**
+   * A snapshot of the time spent waiting for sessions, and of how they were obtained
+   */
+  public static class Metrics {
+
+    private final long logins;
+    private final long reuses;
+    private final long acquisitions;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+
+    Metrics(long logins, long reuses, long acquisitions, long totalWaitNanos, long maxWaitNanos) {
+      this.logins = logins;
+      this.reuses = reuses;
+      this.acquisitions = acquisitions;
+      this.totalWaitNanos = totalWaitNanos;
+      this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public long getLogins() {
+      return logins;
+    }
+
+    public long getReuses() {
+      return reuses;
+    }
+
+    public long getAcquisitions() {
+      return acquisitions;
+    }
+
+    public long getTotalWaitNanos() {
+      return totalWaitNanos;
+    }
+
+    public long getMaxWaitNanos() {
+      return maxWaitNanos;
+    }
+
+    public double getMeanWaitNanos() {
+      return acquisitions == 0 ? 0 : (double) totalWaitNanos / acquisitions;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("logins=%d reuses=%d meanWait=%.1fus maxWait=%.1fus",
+          logins, reuses, getMeanWaitNanos() / 1000, maxWaitNanos / 1000.0);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the recent latency of the operations of a {@link JcrDao}, as an exponentially weighted
+ * moving average, so that background work can back off while the repository is busy.
+ * <p>
+ * The average is only updated by operations: once no operation has been recorded for a while,
+ * the repository is considered idle, and the recent latency is 0.
+ */
+public class LatencyMonitor {
+
+  /**
+   * The weight of the latest sample is 1/2^SMOOTHING
+   */
+  private static final int SMOOTHING = 3;
+
+  private static final long IDLE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final AtomicLong average = new AtomicLong();
+
+  private volatile long lastSample = System.nanoTime() - IDLE_NANOS;
+
+  public void record(long nanos) {
+    average.updateAndGet(avg -> avg == 0 ? nanos : avg + ((nanos - avg) >> SMOOTHING));
+    lastSample = System.nanoTime();
+  }
+
+  /**
+   * @return the mean latency of the recent operations, in ns, or 0 if the repository is idle
+   */
+  public long getRecentNanos() {
+    return System.nanoTime() - lastSample > IDLE_NANOS ? 0 : average.get();
+  }
+}
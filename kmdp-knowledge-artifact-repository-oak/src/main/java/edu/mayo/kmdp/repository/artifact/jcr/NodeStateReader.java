@@ -0,0 +1,471 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_DATA;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_ID;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_LATEST_AVAILABLE_VERSION;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_LATEST_VERSION;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_SERIES_STATUS;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_STATUS;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.STATUS_AVAILABLE;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.STATUS_UNAVAILABLE;
+import static org.apache.jackrabbit.JcrConstants.JCR_CREATED;
+import static org.apache.jackrabbit.JcrConstants.JCR_FROZENNODE;
+import static org.apache.jackrabbit.JcrConstants.JCR_SYSTEM;
+import static org.apache.jackrabbit.JcrConstants.JCR_UUID;
+import static org.apache.jackrabbit.JcrConstants.JCR_VERSIONLABELS;
+import static org.apache.jackrabbit.JcrConstants.JCR_VERSIONSTORAGE;
+
+import edu.mayo.kmdp.repository.artifact.dao.Artifact;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
+import edu.mayo.kmdp.repository.artifact.exceptions.DaoRuntimeException;
+import edu.mayo.kmdp.repository.artifact.exceptions.RepositoryNotFoundException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNoContentException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNotFoundException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.jackrabbit.oak.api.Blob;
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState;
+import org.apache.jackrabbit.oak.spi.state.ChildNodeEntry;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.NodeStateUtils;
+import org.apache.jackrabbit.oak.spi.state.NodeStore;
+import org.apache.jackrabbit.util.ISO8601;
+import org.apache.jackrabbit.util.Text;
+import org.omg.spec.api4kp._20200801.id.ResourceIdentifier;
+import org.omg.spec.api4kp._20200801.id.SemanticIdentifier;
+
+/**
+ * Reads series and versions directly from the node states of the Oak node store that backs a
+ * {@link JcrDao}, bypassing the JCR layer.
+ * <p>
+ * The JCR read path logs in a session, and materializes Node, Property, Value and Version objects
+ * (and their name and path resolution) for each item it touches. Node states are the immutable
+ * records those objects wrap: reading them directly avoids the session, and the allocations of the
+ * JCR items. Each read starts from the current root of the store, which is consistent with the
+ * latest saved changes, as a refreshed JCR session would be.
+ * <p>
+ * The reads have the same semantics as the corresponding methods of the {@link JcrDao}, and throw
+ * the same exceptions. Version histories are found under /jcr:system/jcr:versionStorage, where Oak
+ * places them by the identifier of the versionable node. Access control is not enforced: the
+ * reader is only meant for the administrative sessions used by the DAO.
+ * Metadata queries are not supported, since they need the query engine: the JCR path resolves
+ * them.
+ */
+public class NodeStateReader {
+
+  private static final int HISTORY_SHARD_WIDTH = 2;
+  private static final int HISTORY_SHARD_DEPTH = 3;
+
+  /**
+   * Bounds the cache of version node names, which is dropped as a whole when it grows past this
+   * size
+   */
+  static final int MAX_CACHED_VERSIONS = 100_000;
+
+  private final NodeStore nodeStore;
+
+  private final SeriesLayout layout;
+
+  /**
+   * The names of the version nodes in their histories, by version identifier. The labels
+   * reference versions by identifier, while a history only indexes its versions by name: the
+   * names are learned in one traversal of a history, and reused by the later reads. A version
+   * keeps its name and its identifier for as long as it exists, and a cached name is checked
+   * against the identifier of the node it resolves to.
+   */
+  private final Map<String, String> versionNames = new ConcurrentHashMap<>();
+
+  public NodeStateReader(NodeStore nodeStore, SeriesLayout layout) {
+    this.nodeStore = nodeStore;
+    this.layout = layout;
+  }
+
+  /**
+   * @see JcrDao#getResourceVersionSnapshots(String, UUID, Boolean)
+   */
+  public List<ArtifactVersion> getResourceVersions(String repositoryId, UUID uuid,
+      Boolean deleted) {
+    NodeState root = nodeStore.getRoot();
+    String encodedRepositoryId = encode(repositoryId);
+    NodeState resource = series(root, encodedRepositoryId, encode(uuid.toString()));
+    if (Boolean.FALSE.equals(deleted) && isUnavailable(resource)) {
+      throw new ResourceNoContentException("Artifact known, but not available.");
+    }
+    return getArtifactVersions(root, encodedRepositoryId, resource, deleted);
+  }
+
+  /**
+   * @see JcrDao#getLatestResource(String, UUID, Boolean)
+   */
+  public ArtifactVersion getLatestResource(String repositoryId, UUID uuid, Boolean deleted) {
+    NodeState root = nodeStore.getRoot();
+    String encodedRepositoryId = encode(repositoryId);
+    NodeState resource = series(root, encodedRepositoryId, encode(uuid.toString()));
+    if (Boolean.FALSE.equals(deleted) && isUnavailable(resource)) {
+      throw new ResourceNoContentException("Artifact known, but not available.");
+    }
+    if (!tagOrder(root, encodedRepositoryId, resource).exists()) {
+      // stored before the latest version pointers were maintained
+      List<ArtifactVersion> versions =
+          getArtifactVersions(root, encodedRepositoryId, resource, deleted);
+      if (versions.isEmpty()) {
+        throw new ResourceNoContentException(
+            "Artifact known but either not available, or no versions are available");
+      }
+      return versions.get(versions.size() - 1);
+    }
+    String pointer = resource.getString(Boolean.TRUE.equals(deleted)
+        ? JCR_LATEST_VERSION
+        : JCR_LATEST_AVAILABLE_VERSION);
+    if (pointer == null) {
+      throw new ResourceNoContentException(
+          "Artifact known but either not available, or no versions are available");
+    }
+    StateVersion version = getVersion(root, encodedRepositoryId, resource, pointer);
+    if (version == null) {
+      throw new DaoRuntimeException("Version not found: " + pointer);
+    }
+    return version;
+  }
+
+  /**
+   * @see JcrDao#getResource(String, UUID, String, boolean)
+   */
+  public ArtifactVersion getResource(String repositoryId, UUID uuid, String versionTag,
+      boolean getUnavailable) {
+    NodeState root = nodeStore.getRoot();
+    String encodedRepositoryId = encode(repositoryId);
+    NodeState resource = series(root, encodedRepositoryId, encode(uuid.toString()));
+    StateVersion version = getVersion(root, encodedRepositoryId, resource, versionTag);
+    if (version == null) {
+      throw new ResourceNotFoundException();
+    }
+    if (!getUnavailable && !version.isAvailable()) {
+      throw new ResourceNoContentException("The version is known but currently unavailable.");
+    }
+    return version;
+  }
+
+  /**
+   * Lists the series in a repository, without a metadata filter
+   *
+   * @see JcrDao#getResources(String, Boolean, Map, long, long)
+   */
+  public List<Artifact> getResources(String repositoryId, Boolean deleted, long offset,
+      long limit) {
+    String encodedRepositoryId = encode(repositoryId);
+    NodeState repositoryNode = nodeStore.getRoot().getChildNode(encodedRepositoryId);
+    if (!repositoryNode.exists()) {
+      throw new RepositoryNotFoundException(encodedRepositoryId);
+    }
+    List<Artifact> result = new ArrayList<>();
+    collectSeries(repositoryNode, layout.depth(), deleted, new long[]{offset}, limit, result);
+    return result;
+  }
+
+  private void collectSeries(NodeState node, int depth, Boolean deleted, long[] toSkip,
+      long limit, List<Artifact> result) {
+    for (ChildNodeEntry entry : node.getChildNodeEntries()) {
+      if (result.size() >= limit) {
+        return;
+      }
+      if (NodeStateUtils.isHidden(entry.getName())) {
+        continue;
+      }
+      NodeState child = entry.getNodeState();
+      if (depth > 0) {
+        collectSeries(child, depth - 1, deleted, toSkip, limit, result);
+      } else if (Boolean.FALSE.equals(deleted) && isUnavailable(child)) {
+        // filtered out
+      } else if (toSkip[0] > 0) {
+        toSkip[0]--;
+      } else {
+        result.add(new StateSeries(child));
+      }
+    }
+  }
+
+  /**
+   * @return the series node, if it exists
+   * @throws ResourceNotFoundException if the repository or the series do not exist
+   */
+  private NodeState series(NodeState root, String encodedRepositoryId, String id) {
+    NodeState node = child(root.getChildNode(encodedRepositoryId), layout.path(id));
+    if (!node.exists()) {
+      throw new ResourceNotFoundException();
+    }
+    return node;
+  }
+
+  private boolean isUnavailable(NodeState resource) {
+    return STATUS_UNAVAILABLE.equals(resource.getString(JCR_SERIES_STATUS));
+  }
+
+  /**
+   * Reads the labeled versions of a series in one traversal of its version history, sorted as
+   * {@link JcrDao} does.
+   */
+  private List<ArtifactVersion> getArtifactVersions(NodeState root, String encodedRepositoryId,
+      NodeState resource, Boolean deleted) {
+    NodeState history = history(root, resource);
+    Map<String, List<String>> labelsByVersion = new HashMap<>();
+    for (PropertyState label : history.getChildNode(JCR_VERSIONLABELS).getProperties()) {
+      if (label.getType() == Type.REFERENCE) {
+        labelsByVersion.computeIfAbsent(label.getValue(Type.REFERENCE), k -> new ArrayList<>(1))
+            .add(label.getName());
+      }
+    }
+
+    NodeState statuses = statusMap(root, encodedRepositoryId, resource);
+    String artifactId = resource.getString(JCR_ID);
+    List<StateVersion> versions = new ArrayList<>(labelsByVersion.size());
+    for (ChildNodeEntry entry : history.getChildNodeEntries()) {
+      List<String> versionLabels = labelsByVersion.get(entry.getNodeState().getString(JCR_UUID));
+      if (versionLabels == null) {
+        continue;
+      }
+      for (String label : versionLabels) {
+        StateVersion version = new StateVersion(artifactId, label, entry.getNodeState(), statuses);
+        //If deleted != true, filter out unavailable versions
+        if (Boolean.TRUE.equals(deleted) || version.isAvailable()) {
+          versions.add(version);
+        }
+      }
+    }
+    List<String> tags = null;
+    NodeState order = tagOrder(root, encodedRepositoryId, resource);
+    if (order.exists()) {
+      Map<String, Long> positions = new HashMap<>();
+      for (PropertyState position : order.getProperties()) {
+        if (VersionTagOrder.isTag(position.getName())) {
+          positions.put(position.getName(), position.getValue(Type.LONG));
+        }
+      }
+      tags = VersionTagOrder.sort(positions);
+    }
+    JcrDao.sortVersions(versions, tags,
+        version -> version.getResourceIdentifier().getVersionTag(), StateVersion::getCreated);
+    return new ArrayList<>(versions);
+  }
+
+  /**
+   * @return the version of a series with a given label, or null if the label is unknown
+   */
+  private StateVersion getVersion(NodeState root, String encodedRepositoryId,
+      NodeState resource, String versionTag) {
+    NodeState history = history(root, resource);
+    PropertyState label = history.getChildNode(JCR_VERSIONLABELS)
+        .getProperty(versionTag);
+    if (label == null || label.getType() != Type.REFERENCE) {
+      return null;
+    }
+    NodeState version = version(history, label.getValue(Type.REFERENCE));
+    if (!version.exists()) {
+      return null;
+    }
+    return new StateVersion(resource.getString(JCR_ID), versionTag, version,
+        statusMap(root, encodedRepositoryId, resource));
+  }
+
+  /**
+   * Resolves a version by name, if its name is known, else traverses the history once and
+   * records the names of all its versions
+   *
+   * @return the version node with the given identifier, or a missing node
+   */
+  private NodeState version(NodeState history, String versionId) {
+    String name = versionNames.get(versionId);
+    if (name != null) {
+      NodeState version = history.getChildNode(name);
+      if (versionId.equals(version.getString(JCR_UUID))) {
+        return version;
+      }
+      versionNames.remove(versionId);
+    }
+    if (versionNames.size() >= MAX_CACHED_VERSIONS) {
+      versionNames.clear();
+    }
+    NodeState found = EmptyNodeState.MISSING_NODE;
+    for (ChildNodeEntry entry : history.getChildNodeEntries()) {
+      String id = entry.getNodeState().getString(JCR_UUID);
+      if (id != null) {
+        versionNames.put(id, entry.getName());
+        if (versionId.equals(id)) {
+          found = entry.getNodeState();
+        }
+      }
+    }
+    return found;
+  }
+
+  /**
+   * @return the number of version node names currently cached
+   */
+  int getCachedVersionCount() {
+    return versionNames.size();
+  }
+
+  /**
+   * @return the version history of a series, which is placed in the version storage under the
+   * first three pairs of characters of the series identifier:
+   * /jcr:system/jcr:versionStorage/[ab]/[cd]/[ef]/[abcdef...]
+   */
+  private NodeState history(NodeState root, NodeState resource) {
+    String versionableId = resource.getString(JCR_UUID);
+    NodeState history = root.getChildNode(JCR_SYSTEM).getChildNode(JCR_VERSIONSTORAGE);
+    if (versionableId == null) {
+      return EmptyNodeState.MISSING_NODE;
+    }
+    for (int j = 0; j < HISTORY_SHARD_DEPTH; j++) {
+      history = history.getChildNode(versionableId
+          .substring(j * HISTORY_SHARD_WIDTH, (j + 1) * HISTORY_SHARD_WIDTH));
+    }
+    return history.getChildNode(versionableId);
+  }
+
+  /**
+   * @see VersionStatusMap
+   */
+  private NodeState statusMap(NodeState root, String encodedRepositoryId, NodeState resource) {
+    // the series nodes are named after their (encoded) id
+    return child(root.getChildNode(VersionStatusMap.STATUS_ROOT)
+        .getChildNode(encodedRepositoryId), layout.path(resource.getString(JCR_ID)));
+  }
+
+  /**
+   * @see VersionTagOrder
+   */
+  private NodeState tagOrder(NodeState root, String encodedRepositoryId, NodeState resource) {
+    return child(root.getChildNode(VersionTagOrder.ORDER_ROOT)
+        .getChildNode(encodedRepositoryId), layout.path(resource.getString(JCR_ID)));
+  }
+
+  private static NodeState child(NodeState node, String relPath) {
+    NodeState current = node;
+    for (String name : relPath.split("/")) {
+      current = current.getChildNode(name);
+    }
+    return current;
+  }
+
+  private static String encode(String id) {
+    return Text.escapeIllegalJcrChars(id);
+  }
+
+  /**
+   * A labeled version, read from its node state. Node states are immutable, so the content can be
+   * streamed at any time.
+   */
+  public static final class StateVersion implements ArtifactVersion {
+
+    private final ResourceIdentifier resourceIdentifier;
+
+    private final Date created;
+
+    private final boolean available;
+
+    private final NodeState frozenNode;
+
+    StateVersion(String artifactId, String label, NodeState version, NodeState statuses) {
+      this.resourceIdentifier = SemanticIdentifier.newId(artifactId, label);
+      this.frozenNode = version.getChildNode(JCR_FROZENNODE);
+      Calendar calendar = ISO8601.parse(version.getString(JCR_CREATED));
+      this.created = calendar != null ? calendar.getTime() : new Date(0);
+      this.available = isAvailable(Text.escapeIllegalJcrChars(label), statuses, frozenNode);
+    }
+
+    /**
+     * @see VersionStatusMap#isAvailable
+     */
+    private static boolean isAvailable(String key, NodeState statuses, NodeState frozenNode) {
+      String status = statuses.getString(key);
+      if (status == null) {
+        status = statuses.getString(VersionStatusMap.DEFAULT_STATUS);
+      }
+      if (status != null) {
+        return STATUS_AVAILABLE.equals(status);
+      }
+      return !STATUS_UNAVAILABLE.equals(frozenNode.getString(JCR_STATUS));
+    }
+
+    public Date getCreated() {
+      return new Date(created.getTime());
+    }
+
+    @Override
+    public ResourceIdentifier getResourceIdentifier() {
+      return resourceIdentifier;
+    }
+
+    @Override
+    public boolean isUnavailable() {
+      return !available;
+    }
+
+    @Override
+    public boolean isAvailable() {
+      return available;
+    }
+
+    @Override
+    public InputStream getDataStream() throws DaoRuntimeException {
+      PropertyState data = frozenNode.getProperty(JCR_DATA);
+      if (data == null) {
+        throw new DaoRuntimeException("No content for " + resourceIdentifier.getVersionTag());
+      }
+      Blob blob = data.getValue(Type.BINARY);
+      return blob.getNewStream();
+    }
+  }
+
+  /**
+   * A series, read from its node state
+   */
+  public static final class StateSeries implements Artifact {
+
+    private final String artifactTag;
+
+    private final UUID artifactId;
+
+    private final boolean available;
+
+    StateSeries(NodeState node) {
+      this.artifactTag = node.getString(JCR_ID);
+      this.artifactId = UUID.fromString(artifactTag);
+      // as JcrAdapter.NodeAdapter: the series status, else the status of the last version saved
+      String status = node.hasProperty(JCR_SERIES_STATUS)
+          ? node.getString(JCR_SERIES_STATUS)
+          : node.getString(JCR_STATUS);
+      this.available = !STATUS_UNAVAILABLE.equals(status);
+    }
+
+    @Override
+    public String getArtifactTag() {
+      return artifactTag;
+    }
+
+    @Override
+    public UUID getArtifactId() {
+      return artifactId;
+    }
+
+    @Override
+    public boolean isUnavailable() {
+      return !available;
+    }
+
+    @Override
+    public boolean isAvailable() {
+      return available;
+    }
+  }
+}
@@ -16,17 +16,69 @@
 package edu.mayo.kmdp.repository.artifact.jcr;
 
 import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
 import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryService;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactDAO;
+import edu.mayo.kmdp.repository.artifact.jcr.stores.DocumentStoreRepository;
+import edu.mayo.kmdp.repository.artifact.jcr.stores.SegmentStoreRepository;
 import java.util.Properties;
-import org.apache.jackrabbit.oak.Oak;
-import org.apache.jackrabbit.oak.jcr.Jcr;
+import javax.sql.DataSource;
+import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeStore;
+import org.apache.jackrabbit.oak.spi.state.NodeStore;
 
 public interface OakKnowledgeArtifactRepositoryService extends KnowledgeArtifactRepositoryService {
 
   static KnowledgeArtifactRepositoryService inMemoryArtifactRepository(Properties properties) {
-    return new JcrKnowledgeArtifactRepository(
-        new JcrAdapter(new Jcr(new Oak()).createRepository()),
-        new KnowledgeArtifactRepositoryServerProperties(properties));
+    var cfg = new KnowledgeArtifactRepositoryServerProperties(properties);
+    var nodeStore = new MemoryNodeStore();
+    var indexes = IndexConfiguration.from(cfg);
+    var dao = new JcrDao(indexes.createRepository(nodeStore), null, true,
+        SeriesLayout.from(cfg));
+    indexes.provision(dao);
+    return new JcrKnowledgeArtifactRepository(adapter(dao, nodeStore, cfg), cfg);
+  }
+
+  /**
+   * Builds a repository persisted in a segment store, under the configured base directory. The
+   * store is closed when the repository is shut down. The garbage collections of the store are
+   * scheduled, if configured.
+   */
+  static KnowledgeArtifactRepositoryService persistentArtifactRepository(Properties properties) {
+    var cfg = new KnowledgeArtifactRepositoryServerProperties(properties);
+    var store = SegmentStoreRepository.open(cfg);
+    var dao = new JcrDao(store.getRepository(), store::close, true, SeriesLayout.from(cfg));
+    IndexConfiguration.from(cfg).provision(dao);
+    store.startMaintenance(dao.getLatencyMonitor()::getRecentNanos, cfg);
+    return new JcrKnowledgeArtifactRepository(adapter(dao, store.getNodeStore(), cfg), cfg);
+  }
+
+  /**
+   * Builds a repository persisted in a database, which can be shared by several application
+   * nodes: each one joins the document store as a cluster node. The cluster node leaves the
+   * cluster when the repository is shut down.
+   */
+  static KnowledgeArtifactRepositoryService clusteredArtifactRepository(DataSource dataSource,
+      Properties properties) {
+    var cfg = new KnowledgeArtifactRepositoryServerProperties(properties);
+    var store = DocumentStoreRepository.open(dataSource, cfg);
+    var dao = new JcrDao(store.getRepository(), store::close, true, SeriesLayout.from(cfg));
+    IndexConfiguration.from(cfg).provision(dao);
+    return new JcrKnowledgeArtifactRepository(adapter(dao, store.getNodeStore(), cfg), cfg);
+  }
+
+  /**
+   * Adapts the DAO of a repository to the configured version layout. In the versionable layout,
+   * the adapter reads from the node store that backs the repository if so configured
+   */
+  private static ArtifactDAO adapter(JcrDao dao, NodeStore nodeStore,
+      KnowledgeArtifactRepositoryServerProperties cfg) {
+    if (VersionLayout.from(cfg) == VersionLayout.NODES) {
+      return new VersionNodeDao(dao);
+    }
+    Boolean nodeStateReads = cfg.getTyped(KnowledgeArtifactRepositoryOptions.JCR_NODESTATE_READS);
+    return Boolean.TRUE.equals(nodeStateReads)
+        ? new JcrAdapter(dao, new NodeStateReader(nodeStore, dao.getLayout()))
+        : new JcrAdapter(dao);
   }
 
 }
@@ -0,0 +1,174 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+import edu.mayo.kmdp.repository.artifact.exceptions.DaoRuntimeException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+
+/**
+ * Where the series nodes are placed under their repository node.
+ * <p>
+ * In the FLAT layout, every series is a child of the repository node: /[repository]/[series].
+ * Oak handles very large flat child lists poorly, both to iterate them and because a commit that
+ * adds a child rewrites the (large) parent node. The SHARDED layout spreads the series over two
+ * levels of intermediate nodes, named after the first two pairs of (hex) characters of the series
+ * UUID: /[repository]/[ab]/[cd]/[abcd...]. Each shard then has at most 256 children, and a
+ * repository with 1M series has about 15 series per leaf shard.
+ */
+public enum SeriesLayout {
+
+  FLAT(0),
+  SHARDED(2);
+
+  private static final int SHARD_WIDTH = 2;
+
+  private final int depth;
+
+  SeriesLayout(int depth) {
+    this.depth = depth;
+  }
+
+  public static SeriesLayout from(KnowledgeArtifactRepositoryServerProperties cfg) {
+    Boolean sharded = cfg.getTyped(KnowledgeArtifactRepositoryOptions.JCR_SHARDED_LAYOUT);
+    return Boolean.TRUE.equals(sharded) ? SHARDED : FLAT;
+  }
+
+  /**
+   * @param id the (encoded) series id
+   * @return the path of the series node, relative to the repository node
+   */
+  public String path(String id) {
+    StringBuilder path = new StringBuilder();
+    for (int j = 0; j < depth; j++) {
+      path.append(id, j * SHARD_WIDTH, (j + 1) * SHARD_WIDTH).append('/');
+    }
+    return path.append(id).toString();
+  }
+
+  /**
+   * @return the number of shard levels between the repository node and the series nodes
+   */
+  int depth() {
+    return depth;
+  }
+
+  /**
+   * @return the XPath step that selects the series nodes, relative to the repository node
+   */
+  public String queryStep() {
+    StringBuilder step = new StringBuilder();
+    for (int j = 0; j < depth; j++) {
+      step.append("*/");
+    }
+    return step.append('*').toString();
+  }
+
+  /**
+   * Adds a series node, and the shards that contain it
+   */
+  public Node addSeries(Node repositoryNode, String id) throws RepositoryException {
+    return ensureParent(repositoryNode, id).addNode(id);
+  }
+
+  /**
+   * @return the node that contains (or will contain) a series, adding the shards if needed
+   */
+  Node ensureParent(Node repositoryNode, String id) throws RepositoryException {
+    Node parent = repositoryNode;
+    for (int j = 0; j < depth; j++) {
+      String shard = id.substring(j * SHARD_WIDTH, (j + 1) * SHARD_WIDTH);
+      parent = parent.hasNode(shard) ? parent.getNode(shard) : parent.addNode(shard);
+    }
+    return parent;
+  }
+
+  /**
+   * @return the repository node that contains a series node
+   */
+  public Node repositoryOf(Node seriesNode) throws RepositoryException {
+    Node parent = seriesNode.getParent();
+    for (int j = 0; j < depth; j++) {
+      parent = parent.getParent();
+    }
+    return parent;
+  }
+
+  /**
+   * @return the series nodes under a repository node, traversing the shards lazily
+   */
+  public Iterator<Node> series(Node repositoryNode) throws RepositoryException {
+    return new ShardIterator(repositoryNode.getNodes(), depth);
+  }
+
+  /**
+   * Removes the shards left empty by the removal (or move) of a series
+   */
+  void pruneShards(Node repositoryNode, String id) throws RepositoryException {
+    for (int j = depth; j > 0; j--) {
+      String shardPath = path(id).substring(0, j * (SHARD_WIDTH + 1) - 1);
+      if (repositoryNode.hasNode(shardPath)) {
+        Node shard = repositoryNode.getNode(shardPath);
+        if (shard.hasNodes()) {
+          return;
+        }
+        shard.remove();
+      }
+    }
+  }
+
+  static Iterator<Node> nodes(NodeIterator nodes) {
+    return new ShardIterator(nodes, 0);
+  }
+
+  /**
+   * Iterates over the nodes found at a given depth below a list of nodes
+   */
+  private static class ShardIterator implements Iterator<Node> {
+
+    private final Deque<NodeIterator> levels = new ArrayDeque<>();
+
+    private final int depth;
+
+    private Node next;
+
+    ShardIterator(NodeIterator top, int depth) {
+      this.levels.push(top);
+      this.depth = depth;
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        while (next == null && !levels.isEmpty()) {
+          NodeIterator current = levels.peek();
+          if (!current.hasNext()) {
+            levels.pop();
+          } else if (levels.size() <= depth) {
+            levels.push(current.nextNode().getNodes());
+          } else {
+            next = current.nextNode();
+          }
+        }
+        return next != null;
+      } catch (RepositoryException e) {
+        throw new DaoRuntimeException(e);
+      }
+    }
+
+    @Override
+    public Node next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Node node = next;
+      next = null;
+      return node;
+    }
+  }
+}
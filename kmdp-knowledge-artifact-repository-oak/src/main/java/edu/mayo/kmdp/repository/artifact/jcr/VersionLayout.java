@@ -0,0 +1,25 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+
+/**
+ * How the versions of a series are stored.
+ * <p>
+ * In the VERSIONABLE layout, the series node is mix:versionable: each save checks in a new
+ * version, in the version history kept under /jcr:system, and labels it with the version tag (see
+ * {@link JcrDao}). In the NODES layout, each version is a child node of the series node, named
+ * after the version tag (see {@link VersionNodeDao}).
+ */
+public enum VersionLayout {
+
+  VERSIONABLE,
+  NODES;
+
+  public static VersionLayout from(KnowledgeArtifactRepositoryServerProperties cfg) {
+    String layout = cfg.getTyped(KnowledgeArtifactRepositoryOptions.JCR_VERSION_LAYOUT);
+    return layout != null && !layout.isBlank()
+        ? VersionLayout.valueOf(layout.trim().toUpperCase())
+        : VERSIONABLE;
+  }
+}
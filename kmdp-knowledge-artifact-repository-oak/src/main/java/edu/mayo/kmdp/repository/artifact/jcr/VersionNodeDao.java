@@ -0,0 +1,664 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_DATA;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_ID;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_LATEST_AVAILABLE_VERSION;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_LATEST_VERSION;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_SERIES_STATUS;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_STATUS;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.STATUS_AVAILABLE;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.STATUS_UNAVAILABLE;
+import static javax.jcr.nodetype.NodeType.MIX_VERSIONABLE;
+
+import edu.mayo.kmdp.repository.artifact.dao.Artifact;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactDAO;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
+import edu.mayo.kmdp.repository.artifact.dao.DaoResult;
+import edu.mayo.kmdp.repository.artifact.exceptions.DaoRuntimeException;
+import edu.mayo.kmdp.repository.artifact.exceptions.RepositoryNotFoundException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceIdentificationException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNoContentException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNotFoundException;
+import edu.mayo.kmdp.repository.artifact.jcr.JcrAdapter.NodeAdapter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.version.Version;
+import javax.jcr.version.VersionHistory;
+import javax.jcr.version.VersionIterator;
+import javax.jcr.version.VersionManager;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.jackrabbit.util.Text;
+import org.omg.spec.api4kp._20200801.id.ResourceIdentifier;
+import org.omg.spec.api4kp._20200801.id.SemanticIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores each version of a series as a child node of the series node:
+ * /[repository]/[series]/[version tag].
+ * <p>
+ * With mix:versionable series (see {@link JcrDao}), a save is a checkout, a save, a check-in and a
+ * labeling of the new version, and each lookup resolves a label in a version history kept under
+ * /jcr:system. Here, a save adds a node, and a lookup reads a child of the series node. The
+ * content of a version node is never changed, only its status: saving a version tag again
+ * replaces its node. The series node keeps the same properties as in the versionable layout
+ * (status, latest version pointers and metadata), so that series are listed and queried the same
+ * way, and the order of its tags is kept the same way (see {@link VersionTagOrder}).
+ * <p>
+ * The sessions, the series layout and the operations that do not depend on the version layout
+ * are delegated to a {@link JcrDao}. Repositories stored in the versionable layout can be
+ * converted with {@link #migrate(String, int)}.
+ */
+public class VersionNodeDao implements ArtifactDAO {
+
+  private static final Logger logger = LoggerFactory.getLogger(VersionNodeDao.class);
+
+  static final String JCR_VERSION_TAG = "versionTag";
+  static final String JCR_CREATED = "created";
+
+  private final JcrDao dao;
+
+  private final SeriesLayout layout;
+
+  public VersionNodeDao(JcrDao dao) {
+    this.dao = dao;
+    this.layout = dao.getLayout();
+  }
+
+  @Override
+  public void shutdown() {
+    dao.shutdown();
+  }
+
+  @Override
+  public DaoResult<List<Artifact>> listResources(String repositoryId, Boolean deleted,
+      Map<String, String> config) {
+    return dao.getResources(repositoryId, deleted, config)
+        .map(nodes -> nodes.stream()
+            .map(NodeAdapter::new)
+            .collect(Collectors.toList()));
+  }
+
+  @Override
+  public DaoResult<ArtifactVersion> getResourceVersion(String repositoryId, UUID artifactId,
+      String versionTag, Boolean deleted) {
+    return dao.executeRead(session -> {
+      try {
+        VersionNodeAdapter version =
+            new VersionNodeAdapter(version(series(session, repositoryId, artifactId), versionTag));
+        if (!Boolean.TRUE.equals(deleted) && version.isUnavailable()) {
+          throw new ResourceNoContentException("The version is known but currently unavailable.");
+        }
+        return version;
+      } catch (RepositoryException e) {
+        throw new DaoRuntimeException(e);
+      }
+    });
+  }
+
+  @Override
+  public DaoResult<Artifact> getResourceSeries(String repositoryId, UUID artifactId) {
+    return dao.executeRead(session -> {
+      try {
+        return new NodeAdapter(series(session, repositoryId, artifactId));
+      } catch (RepositoryException e) {
+        throw new DaoRuntimeException(e);
+      }
+    });
+  }
+
+  @Override
+  public DaoResult<Boolean> hasResourceSeries(String repositoryId, UUID artifactId) {
+    return dao.hasResource(repositoryId, artifactId);
+  }
+
+  @Override
+  public DaoResult<Boolean> hasResourceVersions(String repositoryId, UUID artifactId,
+      Boolean deleted) {
+    return getResourceVersions(repositoryId, artifactId, deleted)
+        .map(versions -> !versions.isEmpty());
+  }
+
+  @Override
+  public DaoResult<List<ArtifactVersion>> getResourceVersions(String repositoryId,
+      UUID artifactId, Boolean deleted) {
+    return dao.executeRead(session -> {
+      try {
+        Node series = series(session, repositoryId, artifactId);
+        if (Boolean.FALSE.equals(deleted) && isUnavailable(series)) {
+          throw new ResourceNoContentException("Artifact known, but not available.");
+        }
+        List<VersionNodeAdapter> versions = new ArrayList<>();
+        NodeIterator children = series.getNodes();
+        while (children.hasNext()) {
+          VersionNodeAdapter version = new VersionNodeAdapter(children.nextNode());
+          //If deleted != true, filter out unavailable versions
+          if (Boolean.TRUE.equals(deleted) || version.isAvailable()) {
+            versions.add(version);
+          }
+        }
+        // a version saved again is newer, but keeps the place of its tag
+        JcrDao.sortVersions(versions,
+            VersionTagOrder.read(session, layout, encode(repositoryId),
+                encode(artifactId.toString())).tags(),
+            version -> version.getResourceIdentifier().getVersionTag(),
+            VersionNodeAdapter::getCreated);
+        return new ArrayList<>(versions);
+      } catch (RepositoryException e) {
+        throw new DaoRuntimeException(e);
+      }
+    });
+  }
+
+  @Override
+  public DaoResult<ArtifactVersion> getLatestResourceVersion(String repositoryId,
+      UUID artifactId, Boolean deleted) {
+    return dao.executeRead(session -> {
+      try {
+        Node series = series(session, repositoryId, artifactId);
+        if (Boolean.FALSE.equals(deleted) && isUnavailable(series)) {
+          throw new ResourceNoContentException("Artifact known, but not available.");
+        }
+        String pointer = Boolean.TRUE.equals(deleted)
+            ? JCR_LATEST_VERSION
+            : JCR_LATEST_AVAILABLE_VERSION;
+        if (!series.hasProperty(pointer)) {
+          throw new ResourceNoContentException(
+              "Artifact known but either not available, or no versions are available");
+        }
+        return new VersionNodeAdapter(version(series, series.getProperty(pointer).getString()));
+      } catch (RepositoryException e) {
+        throw new DaoRuntimeException(e);
+      }
+    });
+  }
+
+  @Override
+  public void clear() {
+    dao.clear();
+  }
+
+  @Override
+  public void clearRepository(String repositoryId, Boolean deleted) {
+    if (Boolean.TRUE.equals(deleted)) {
+      dao.clear(repositoryId, JcrDao.DEFAULT_PURGE_BATCH, null);
+    } else {
+      ArtifactDAO.super.clearRepository(repositoryId, deleted);
+    }
+  }
+
+  @Override
+  public void deleteResourceVersion(String repositoryId, UUID artifactId, String versionTag) {
+    write(session -> {
+      Node series = series(session, repositoryId, artifactId);
+      version(series, versionTag).setProperty(JCR_STATUS, STATUS_UNAVAILABLE);
+      if (series.hasProperty(JCR_LATEST_AVAILABLE_VERSION)
+          && versionTag.equals(series.getProperty(JCR_LATEST_AVAILABLE_VERSION).getString())) {
+        updateLatestVersion(series, tagOrder(session, repositoryId, artifactId).tags());
+      }
+      return null;
+    });
+  }
+
+  @Override
+  public void removeResourceVersion(String repositoryId, UUID artifactId, String versionTag) {
+    write(session -> {
+      Node series = series(session, repositoryId, artifactId);
+      version(series, versionTag).remove();
+      VersionTagOrder order = tagOrder(session, repositoryId, artifactId);
+      order.remove(versionTag);
+      updateLatestVersion(series, order.tags());
+      return null;
+    });
+  }
+
+  @Override
+  public void deleteResourceSeries(String repositoryId, UUID artifactId) {
+    write(session -> {
+      Node series = series(session, repositoryId, artifactId);
+      series.setProperty(JCR_SERIES_STATUS, STATUS_UNAVAILABLE);
+      setStatus(series, STATUS_UNAVAILABLE);
+      setOrRemove(series, JCR_LATEST_AVAILABLE_VERSION, null);
+      return null;
+    });
+  }
+
+  @Override
+  public void removeResourceSeries(String repositoryId, UUID artifactId) {
+    write(session -> {
+      Node series = series(session, repositoryId, artifactId);
+      Node repositoryNode = layout.repositoryOf(series);
+      series.remove();
+      layout.pruneShards(repositoryNode, encode(artifactId.toString()));
+      VersionTagOrder.remove(session, layout, encode(repositoryId),
+          encode(artifactId.toString()));
+      return null;
+    });
+  }
+
+  @Override
+  public void enableResourceVersion(String repositoryId, UUID artifactId, String versionTag) {
+    write(session -> {
+      Node series = series(session, repositoryId, artifactId);
+      version(series, versionTag).setProperty(JCR_STATUS, STATUS_AVAILABLE);
+      series.setProperty(JCR_SERIES_STATUS, STATUS_AVAILABLE);
+      tagOrder(session, repositoryId, artifactId)
+          .advance(series, JCR_LATEST_AVAILABLE_VERSION, versionTag);
+      return null;
+    });
+  }
+
+  @Override
+  public void enableResourceSeries(String repositoryId, UUID artifactId) {
+    write(session -> {
+      String encodedRepositoryId = encode(repositoryId);
+      if (!session.getRootNode().hasNode(encodedRepositoryId)) {
+        throw new ResourceNotFoundException();
+      }
+      Node repositoryNode = session.getRootNode().getNode(encodedRepositoryId);
+      String id = encode(artifactId.toString());
+      if (!repositoryNode.hasNode(layout.path(id))) {
+        //If artifact series doesn't exist, create it.
+        addSeries(repositoryNode, id);
+        return null;
+      }
+      Node series = repositoryNode.getNode(layout.path(id));
+      series.setProperty(JCR_SERIES_STATUS, STATUS_AVAILABLE);
+      setStatus(series, STATUS_AVAILABLE);
+      setOrRemove(series, JCR_LATEST_AVAILABLE_VERSION, series.hasProperty(JCR_LATEST_VERSION)
+          ? series.getProperty(JCR_LATEST_VERSION).getString()
+          : null);
+      return null;
+    });
+  }
+
+  @Override
+  public DaoResult<ArtifactVersion> saveResource(String repositoryId, UUID artifactId,
+      String versionTag, byte[] document, Map<String, String> config) {
+    return dao.execute(session -> {
+      try {
+        Node series = ensureSeries(session, repositoryId, artifactId);
+        String name = encode(versionTag);
+        if (series.hasNode(name)) {
+          // versions are immutable: saving a tag again replaces its version
+          series.getNode(name).remove();
+        }
+        Node version = series.addNode(name);
+        version.setProperty(JCR_VERSION_TAG, versionTag);
+        version.setProperty(JCR_DATA,
+            session.getValueFactory().createBinary(new ByteArrayInputStream(document)));
+        version.setProperty(JCR_CREATED, Calendar.getInstance());
+        version.setProperty(JCR_STATUS, STATUS_AVAILABLE);
+
+        series.setProperty(JCR_SERIES_STATUS, STATUS_AVAILABLE);
+        if (config != null) {
+          for (Map.Entry<String, String> entry : config.entrySet()) {
+            series.setProperty("jcr:" + entry.getKey(), entry.getValue());
+          }
+        }
+        VersionTagOrder order = tagOrder(session, repositoryId, artifactId);
+        order.append(versionTag);
+        order.advance(series, JCR_LATEST_VERSION, versionTag);
+        order.advance(series, JCR_LATEST_AVAILABLE_VERSION, versionTag);
+        return new VersionNodeAdapter(version);
+      } catch (Exception e) {
+        session.logout();
+        throw new DaoRuntimeException(e);
+      }
+    });
+  }
+
+  @Override
+  public DaoResult<Artifact> saveResource(String repositoryId, UUID artifactId) {
+    return dao.execute(session -> {
+      try {
+        return new NodeAdapter(ensureSeries(session, repositoryId, artifactId));
+      } catch (Exception e) {
+        session.logout();
+        throw new DaoRuntimeException(e);
+      }
+    });
+  }
+
+  @Override
+  public byte[] getData(String repositoryId, ArtifactVersion version) {
+    try {
+      InputStream is = version.getDataStream();
+      return IOUtils.toByteArray(is);
+    } catch (Exception e) {
+      throw new ResourceIdentificationException(e);
+    }
+  }
+
+  /**
+   * Converts the series of a repository stored in the versionable layout: the labeled versions of
+   * each series are copied to version nodes, with their creation date and status, then the
+   * series stops being versionable, and its version history is removed. Changes are saved in
+   * batches of series, and series already converted are skipped, so that an interrupted migration
+   * can be resumed.
+   *
+   * @param repositoryId the repository
+   * @param batchSize    the number of series converted between saves
+   * @return the number of series converted
+   */
+  public long migrate(String repositoryId, int batchSize) {
+    String encodedRepositoryId = encode(repositoryId);
+    List<String> ids;
+    try (DaoResult<List<String>> versionable = dao.executeRead(session -> {
+      try {
+        if (!session.getRootNode().hasNode(encodedRepositoryId)) {
+          throw new RepositoryNotFoundException(encodedRepositoryId);
+        }
+        List<String> found = new ArrayList<>();
+        Iterator<Node> series = layout.series(session.getRootNode().getNode(encodedRepositoryId));
+        while (series.hasNext()) {
+          Node node = series.next();
+          if (node.isNodeType(MIX_VERSIONABLE)) {
+            found.add(node.getProperty(JCR_ID).getString());
+          }
+        }
+        return found;
+      } catch (RepositoryException e) {
+        throw new DaoRuntimeException(e);
+      }
+    })) {
+      ids = versionable.getValue();
+    }
+
+    long migrated = 0;
+    for (int j = 0; j < ids.size(); j += batchSize) {
+      List<String> batch = ids.subList(j, Math.min(ids.size(), j + batchSize));
+      List<String> histories = write(session -> {
+        List<String> paths = new ArrayList<>();
+        for (String id : batch) {
+          paths.add(migrateSeries(session, repositoryId, id));
+        }
+        return paths;
+      });
+      removeHistories(histories);
+      migrated += batch.size();
+      logger.info("Converted {} of {} series of repository {} to version nodes",
+          migrated, ids.size(), repositoryId);
+    }
+    return migrated;
+  }
+
+  /**
+   * Copies the versions of a versionable series to version nodes
+   *
+   * @return the path of the version history of the series, no longer used
+   */
+  private String migrateSeries(Session session, String repositoryId, String id)
+      throws RepositoryException {
+    List<VersionSnapshot> snapshots;
+    List<String> versionIds = new ArrayList<>();
+    try (DaoResult<List<VersionSnapshot>> versions =
+        dao.getResourceVersionSnapshots(repositoryId, UUID.fromString(id), true)) {
+      snapshots = versions.getValue();
+      // the versions are read through the session of the migration, since the session of the
+      // snapshots may be logged out once closed
+      for (VersionSnapshot snapshot : snapshots) {
+        versionIds.add(snapshot.getVersion().getIdentifier());
+      }
+    }
+    Node series = session.getRootNode().getNode(encode(repositoryId)).getNode(layout.path(id));
+    VersionManager versionManager = session.getWorkspace().getVersionManager();
+    String historyPath = versionManager.getVersionHistory(series.getPath()).getPath();
+    // the snapshots are sorted, and the tags of an untracked series are appended in that order
+    VersionTagOrder order = tagOrder(session, repositoryId, UUID.fromString(id));
+    versionManager.checkout(series.getPath());
+
+    for (int j = 0; j < snapshots.size(); j++) {
+      VersionSnapshot snapshot = snapshots.get(j);
+      Version frozen = (Version) session.getNodeByIdentifier(versionIds.get(j));
+      Node version = series.addNode(encode(snapshot.getLabel()));
+      version.setProperty(JCR_VERSION_TAG, snapshot.getLabel());
+      try (InputStream data = frozen.getFrozenNode().getProperty(JCR_DATA)
+          .getBinary().getStream()) {
+        version.setProperty(JCR_DATA, session.getValueFactory().createBinary(data));
+      } catch (IOException e) {
+        throw new DaoRuntimeException(e);
+      }
+      Calendar created = Calendar.getInstance();
+      created.setTime(snapshot.getCreated());
+      version.setProperty(JCR_CREATED, created);
+      version.setProperty(JCR_STATUS, snapshot.isAvailable() ? STATUS_AVAILABLE : STATUS_UNAVAILABLE);
+      order.append(snapshot.getLabel());
+    }
+    // the latest content and status are kept in the version nodes only
+    for (String property : new String[]{JCR_DATA, JCR_STATUS}) {
+      if (series.hasProperty(property)) {
+        series.getProperty(property).remove();
+      }
+    }
+    series.removeMixin(MIX_VERSIONABLE);
+    updateLatestVersion(series, order.tags());
+
+    VersionStatusMap.remove(session, layout, encode(repositoryId), id);
+    return historyPath;
+  }
+
+  /**
+   * Removes the versions of histories whose series are no longer versionable, so that Oak can
+   * drop the histories. A failure only leaves unused content behind.
+   */
+  private void removeHistories(List<String> historyPaths) {
+    write(session -> {
+      for (String path : historyPaths) {
+        try {
+          VersionHistory history = (VersionHistory) session.getNode(path);
+          // the labels reference the versions
+          for (String label : history.getVersionLabels()) {
+            history.removeVersionLabel(label);
+          }
+          List<String> names = new ArrayList<>();
+          VersionIterator versions = history.getAllVersions();
+          while (versions.hasNext()) {
+            Version version = versions.nextVersion();
+            if (!version.getName().equals(history.getRootVersion().getName())) {
+              names.add(version.getName());
+            }
+          }
+          for (String name : names) {
+            history.removeVersion(name);
+          }
+        } catch (RepositoryException e) {
+          logger.warn("Unable to remove the version history {}: {}", path, e.getMessage());
+        }
+      }
+      return null;
+    });
+  }
+
+  private Node ensureSeries(Session session, String repositoryId, UUID artifactId)
+      throws RepositoryException {
+    String encodedRepositoryId = encode(repositoryId);
+    Node root = session.getRootNode();
+    Node repositoryNode = root.hasNode(encodedRepositoryId)
+        ? root.getNode(encodedRepositoryId)
+        : root.addNode(encodedRepositoryId);
+    String id = encode(artifactId.toString());
+    return repositoryNode.hasNode(layout.path(id))
+        ? repositoryNode.getNode(layout.path(id))
+        : addSeries(repositoryNode, id);
+  }
+
+  private Node addSeries(Node repositoryNode, String id) throws RepositoryException {
+    Node series = layout.addSeries(repositoryNode, id);
+    series.setProperty(JCR_ID, id);
+    series.setProperty(JCR_SERIES_STATUS, STATUS_AVAILABLE);
+    VersionTagOrder.write(repositoryNode.getSession(), layout, repositoryNode.getName(), id);
+    return series;
+  }
+
+  /**
+   * @return the series node
+   * @throws ResourceNotFoundException if the repository or the series do not exist
+   */
+  private Node series(Session session, String repositoryId, UUID artifactId)
+      throws RepositoryException {
+    String encodedRepositoryId = encode(repositoryId);
+    String path = layout.path(encode(artifactId.toString()));
+    Node root = session.getRootNode();
+    if (!root.hasNode(encodedRepositoryId) || !root.getNode(encodedRepositoryId).hasNode(path)) {
+      throw new ResourceNotFoundException();
+    }
+    return root.getNode(encodedRepositoryId).getNode(path);
+  }
+
+  /**
+   * @return the version node
+   * @throws ResourceNotFoundException if the series has no version with the tag
+   */
+  private Node version(Node series, String versionTag) throws RepositoryException {
+    String name = encode(versionTag);
+    if (!series.hasNode(name)) {
+      throw new ResourceNotFoundException();
+    }
+    return series.getNode(name);
+  }
+
+  private boolean isUnavailable(Node series) throws RepositoryException {
+    return STATUS_UNAVAILABLE.equals(series.getProperty(JCR_SERIES_STATUS).getString());
+  }
+
+  private void setStatus(Node series, String status) throws RepositoryException {
+    NodeIterator versions = series.getNodes();
+    while (versions.hasNext()) {
+      versions.nextNode().setProperty(JCR_STATUS, status);
+    }
+  }
+
+  /**
+   * @return the tag order of a series, tracked from now on if it was not yet
+   */
+  private VersionTagOrder tagOrder(Session session, String repositoryId, UUID artifactId)
+      throws RepositoryException {
+    return VersionTagOrder.write(session, layout, encode(repositoryId),
+        encode(artifactId.toString()));
+  }
+
+  /**
+   * Points a series to its latest version and to its latest available version, as
+   * {@link JcrDao} does
+   */
+  private void updateLatestVersion(Node series, List<String> tags) throws RepositoryException {
+    setOrRemove(series, JCR_LATEST_VERSION, tags.isEmpty() ? null : tags.get(tags.size() - 1));
+    String latestAvailable = null;
+    for (int j = tags.size() - 1; j >= 0 && latestAvailable == null; j--) {
+      String name = encode(tags.get(j));
+      if (series.hasNode(name) && STATUS_AVAILABLE
+          .equals(series.getNode(name).getProperty(JCR_STATUS).getString())) {
+        latestAvailable = tags.get(j);
+      }
+    }
+    setOrRemove(series, JCR_LATEST_AVAILABLE_VERSION, latestAvailable);
+  }
+
+  private void setOrRemove(Node node, String property, String value)
+      throws RepositoryException {
+    if (value != null) {
+      node.setProperty(property, value);
+    } else if (node.hasProperty(property)) {
+      node.getProperty(property).remove();
+    }
+  }
+
+  /**
+   * Runs a write operation, and logs out its session
+   */
+  private <T> T write(SessionOperation<T> operation) {
+    try (DaoResult<T> result = dao.execute(session -> {
+      try {
+        return operation.apply(session);
+      } catch (ResourceNotFoundException | RepositoryNotFoundException e) {
+        session.logout();
+        throw e;
+      } catch (Exception e) {
+        session.logout();
+        throw new DaoRuntimeException(e);
+      }
+    })) {
+      return result.getValue();
+    }
+  }
+
+  private static String encode(String id) {
+    return Text.escapeIllegalJcrChars(id);
+  }
+
+  @FunctionalInterface
+  private interface SessionOperation<T> {
+
+    T apply(Session session) throws RepositoryException;
+  }
+
+  /**
+   * A version node, whose identity, creation and status are captured when the adapter is
+   * created. Only the content is read from the session, on demand.
+   */
+  public static class VersionNodeAdapter implements ArtifactVersion {
+
+    private final Node node;
+
+    private final ResourceIdentifier resourceIdentifier;
+
+    private final Date created;
+
+    private final boolean available;
+
+    public VersionNodeAdapter(Node node) {
+      try {
+        this.node = node;
+        this.resourceIdentifier = SemanticIdentifier.newId(
+            node.getParent().getProperty(JCR_ID).getString(),
+            node.getProperty(JCR_VERSION_TAG).getString());
+        this.created = node.getProperty(JCR_CREATED).getDate().getTime();
+        this.available = !STATUS_UNAVAILABLE.equals(node.getProperty(JCR_STATUS).getString());
+      } catch (RepositoryException e) {
+        throw new IllegalStateException(e.getMessage(), e);
+      }
+    }
+
+    public Date getCreated() {
+      return new Date(created.getTime());
+    }
+
+    @Override
+    public ResourceIdentifier getResourceIdentifier() {
+      return resourceIdentifier;
+    }
+
+    @Override
+    public boolean isUnavailable() {
+      return !available;
+    }
+
+    @Override
+    public boolean isAvailable() {
+      return available;
+    }
+
+    @Override
+    public InputStream getDataStream() throws DaoRuntimeException {
+      try {
+        return node.getProperty(JCR_DATA).getBinary().getStream();
+      } catch (RepositoryException e) {
+        throw new DaoRuntimeException(e.getMessage(), e);
+      }
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import java.util.Date;
+import javax.jcr.version.Version;
+
+/**
+ * An immutable view of a labeled version of a series, read once from the version history.
+ * <p>
+ * The label, creation date, status and artifact identifier are captured when the snapshot is
+ * taken, so they can be read without going back to the repository. The version itself is only
+ * kept to stream the content, which is not copied.
+ */
+public final class VersionSnapshot {
+
+  private final String label;
+
+  private final Date created;
+
+  private final boolean available;
+
+  private final String artifactId;
+
+  private final Version version;
+
+  VersionSnapshot(String label, Date created, boolean available, String artifactId,
+      Version version) {
+    this.label = label;
+    this.created = created;
+    this.available = available;
+    this.artifactId = artifactId;
+    this.version = version;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public Date getCreated() {
+    return new Date(created.getTime());
+  }
+
+  public boolean isAvailable() {
+    return available;
+  }
+
+  public String getArtifactId() {
+    return artifactId;
+  }
+
+  public Version getVersion() {
+    return version;
+  }
+
+  @Override
+  public String toString() {
+    return artifactId + ":" + label + (available ? "" : " (unavailable)");
+  }
+}
@@ -0,0 +1,153 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.JCR_STATUS;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.STATUS_AVAILABLE;
+import static edu.mayo.kmdp.repository.artifact.jcr.JcrDao.STATUS_UNAVAILABLE;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.version.Version;
+import org.apache.jackrabbit.util.Text;
+
+/**
+ * The availability of the versions of a series, keyed by version label.
+ * <p>
+ * Versions are immutable, so their availability is tracked outside of the version history, in a
+ * node at /kmdp.status/[repository]/[series path], where the series path is the path of the series
+ * node under its repository node, shards included (see {@link SeriesLayout#path(String)}), so that
+ * the status maps are spread over the same shards as the series. The node has one property per
+ * version whose availability has been set explicitly, and a default status which applies to the
+ * other versions: toggling the availability of a whole series resets the map to a new default,
+ * which is a constant number of writes regardless of the number of versions.
+ * <p>
+ * Versions that are not covered by the map were stored when the status was recorded in the
+ * frozen node of each version, which is then used instead.
+ */
+final class VersionStatusMap {
+
+  static final String STATUS_ROOT = "kmdp.status";
+
+  /**
+   * The status of the versions that have no status of their own. Labels are escaped, and thus
+   * never clash with a name in the jcr namespace.
+   */
+  static final String DEFAULT_STATUS = "jcr:defaultStatus";
+
+  private Node node;
+
+  private VersionStatusMap(Node node) {
+    this.node = node;
+  }
+
+  /**
+   * @return the path of the status map of a series
+   */
+  static String path(SeriesLayout layout, String encodedRepositoryId, String id) {
+    return "/" + STATUS_ROOT + "/" + encodedRepositoryId + "/" + layout.path(id);
+  }
+
+  /**
+   * @return the status map of a series, which may not exist yet
+   */
+  static VersionStatusMap read(Session session, SeriesLayout layout, String encodedRepositoryId,
+      String id) throws RepositoryException {
+    String path = path(layout, encodedRepositoryId, id);
+    return new VersionStatusMap(session.nodeExists(path) ? session.getNode(path) : null);
+  }
+
+  /**
+   * @return the status map of a series, created if it does not exist yet
+   */
+  static VersionStatusMap write(Session session, SeriesLayout layout, String encodedRepositoryId,
+      String id) throws RepositoryException {
+    Node parent = layout.ensureParent(repositoryNode(session, encodedRepositoryId), id);
+    return new VersionStatusMap(parent.hasNode(id) ? parent.getNode(id) : parent.addNode(id));
+  }
+
+  /**
+   * Removes the status map of a series, if any, and the shards it leaves empty
+   */
+  static void remove(Session session, SeriesLayout layout, String encodedRepositoryId, String id)
+      throws RepositoryException {
+    String path = path(layout, encodedRepositoryId, id);
+    if (session.nodeExists(path)) {
+      session.getNode(path).remove();
+      layout.pruneShards(repositoryNode(session, encodedRepositoryId), id);
+    }
+  }
+
+  /**
+   * Moves the status map of a series, if any, along with the series, from a layout to another
+   */
+  static void move(Session session, String encodedRepositoryId, String id, SeriesLayout from,
+      SeriesLayout to) throws RepositoryException {
+    String path = path(from, encodedRepositoryId, id);
+    if (session.nodeExists(path)) {
+      Node repositoryNode = repositoryNode(session, encodedRepositoryId);
+      session.move(path, to.ensureParent(repositoryNode, id).getPath() + "/" + id);
+      from.pruneShards(repositoryNode, id);
+    }
+  }
+
+  private static Node repositoryNode(Session session, String encodedRepositoryId)
+      throws RepositoryException {
+    Node current = session.getRootNode();
+    for (String name : new String[]{STATUS_ROOT, encodedRepositoryId}) {
+      current = current.hasNode(name) ? current.getNode(name) : current.addNode(name);
+    }
+    return current;
+  }
+
+  /**
+   * @param label the version label
+   * @return true if the version is available, false if unavailable, or null if the map does not
+   * cover the version
+   */
+  Boolean getStatus(String label) throws RepositoryException {
+    if (node == null) {
+      return null;
+    }
+    String key = Text.escapeIllegalJcrChars(label);
+    if (node.hasProperty(key)) {
+      return STATUS_AVAILABLE.equals(node.getProperty(key).getString());
+    }
+    if (node.hasProperty(DEFAULT_STATUS)) {
+      return STATUS_AVAILABLE.equals(node.getProperty(DEFAULT_STATUS).getString());
+    }
+    return null;
+  }
+
+  /**
+   * @param label   the version label
+   * @param version the version
+   * @return true if the version is available
+   */
+  boolean isAvailable(String label, Version version) throws RepositoryException {
+    Boolean status = getStatus(label);
+    if (status != null) {
+      return status;
+    }
+    return !STATUS_UNAVAILABLE
+        .equals(version.getFrozenNode().getProperty(JCR_STATUS).getString());
+  }
+
+  void setStatus(String label, boolean available) throws RepositoryException {
+    node.setProperty(Text.escapeIllegalJcrChars(label), toStatus(available));
+  }
+
+  /**
+   * Sets the status of all the versions
+   */
+  void reset(boolean available) throws RepositoryException {
+    Node parent = node.getParent();
+    String name = node.getName();
+    node.remove();
+    node = parent.addNode(name);
+    node.setProperty(DEFAULT_STATUS, toStatus(available));
+  }
+
+  private static String toStatus(boolean available) {
+    return available ? STATUS_AVAILABLE : STATUS_UNAVAILABLE;
+  }
+}
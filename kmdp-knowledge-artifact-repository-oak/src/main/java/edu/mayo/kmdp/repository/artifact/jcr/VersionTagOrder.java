@@ -0,0 +1,205 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import org.apache.jackrabbit.util.Text;
+
+/**
+ * The order in which the version tags of a series were first saved, which is the order the latest
+ * version pointers of the series follow (see {@link JcrDao#sortVersions}).
+ * <p>
+ * The order is kept outside of the series node, in a node at /kmdp.tags/[repository]/[series
+ * path], placed as the status maps are (see {@link VersionStatusMap}). The node has one property
+ * per tag, holding the position of the tag, and the position of the next new tag: saving a tag is
+ * a constant number of writes regardless of the number of versions, whereas a list of tags would be
+ * rewritten with every new tag, and, on a versionable series, copied to the frozen node of each
+ * version.
+ * <p>
+ * Series whose order is not tracked were stored before it was, and their versions are sorted by
+ * creation instead.
+ */
+final class VersionTagOrder {
+
+  static final String ORDER_ROOT = "kmdp.tags";
+
+  /**
+   * The position of the next new tag. Tags are escaped, and thus never clash with a name in the
+   * jcr namespace.
+   */
+  static final String NEXT_POSITION = "jcr:nextPosition";
+
+  private final Node node;
+
+  private VersionTagOrder(Node node) {
+    this.node = node;
+  }
+
+  /**
+   * @return the path of the tag order of a series
+   */
+  static String path(SeriesLayout layout, String encodedRepositoryId, String id) {
+    return "/" + ORDER_ROOT + "/" + encodedRepositoryId + "/" + layout.path(id);
+  }
+
+  /**
+   * @return the tag order of a series, which may not be tracked
+   */
+  static VersionTagOrder read(Session session, SeriesLayout layout, String encodedRepositoryId,
+      String id) throws RepositoryException {
+    String path = path(layout, encodedRepositoryId, id);
+    return new VersionTagOrder(session.nodeExists(path) ? session.getNode(path) : null);
+  }
+
+  /**
+   * @return the tag order of a series, tracked from now on if it was not yet
+   */
+  static VersionTagOrder write(Session session, SeriesLayout layout, String encodedRepositoryId,
+      String id) throws RepositoryException {
+    Node parent = layout.ensureParent(repositoryNode(session, encodedRepositoryId), id);
+    if (parent.hasNode(id)) {
+      return new VersionTagOrder(parent.getNode(id));
+    }
+    Node node = parent.addNode(id);
+    node.setProperty(NEXT_POSITION, 0L);
+    return new VersionTagOrder(node);
+  }
+
+  /**
+   * Removes the tag order of a series, if any, and the shards it leaves empty
+   */
+  static void remove(Session session, SeriesLayout layout, String encodedRepositoryId, String id)
+      throws RepositoryException {
+    String path = path(layout, encodedRepositoryId, id);
+    if (session.nodeExists(path)) {
+      session.getNode(path).remove();
+      layout.pruneShards(repositoryNode(session, encodedRepositoryId), id);
+    }
+  }
+
+  /**
+   * Moves the tag order of a series, if any, along with the series, from a layout to another
+   */
+  static void move(Session session, String encodedRepositoryId, String id, SeriesLayout from,
+      SeriesLayout to) throws RepositoryException {
+    String path = path(from, encodedRepositoryId, id);
+    if (session.nodeExists(path)) {
+      Node repositoryNode = repositoryNode(session, encodedRepositoryId);
+      session.move(path, to.ensureParent(repositoryNode, id).getPath() + "/" + id);
+      from.pruneShards(repositoryNode, id);
+    }
+  }
+
+  private static Node repositoryNode(Session session, String encodedRepositoryId)
+      throws RepositoryException {
+    Node current = session.getRootNode();
+    for (String name : new String[]{ORDER_ROOT, encodedRepositoryId}) {
+      current = current.hasNode(name) ? current.getNode(name) : current.addNode(name);
+    }
+    return current;
+  }
+
+  boolean isTracked() {
+    return node != null;
+  }
+
+  /**
+   * @param tag the version tag
+   * @return the position of the tag, or null if the tag is unknown
+   */
+  Long position(String tag) throws RepositoryException {
+    String key = Text.escapeIllegalJcrChars(tag);
+    return node != null && node.hasProperty(key) ? node.getProperty(key).getLong() : null;
+  }
+
+  /**
+   * Appends a tag after the known ones, unless it is known already
+   *
+   * @return true if the tag was appended
+   */
+  boolean append(String tag) throws RepositoryException {
+    String key = Text.escapeIllegalJcrChars(tag);
+    if (node.hasProperty(key)) {
+      return false;
+    }
+    long next = node.getProperty(NEXT_POSITION).getLong();
+    node.setProperty(key, next);
+    node.setProperty(NEXT_POSITION, next + 1);
+    return true;
+  }
+
+  /**
+   * Forgets a tag, which is appended again if saved again
+   */
+  void remove(String tag) throws RepositoryException {
+    String key = Text.escapeIllegalJcrChars(tag);
+    if (node.hasProperty(key)) {
+      node.getProperty(key).remove();
+    }
+  }
+
+  /**
+   * Points a series to a version, unless the version pointed to comes after it. The series node
+   * must be checked out.
+   *
+   * @param series  the series node
+   * @param pointer the pointer property
+   * @param tag     the tag of the version
+   */
+  void advance(Node series, String pointer, String tag) throws RepositoryException {
+    Long position = position(tag);
+    if (position == null) {
+      return;
+    }
+    Long current = series.hasProperty(pointer)
+        ? position(series.getProperty(pointer).getString())
+        : null;
+    if (current == null || current <= position) {
+      series.setProperty(pointer, tag);
+    }
+  }
+
+  /**
+   * @return the tags, in the order they were first saved, or null if the order is not tracked
+   */
+  List<String> tags() throws RepositoryException {
+    if (node == null) {
+      return null;
+    }
+    Map<String, Long> positions = new HashMap<>();
+    PropertyIterator properties = node.getProperties();
+    while (properties.hasNext()) {
+      Property property = properties.nextProperty();
+      if (isTag(property.getName())) {
+        positions.put(property.getName(), property.getLong());
+      }
+    }
+    return sort(positions);
+  }
+
+  /**
+   * @param name the name of a property of a tag order node
+   * @return true if the property is the position of a tag
+   */
+  static boolean isTag(String name) {
+    return name.indexOf(':') < 0;
+  }
+
+  /**
+   * @param positions the positions of the escaped tags
+   * @return the tags, unescaped, by position
+   */
+  static List<String> sort(Map<String, Long> positions) {
+    List<String> tags = new ArrayList<>(positions.keySet());
+    tags.sort(Comparator.comparing(positions::get));
+    tags.replaceAll(Text::unescapeIllegalJcrChars);
+    return tags;
+  }
+}
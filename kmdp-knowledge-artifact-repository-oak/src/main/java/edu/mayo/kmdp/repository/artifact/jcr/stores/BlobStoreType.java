@@ -0,0 +1,82 @@
+package edu.mayo.kmdp.repository.artifact.jcr.stores;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+import edu.mayo.kmdp.repository.artifact.exceptions.DaoRuntimeException;
+import java.io.File;
+import javax.jcr.RepositoryException;
+import org.apache.jackrabbit.core.data.DataStoreException;
+import org.apache.jackrabbit.oak.plugins.blob.datastore.DataStoreBlobStore;
+import org.apache.jackrabbit.oak.plugins.blob.datastore.OakFileDataStore;
+import org.apache.jackrabbit.oak.spi.blob.FileBlobStore;
+import org.apache.jackrabbit.oak.spi.blob.GarbageCollectableBlobStore;
+
+/**
+ * Where the binaries of a {@link SegmentStoreRepository} are stored, once they are too large to
+ * be inlined in the segments.
+ * <p>
+ * Both stores are content-addressed, so that identical binaries are stored once: the FILE blob
+ * store splits binaries in blocks, stored under the SHA-256 digest of their content, while the
+ * DATASTORE stores each binary as a whole file, named after the digest of its content, which
+ * suits large artifacts. A repository must be reopened with the blob store it was created with,
+ * since the binaries are referenced by blob ids specific to the store.
+ */
+public enum BlobStoreType {
+
+  FILE(SegmentStoreRepository.BLOB_DIR),
+  DATASTORE("datastore");
+
+  private final String dirName;
+
+  BlobStoreType(String dirName) {
+    this.dirName = dirName;
+  }
+
+  public static BlobStoreType from(KnowledgeArtifactRepositoryServerProperties cfg) {
+    String type = cfg.getTyped(KnowledgeArtifactRepositoryOptions.BLOB_STORE);
+    return type != null && !type.isBlank()
+        ? BlobStoreType.valueOf(type.trim().toUpperCase())
+        : FILE;
+  }
+
+  /**
+   * @return the directory of the blob store, under the base directory of the repository
+   */
+  public File dir(File baseDir) {
+    return new File(baseDir, dirName);
+  }
+
+  /**
+   * Opens (or creates) the blob store under the base directory of a repository
+   */
+  public GarbageCollectableBlobStore open(File baseDir) {
+    File dir = dir(baseDir);
+    switch (this) {
+      case DATASTORE:
+        OakFileDataStore dataStore = new OakFileDataStore();
+        dataStore.setPath(dir.getAbsolutePath());
+        try {
+          dataStore.init(baseDir.getAbsolutePath());
+        } catch (RepositoryException e) {
+          throw new DaoRuntimeException("Unable to open the data store in " + dir, e);
+        }
+        return new DataStoreBlobStore(dataStore);
+      case FILE:
+      default:
+        return new FileBlobStore(dir.getAbsolutePath());
+    }
+  }
+
+  /**
+   * Releases the resources of a blob store opened by this type, if any
+   */
+  static void close(GarbageCollectableBlobStore blobStore) {
+    if (blobStore instanceof DataStoreBlobStore) {
+      try {
+        ((DataStoreBlobStore) blobStore).close();
+      } catch (DataStoreException e) {
+        throw new DaoRuntimeException(e);
+      }
+    }
+  }
+}
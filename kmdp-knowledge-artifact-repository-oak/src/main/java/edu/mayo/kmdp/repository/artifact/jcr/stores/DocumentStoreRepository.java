@@ -0,0 +1,135 @@
+package edu.mayo.kmdp.repository.artifact.jcr.stores;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+import edu.mayo.kmdp.repository.artifact.jcr.IndexConfiguration;
+import javax.jcr.Repository;
+import javax.sql.DataSource;
+import org.apache.jackrabbit.api.JackrabbitRepository;
+import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStore;
+import org.apache.jackrabbit.oak.plugins.document.LeaseCheckMode;
+import org.apache.jackrabbit.oak.plugins.document.rdb.RDBDocumentNodeStoreBuilder;
+import org.apache.jackrabbit.oak.plugins.document.rdb.RDBOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A JCR repository persisted in a relational database, backed by an Oak document node store
+ * (DocumentMK on RDB). Both the node states and the binaries are stored in the database.
+ * <p>
+ * Unlike a segment store, a document store can be shared by several JVMs: each one opens the
+ * store as a cluster node, which holds a lease on its cluster id. Changes are written to the
+ * database on commit, but a cluster node only sees the changes of the others after its next
+ * background read, which runs every 'asyncDelay' ms.
+ * <p>
+ * The repository must be closed, to release the lease: typically, {@link #close()} is passed as
+ * the cleanup action of the {@link edu.mayo.kmdp.repository.artifact.jcr.JcrDao}.
+ */
+public class DocumentStoreRepository {
+
+  private static final Logger logger = LoggerFactory.getLogger(DocumentStoreRepository.class);
+
+  private final DocumentNodeStore nodeStore;
+
+  private final Repository repository;
+
+  private boolean closed = false;
+
+  private DocumentStoreRepository(DocumentNodeStore nodeStore, IndexConfiguration indexes) {
+    this.nodeStore = nodeStore;
+    this.repository = indexes.createRepository(nodeStore);
+  }
+
+  /**
+   * Opens (or creates) the repository stored in a database, as a cluster node
+   *
+   * @param dataSource the database
+   * @param cfg        the configuration of the cluster node
+   * @return the repository
+   */
+  public static DocumentStoreRepository open(DataSource dataSource,
+      KnowledgeArtifactRepositoryServerProperties cfg) {
+    Integer clusterId = cfg.getTyped(KnowledgeArtifactRepositoryOptions.DOCUMENT_CLUSTER_ID);
+    Integer asyncDelay = cfg.getTyped(KnowledgeArtifactRepositoryOptions.DOCUMENT_ASYNC_DELAY);
+    String leaseCheck = cfg.getTyped(KnowledgeArtifactRepositoryOptions.DOCUMENT_LEASE_CHECK);
+    String tablePrefix = cfg.getTyped(KnowledgeArtifactRepositoryOptions.DOCUMENT_TABLE_PREFIX);
+    return open(dataSource,
+        clusterId != null ? clusterId : 0,
+        asyncDelay != null ? asyncDelay : 1000,
+        leaseCheck != null ? LeaseCheckMode.valueOf(leaseCheck.trim().toUpperCase())
+            : LeaseCheckMode.STRICT,
+        tablePrefix != null ? tablePrefix : "",
+        IndexConfiguration.from(cfg));
+  }
+
+  /**
+   * Opens (or creates) the repository stored in a database, as a cluster node
+   *
+   * @param dataSource  the database
+   * @param clusterId   the id of this cluster node, or 0 to acquire an unused one
+   * @param asyncDelay  the interval (in ms) of the background reads and writes
+   * @param leaseCheck  whether operations fail (STRICT), are logged (LENIENT) or not checked
+   *                    (DISABLED) once the lease of this cluster node has expired
+   * @param tablePrefix the prefix of the tables of the store
+   * @return the repository
+   */
+  public static DocumentStoreRepository open(DataSource dataSource, int clusterId,
+      int asyncDelay, LeaseCheckMode leaseCheck, String tablePrefix) {
+    return open(dataSource, clusterId, asyncDelay, leaseCheck, tablePrefix,
+        IndexConfiguration.none());
+  }
+
+  /**
+   * Opens (or creates) the repository stored in a database, as a cluster node
+   *
+   * @param dataSource  the database
+   * @param clusterId   the id of this cluster node, or 0 to acquire an unused one
+   * @param asyncDelay  the interval (in ms) of the background reads and writes
+   * @param leaseCheck  whether operations fail (STRICT), are logged (LENIENT) or not checked
+   *                    (DISABLED) once the lease of this cluster node has expired
+   * @param tablePrefix the prefix of the tables of the store
+   * @param indexes     the indexing lanes of the repository. The asynchronous lanes run on one
+   *                    cluster node at a time
+   * @return the repository
+   */
+  public static DocumentStoreRepository open(DataSource dataSource, int clusterId,
+      int asyncDelay, LeaseCheckMode leaseCheck, String tablePrefix, IndexConfiguration indexes) {
+    DocumentNodeStore nodeStore = RDBDocumentNodeStoreBuilder.newRDBDocumentNodeStoreBuilder()
+        .setRDBConnection(dataSource, new RDBOptions().tablePrefix(tablePrefix))
+        .setClusterId(clusterId)
+        .setAsyncDelay(asyncDelay)
+        .setLeaseCheckMode(leaseCheck)
+        .build();
+    logger.info("Opened document store as cluster node {} (background delay: {} ms, lease check: {})",
+        nodeStore.getClusterId(), asyncDelay, leaseCheck);
+    return new DocumentStoreRepository(nodeStore, indexes);
+  }
+
+  public Repository getRepository() {
+    return repository;
+  }
+
+  public DocumentNodeStore getNodeStore() {
+    return nodeStore;
+  }
+
+  public int getClusterId() {
+    return nodeStore.getClusterId();
+  }
+
+  /**
+   * Shuts down the repository, then disposes of the node store, releasing the lease
+   */
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (repository instanceof JackrabbitRepository) {
+      ((JackrabbitRepository) repository).shutdown();
+    }
+    nodeStore.dispose();
+    logger.info("Closed document store cluster node {}", nodeStore.getClusterId());
+  }
+
+}
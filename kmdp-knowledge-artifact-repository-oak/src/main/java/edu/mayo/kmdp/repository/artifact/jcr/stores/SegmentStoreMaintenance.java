@@ -0,0 +1,400 @@
+package edu.mayo.kmdp.repository.artifact.jcr.stores;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import org.apache.jackrabbit.oak.plugins.blob.MarkSweepGarbageCollector;
+import org.apache.jackrabbit.oak.plugins.identifier.ClusterRepositoryInfo;
+import org.apache.jackrabbit.oak.segment.SegmentBlobReferenceRetriever;
+import org.apache.jackrabbit.oak.segment.file.FileStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reclaims the space of a {@link SegmentStoreRepository} in the background.
+ * <p>
+ * Every save creates new revisions of the nodes it touches, and every check-in adds a version:
+ * the segment store is append-only, so the older revisions are only reclaimed by the revision
+ * garbage collection, which compacts the latest revision and removes the segments it no longer
+ * references. Binaries live in the blob store, and are only removed by the blob garbage
+ * collection, which marks the binaries referenced by the segments and sweeps the others.
+ * <p>
+ * Both collections run in the background, one after the other, at most once per interval, and only
+ * within the maintenance window, if one is configured. They are postponed while the mean latency
+ * of the repository operations is above a threshold, and a running revision GC is cancelled if
+ * the latency rises above it: Oak keeps the store consistent, and the next run starts over.
+ */
+public class SegmentStoreMaintenance {
+
+  private static final Logger logger = LoggerFactory.getLogger(SegmentStoreMaintenance.class);
+
+  /**
+   * How often the conditions to run are checked, and the latency is watched during a run
+   */
+  private static final long CHECK_SECONDS = 60;
+  private static final long WATCH_MILLIS = 500;
+  private static final long CLOSE_SECONDS = 30;
+
+  private static final String BLOB_GC_DIR = "blobgc";
+
+  private final SegmentStoreRepository store;
+
+  private final LongSupplier latencyNanos;
+
+  private final long intervalMillis;
+
+  private final MaintenanceWindow window;
+
+  private final boolean fullCompaction;
+
+  private final long maxLatencyNanos;
+
+  private final long blobMaxAgeMillis;
+
+  private final ScheduledExecutorService executor;
+
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  private volatile long lastRun;
+
+  private final LongAdder runs = new LongAdder();
+  private final LongAdder postponed = new LongAdder();
+  private final LongAdder cancelled = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder segmentBytesReclaimed = new LongAdder();
+  private final LongAdder blobBytesReclaimed = new LongAdder();
+  private final LongAdder totalMillis = new LongAdder();
+  private volatile long lastMillis;
+
+  /**
+   * @param store            the segment store
+   * @param latencyNanos     the recent mean latency of the repository operations, in ns
+   * @param intervalMinutes  the minimum time between two runs
+   * @param window           when the collections may run, or null to run at any time
+   * @param fullCompaction   if true, the revision GC compacts the whole repository, rather than
+   *                         the revisions since the last compaction
+   * @param maxLatencyMillis the latency above which the collections are postponed, or
+   *                         interrupted
+   * @param blobMaxAgeHours  the age below which unreferenced binaries are kept, since they may
+   *                         belong to a save in progress
+   */
+  public SegmentStoreMaintenance(SegmentStoreRepository store, LongSupplier latencyNanos,
+      int intervalMinutes, MaintenanceWindow window, boolean fullCompaction,
+      int maxLatencyMillis, int blobMaxAgeHours) {
+    this.store = store;
+    this.latencyNanos = latencyNanos;
+    this.intervalMillis = TimeUnit.MINUTES.toMillis(intervalMinutes);
+    this.window = window;
+    this.fullCompaction = fullCompaction;
+    this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+    this.blobMaxAgeMillis = TimeUnit.HOURS.toMillis(blobMaxAgeHours);
+    // one thread runs the collections, the other watches the latency meanwhile
+    this.executor = Executors.newScheduledThreadPool(2, r -> {
+      Thread thread = new Thread(r, "kmdp-segment-maintenance");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.lastRun = System.currentTimeMillis();
+  }
+
+  /**
+   * Configures the maintenance of a segment store
+   *
+   * @param store        the segment store
+   * @param latencyNanos the recent mean latency of the repository operations, in ns
+   * @param cfg          the configuration
+   * @return the maintenance, not started, or null if disabled
+   */
+  public static SegmentStoreMaintenance configure(SegmentStoreRepository store,
+      LongSupplier latencyNanos, KnowledgeArtifactRepositoryServerProperties cfg) {
+    Integer interval = cfg.getTyped(KnowledgeArtifactRepositoryOptions.SEGMENT_MAINTENANCE_INTERVAL);
+    if (interval == null || interval <= 0) {
+      return null;
+    }
+    String window = cfg.getTyped(KnowledgeArtifactRepositoryOptions.SEGMENT_MAINTENANCE_WINDOW);
+    String compaction =
+        cfg.getTyped(KnowledgeArtifactRepositoryOptions.SEGMENT_MAINTENANCE_COMPACTION);
+    Integer maxLatency =
+        cfg.getTyped(KnowledgeArtifactRepositoryOptions.SEGMENT_MAINTENANCE_MAX_LATENCY);
+    Integer blobMaxAge = cfg.getTyped(KnowledgeArtifactRepositoryOptions.BLOB_GC_MAX_AGE);
+    return new SegmentStoreMaintenance(store, latencyNanos, interval,
+        window != null && !window.isBlank() ? MaintenanceWindow.parse(window) : null,
+        "FULL".equalsIgnoreCase(compaction),
+        maxLatency != null ? maxLatency : 50,
+        blobMaxAge != null ? blobMaxAge : 24);
+  }
+
+  /**
+   * Starts checking, in the background, whether the collections are due
+   */
+  public SegmentStoreMaintenance start() {
+    executor.scheduleWithFixedDelay(this::runIfDue, CHECK_SECONDS, CHECK_SECONDS,
+        TimeUnit.SECONDS);
+    logger.info("Scheduled segment store maintenance every {} min (window: {}, compaction: {})",
+        TimeUnit.MILLISECONDS.toMinutes(intervalMillis), window != null ? window : "any time",
+        fullCompaction ? "full" : "tail");
+    return this;
+  }
+
+  /**
+   * Runs the collections, if the interval has elapsed since the last run, within the window, and
+   * the repository is not busy
+   *
+   * @return true if the collections ran
+   */
+  public boolean runIfDue() {
+    if (System.currentTimeMillis() - lastRun < intervalMillis
+        || (window != null && !window.contains(LocalTime.now()))) {
+      return false;
+    }
+    if (isBusy()) {
+      postponed.increment();
+      logger.debug("Segment store maintenance postponed: the repository is busy");
+      return false;
+    }
+    return runNow();
+  }
+
+  /**
+   * Runs the revision GC, then the blob GC, unless a run is in progress
+   *
+   * @return true if the collections ran, even if interrupted
+   */
+  public boolean runNow() {
+    if (!running.compareAndSet(false, true)) {
+      return false;
+    }
+    long start = System.currentTimeMillis();
+    try {
+      FileStore fileStore = store.getFileStore();
+      long before = fileStore.getStats().getApproximateSize();
+      if (!revisionGC(fileStore)) {
+        cancelled.increment();
+        logger.info("Segment store revision GC cancelled: the repository is busy");
+        return true;
+      }
+      long segmentBytes = Math.max(0, before - fileStore.getStats().getApproximateSize());
+      segmentBytesReclaimed.add(segmentBytes);
+
+      long blobBytes = blobGC(fileStore);
+      blobBytesReclaimed.add(blobBytes);
+
+      logger.info("Segment store maintenance reclaimed {} bytes of segments and {} bytes of "
+          + "binaries in {} ms", segmentBytes, blobBytes, System.currentTimeMillis() - start);
+      return true;
+    } catch (Exception e) {
+      failures.increment();
+      logger.warn("Segment store maintenance failed: {}", e.getMessage(), e);
+      return true;
+    } finally {
+      lastMillis = System.currentTimeMillis() - start;
+      totalMillis.add(lastMillis);
+      runs.increment();
+      lastRun = System.currentTimeMillis();
+      running.set(false);
+    }
+  }
+
+  /**
+   * Runs the revision GC, cancelling it if the repository becomes busy
+   *
+   * @return false if cancelled
+   */
+  private boolean revisionGC(FileStore fileStore) throws IOException {
+    AtomicBoolean interrupted = new AtomicBoolean();
+    ScheduledFuture<?> watch = executor.scheduleWithFixedDelay(() -> {
+      if (isBusy() && interrupted.compareAndSet(false, true)) {
+        fileStore.cancelGC();
+      }
+    }, WATCH_MILLIS, WATCH_MILLIS, TimeUnit.MILLISECONDS);
+    try {
+      if (fullCompaction) {
+        fileStore.fullGC();
+      } else {
+        fileStore.tailGC();
+      }
+    } finally {
+      watch.cancel(false);
+    }
+    return !interrupted.get();
+  }
+
+  /**
+   * Removes the binaries of the blob store which are not referenced by the segments
+   *
+   * @return the bytes reclaimed
+   */
+  private long blobGC(FileStore fileStore) throws Exception {
+    File blobDir = store.getBlobDir();
+    long before = size(blobDir.toPath());
+    new MarkSweepGarbageCollector(
+        new SegmentBlobReferenceRetriever(fileStore),
+        store.getBlobStore(),
+        Runnable::run,
+        new File(store.getBaseDir(), BLOB_GC_DIR).getAbsolutePath(),
+        2048,
+        blobMaxAgeMillis,
+        ClusterRepositoryInfo.getOrCreateId(store.getNodeStore()))
+        .collectGarbage(false);
+    return Math.max(0, before - size(blobDir.toPath()));
+  }
+
+  private boolean isBusy() {
+    return latencyNanos.getAsLong() > maxLatencyNanos;
+  }
+
+  private static long size(Path dir) {
+    if (!Files.isDirectory(dir)) {
+      return 0;
+    }
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files.filter(Files::isRegularFile)
+          .mapToLong(file -> file.toFile().length())
+          .sum();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Stops the background checks, cancelling a run in progress
+   */
+  public void close() {
+    executor.shutdownNow();
+    if (running.get()) {
+      store.getFileStore().cancelGC();
+    }
+    try {
+      if (!executor.awaitTermination(CLOSE_SECONDS, TimeUnit.SECONDS)) {
+        logger.warn("Segment store maintenance still running after {} s", CLOSE_SECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public Metrics getMetrics() {
+    return new Metrics(runs.sum(), postponed.sum(), cancelled.sum(), failures.sum(),
+        segmentBytesReclaimed.sum(), blobBytesReclaimed.sum(), totalMillis.sum(), lastMillis);
+  }
+
+  /**
+   * The time of day when the collections may run, e.g. 01:00-05:00. A window whose end precedes
+   * its start spans midnight.
+   */
+  public static class MaintenanceWindow {
+
+    private final LocalTime start;
+
+    private final LocalTime end;
+
+    public MaintenanceWindow(LocalTime start, LocalTime end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    /**
+     * @param window a window, as HH:mm-HH:mm
+     */
+    public static MaintenanceWindow parse(String window) {
+      String[] bounds = window.trim().split("-");
+      if (bounds.length != 2) {
+        throw new IllegalArgumentException("Invalid maintenance window: " + window);
+      }
+      return new MaintenanceWindow(LocalTime.parse(bounds[0].trim()),
+          LocalTime.parse(bounds[1].trim()));
+    }
+
+    public boolean contains(LocalTime time) {
+      if (start.isBefore(end)) {
+        return !time.isBefore(start) && time.isBefore(end);
+      }
+      return !time.isBefore(start) || time.isBefore(end);
+    }
+
+    @Override
+    public String toString() {
+      return start + "-" + end;
+    }
+  }
+
+  /**
+   * A snapshot of the runs of the maintenance, and of the space they reclaimed
+   */
+  public static class Metrics {
+
+    private final long runs;
+    private final long postponed;
+    private final long cancelled;
+    private final long failures;
+    private final long segmentBytesReclaimed;
+    private final long blobBytesReclaimed;
+    private final long totalMillis;
+    private final long lastMillis;
+
+    Metrics(long runs, long postponed, long cancelled, long failures,
+        long segmentBytesReclaimed, long blobBytesReclaimed, long totalMillis, long lastMillis) {
+      this.runs = runs;
+      this.postponed = postponed;
+      this.cancelled = cancelled;
+      this.failures = failures;
+      this.segmentBytesReclaimed = segmentBytesReclaimed;
+      this.blobBytesReclaimed = blobBytesReclaimed;
+      this.totalMillis = totalMillis;
+      this.lastMillis = lastMillis;
+    }
+
+    public long getRuns() {
+      return runs;
+    }
+
+    public long getPostponed() {
+      return postponed;
+    }
+
+    public long getCancelled() {
+      return cancelled;
+    }
+
+    public long getFailures() {
+      return failures;
+    }
+
+    public long getSegmentBytesReclaimed() {
+      return segmentBytesReclaimed;
+    }
+
+    public long getBlobBytesReclaimed() {
+      return blobBytesReclaimed;
+    }
+
+    public long getTotalMillis() {
+      return totalMillis;
+    }
+
+    public long getLastMillis() {
+      return lastMillis;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("runs=%d postponed=%d cancelled=%d failures=%d "
+              + "segmentsReclaimed=%dB blobsReclaimed=%dB total=%dms last=%dms",
+          runs, postponed, cancelled, failures, segmentBytesReclaimed, blobBytesReclaimed,
+          totalMillis, lastMillis);
+    }
+  }
+}
@@ -0,0 +1,233 @@
+package edu.mayo.kmdp.repository.artifact.jcr.stores;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+import edu.mayo.kmdp.repository.artifact.exceptions.DaoRuntimeException;
+import edu.mayo.kmdp.repository.artifact.jcr.IndexConfiguration;
+import java.io.File;
+import java.io.IOException;
+import java.util.function.LongSupplier;
+import javax.jcr.Repository;
+import org.apache.jackrabbit.api.JackrabbitRepository;
+import org.apache.jackrabbit.oak.segment.Segment;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStore;
+import org.apache.jackrabbit.oak.segment.SegmentNodeStoreBuilders;
+import org.apache.jackrabbit.oak.segment.file.FileStore;
+import org.apache.jackrabbit.oak.segment.file.FileStoreBuilder;
+import org.apache.jackrabbit.oak.segment.file.InvalidFileStoreVersionException;
+import org.apache.jackrabbit.oak.spi.blob.GarbageCollectableBlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A JCR repository persisted on the file system, backed by an Oak segment store (TarMK).
+ * <p>
+ * The repository is stored under a base directory: the node states are written in tar files under
+ * 'segmentstore', while binaries (the artifacts' content) above the inline threshold are stored
+ * in a blob store (see {@link BlobStoreType}), so that they do not bloat the segments. Small
+ * binaries are inlined in the segments, since a blob store lookup would cost more than reading
+ * them along with their node.
+ * <p>
+ * The repository must be closed, to flush and release the store: typically, {@link #close()} is
+ * passed as the cleanup action of the {@link edu.mayo.kmdp.repository.artifact.jcr.JcrDao}.
+ */
+public class SegmentStoreRepository {
+
+  private static final Logger logger = LoggerFactory.getLogger(SegmentStoreRepository.class);
+
+  public static final String SEGMENT_DIR = "segmentstore";
+  public static final String BLOB_DIR = "blobstore";
+
+  /**
+   * The largest binary that can be inlined in a segment (as a medium value record)
+   */
+  public static final int MAX_INLINE_THRESHOLD = Segment.MEDIUM_LIMIT;
+
+  private final File baseDir;
+
+  private final BlobStoreType blobStoreType;
+
+  private final GarbageCollectableBlobStore blobStore;
+
+  private final FileStore fileStore;
+
+  private final SegmentNodeStore nodeStore;
+
+  private final Repository repository;
+
+  private SegmentStoreMaintenance maintenance;
+
+  private boolean closed = false;
+
+  private SegmentStoreRepository(File baseDir, BlobStoreType blobStoreType,
+      GarbageCollectableBlobStore blobStore, FileStore fileStore, IndexConfiguration indexes) {
+    this.baseDir = baseDir;
+    this.blobStoreType = blobStoreType;
+    this.blobStore = blobStore;
+    this.fileStore = fileStore;
+    this.nodeStore = SegmentNodeStoreBuilders.builder(fileStore).build();
+    this.repository = indexes.createRepository(nodeStore);
+  }
+
+  /**
+   * Opens (or creates) the repository stored under the configured base directory
+   *
+   * @param cfg the configuration, which must provide the base directory
+   * @return the repository
+   */
+  public static SegmentStoreRepository open(KnowledgeArtifactRepositoryServerProperties cfg) {
+    File baseDir = cfg.getTyped(KnowledgeArtifactRepositoryOptions.BASE_DIR);
+    if (baseDir == null) {
+      throw new IllegalStateException(
+          "A persistent JCR repository requires a base directory");
+    }
+    Boolean memoryMapping = cfg.getTyped(KnowledgeArtifactRepositoryOptions.SEGMENT_MEMORY_MAPPING);
+    Integer cacheSize = cfg.getTyped(KnowledgeArtifactRepositoryOptions.SEGMENT_CACHE_SIZE);
+    Integer inlineThreshold = cfg.getTyped(KnowledgeArtifactRepositoryOptions.BLOB_INLINE_THRESHOLD);
+    return open(baseDir,
+        memoryMapping == null || memoryMapping,
+        cacheSize != null ? cacheSize : 256,
+        BlobStoreType.from(cfg),
+        inlineThreshold != null ? inlineThreshold : MAX_INLINE_THRESHOLD,
+        IndexConfiguration.from(cfg));
+  }
+
+  /**
+   * Opens (or creates) the repository stored under a base directory
+   *
+   * @param baseDir          the base directory
+   * @param memoryMapping    if true, the tar files are memory-mapped, rather than read through
+   *                         file channels
+   * @param segmentCacheSize the size of the segment cache, in MB
+   * @return the repository
+   */
+  public static SegmentStoreRepository open(File baseDir, boolean memoryMapping,
+      int segmentCacheSize) {
+    return open(baseDir, memoryMapping, segmentCacheSize, BlobStoreType.FILE,
+        MAX_INLINE_THRESHOLD);
+  }
+
+  /**
+   * Opens (or creates) the repository stored under a base directory
+   *
+   * @param baseDir          the base directory
+   * @param memoryMapping    if true, the tar files are memory-mapped, rather than read through
+   *                         file channels
+   * @param segmentCacheSize the size of the segment cache, in MB
+   * @param blobStoreType    where the binaries above the inline threshold are stored
+   * @param inlineThreshold  the size (in bytes) below which binaries are stored in the segments,
+   *                         up to {@link #MAX_INLINE_THRESHOLD}
+   * @return the repository
+   */
+  public static SegmentStoreRepository open(File baseDir, boolean memoryMapping,
+      int segmentCacheSize, BlobStoreType blobStoreType, int inlineThreshold) {
+    return open(baseDir, memoryMapping, segmentCacheSize, blobStoreType, inlineThreshold,
+        IndexConfiguration.none());
+  }
+
+  /**
+   * Opens (or creates) the repository stored under a base directory
+   *
+   * @param baseDir          the base directory
+   * @param memoryMapping    if true, the tar files are memory-mapped, rather than read through
+   *                         file channels
+   * @param segmentCacheSize the size of the segment cache, in MB
+   * @param blobStoreType    where the binaries above the inline threshold are stored
+   * @param inlineThreshold  the size (in bytes) below which binaries are stored in the segments,
+   *                         up to {@link #MAX_INLINE_THRESHOLD}
+   * @param indexes          the indexing lanes of the repository
+   * @return the repository
+   */
+  public static SegmentStoreRepository open(File baseDir, boolean memoryMapping,
+      int segmentCacheSize, BlobStoreType blobStoreType, int inlineThreshold,
+      IndexConfiguration indexes) {
+    GarbageCollectableBlobStore blobStore = blobStoreType.open(baseDir);
+    int threshold = Math.max(0, Math.min(inlineThreshold, MAX_INLINE_THRESHOLD));
+    try {
+      FileStore fileStore = FileStoreBuilder.fileStoreBuilder(new File(baseDir, SEGMENT_DIR))
+          .withMemoryMapping(memoryMapping)
+          .withSegmentCacheSize(segmentCacheSize)
+          .withBlobStore(blobStore)
+          .withBinariesInlineThreshold(threshold)
+          .build();
+      logger.info("Opened segment store in {} (mmap: {}, segment cache: {} MB, "
+              + "blob store: {}, inline threshold: {} B)",
+          baseDir, memoryMapping, segmentCacheSize, blobStoreType, threshold);
+      return new SegmentStoreRepository(baseDir, blobStoreType, blobStore, fileStore, indexes);
+    } catch (IOException | InvalidFileStoreVersionException e) {
+      BlobStoreType.close(blobStore);
+      throw new DaoRuntimeException("Unable to open the segment store in " + baseDir, e);
+    }
+  }
+
+  public Repository getRepository() {
+    return repository;
+  }
+
+  public FileStore getFileStore() {
+    return fileStore;
+  }
+
+  public SegmentNodeStore getNodeStore() {
+    return nodeStore;
+  }
+
+  public File getBaseDir() {
+    return baseDir;
+  }
+
+  public GarbageCollectableBlobStore getBlobStore() {
+    return blobStore;
+  }
+
+  public BlobStoreType getBlobStoreType() {
+    return blobStoreType;
+  }
+
+  public File getBlobDir() {
+    return blobStoreType.dir(baseDir);
+  }
+
+  /**
+   * Starts the background garbage collections, if configured (see
+   * {@link SegmentStoreMaintenance}). They are stopped when the repository is closed.
+   *
+   * @param latencyNanos the recent mean latency of the repository operations, in ns
+   * @param cfg          the configuration
+   * @return the maintenance, or null if disabled
+   */
+  public synchronized SegmentStoreMaintenance startMaintenance(LongSupplier latencyNanos,
+      KnowledgeArtifactRepositoryServerProperties cfg) {
+    if (maintenance == null && !closed) {
+      maintenance = SegmentStoreMaintenance.configure(this, latencyNanos, cfg);
+      if (maintenance != null) {
+        maintenance.start();
+      }
+    }
+    return maintenance;
+  }
+
+  public SegmentStoreMaintenance getMaintenance() {
+    return maintenance;
+  }
+
+  /**
+   * Shuts down the repository, then flushes and closes the segment store
+   */
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (maintenance != null) {
+      maintenance.close();
+    }
+    if (repository instanceof JackrabbitRepository) {
+      ((JackrabbitRepository) repository).shutdown();
+    }
+    fileStore.close();
+    BlobStoreType.close(blobStore);
+    logger.info("Closed segment store");
+  }
+
+}
@@ -0,0 +1,298 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
+import edu.mayo.kmdp.repository.artifact.exceptions.DaoRuntimeException;
+import edu.mayo.kmdp.repository.artifact.exceptions.RepositoryNotFoundException;
+import edu.mayo.kmdp.repository.artifact.jcr.BulkImport.Report;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.jcr.Node;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+import javax.jcr.Workspace;
+import javax.jcr.version.VersionManager;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeStore;
+import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class BulkImportTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(BulkImportTest.class);
+
+  private Repository repository;
+
+  private JcrDao dao;
+
+  private JcrAdapter adapter;
+
+  private JcrAdapter nodeStates;
+
+  @BeforeEach
+  void repo() {
+    MemoryNodeStore nodeStore = new MemoryNodeStore();
+    repository = new Jcr(new Oak(nodeStore)).with(new OpenSecurityProvider()).createRepository();
+    dao = new JcrDao(repository);
+    IndexConfiguration.none().provision(dao);
+    adapter = new JcrAdapter(dao);
+    nodeStates = new JcrAdapter(dao, new NodeStateReader(nodeStore, dao.getLayout()));
+  }
+
+  @AfterEach
+  void cleanup() {
+    dao.shutdown();
+  }
+
+  @Test
+  void testSameContentAsSaves() {
+    List<UUID> ids = new ArrayList<>();
+    for (int j = 0; j < 3; j++) {
+      ids.add(UUID.randomUUID());
+    }
+    Report report;
+    try (BulkImport bulk = dao.bulkImport("1", 5, false)) {
+      for (int k = 0; k < 4; k++) {
+        for (UUID id : ids) {
+          bulk.add(id, "v" + k, ("hi" + k).getBytes(), m("type", "t" + k));
+          dao.saveResource("2", id, "v" + k, ("hi" + k).getBytes(), m("type", "t" + k)).close();
+        }
+      }
+      report = bulk.finish();
+    }
+    assertEquals(12, report.getVersions());
+    assertEquals(3, report.getSeries());
+    assertTrue(report.getBatches() >= 3);
+
+    for (UUID id : ids) {
+      assertEquals(describe("2", id), describe("1", id));
+      assertEquals("hi3", new String(adapter.getData("1",
+          adapter.getLatestResourceVersion("1", id, false).getValue())));
+      assertEquals("hi1", new String(adapter.getData("1",
+          adapter.getResourceVersion("1", id, "v1", false).getValue())));
+    }
+    assertEquals(3, dao.getResources("1", false, m("type", "t3")).getValue().size());
+  }
+
+  @Test
+  void testSuspendedIndexes() {
+    dao.provisionIndexes(Collections.singleton("type"), null);
+    try (BulkImport bulk = dao.bulkImport("1", 10, true)) {
+      assertEquals("disabled", indexType("kmdp.jcr%3Atype"));
+      assertEquals("disabled", indexType("kmdp.seriesStatus"));
+      for (int j = 0; j < 25; j++) {
+        bulk.add(UUID.randomUUID(), "v1", "hi".getBytes(),
+            j % 5 == 0 ? m("category", "c") : m("type", "t"));
+      }
+    }
+    assertEquals("property", indexType("kmdp.jcr%3Atype"));
+    assertEquals("property", indexType("kmdp.seriesStatus"));
+    // the keys that were not provisioned are not indexed by the import, and are traversed
+    assertNull(indexType("kmdp.jcr%3Acategory"));
+    assertEquals(20, dao.getResources("1", false, m("type", "t")).getValue().size());
+    assertEquals(5, dao.getResources("1", false, m("category", "c")).getValue().size());
+  }
+
+  @Test
+  void testSuspendedIndexesResumedOnBootstrap() {
+    dao.provisionIndexes(Collections.singleton("type"), null);
+    BulkImport crashed = dao.bulkImport("1", 10, true);
+    assertEquals("disabled", indexType("kmdp.seriesStatus"));
+
+    // the indexes left suspended are resumed, whether or not they are configured
+    IndexConfiguration.none().provision(dao);
+    assertEquals("property", indexType("kmdp.seriesStatus"));
+    assertEquals("property", indexType("kmdp.jcr%3Atype"));
+    crashed.close();
+  }
+
+  @Test
+  void testFinished() {
+    BulkImport bulk = dao.bulkImport("1", 10, false);
+    bulk.add(UUID.randomUUID(), "v1", "hi".getBytes(), null);
+    assertEquals(1, bulk.finish().getVersions());
+    assertThrows(IllegalStateException.class,
+        () -> bulk.add(UUID.randomUUID(), "v1", "hi".getBytes(), null));
+  }
+
+  @Test
+  void testFailedImport() throws RepositoryException {
+    UUID artifactId = UUID.randomUUID();
+    dao.saveResource("1", artifactId, "v1", "hi1".getBytes());
+    dao.provisionIndexes(Collections.singleton("type"), null);
+    AtomicInteger failures = new AtomicInteger(1);
+    BulkImport bulk = new BulkImport(dao, failing("checkin", failures), "1", 10, true);
+    bulk.add(artifactId, "v2", "hi2".getBytes(), m("type", "t"));
+    bulk.add(UUID.randomUUID(), "v1", "hi".getBytes(), m("type", "t"));
+
+    // the batch is saved, but not checked in: the indexes are resumed nonetheless
+    assertThrows(DaoRuntimeException.class, bulk::finish);
+    assertEquals("property", indexType("kmdp.seriesStatus"));
+    assertEquals("property", indexType("kmdp.jcr%3Atype"));
+    // the series still point to the versions already labeled
+    for (JcrAdapter reader : List.of(adapter, nodeStates)) {
+      assertEquals("hi1", new String(reader.getData("1",
+          reader.getLatestResourceVersion("1", artifactId, true).getValue())));
+    }
+
+    // the unfinished batch is completed when the import is finished again
+    assertEquals(2, bulk.finish().getVersions());
+    assertEquals("hi2", new String(adapter.getData("1",
+        adapter.getLatestResourceVersion("1", artifactId, false).getValue())));
+    assertEquals(Arrays.asList("v1", "v2"), adapter.getResourceVersions("1", artifactId, false)
+        .getValue().stream()
+        .map(version -> version.getResourceIdentifier().getVersionTag())
+        .collect(Collectors.toList()));
+    assertEquals(2, dao.getResources("1", false, m("type", "t")).getValue().size());
+  }
+
+  @Test
+  void testFailedBatchIsDiscarded() throws RepositoryException {
+    // the save of the suspended indexes succeeds, the save of the batch fails
+    AtomicInteger failures = new AtomicInteger(-1);
+    BulkImport bulk = new BulkImport(dao, failing("save", failures), "1", 10, true);
+    bulk.add(UUID.randomUUID(), "v1", "hi".getBytes(), null);
+    failures.set(1);
+    assertThrows(DaoRuntimeException.class, bulk::flush);
+    assertEquals(0, bulk.finish().getVersions());
+    assertEquals("property", indexType("kmdp.seriesStatus"));
+    assertThrows(RepositoryNotFoundException.class,
+        () -> dao.getResources("1", true, null));
+  }
+
+  /**
+   * A session whose saves, or check-ins, fail as long as the failures count is positive
+   *
+   * @param failingMethod the method that fails, of the session or of its version manager
+   * @param failures      the number of failures, decremented on each call of the method
+   */
+  private Session failing(String failingMethod, AtomicInteger failures)
+      throws RepositoryException {
+    Session session = repository.login(new SimpleCredentials("admin", "admin".toCharArray()));
+    VersionManager versionManager = session.getWorkspace().getVersionManager();
+    VersionManager failingVersions = proxy(VersionManager.class, (method, args) ->
+        invoke(failingMethod, failures, versionManager, method, args));
+    Workspace workspace = proxy(Workspace.class, (method, args) ->
+        "getVersionManager".equals(method.getName())
+            ? failingVersions
+            : method.invoke(session.getWorkspace(), args));
+    return proxy(Session.class, (method, args) ->
+        "getWorkspace".equals(method.getName())
+            ? workspace
+            : invoke(failingMethod, failures, session, method, args));
+  }
+
+  private Object invoke(String failingMethod, AtomicInteger failures, Object target,
+      Method method, Object[] args) throws Exception {
+    if (failingMethod.equals(method.getName()) && failures.getAndDecrement() > 0) {
+      throw new RepositoryException(failingMethod + " failed");
+    }
+    return method.invoke(target, args);
+  }
+
+  private interface Invocation {
+
+    Object invoke(Method method, Object[] args) throws Exception;
+  }
+
+  private <T> T proxy(Class<T> type, Invocation invocation) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+        (proxy, method, args) -> {
+          try {
+            return invocation.invoke(method, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+        }));
+  }
+
+  /**
+   * Compares the throughput of individual saves and of a bulk import
+   */
+  @Test
+  @EnabledIfSystemProperty(named = "kmdp.benchmark", matches = "true")
+  void testBenchmarkImport() {
+    int seriesCount = 200;
+    int versionCount = 3;
+    List<UUID> ids = new ArrayList<>();
+    for (int j = 0; j < seriesCount; j++) {
+      ids.add(UUID.randomUUID());
+    }
+
+    long start = System.nanoTime();
+    for (int k = 0; k < versionCount; k++) {
+      for (UUID id : ids) {
+        dao.saveResource("1", id, "v" + k, ("payload " + k).getBytes(), m("type", "t")).close();
+      }
+    }
+    long nanos = System.nanoTime() - start;
+    logger.info("saveResource :: {} versions in {} ms ({} artifacts/s)",
+        seriesCount * versionCount, nanos / 1_000_000,
+        String.format("%.1f", seriesCount * versionCount * 1e9 / nanos));
+
+    for (boolean suspend : new boolean[]{false, true}) {
+      String repositoryId = suspend ? "3" : "2";
+      try (BulkImport bulk = dao.bulkImport(repositoryId, 500, suspend)) {
+        for (int k = 0; k < versionCount; k++) {
+          for (UUID id : ids) {
+            bulk.add(id, "v" + k, ("payload " + k).getBytes(), m("type", "t"));
+          }
+        }
+        logger.info("bulk import (indexes suspended: {}) :: {}", suspend, bulk.finish());
+      }
+    }
+  }
+
+  /**
+   * @return the type of an index, or null if it does not exist
+   */
+  private String indexType(String name) {
+    try (DaoResult<String> type = dao.executeRead(session -> {
+      try {
+        Node indexes = session.getRootNode().getNode("oak:index");
+        return indexes.hasNode(name)
+            ? indexes.getNode(name).getProperty("type").getString()
+            : null;
+      } catch (RepositoryException e) {
+        throw new IllegalStateException(e);
+      }
+    })) {
+      return type.getValue();
+    }
+  }
+
+  private List<String> describe(String repositoryId, UUID id) {
+    return adapter.getResourceVersions(repositoryId, id, true).getValue().stream()
+        .map(ArtifactVersion::getResourceIdentifier)
+        .map(rid -> rid.getTag() + ":" + rid.getVersionTag())
+        .collect(Collectors.toList());
+  }
+
+  private Map<String, String> m(String k, String v) {
+    Map<String, String> m = new HashMap<>();
+    m.put(k, v);
+    return m;
+  }
+}
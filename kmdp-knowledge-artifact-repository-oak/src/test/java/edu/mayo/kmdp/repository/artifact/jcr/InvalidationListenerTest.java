@@ -0,0 +1,189 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.mayo.kmdp.repository.artifact.dao.InvalidationEvent;
+import edu.mayo.kmdp.repository.artifact.dao.LocalInvalidationBus;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.jcr.Node;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+import javax.jcr.version.Version;
+import javax.jcr.version.VersionManager;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class InvalidationListenerTest {
+
+  private JcrDao observed;
+
+  private JcrDao writer;
+
+  private Repository jcr;
+
+  private final BlockingQueue<InvalidationEvent> events = new LinkedBlockingQueue<>();
+
+  private void repository(SeriesLayout layout) {
+    cleanup();
+    jcr = new Jcr(new Oak()).with(new OpenSecurityProvider()).createRepository();
+    observed = new JcrDao(jcr, null, true, layout);
+    // another writer of the same repository, which the cached DAO does not know about
+    writer = new JcrDao(jcr, null, true, layout);
+    LocalInvalidationBus bus = new LocalInvalidationBus();
+    bus.subscribe(events::add);
+    observed.publishInvalidations(bus);
+  }
+
+  @AfterEach
+  void cleanup() {
+    if (observed != null) {
+      writer.shutdown();
+      observed.shutdown();
+      observed = null;
+    }
+    events.clear();
+  }
+
+  @Test
+  void testSeriesChanges() throws InterruptedException {
+    for (SeriesLayout layout : SeriesLayout.values()) {
+      repository(layout);
+      UUID artifactId = UUID.randomUUID();
+
+      writer.saveResource("1", artifactId, "v1", "hi".getBytes());
+      await(InvalidationEvent.series("1", artifactId));
+
+      writer.deleteResource("1", artifactId, "v1");
+      await(InvalidationEvent.series("1", artifactId));
+
+      writer.clear();
+      await(InvalidationEvent.repository("1"));
+    }
+  }
+
+  @Test
+  void testVersionNodeChanges() throws InterruptedException {
+    repository(SeriesLayout.SHARDED);
+    VersionNodeDao nodes = new VersionNodeDao(writer);
+    UUID artifactId = UUID.randomUUID();
+
+    nodes.saveResource("1", artifactId, "1.0.0", "hi".getBytes(), new HashMap<>()).close();
+    await(InvalidationEvent.version("1", artifactId, "1.0.0"));
+
+    nodes.deleteResourceVersion("1", artifactId, "1.0.0");
+    await(InvalidationEvent.version("1", artifactId, "1.0.0"));
+  }
+
+  @Test
+  void testVersionLabels() throws Exception {
+    for (SeriesLayout layout : SeriesLayout.values()) {
+      repository(layout);
+      UUID artifactId = UUID.randomUUID();
+      writer.saveResource("1", artifactId, "v1", "hi1".getBytes());
+      await(InvalidationEvent.series("1", artifactId));
+
+      Session session = jcr.login(new SimpleCredentials("admin", "admin".toCharArray()));
+      try {
+        VersionManager versionManager = session.getWorkspace().getVersionManager();
+        Node series = writer.stageVersion(session, "1", artifactId.toString(), "v2",
+            "hi2".getBytes(), null);
+        session.save();
+        Version version = versionManager.checkin(series.getPath());
+
+        // a cache reloaded between the check-in and the labeling misses the new label...
+        await(InvalidationEvent.series("1", artifactId));
+        drain();
+        assertEquals(Collections.singletonList("v1"), labels(artifactId));
+
+        // ...and is invalidated again once the version is labeled
+        versionManager.getVersionHistory(series.getPath())
+            .addVersionLabel(version.getName(), "v2", true);
+        await(InvalidationEvent.series("1", artifactId));
+        assertEquals(Arrays.asList("v1", "v2"), labels(artifactId));
+      } finally {
+        session.logout();
+      }
+    }
+  }
+
+  @Test
+  void testClosedListener() throws InterruptedException {
+    repository(SeriesLayout.FLAT);
+    LocalInvalidationBus bus = new LocalInvalidationBus();
+    BlockingQueue<InvalidationEvent> closed = new LinkedBlockingQueue<>();
+    bus.subscribe(closed::add);
+    observed.publishInvalidations(bus).close();
+
+    UUID artifactId = UUID.randomUUID();
+    writer.saveResource("1", artifactId, "v1", "hi".getBytes());
+    await(InvalidationEvent.series("1", artifactId));
+    assertNull(closed.poll(500, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void testAffects() {
+    UUID artifactId = UUID.randomUUID();
+    assertTrue(InvalidationEvent.repository("1").affects("1", artifactId));
+    assertTrue(InvalidationEvent.version("1", artifactId, "v1").affects("1", artifactId));
+    assertFalse(InvalidationEvent.series("1", artifactId).affects("1", UUID.randomUUID()));
+    assertFalse(InvalidationEvent.series("1", artifactId).affects("2", artifactId));
+  }
+
+  /**
+   * @return the version labels of a series, as read by the observed DAO
+   */
+  private List<String> labels(UUID artifactId) {
+    try (DaoResult<List<String>> labels = observed.executeRead(session -> {
+      try {
+        String path = "/1/" + observed.getLayout().path(artifactId.toString());
+        List<String> tags = new ArrayList<>(Arrays.asList(session.getWorkspace()
+            .getVersionManager().getVersionHistory(path).getVersionLabels()));
+        Collections.sort(tags);
+        return tags;
+      } catch (RepositoryException e) {
+        throw new IllegalStateException(e);
+      }
+    })) {
+      return labels.getValue();
+    }
+  }
+
+  /**
+   * Discards the events delivered so far
+   */
+  private void drain() throws InterruptedException {
+    while (events.poll(300, TimeUnit.MILLISECONDS) != null) {
+      // discarded
+    }
+  }
+
+  /**
+   * Waits for an event, since the observation events are delivered in the background
+   */
+  private void await(InvalidationEvent expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (System.currentTimeMillis() < deadline) {
+      InvalidationEvent event = events.poll(100, TimeUnit.MILLISECONDS);
+      if (expected.equals(event)) {
+        return;
+      }
+    }
+    throw new AssertionError("No " + expected);
+  }
+}
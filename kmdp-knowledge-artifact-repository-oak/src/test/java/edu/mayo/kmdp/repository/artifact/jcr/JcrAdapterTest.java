@@ -0,0 +1,79 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.mayo.kmdp.repository.artifact.dao.Artifact;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
+import edu.mayo.kmdp.repository.artifact.dao.DaoResult;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class JcrAdapterTest {
+
+  private JcrAdapter adapter;
+
+  @BeforeEach
+  void repo() {
+    // sessions are logged out when the results are closed
+    adapter = new JcrAdapter(new JcrDao(
+        new Jcr(new Oak()).with(new OpenSecurityProvider()).createRepository(), null, false));
+  }
+
+  @AfterEach
+  void cleanup() {
+    adapter.shutdown();
+  }
+
+  @Test
+  void testVersionAdapterOutlivesSession() {
+    UUID artifactId = UUID.randomUUID();
+    adapter.saveResource("1", artifactId, "v1", "hi1".getBytes(), new HashMap<>()).close();
+    adapter.saveResource("1", artifactId, "v2", "hi2".getBytes(), new HashMap<>()).close();
+    adapter.deleteResourceVersion("1", artifactId, "v1");
+
+    List<ArtifactVersion> versions;
+    try (DaoResult<List<ArtifactVersion>> result =
+        adapter.getResourceVersions("1", artifactId, true)) {
+      versions = result.getValue();
+    }
+
+    assertEquals(2, versions.size());
+    assertEquals(artifactId.toString(), versions.get(0).getResourceIdentifier().getTag());
+    assertEquals("v1", versions.get(0).getResourceIdentifier().getVersionTag());
+    assertTrue(versions.get(0).isUnavailable());
+    assertEquals("v2", versions.get(1).getResourceIdentifier().getVersionTag());
+    assertTrue(versions.get(1).isAvailable());
+  }
+
+  @Test
+  void testNodeAdapterOutlivesSession() {
+    UUID artifactId = UUID.randomUUID();
+    UUID emptyId = UUID.randomUUID();
+    adapter.saveResource("1", artifactId, "v1", "hi1".getBytes(), new HashMap<>()).close();
+    adapter.saveResource("1", emptyId).close();
+    adapter.deleteResourceSeries("1", artifactId);
+
+    List<Artifact> series;
+    try (DaoResult<List<Artifact>> result = adapter.listResources("1", true, new HashMap<>())) {
+      series = result.getValue();
+    }
+
+    assertEquals(2, series.size());
+    Artifact deleted = series.stream()
+        .filter(a -> a.getArtifactId().equals(artifactId)).findFirst().orElseThrow();
+    Artifact empty = series.stream()
+        .filter(a -> a.getArtifactId().equals(emptyId)).findFirst().orElseThrow();
+    assertEquals(artifactId.toString(), deleted.getArtifactTag());
+    assertTrue(deleted.isUnavailable());
+    assertFalse(empty.isUnavailable());
+  }
+}
@@ -16,27 +16,44 @@
 package edu.mayo.kmdp.repository.artifact.jcr;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import edu.mayo.kmdp.repository.artifact.exceptions.RepositoryNotFoundException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNoContentException;
 import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNotFoundException;
 import edu.mayo.kmdp.util.FileUtil;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import javax.jcr.Node;
+import javax.jcr.NodeIterator;
 import javax.jcr.Repository;
 import javax.jcr.RepositoryException;
+import javax.jcr.Session;
 import javax.jcr.version.Version;
 import org.apache.jackrabbit.oak.Oak;
 import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeStore;
 import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 class JcrDaoTest {
 
+  private static final Logger logger = LoggerFactory.getLogger(JcrDaoTest.class);
+
   private JcrDao dao;
 
   private UUID artifactUUID;
@@ -47,6 +64,7 @@ class JcrDaoTest {
     Repository jcr = new Jcr(new Oak()).with(new OpenSecurityProvider()).createRepository();
 
     dao = new JcrDao(jcr);
+    IndexConfiguration.none().provision(dao);
     artifactUUID = UUID.randomUUID();
     artifactUUID2 = UUID.randomUUID();
   }
@@ -90,6 +108,31 @@ class JcrDaoTest {
     result2.getSession().logout();
   }
 
+  @Test
+  void testClearRepositoryInBatches() {
+    for (int j = 0; j < 10; j++) {
+      dao.saveResource("1", UUID.randomUUID(), "v1", "hi1".getBytes());
+    }
+    dao.saveResource("2", artifactUUID, "v1", "hi2".getBytes());
+    dao.deleteResource("2", artifactUUID);
+
+    List<Long> progress = new ArrayList<>();
+    // 10 series, the status maps and the tag orders of the repository, each removed with its
+    // subtree
+    assertEquals(12, dao.clear("1", 3, progress::add));
+    assertEquals(List.of(3L, 6L, 9L, 12L), progress);
+    assertEquals(0, dao.getResources("1", true, new HashMap<>()).getValue().size());
+    assertThrows(RepositoryNotFoundException.class, () -> dao.clear("none", 3, null));
+
+    assertEquals(1, dao.getResources("2", true, new HashMap<>()).getValue().size());
+    assertThrows(ResourceNoContentException.class,
+        () -> dao.getLatestResource("2", artifactUUID, false));
+
+    assertTrue(dao.clear(2, null) > 0);
+    assertThrows(RepositoryNotFoundException.class,
+        () -> dao.getResources("2", true, new HashMap<>()));
+  }
+
   @Test
   void testLoadAndGet() {
     dao.saveResource("1", artifactUUID, "new", "hi!".getBytes());
@@ -130,6 +173,27 @@ class JcrDaoTest {
     assertEquals(2, versions.size());
   }
 
+  @Test
+  void testVersionSnapshots() {
+    dao.saveResource("1", artifactUUID, "new1", "hi1".getBytes());
+    dao.saveResource("1", artifactUUID, "new2", "hi2".getBytes());
+    dao.saveResource("1", artifactUUID, "new3", "hi3".getBytes());
+    dao.deleteResource("1", artifactUUID, "new2");
+
+    List<VersionSnapshot> all =
+        dao.getResourceVersionSnapshots("1", artifactUUID, true).getValue();
+    assertEquals(List.of("new1", "new2", "new3"),
+        all.stream().map(VersionSnapshot::getLabel).collect(Collectors.toList()));
+    assertEquals(List.of(true, false, true),
+        all.stream().map(VersionSnapshot::isAvailable).collect(Collectors.toList()));
+    assertTrue(all.stream().allMatch(v -> artifactUUID.toString().equals(v.getArtifactId())));
+    assertEquals("hi3", d(all.get(2).getVersion()));
+
+    List<VersionSnapshot> available =
+        dao.getResourceVersionSnapshots("1", artifactUUID, false).getValue();
+    assertEquals(2, available.size());
+  }
+
   @Test
   void testLoadAndGetLatestVersion() {
     dao.saveResource("1", artifactUUID, "new1", "hi1".getBytes());
@@ -140,6 +204,175 @@ class JcrDaoTest {
     assertEquals("hi2", d(version));
   }
 
+  @Test
+  void testLatestVersionPointers() throws RepositoryException {
+    dao.saveResource("1", artifactUUID, "new1", "hi1".getBytes());
+    dao.saveResource("1", artifactUUID, "new2", "hi2".getBytes());
+    dao.saveResource("1", artifactUUID, "new3", "hi3".getBytes());
+    // overwriting a version does not make it the latest
+    dao.saveResource("1", artifactUUID, "new1", "hi1bis".getBytes());
+    assertEquals("new3", tag(dao.getLatestResource("1", artifactUUID, false).getValue()));
+
+    dao.deleteResource("1", artifactUUID, "new3");
+    assertEquals("new2", tag(dao.getLatestResource("1", artifactUUID, false).getValue()));
+    assertEquals("new3", tag(dao.getLatestResource("1", artifactUUID, true).getValue()));
+
+    dao.enableResource("1", artifactUUID, "new3");
+    assertEquals("new3", tag(dao.getLatestResource("1", artifactUUID, false).getValue()));
+
+    Node series = dao.getResources("1", false, new HashMap<>()).getValue().get(0);
+    assertEquals("new3", series.getProperty(JcrDao.JCR_LATEST_AVAILABLE_VERSION).getString());
+    // the tags are ordered outside of the series, and thus of the frozen nodes of its versions
+    assertEquals(List.of("new1", "new2", "new3"), VersionTagOrder
+        .read(series.getSession(), dao.getLayout(), "1", artifactUUID.toString()).tags());
+  }
+
+  @Test
+  void testOverwrittenVersionKeepsItsPlace() {
+    dao.saveResource("1", artifactUUID, "new1", "hi1".getBytes());
+    dao.saveResource("1", artifactUUID, "new2", "hi2".getBytes());
+    dao.saveResource("1", artifactUUID, "new1", "hi1bis".getBytes());
+
+    List<VersionSnapshot> versions =
+        dao.getResourceVersionSnapshots("1", artifactUUID, false).getValue();
+    assertEquals(List.of("new1", "new2"),
+        versions.stream().map(VersionSnapshot::getLabel).collect(Collectors.toList()));
+    assertEquals("hi1bis", d(versions.get(0).getVersion()));
+    // the last of the list is the latest version
+    assertEquals("new2", tag(dao.getLatestResource("1", artifactUUID, false).getValue()));
+  }
+
+  @Test
+  void testStatusTogglesKeepVersionHistory() {
+    dao.saveResource("1", artifactUUID, "new1", "hi1".getBytes());
+    dao.saveResource("1", artifactUUID, "new2", "hi2".getBytes());
+    long size = historySize("1", artifactUUID);
+
+    dao.deleteResource("1", artifactUUID);
+    dao.enableResource("1", artifactUUID, "new1");
+    dao.deleteResource("1", artifactUUID, "new1");
+    dao.enableResource("1", artifactUUID);
+    assertEquals(size, historySize("1", artifactUUID));
+
+    assertTrue(dao.isAvailable(dao.getResource("1", artifactUUID, "new1", false).getValue()));
+    assertEquals("hi1", d(dao.getResource("1", artifactUUID, "new1", false).getValue()));
+    assertEquals(2, dao.getResourceVersions("1", artifactUUID, false).getValue().size());
+  }
+
+  @Test
+  void testSeriesStatusOverridesVersionStatus() throws RepositoryException {
+    dao.saveResource("1", artifactUUID, "new1", "hi1".getBytes());
+    dao.saveResource("1", artifactUUID, "new2", "hi2".getBytes());
+
+    dao.deleteResource("1", artifactUUID, "new2");
+    dao.enableResource("1", artifactUUID);
+    assertEquals(2, dao.getResourceVersions("1", artifactUUID, false).getValue().size());
+
+    dao.deleteResource("1", artifactUUID);
+    dao.enableResource("1", artifactUUID, "new2");
+    assertEquals("new2", tag(dao.getLatestResource("1", artifactUUID, false).getValue()));
+    assertEquals(1, dao.getResourceVersions("1", artifactUUID, false).getValue().size());
+  }
+
+  private long historySize(String repositoryId, UUID artifactId) {
+    try (DaoResult<Long> size = dao.executeRead(session -> {
+      try {
+        return session.getWorkspace().getVersionManager()
+            .getVersionHistory("/" + repositoryId + "/" + artifactId)
+            .getAllVersions().getSize();
+      } catch (RepositoryException e) {
+        throw new IllegalStateException(e);
+      }
+    })) {
+      return size.getValue();
+    }
+  }
+
+  @Test
+  void testHasResource() {
+    dao.saveResource("1", artifactUUID, "new1", "hi1".getBytes());
+
+    assertTrue(dao.hasResource("1", artifactUUID).getValue());
+    assertFalse(dao.hasResource("1", artifactUUID2).getValue());
+    assertThrows(
+        RepositoryNotFoundException.class,
+        () -> dao.hasResource("none", artifactUUID));
+  }
+
+  /**
+   * Compares the series existence check on a repository with many series, as a direct node
+   * lookup, with the query and scan it replaces
+   */
+  @Test
+  @EnabledIfSystemProperty(named = "kmdp.benchmark", matches = "true")
+  void testBenchmarkHasResource() {
+    int size = 100_000;
+    List<UUID> ids = new ArrayList<>();
+    for (int j = 0; j < size; j++) {
+      ids.add(UUID.randomUUID());
+    }
+    try (DaoResult<?> ignored = dao.execute(session -> {
+      try {
+        Node repo = session.getRootNode().addNode("big");
+        for (int j = 0; j < size; j++) {
+          Node series = repo.addNode(ids.get(j).toString());
+          series.setProperty(JcrDao.JCR_ID, ids.get(j).toString());
+          series.setProperty(JcrDao.JCR_SERIES_STATUS, JcrDao.STATUS_AVAILABLE);
+          if (j % 5000 == 0) {
+            session.save();
+          }
+        }
+        return null;
+      } catch (RepositoryException e) {
+        throw new IllegalStateException(e);
+      }
+    })) {
+      // populated
+    }
+
+    int lookups = 1000;
+    var rnd = new Random(42);
+    long start = System.nanoTime();
+    for (int j = 0; j < lookups; j++) {
+      UUID id = j % 2 == 0 ? ids.get(rnd.nextInt(size)) : UUID.randomUUID();
+      assertEquals(j % 2 == 0, dao.hasResource("big", id).getValue());
+    }
+    double directMicros = (System.nanoTime() - start) / 1000.0 / lookups;
+
+    int scans = 3;
+    start = System.nanoTime();
+    for (int j = 0; j < scans; j++) {
+      UUID id = ids.get(rnd.nextInt(size));
+      try (DaoResult<Boolean> found = dao.executeRead(session -> scan(session, "big", id))) {
+        assertTrue(found.getValue());
+      }
+    }
+    double scanMicros = (System.nanoTime() - start) / 1000.0 / scans;
+
+    logger.info("{} series :: direct lookup {} us :: query and scan {} us",
+        size, String.format("%.1f", directMicros), String.format("%.1f", scanMicros));
+  }
+
+  /**
+   * The existence check as previously implemented, for comparison
+   */
+  private boolean scan(Session session, String repositoryId, UUID id) {
+    try {
+      NodeIterator nodes = session.getWorkspace().getQueryManager()
+          .createQuery(String.format("//%s/*", repositoryId), "xpath")
+          .execute()
+          .getNodes();
+      while (nodes.hasNext()) {
+        if (id.toString().equals(nodes.nextNode().getProperty(JcrDao.JCR_ID).getString())) {
+          return true;
+        }
+      }
+      return false;
+    } catch (RepositoryException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
   @Test
   void testLoadAndGetLatestVersionNone() {
     dao.saveResource("1", artifactUUID, "new1", "hi1".getBytes());
@@ -157,11 +390,11 @@ class JcrDaoTest {
 
     dao.deleteResource("1", artifactUUID, "new1");
 
-    Node version = dao.getResource("1", artifactUUID, "new1", true).getValue().getFrozenNode();
-    Node version2 = dao.getResource("1", artifactUUID, "new2", true).getValue().getFrozenNode();
+    Version version = dao.getResource("1", artifactUUID, "new1", true).getValue();
+    Version version2 = dao.getResource("1", artifactUUID, "new2", true).getValue();
 
-    assertEquals("unavailable", version.getProperty("status").getString());
-    assertEquals("available", version2.getProperty("status").getString());
+    assertFalse(dao.isAvailable(version));
+    assertTrue(dao.isAvailable(version2));
   }
 
   @Test
@@ -173,11 +406,11 @@ class JcrDaoTest {
 
     dao.deleteResource("1", artifactUUID);
 
-    Node version = dao.getResource("1", artifactUUID, "new1", true).getValue().getFrozenNode();
-    Node version2 = dao.getResource("1", artifactUUID, "new2", true).getValue().getFrozenNode();
+    Version version = dao.getResource("1", artifactUUID, "new1", true).getValue();
+    Version version2 = dao.getResource("1", artifactUUID, "new2", true).getValue();
 
-    assertEquals("unavailable", version.getProperty("status").getString());
-    assertEquals("unavailable", version2.getProperty("status").getString());
+    assertFalse(dao.isAvailable(version));
+    assertFalse(dao.isAvailable(version2));
   }
 
   @Test
@@ -231,6 +464,150 @@ class JcrDaoTest {
     assertEquals(2, resources.size());
   }
 
+  @Test
+  void testPropertyIndexes() throws RepositoryException {
+    dao.saveResource("1", artifactUUID, "new1", "hi1".getBytes(), m("type", "foobar"));
+
+    try (DaoResult<String> plan = dao.executeRead(session -> {
+      try {
+        Node indexes = session.getRootNode().getNode("oak:index");
+        assertTrue(indexes.hasNode("kmdp.seriesStatus"));
+        // metadata keys are only indexed once provisioned, never as the content is saved
+        assertFalse(indexes.hasNode("kmdp.jcr%3Atype"));
+        return session.getWorkspace().getQueryManager()
+            .createQuery("explain /jcr:root/_x0031_/*[jcr:type='foobar']", "xpath")
+            .execute().getRows().nextRow().getValue("plan").getString();
+      } catch (RepositoryException e) {
+        throw new IllegalStateException(e);
+      }
+    })) {
+      assertTrue(plan.getValue().contains("traverse"), plan.getValue());
+    }
+    assertEquals(1, dao.getResources("1", false, m("type", "foobar")).getValue().size());
+  }
+
+  @Test
+  void testIndexesProvisionedOnBootstrap() {
+    JcrDao unprovisioned = new JcrDao(
+        new Jcr(new Oak()).with(new OpenSecurityProvider()).createRepository());
+    assertFalse(hasIndex(unprovisioned, "kmdp.seriesStatus"));
+
+    // provisioning is idempotent, as every application node provisions the indexes on startup
+    IndexConfiguration indexes = new IndexConfiguration(Collections.singleton("type"), 0);
+    indexes.provision(unprovisioned);
+    indexes.provision(unprovisioned);
+    assertTrue(hasIndex(unprovisioned, "kmdp.seriesStatus"));
+    assertTrue(hasIndex(unprovisioned, "kmdp.jcr%3Atype"));
+    unprovisioned.shutdown();
+  }
+
+  @Test
+  void testListPaging() {
+    for (int j = 0; j < 5; j++) {
+      dao.saveResource("1", UUID.randomUUID(), "new1", "hi".getBytes(), m("type", "foo"));
+    }
+    dao.saveResource("1", artifactUUID, "new1", "hi".getBytes(), m("type", "foo"));
+    dao.deleteResource("1", artifactUUID);
+
+    assertEquals(5, dao.getResources("1", false, new HashMap<>()).getValue().size());
+    assertEquals(6, dao.getResources("1", true, new HashMap<>()).getValue().size());
+    assertEquals(2,
+        dao.getResources("1", false, new HashMap<>(), 1, 2).getValue().size());
+    assertEquals(1,
+        dao.getResources("1", false, m("type", "foo"), 4, 10).getValue().size());
+  }
+
+  @Test
+  void testStatusFilterInQuery() {
+    List<UUID> available = new ArrayList<>();
+    for (int j = 0; j < 10; j++) {
+      UUID id = UUID.randomUUID();
+      dao.saveResource("1", id, "new1", "hi".getBytes());
+      if (j % 2 == 0) {
+        dao.deleteResource("1", id);
+      } else {
+        available.add(id);
+      }
+    }
+
+    String xpath = dao.seriesQuery("1", false, new HashMap<>());
+    assertTrue(xpath.contains("@seriesStatus='available'"), xpath);
+    assertNull(dao.seriesQuery("1", true, new HashMap<>()));
+    try (DaoResult<String> plan = dao.executeRead(session -> {
+      try {
+        return session.getWorkspace().getQueryManager()
+            .createQuery("explain " + xpath, "xpath")
+            .execute().getRows().nextRow().getValue("plan").getString();
+      } catch (RepositoryException e) {
+        throw new IllegalStateException(e);
+      }
+    })) {
+      assertTrue(plan.getValue().contains("kmdp.seriesStatus"), plan.getValue());
+    }
+
+    // pages of available series only
+    List<String> paged = new ArrayList<>();
+    for (int offset = 0; offset < 10; offset += 2) {
+      for (Node node : dao.getResources("1", false, new HashMap<>(), offset, 2).getValue()) {
+        paged.add(name(node));
+      }
+    }
+    assertEquals(available.stream().map(UUID::toString).sorted().collect(Collectors.toList()),
+        paged.stream().sorted().collect(Collectors.toList()));
+  }
+
+  @Test
+  void testProvisionedMetadataIndex() {
+    dao.provisionIndexes(Collections.singleton("type"), null);
+    dao.saveResource("1", artifactUUID, "new1", "hi1".getBytes(), m("type", "foo"));
+    dao.saveResource("1", artifactUUID2, "new2", "hi2".getBytes(), m("type", "bar"));
+
+    String xpath = dao.seriesQuery("1", true, m("type", "foo"));
+    try (DaoResult<String> plan = dao.executeRead(session -> {
+      try {
+        assertTrue(session.getRootNode().getNode("oak:index").getNode("kmdp.jcr%3Atype")
+            .hasProperty("propertyNames"));
+        return session.getWorkspace().getQueryManager()
+            .createQuery("explain " + xpath, "xpath")
+            .execute().getRows().nextRow().getValue("plan").getString();
+      } catch (RepositoryException e) {
+        throw new IllegalStateException(e);
+      }
+    })) {
+      assertTrue(plan.getValue().contains("kmdp.jcr%3Atype"), plan.getValue());
+    }
+    assertEquals(1, dao.getResources("1", true, m("type", "foo")).getValue().size());
+  }
+
+  @Test
+  void testAsyncMetadataIndex() throws InterruptedException {
+    IndexConfiguration indexes = new IndexConfiguration(Collections.singleton("type"), 1);
+    JcrDao asyncDao = new JcrDao(indexes.createRepository(new MemoryNodeStore()));
+    indexes.provision(asyncDao);
+    asyncDao.saveResource("1", artifactUUID, "new1", "hi1".getBytes(), m("type", "foo"));
+    asyncDao.saveResource("1", artifactUUID2, "new2", "hi2".getBytes(), m("type", "foo"));
+
+    try (DaoResult<String> lane = asyncDao.executeRead(session -> {
+      try {
+        return session.getRootNode().getNode("oak:index").getNode("kmdp.jcr%3Atype")
+            .getProperty("async").getString();
+      } catch (RepositoryException e) {
+        throw new IllegalStateException(e);
+      }
+    })) {
+      assertEquals(IndexConfiguration.ASYNC_LANE, lane.getValue());
+    }
+
+    // the saves are visible to the filtered listings once the lane has run
+    int found = 0;
+    for (int j = 0; j < 100 && found < 2; j++) {
+      Thread.sleep(100);
+      found = asyncDao.getResources("1", false, m("type", "foo")).getValue().size();
+    }
+    assertEquals(2, found);
+    asyncDao.shutdown();
+  }
+
   @Test
   void testQueryWithNumbers() {
     dao.saveResource("1", artifactUUID, "new1", "hi1".getBytes(), m("type", "foobar"));
@@ -248,12 +625,24 @@ class JcrDaoTest {
   }
 
 
+  private String name(Node node) {
+    try {
+      return node.getName();
+    } catch (RepositoryException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
   private Map<String, String> m(String k, String v) {
     Map<String, String> m = new HashMap<>();
     m.put(k, v);
     return m;
   }
 
+  private String tag(Version v) throws RepositoryException {
+    return v.getContainingHistory().getVersionLabels(v)[0];
+  }
+
   String d(Version v) {
     try {
       return FileUtil.read(v.getFrozenNode().getProperty("jcr:data").getBinary().getStream())
@@ -263,5 +652,15 @@ class JcrDaoTest {
     }
   }
 
-
+  private boolean hasIndex(JcrDao jcrDao, String name) {
+    try (DaoResult<Boolean> found = jcrDao.executeRead(session -> {
+      try {
+        return session.getRootNode().getNode("oak:index").hasNode(name);
+      } catch (RepositoryException e) {
+        throw new IllegalStateException(e);
+      }
+    })) {
+      return found.getValue();
+    }
+  }
 }
@@ -35,7 +35,6 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import javax.jcr.Node;
 import javax.jcr.Repository;
 import javax.jcr.RepositoryException;
 import javax.jcr.version.Version;
@@ -115,6 +114,38 @@ class JcrKnowledgeArtifactRepositoryTest {
 
   }
 
+  @Test
+  void testClearRepositorySoftDeletes() {
+    dao.saveResource("repository", artifactID, "LATEST", "hi!".getBytes());
+    dao.saveResource("repository", artifactID2, "LATEST", "hi!".getBytes());
+    dao.saveResource("repository2", artifactID, "LATEST", "hi!".getBytes());
+
+    Answer<Void> response = adapter.clearKnowledgeRepository("repository", false);
+    assertEquals(NoContent, response.getOutcomeType());
+
+    assertEquals(0, adapter.listKnowledgeArtifacts("repository")
+        .orElse(Collections.emptyList()).size());
+    assertEquals(2, adapter.listKnowledgeArtifacts("repository", null, null, true)
+        .orElse(Collections.emptyList()).size());
+    assertEquals(1, adapter.listKnowledgeArtifacts("repository2")
+        .orElse(Collections.emptyList()).size());
+  }
+
+  @Test
+  void testClearRepositoryRemoves() {
+    dao.saveResource("repository", artifactID, "LATEST", "hi!".getBytes());
+    dao.saveResource("repository", artifactID2, "LATEST", "hi!".getBytes());
+
+    Answer<Void> response = adapter.clearKnowledgeRepository("repository", true);
+    assertEquals(NoContent, response.getOutcomeType());
+
+    assertEquals(0, adapter.listKnowledgeArtifacts("repository", null, null, true)
+        .orElse(Collections.emptyList()).size());
+    assertThrowsCaught(
+        RepositoryNotFoundException.class,
+        () -> adapter.clearKnowledgeRepository("none", true));
+  }
+
   @Test
   void testListArtifactsOnlyGivenRepo() {
     dao.saveResource("repository", artifactID, "LATEST",
@@ -1093,8 +1124,8 @@ class JcrKnowledgeArtifactRepositoryTest {
     dao.saveResource("1", artifactID, "new", "hi!".getBytes());
     Answer<Void> response = adapter
         .deleteKnowledgeArtifactVersion("1", artifactID, "new", false);
-    Node deletedVersion = dao.getResource("1", artifactID, "new", true).getValue().getFrozenNode();
-    assertEquals("unavailable", deletedVersion.getProperty("status").getString());
+    Version deletedVersion = dao.getResource("1", artifactID, "new", true).getValue();
+    assertEquals("unavailable", getStatus(deletedVersion));
     assertEquals(NoContent, response.getOutcomeType());
   }
 
@@ -1158,11 +1189,7 @@ class JcrKnowledgeArtifactRepositoryTest {
   }
 
   String getStatus(Version v) {
-    try {
-      return v.getFrozenNode().getProperty("status").getString();
-    } catch (RepositoryException e) {
-      throw new RuntimeException(e);
-    }
+    return dao.isAvailable(v) ? "available" : "unavailable";
   }
 
   private <T> void assertThrowsCaught(
@@ -0,0 +1,187 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.version.Version;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class JcrSessionsTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(JcrSessionsTest.class);
+
+  private Repository jcr;
+
+  @BeforeEach
+  void repo() {
+    jcr = new Jcr(new Oak()).with(new OpenSecurityProvider()).createRepository();
+  }
+
+  @Test
+  void testReadSessionBoundToThread() throws Exception {
+    JcrSessions sessions = new JcrSessions(jcr);
+    Session s1 = sessions.readSession();
+    Session s2 = sessions.readSession();
+    assertSame(s1, s2);
+    assertTrue(sessions.isShared(s1));
+
+    Session other = CompletableFuture.supplyAsync(() -> {
+      try {
+        return sessions.readSession();
+      } catch (RepositoryException e) {
+        throw new IllegalStateException(e);
+      }
+    }).get();
+    assertNotSame(s1, other);
+
+    assertEquals(2, sessions.getMetrics().getLogins());
+    assertEquals(1, sessions.getMetrics().getReuses());
+    sessions.close();
+    assertTrue(!s1.isLive() && !other.isLive());
+  }
+
+  @Test
+  void testReadSessionReplacedWhenLoggedOut() throws Exception {
+    JcrSessions sessions = new JcrSessions(jcr);
+    Session s1 = sessions.readSession();
+    s1.logout();
+    Session s2 = sessions.readSession();
+    assertNotSame(s1, s2);
+    assertTrue(s2.isLive());
+    sessions.close();
+  }
+
+  @Test
+  void testSessionsOfEndedThreadsLoggedOut() throws Exception {
+    JcrSessions sessions = new JcrSessions(jcr);
+    List<Session> ended = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch acquired = new CountDownLatch(3);
+    CountDownLatch done = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int j = 0; j < 3; j++) {
+      Thread thread = new Thread(() -> {
+        try {
+          ended.add(sessions.readSession());
+          acquired.countDown();
+          done.await();
+        } catch (RepositoryException e) {
+          throw new IllegalStateException(e);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    acquired.await();
+    done.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(3, sessions.getReadSessionCount());
+
+    // the next acquisition sweeps the sessions of the threads that have ended
+    Session current = sessions.readSession();
+    assertEquals(1, sessions.getReadSessionCount());
+    assertEquals(3, sessions.getEvictions());
+    assertTrue(ended.stream().noneMatch(Session::isLive));
+    assertTrue(current.isLive());
+    sessions.close();
+  }
+
+  @Test
+  void testIdleSessionsLoggedOut() throws Exception {
+    JcrSessions sessions = new JcrSessions(jcr, true, Duration.ofMillis(10));
+    ExecutorService other = Executors.newSingleThreadExecutor();
+    try {
+      Session idle = other.submit(sessions::readSession).get();
+      Thread.sleep(50);
+
+      sessions.readSession();
+      assertFalse(idle.isLive());
+      assertEquals(1, sessions.getEvictions());
+
+      // the thread of the idle session gets a new one
+      Session renewed = other.submit(sessions::readSession).get();
+      assertNotSame(idle, renewed);
+      assertTrue(renewed.isLive());
+    } finally {
+      other.shutdownNow();
+      sessions.close();
+    }
+  }
+
+  @Test
+  void testReadSessionSeesLatestWrites() throws Exception {
+    JcrDao dao = new JcrDao(jcr);
+    UUID artifactId = UUID.randomUUID();
+    dao.saveResource("1", artifactId, "v1", "hi1".getBytes());
+    assertEquals("v1", tag(dao.getLatestResource("1", artifactId, false).getValue()));
+
+    dao.saveResource("1", artifactId, "v2", "hi2".getBytes());
+    assertEquals("v2", tag(dao.getLatestResource("1", artifactId, false).getValue()));
+    dao.shutdown();
+  }
+
+  /**
+   * Compares the latency of small reads when logging in for each read, and when reusing a
+   * thread-bound session
+   */
+  @Test
+  @EnabledIfSystemProperty(named = "kmdp.benchmark", matches = "true")
+  void testBenchmarkReadSessions() {
+    UUID artifactId = UUID.randomUUID();
+    JcrDao loginPerCall = new JcrDao(jcr, null, false);
+    JcrDao reused = new JcrDao(jcr, null, true);
+    loginPerCall.saveResource("1", artifactId, "v1", "hi".getBytes());
+
+    int reads = 2000;
+    long loginMs = readMillis(loginPerCall, artifactId, reads);
+    long reusedMs = readMillis(reused, artifactId, reads);
+
+    logger.info("{} reads :: login per call {} ms :: {}",
+        reads, loginMs, loginPerCall.getSessionMetrics());
+    logger.info("{} reads :: thread-bound session {} ms :: {}",
+        reads, reusedMs, reused.getSessionMetrics());
+
+    assertEquals(1, reused.getSessionMetrics().getLogins());
+    loginPerCall.shutdown();
+    reused.shutdown();
+  }
+
+  private long readMillis(JcrDao dao, UUID artifactId, int reads) {
+    long start = System.nanoTime();
+    for (int j = 0; j < reads; j++) {
+      try (DaoResult<Version> ignored = dao.getResource("1", artifactId, "v1", false)) {
+        // read only
+      }
+    }
+    return (System.nanoTime() - start) / 1_000_000;
+  }
+
+  private String tag(Version v) throws RepositoryException {
+    return v.getContainingHistory().getVersionLabels(v)[0];
+  }
+}
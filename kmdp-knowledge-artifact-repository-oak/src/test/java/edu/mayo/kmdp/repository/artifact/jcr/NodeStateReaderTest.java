@@ -0,0 +1,234 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.mayo.kmdp.repository.artifact.dao.Artifact;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
+import edu.mayo.kmdp.repository.artifact.dao.DaoResult;
+import edu.mayo.kmdp.repository.artifact.exceptions.RepositoryNotFoundException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNoContentException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNotFoundException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeStore;
+import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class NodeStateReaderTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(NodeStateReaderTest.class);
+
+  private JcrDao dao;
+
+  private JcrAdapter jcr;
+
+  private JcrAdapter nodeStates;
+
+  private NodeStateReader reader;
+
+  private void repository(SeriesLayout layout) {
+    cleanup();
+    MemoryNodeStore nodeStore = new MemoryNodeStore();
+    dao = new JcrDao(new Jcr(new Oak(nodeStore)).with(new OpenSecurityProvider())
+        .createRepository(), null, true, layout);
+    jcr = new JcrAdapter(dao);
+    reader = new NodeStateReader(nodeStore, layout);
+    nodeStates = new JcrAdapter(dao, reader);
+  }
+
+  @AfterEach
+  void cleanup() {
+    if (dao != null) {
+      dao.shutdown();
+      dao = null;
+    }
+  }
+
+  @Test
+  void testSameVersionsAsJcr() {
+    for (SeriesLayout layout : SeriesLayout.values()) {
+      repository(layout);
+      UUID artifactId = UUID.randomUUID();
+      UUID deletedId = UUID.randomUUID();
+      UUID emptyId = UUID.randomUUID();
+      save(artifactId, "v1", "hi1");
+      save(artifactId, "v2", "hi2");
+      save(artifactId, "v3", "hi3");
+      // an overwritten version keeps its place
+      save(artifactId, "v1", "hi1");
+      save(deletedId, "v1", "bye");
+      jcr.saveResource("1", emptyId).close();
+      jcr.deleteResourceVersion("1", artifactId, "v3");
+      jcr.deleteResourceSeries("1", deletedId);
+
+      for (Boolean deleted : new Boolean[]{true, false}) {
+        assertEquals(describe(jcr.getResourceVersions("1", artifactId, deleted).getValue()),
+            describe(nodeStates.getResourceVersions("1", artifactId, deleted).getValue()));
+        assertEquals(describe(jcr.getLatestResourceVersion("1", artifactId, deleted).getValue()),
+            describe(nodeStates.getLatestResourceVersion("1", artifactId, deleted).getValue()));
+        assertEquals(describeSeries(jcr.listResources("1", deleted, new HashMap<>()).getValue()),
+            describeSeries(
+                nodeStates.listResources("1", deleted, new HashMap<>()).getValue()));
+      }
+      assertEquals("hi2", data(nodeStates.getLatestResourceVersion("1", artifactId, false)));
+      assertEquals("hi3", data(nodeStates.getLatestResourceVersion("1", artifactId, true)));
+      assertEquals("hi3", data(nodeStates.getResourceVersion("1", artifactId, "v3", true)));
+      assertEquals("bye", data(nodeStates.getLatestResourceVersion("1", deletedId, true)));
+      assertTrue(nodeStates.getResourceVersions("1", emptyId, true).getValue().isEmpty());
+    }
+  }
+
+  @Test
+  void testSameErrorsAsJcr() {
+    repository(SeriesLayout.FLAT);
+    UUID artifactId = UUID.randomUUID();
+    UUID emptyId = UUID.randomUUID();
+    save(artifactId, "v1", "hi1");
+    jcr.saveResource("1", emptyId).close();
+    jcr.deleteResourceVersion("1", artifactId, "v1");
+
+    assertThrows(ResourceNotFoundException.class,
+        () -> nodeStates.getResourceVersion("1", UUID.randomUUID(), "v1", false));
+    assertThrows(ResourceNotFoundException.class,
+        () -> nodeStates.getResourceVersion("2", artifactId, "v1", false));
+    assertThrows(ResourceNotFoundException.class,
+        () -> nodeStates.getResourceVersion("1", artifactId, "v9", true));
+    assertThrows(ResourceNoContentException.class,
+        () -> nodeStates.getResourceVersion("1", artifactId, "v1", false));
+    assertThrows(ResourceNoContentException.class,
+        () -> nodeStates.getLatestResourceVersion("1", artifactId, false));
+    assertThrows(ResourceNoContentException.class,
+        () -> nodeStates.getLatestResourceVersion("1", emptyId, true));
+    assertThrows(RepositoryNotFoundException.class,
+        () -> nodeStates.listResources("2", true, new HashMap<>()));
+
+    jcr.deleteResourceSeries("1", artifactId);
+    assertThrows(ResourceNoContentException.class,
+        () -> nodeStates.getResourceVersions("1", artifactId, false));
+    jcr.enableResourceSeries("1", artifactId);
+    assertEquals("hi1", data(nodeStates.getLatestResourceVersion("1", artifactId, false)));
+  }
+
+  @Test
+  void testVersionsResolvedByName() {
+    repository(SeriesLayout.FLAT);
+    UUID artifactId = UUID.randomUUID();
+    for (int j = 0; j < 10; j++) {
+      save(artifactId, "v" + j, "hi" + j);
+    }
+
+    // the first read traverses the history, and learns the names of all its versions
+    assertEquals("hi3", data(nodeStates.getResourceVersion("1", artifactId, "v3", false)));
+    int cached = reader.getCachedVersionCount();
+    assertTrue(cached >= 10);
+    for (int j = 0; j < 10; j++) {
+      assertEquals("hi" + j, data(nodeStates.getResourceVersion("1", artifactId, "v" + j, false)));
+    }
+    assertEquals("hi9", data(nodeStates.getLatestResourceVersion("1", artifactId, false)));
+    assertEquals(cached, reader.getCachedVersionCount());
+
+    // an overwritten version is resolved to its new version node
+    save(artifactId, "v3", "hi3bis");
+    assertEquals("hi3bis", data(nodeStates.getResourceVersion("1", artifactId, "v3", false)));
+  }
+
+  /**
+   * Compares the latency and the allocations of the JCR and node state read paths, on a
+   * repository of series with several versions each
+   */
+  @Test
+  @EnabledIfSystemProperty(named = "kmdp.benchmark", matches = "true")
+  void testBenchmarkReadPaths() {
+    repository(SeriesLayout.FLAT);
+    int seriesCount = 200;
+    int versionCount = 5;
+    List<UUID> ids = new ArrayList<>(seriesCount);
+    for (int j = 0; j < seriesCount; j++) {
+      UUID id = UUID.randomUUID();
+      ids.add(id);
+      for (int k = 0; k < versionCount; k++) {
+        save(id, "v" + k, "payload " + j + "." + k);
+      }
+    }
+
+    int reads = 2000;
+    for (JcrAdapter adapter : new JcrAdapter[]{jcr, nodeStates, jcr, nodeStates}) {
+      String path = adapter == jcr ? "JCR" : "node state";
+      measure(path, "getResourceVersion", reads, j -> adapter
+          .getResourceVersion("1", ids.get(j % seriesCount), "v" + (j % versionCount), false));
+      measure(path, "getLatestResourceVersion", reads, j -> adapter
+          .getLatestResourceVersion("1", ids.get(j % seriesCount), false));
+      measure(path, "getResourceVersions", reads, j -> adapter
+          .getResourceVersions("1", ids.get(j % seriesCount), false));
+      measure(path, "listResources", 50, j -> adapter
+          .listResources("1", false, new HashMap<>()));
+    }
+  }
+
+  private void measure(String path, String operation, int count,
+      IntFunction<DaoResult<?>> read) {
+    Supplier<Long> allocated = allocationCounter();
+    long before = allocated.get();
+    long start = System.nanoTime();
+    for (int j = 0; j < count; j++) {
+      try (DaoResult<?> result = read.apply(j)) {
+        assertTrue(result.isSuccess());
+      }
+    }
+    long micros = (System.nanoTime() - start) / 1000;
+    long after = allocated.get();
+    logger.info("{} :: {} x {} :: {} us/read :: {} bytes allocated/read",
+        path, count, operation, micros / count, before < 0 ? "n/a" : (after - before) / count);
+  }
+
+  /**
+   * @return the bytes allocated by the current thread so far, if the JVM can tell, or -1
+   */
+  private Supplier<Long> allocationCounter() {
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+      long threadId = Thread.currentThread().getId();
+      return () -> counter.getThreadAllocatedBytes(threadId);
+    }
+    return () -> -1L;
+  }
+
+  private void save(UUID artifactId, String version, String payload) {
+    jcr.saveResource("1", artifactId, version, payload.getBytes(), new HashMap<>()).close();
+  }
+
+  private String data(DaoResult<ArtifactVersion> version) {
+    return new String(jcr.getData("1", version.getValue()));
+  }
+
+  private List<String> describe(List<ArtifactVersion> versions) {
+    return versions.stream().map(this::describe).collect(Collectors.toList());
+  }
+
+  private String describe(ArtifactVersion version) {
+    return version.getResourceIdentifier().getTag() + ":"
+        + version.getResourceIdentifier().getVersionTag() + ":" + version.isAvailable();
+  }
+
+  private List<String> describeSeries(List<Artifact> series) {
+    return series.stream()
+        .map(a -> a.getArtifactTag() + ":" + a.isAvailable())
+        .sorted()
+        .collect(Collectors.toList());
+  }
+}
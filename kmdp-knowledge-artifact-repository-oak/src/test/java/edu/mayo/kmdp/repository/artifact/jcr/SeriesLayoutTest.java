@@ -0,0 +1,249 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNoContentException;
+import edu.mayo.kmdp.util.FileUtil;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.jcr.Node;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.version.Version;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class SeriesLayoutTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(SeriesLayoutTest.class);
+
+  /**
+   * The repository sizes used by the benchmark, e.g. -Dkmdp.benchmark.series=10000,100000,1000000
+   */
+  private static final String BENCHMARK_SIZES = "kmdp.benchmark.series";
+
+  @Test
+  void testPaths() {
+    String id = "4cb66719-4440-4b98-8966-79a0de213475";
+    assertEquals(id, SeriesLayout.FLAT.path(id));
+    assertEquals("4c/b6/" + id, SeriesLayout.SHARDED.path(id));
+    assertEquals("*", SeriesLayout.FLAT.queryStep());
+    assertEquals("*/*/*", SeriesLayout.SHARDED.queryStep());
+  }
+
+  @Test
+  void testShardedDao() throws RepositoryException {
+    JcrDao dao = new JcrDao(newRepository(), null, true, SeriesLayout.SHARDED);
+    UUID artifactId = UUID.randomUUID();
+    UUID artifactId2 = UUID.randomUUID();
+    dao.saveResource("1", artifactId, "v1", "hi1".getBytes());
+    dao.saveResource("1", artifactId, "v2", "hi2".getBytes());
+    dao.saveResource("1", artifactId2, "v1", "hi3".getBytes(), m("type", "x")).close();
+
+    Version latest = dao.getLatestResource("1", artifactId, false).getValue();
+    assertEquals("/1/" + SeriesLayout.SHARDED.path(artifactId.toString()),
+        latest.getSession()
+            .getNodeByIdentifier(latest.getContainingHistory().getVersionableIdentifier())
+            .getPath());
+    assertEquals("hi2", d(latest));
+    assertTrue(dao.hasResource("1", artifactId).getValue());
+    assertFalse(dao.hasResource("1", UUID.randomUUID()).getValue());
+
+    assertEquals(2, dao.getResources("1", false, new HashMap<>()).getValue().size());
+    List<Node> found = dao.getResources("1", false, m("type", "x")).getValue();
+    assertEquals(1, found.size());
+    assertEquals(artifactId2.toString(), found.get(0).getName());
+
+    dao.deleteResource("1", artifactId);
+    assertThrows(ResourceNoContentException.class,
+        () -> dao.getLatestResource("1", artifactId, false));
+    assertEquals(1, dao.getResources("1", false, new HashMap<>()).getValue().size());
+    dao.enableResource("1", artifactId, "v1");
+    assertEquals("hi1", d(dao.getLatestResource("1", artifactId, false).getValue()));
+    dao.shutdown();
+  }
+
+  @Test
+  void testMigration() {
+    Repository jcr = newRepository();
+    JcrDao flat = new JcrDao(jcr, null, true, SeriesLayout.FLAT);
+    List<UUID> ids = new ArrayList<>();
+    for (int j = 0; j < 30; j++) {
+      UUID id = UUID.randomUUID();
+      ids.add(id);
+      flat.saveResource("1", id, "v1", ("a" + j).getBytes());
+      flat.saveResource("1", id, "v2", ("b" + j).getBytes());
+    }
+    flat.deleteResource("1", ids.get(0), "v2");
+
+    JcrDao sharded = new JcrDao(jcr, null, true, SeriesLayout.SHARDED);
+    assertEquals(30, sharded.migrateLayout("1", SeriesLayout.FLAT, 7));
+    assertEquals(0, sharded.migrateLayout("1", SeriesLayout.FLAT, 7));
+
+    for (int j = 0; j < ids.size(); j++) {
+      UUID id = ids.get(j);
+      assertEquals(2,
+          sharded.getResourceVersions("1", id, true).getValue().size());
+      assertEquals("a" + j, d(sharded.getResource("1", id, "v1", false).getValue()));
+    }
+    assertEquals("a0", d(sharded.getLatestResource("1", ids.get(0), false).getValue()));
+    assertEquals(30, sharded.getResources("1", true, new HashMap<>()).getValue().size());
+    // the status maps and the tag orders are moved along with their series
+    assertTrue(exists(sharded, VersionStatusMap.path(SeriesLayout.SHARDED, "1",
+        ids.get(0).toString())));
+    assertTrue(exists(sharded, VersionTagOrder.path(SeriesLayout.SHARDED, "1",
+        ids.get(0).toString())));
+    assertThrows(ResourceNoContentException.class,
+        () -> sharded.getResource("1", ids.get(0), "v2", false));
+
+    // and back: the shards are removed once empty
+    assertEquals(30, flat.migrateLayout("1", SeriesLayout.SHARDED, 1000));
+    List<Node> series = flat.getResources("1", true, new HashMap<>()).getValue();
+    assertEquals(30, series.size());
+    assertEquals(ids.stream().map(UUID::toString).sorted().collect(Collectors.toList()),
+        series.stream().map(this::name).sorted().collect(Collectors.toList()));
+    assertTrue(exists(flat, VersionStatusMap.path(SeriesLayout.FLAT, "1",
+        ids.get(0).toString())));
+    assertFalse(exists(flat, "/" + VersionStatusMap.STATUS_ROOT + "/1/"
+        + ids.get(0).toString().substring(0, 2)));
+    assertThrows(ResourceNoContentException.class,
+        () -> flat.getResource("1", ids.get(0), "v2", false));
+
+    sharded.shutdown();
+    flat.shutdown();
+  }
+
+  /**
+   * Compares the flat and sharded layouts, for repositories of growing size: the time to populate
+   * the repository, to look up series, to add series one commit at a time, and to list the series.
+   * Runs with -Dkmdp.benchmark=true, on 10000 series unless other sizes are set with
+   * -Dkmdp.benchmark.series
+   */
+  @Test
+  @EnabledIfSystemProperty(named = "kmdp.benchmark", matches = "true")
+  void testBenchmarkLayouts() {
+    List<Integer> sizes = Arrays
+        .stream(System.getProperty(BENCHMARK_SIZES, "10000").split(","))
+        .map(String::trim)
+        .map(Integer::valueOf)
+        .collect(Collectors.toList());
+    for (int size : sizes) {
+      for (SeriesLayout layout : SeriesLayout.values()) {
+        benchmark(layout, size);
+      }
+    }
+  }
+
+  private void benchmark(SeriesLayout layout, int size) {
+    JcrDao dao = new JcrDao(newRepository(), null, true, layout);
+    List<UUID> ids = new ArrayList<>(size);
+
+    long start = System.nanoTime();
+    for (int j = 0; j < size; j += 1000) {
+      int batch = Math.min(1000, size - j);
+      try (DaoResult<?> ignored = dao.execute(session -> {
+        addSeries(session, layout, ids, batch);
+        return null;
+      })) {
+        // saved
+      }
+    }
+    long populateMs = (System.nanoTime() - start) / 1_000_000;
+
+    int lookups = 1000;
+    start = System.nanoTime();
+    for (int j = 0; j < lookups; j++) {
+      assertTrue(dao.hasResource("big", ids.get((j * 7919) % size)).getValue());
+    }
+    long lookupMs = (System.nanoTime() - start) / 1_000_000;
+
+    int commits = 100;
+    start = System.nanoTime();
+    for (int j = 0; j < commits; j++) {
+      try (DaoResult<?> ignored = dao.execute(session -> {
+        addSeries(session, layout, ids, 1);
+        return null;
+      })) {
+        // saved
+      }
+    }
+    long commitMs = (System.nanoTime() - start) / 1_000_000;
+
+    start = System.nanoTime();
+    int listed = dao.getResources("big", true, new HashMap<>()).getValue().size();
+    long listMs = (System.nanoTime() - start) / 1_000_000;
+    assertEquals(size + commits, listed);
+
+    logger.info("{} series, {} layout :: populate {} ms :: {} lookups {} ms :: "
+            + "{} single commits {} ms :: list {} ms",
+        size, layout, populateMs, lookups, lookupMs, commits, commitMs, listMs);
+    dao.shutdown();
+  }
+
+  private void addSeries(Session session, SeriesLayout layout, List<UUID> ids, int count) {
+    try {
+      Node root = session.getRootNode();
+      Node repositoryNode = root.hasNode("big") ? root.getNode("big") : root.addNode("big");
+      for (int j = 0; j < count; j++) {
+        UUID id = UUID.randomUUID();
+        layout.addSeries(repositoryNode, id.toString()).setProperty(JcrDao.JCR_ID, id.toString());
+        ids.add(id);
+      }
+    } catch (RepositoryException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private boolean exists(JcrDao dao, String path) {
+    try (DaoResult<Boolean> exists = dao.executeRead(session -> {
+      try {
+        return session.nodeExists(path);
+      } catch (RepositoryException e) {
+        throw new IllegalStateException(e);
+      }
+    })) {
+      return exists.getValue();
+    }
+  }
+
+  private Repository newRepository() {
+    return new Jcr(new Oak()).with(new OpenSecurityProvider()).createRepository();
+  }
+
+  private Map<String, String> m(String k, String v) {
+    Map<String, String> m = new HashMap<>();
+    m.put(k, v);
+    return m;
+  }
+
+  private String name(Node node) {
+    try {
+      return node.getName();
+    } catch (RepositoryException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private String d(Version v) {
+    try {
+      return FileUtil.read(v.getFrozenNode().getProperty("jcr:data").getBinary().getStream())
+          .orElse("");
+    } catch (RepositoryException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,313 @@
+package edu.mayo.kmdp.repository.artifact.jcr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.mayo.kmdp.repository.artifact.dao.Artifact;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactDAO;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
+import edu.mayo.kmdp.repository.artifact.dao.DaoResult;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNoContentException;
+import edu.mayo.kmdp.repository.artifact.exceptions.ResourceNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import javax.jcr.RepositoryException;
+import javax.jcr.nodetype.NodeType;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class VersionNodeDaoTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(VersionNodeDaoTest.class);
+
+  private JcrDao dao;
+
+  private JcrAdapter versionable;
+
+  private VersionNodeDao nodes;
+
+  private void repository(SeriesLayout layout) {
+    repository(layout, true);
+  }
+
+  private void repository(SeriesLayout layout, boolean reuseReadSessions) {
+    cleanup();
+    dao = new JcrDao(new Jcr(new Oak()).with(new OpenSecurityProvider())
+        .createRepository(), null, reuseReadSessions, layout);
+    versionable = new JcrAdapter(dao);
+    nodes = new VersionNodeDao(dao);
+  }
+
+  @AfterEach
+  void cleanup() {
+    if (dao != null) {
+      dao.shutdown();
+      dao = null;
+    }
+  }
+
+  @Test
+  void testSameSemanticsAsVersionable() {
+    for (SeriesLayout layout : SeriesLayout.values()) {
+      repository(layout);
+      UUID artifactId = UUID.randomUUID();
+      UUID deletedId = UUID.randomUUID();
+      UUID emptyId = UUID.randomUUID();
+      // the same history, in two repositories stored with the two version layouts
+      for (String repositoryId : new String[]{"1", "2"}) {
+        ArtifactDAO target = "1".equals(repositoryId) ? versionable : nodes;
+        save(target, repositoryId, artifactId, "v1", "hi1");
+        save(target, repositoryId, artifactId, "v2", "hi2");
+        save(target, repositoryId, artifactId, "v3", "hi3");
+        save(target, repositoryId, deletedId, "v1", "bye");
+        target.saveResource(repositoryId, emptyId).close();
+        target.deleteResourceVersion(repositoryId, artifactId, "v3");
+        target.deleteResourceSeries(repositoryId, deletedId);
+      }
+
+      assertSameContent(artifactId, deletedId, emptyId);
+      assertEquals("hi2", data(nodes.getLatestResourceVersion("2", artifactId, false)));
+      assertEquals("hi3", data(nodes.getLatestResourceVersion("2", artifactId, true)));
+      assertEquals("hi3", data(nodes.getResourceVersion("2", artifactId, "v3", true)));
+      assertEquals("bye", data(nodes.getLatestResourceVersion("2", deletedId, true)));
+
+      for (String repositoryId : new String[]{"1", "2"}) {
+        ArtifactDAO target = "1".equals(repositoryId) ? versionable : nodes;
+        target.enableResourceSeries(repositoryId, deletedId);
+        target.enableResourceVersion(repositoryId, artifactId, "v3");
+      }
+      assertSameContent(artifactId, deletedId, emptyId);
+
+      // version nodes are hard-deleted, rather than soft-deleted
+      nodes.removeResourceVersion("2", artifactId, "v1");
+      assertThrows(ResourceNotFoundException.class,
+          () -> nodes.getResourceVersion("2", artifactId, "v1", true));
+      assertEquals(2, nodes.getResourceVersions("2", artifactId, true).getValue().size());
+      nodes.removeResourceSeries("2", artifactId);
+      assertFalse(nodes.hasResourceSeries("2", artifactId).getValue());
+      assertTrue(nodes.hasResourceSeries("2", deletedId).getValue());
+    }
+  }
+
+  @Test
+  void testSaveReplacesVersion() {
+    repository(SeriesLayout.FLAT);
+    UUID artifactId = UUID.randomUUID();
+    save(nodes, "1", artifactId, "v1", "hi1");
+    save(nodes, "1", artifactId, "v2", "hi2");
+    save(nodes, "1", artifactId, "v1", "hi1 again");
+
+    assertEquals("hi1 again", data(nodes.getResourceVersion("1", artifactId, "v1", false)));
+    // the version saved again keeps its place, as with versionable nodes
+    assertEquals(Arrays.asList("v1", "v2"), nodes.getResourceVersions("1", artifactId, false)
+        .getValue().stream().map(version -> version.getResourceIdentifier().getVersionTag())
+        .collect(Collectors.toList()));
+    assertEquals("v2", nodes.getLatestResourceVersion("1", artifactId, false).getValue()
+        .getResourceIdentifier().getVersionTag());
+  }
+
+  @Test
+  void testErrors() {
+    repository(SeriesLayout.FLAT);
+    UUID artifactId = UUID.randomUUID();
+    UUID emptyId = UUID.randomUUID();
+    save(nodes, "1", artifactId, "v1", "hi1");
+    nodes.saveResource("1", emptyId).close();
+    nodes.deleteResourceVersion("1", artifactId, "v1");
+
+    assertThrows(ResourceNotFoundException.class,
+        () -> nodes.getResourceVersion("1", UUID.randomUUID(), "v1", false));
+    assertThrows(ResourceNotFoundException.class,
+        () -> nodes.getResourceVersion("2", artifactId, "v1", false));
+    assertThrows(ResourceNotFoundException.class,
+        () -> nodes.getResourceVersion("1", artifactId, "v9", true));
+    assertThrows(ResourceNotFoundException.class,
+        () -> nodes.deleteResourceVersion("1", artifactId, "v9"));
+    assertThrows(ResourceNoContentException.class,
+        () -> nodes.getResourceVersion("1", artifactId, "v1", false));
+    assertThrows(ResourceNoContentException.class,
+        () -> nodes.getLatestResourceVersion("1", artifactId, false));
+    assertThrows(ResourceNoContentException.class,
+        () -> nodes.getLatestResourceVersion("1", emptyId, true));
+
+    nodes.deleteResourceSeries("1", artifactId);
+    assertThrows(ResourceNoContentException.class,
+        () -> nodes.getResourceVersions("1", artifactId, false));
+    nodes.enableResourceSeries("1", artifactId);
+    assertEquals("hi1", data(nodes.getLatestResourceVersion("1", artifactId, false)));
+  }
+
+  @Test
+  void testMigration() throws RepositoryException {
+    for (SeriesLayout layout : SeriesLayout.values()) {
+      // the versions are copied whether or not the reads share a session with the migration
+      repository(layout, layout != SeriesLayout.FLAT);
+      List<UUID> ids = new ArrayList<>();
+      for (int j = 0; j < 7; j++) {
+        UUID id = UUID.randomUUID();
+        ids.add(id);
+        for (int k = 0; k < 3; k++) {
+          save(versionable, "1", id, "v" + k, "hi" + j + "." + k);
+        }
+      }
+      versionable.deleteResourceVersion("1", ids.get(0), "v2");
+      versionable.deleteResourceSeries("1", ids.get(1));
+      versionable.saveResource("1", UUID.randomUUID()).close();
+
+      List<List<String>> before = new ArrayList<>();
+      for (UUID id : ids) {
+        before.add(describe(versionable.getResourceVersions("1", id, true).getValue()));
+      }
+      List<String> series = describeSeries(versionable.listResources("1", true, new HashMap<>())
+          .getValue());
+
+      assertEquals(8, nodes.migrate("1", 3));
+
+      for (int j = 0; j < ids.size(); j++) {
+        assertEquals(before.get(j),
+            describe(nodes.getResourceVersions("1", ids.get(j), true).getValue()));
+      }
+      assertEquals(series,
+          describeSeries(nodes.listResources("1", true, new HashMap<>()).getValue()));
+      assertEquals("hi0.1", data(nodes.getLatestResourceVersion("1", ids.get(0), false)));
+      assertThrows(ResourceNoContentException.class,
+          () -> nodes.getResourceVersions("1", ids.get(1), false));
+      try (DaoResult<Boolean> versionableLeft = dao.executeRead(session -> {
+        try {
+          return session.getRootNode().getNode("1").getNode(layout.path(ids.get(2).toString()))
+              .isNodeType(NodeType.MIX_VERSIONABLE);
+        } catch (RepositoryException e) {
+          throw new IllegalStateException(e);
+        }
+      })) {
+        assertFalse(versionableLeft.getValue());
+      }
+
+      // the migrated series accept new versions, and a second migration is a no-op
+      save(nodes, "1", ids.get(2), "v3", "hi2.3");
+      assertEquals("hi2.3", data(nodes.getLatestResourceVersion("1", ids.get(2), false)));
+      assertEquals(0, nodes.migrate("1", 3));
+    }
+  }
+
+  /**
+   * Compares the latency of writes and reads in the two version layouts, on a repository of
+   * series with several versions each
+   */
+  @Test
+  @EnabledIfSystemProperty(named = "kmdp.benchmark", matches = "true")
+  void testBenchmarkVersionLayouts() {
+    repository(SeriesLayout.FLAT);
+    int seriesCount = 100;
+    int versionCount = 5;
+    List<UUID> ids = new ArrayList<>(seriesCount);
+    for (int j = 0; j < seriesCount; j++) {
+      ids.add(UUID.randomUUID());
+    }
+
+    int reads = 2000;
+    for (ArtifactDAO target : new ArtifactDAO[]{versionable, nodes}) {
+      String layout = target == versionable ? "versionable" : "version nodes";
+      String repositoryId = target == versionable ? "1" : "2";
+      long start = System.nanoTime();
+      for (int k = 0; k < versionCount; k++) {
+        for (UUID id : ids) {
+          save(target, repositoryId, id, "v" + k, "payload " + id + "." + k);
+        }
+      }
+      logger.info("{} :: {} x saveResource :: {} us/write", layout, seriesCount * versionCount,
+          (System.nanoTime() - start) / 1000 / (seriesCount * versionCount));
+
+      measure(layout, "getResourceVersion", reads, j -> target.getResourceVersion(repositoryId,
+          ids.get(j % seriesCount), "v" + (j % versionCount), false));
+      measure(layout, "getLatestResourceVersion", reads, j -> target
+          .getLatestResourceVersion(repositoryId, ids.get(j % seriesCount), false));
+      measure(layout, "getResourceVersions", reads, j -> target
+          .getResourceVersions(repositoryId, ids.get(j % seriesCount), false));
+    }
+  }
+
+  private void measure(String layout, String operation, int count,
+      IntFunction<DaoResult<?>> read) {
+    long start = System.nanoTime();
+    for (int j = 0; j < count; j++) {
+      try (DaoResult<?> result = read.apply(j)) {
+        assertTrue(result.isSuccess());
+      }
+    }
+    logger.info("{} :: {} x {} :: {} us/read",
+        layout, count, operation, (System.nanoTime() - start) / 1000 / count);
+  }
+
+  private void assertSameContent(UUID... ids) {
+    for (Boolean deleted : new Boolean[]{true, false}) {
+      for (UUID id : ids) {
+        assertEquals(versions("1", id, deleted), versions("2", id, deleted));
+        assertEquals(latest("1", id, deleted), latest("2", id, deleted));
+      }
+      assertEquals(
+          describeSeries(versionable.listResources("1", deleted, new HashMap<>()).getValue()),
+          describeSeries(nodes.listResources("2", deleted, new HashMap<>()).getValue()));
+    }
+  }
+
+  private List<String> versions(String repositoryId, UUID id, Boolean deleted) {
+    ArtifactDAO target = "1".equals(repositoryId) ? versionable : nodes;
+    try (DaoResult<List<ArtifactVersion>> versions =
+        target.getResourceVersions(repositoryId, id, deleted)) {
+      return describe(versions.getValue());
+    } catch (ResourceNoContentException e) {
+      return Collections.singletonList("no content");
+    }
+  }
+
+  private String latest(String repositoryId, UUID id, Boolean deleted) {
+    ArtifactDAO target = "1".equals(repositoryId) ? versionable : nodes;
+    try (DaoResult<ArtifactVersion> version =
+        target.getLatestResourceVersion(repositoryId, id, deleted)) {
+      return describe(version.getValue());
+    } catch (ResourceNoContentException e) {
+      return "no content";
+    }
+  }
+
+  private void save(ArtifactDAO target, String repositoryId, UUID artifactId, String version,
+      String payload) {
+    target.saveResource(repositoryId, artifactId, version, payload.getBytes(), new HashMap<>())
+        .close();
+  }
+
+  private String data(DaoResult<ArtifactVersion> version) {
+    return new String(nodes.getData("1", version.getValue()));
+  }
+
+  private List<String> describe(List<ArtifactVersion> versions) {
+    return versions.stream().map(this::describe).collect(Collectors.toList());
+  }
+
+  private String describe(ArtifactVersion version) {
+    return version.getResourceIdentifier().getTag() + ":"
+        + version.getResourceIdentifier().getVersionTag() + ":" + version.isAvailable();
+  }
+
+  private List<String> describeSeries(List<Artifact> series) {
+    return series.stream()
+        .map(a -> a.getArtifactTag() + ":" + a.isAvailable())
+        .sorted()
+        .collect(Collectors.toList());
+  }
+}
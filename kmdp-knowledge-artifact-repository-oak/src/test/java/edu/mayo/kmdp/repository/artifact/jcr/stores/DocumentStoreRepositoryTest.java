@@ -0,0 +1,139 @@
+package edu.mayo.kmdp.repository.artifact.jcr.stores;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
+import edu.mayo.kmdp.repository.artifact.dao.DaoResult;
+import edu.mayo.kmdp.repository.artifact.jcr.JcrAdapter;
+import edu.mayo.kmdp.repository.artifact.jcr.JcrDao;
+import edu.mayo.kmdp.repository.artifact.jcr.SeriesLayout;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import org.apache.jackrabbit.oak.plugins.document.LeaseCheckMode;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class DocumentStoreRepositoryTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(DocumentStoreRepositoryTest.class);
+
+  private static final int ASYNC_DELAY = 100;
+
+  private JcrAdapter node1;
+  private JcrAdapter node2;
+
+  @BeforeEach
+  void cluster() throws InterruptedException {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:kmdp-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+
+    DocumentStoreRepository store1 =
+        DocumentStoreRepository.open(dataSource, 1, ASYNC_DELAY, LeaseCheckMode.LENIENT, "");
+    node1 = new JcrAdapter(
+        new JcrDao(store1.getRepository(), store1::close, true, SeriesLayout.SHARDED));
+    // let the first node publish the initial content, before the second one joins
+    Thread.sleep(5L * ASYNC_DELAY);
+
+    DocumentStoreRepository store2 =
+        DocumentStoreRepository.open(dataSource, 2, ASYNC_DELAY, LeaseCheckMode.LENIENT, "");
+    node2 = new JcrAdapter(
+        new JcrDao(store2.getRepository(), store2::close, true, SeriesLayout.SHARDED));
+    assertNotEquals(store1.getClusterId(), store2.getClusterId());
+  }
+
+  @AfterEach
+  void shutdown() {
+    node2.shutdown();
+    node1.shutdown();
+  }
+
+  @Test
+  void testChangesVisibleAcrossNodes() {
+    UUID artifactId = UUID.randomUUID();
+    save(node1, artifactId, "v1", "from node 1");
+    awaitVisible(() -> latest(node2, artifactId).equals("from node 1"));
+
+    save(node2, artifactId, "v2", "from node 2");
+    awaitVisible(() -> latest(node1, artifactId).equals("from node 2"));
+
+    node1.deleteResourceVersion("1", artifactId, "v2");
+    awaitVisible(() -> latest(node2, artifactId).equals("from node 1"));
+  }
+
+  /**
+   * Measures the write throughput of two cluster nodes, and the time until each node sees the
+   * writes of the other
+   */
+  @Test
+  @EnabledIfSystemProperty(named = "kmdp.benchmark", matches = "true")
+  void testBenchmarkTwoNodes() {
+    int writes = 200;
+    List<UUID> ids = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int j = 0; j < writes; j++) {
+      UUID id = UUID.randomUUID();
+      ids.add(id);
+      save(j % 2 == 0 ? node1 : node2, id, "v1", "payload " + j);
+    }
+    long writeMs = (System.nanoTime() - start) / 1_000_000;
+
+    start = System.nanoTime();
+    awaitVisible(() -> count(node1) == writes && count(node2) == writes);
+    long convergeMs = (System.nanoTime() - start) / 1_000_000;
+
+    for (int j = 0; j < writes; j += 37) {
+      assertEquals("payload " + j, latest(j % 2 == 0 ? node2 : node1, ids.get(j)));
+    }
+    logger.info("{} writes over 2 cluster nodes :: {} ms ({} writes/s) :: converged in {} ms",
+        writes, writeMs, writes * 1000L / Math.max(1, writeMs), convergeMs);
+  }
+
+  private void save(JcrAdapter node, UUID artifactId, String version, String payload) {
+    try (DaoResult<ArtifactVersion> ignored = node
+        .saveResource("1", artifactId, version, payload.getBytes(), new HashMap<>())) {
+      // saved
+    }
+  }
+
+  private String latest(JcrAdapter node, UUID artifactId) {
+    try (DaoResult<ArtifactVersion> version =
+        node.getLatestResourceVersion("1", artifactId, false)) {
+      return new String(node.getData("1", version.getValue()));
+    } catch (RuntimeException e) {
+      // not visible yet
+      return "";
+    }
+  }
+
+  private int count(JcrAdapter node) {
+    try {
+      return node.listResources("1", false, new HashMap<>()).getValue().size();
+    } catch (RuntimeException e) {
+      // not visible yet
+      return 0;
+    }
+  }
+
+  private void awaitVisible(BooleanSupplier condition) {
+    long deadline = System.currentTimeMillis() + 200L * ASYNC_DELAY;
+    while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+      try {
+        Thread.sleep(ASYNC_DELAY / 2);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    assertTrue(condition.getAsBoolean(), "Changes not visible to the other cluster node");
+  }
+}
@@ -0,0 +1,131 @@
+package edu.mayo.kmdp.repository.artifact.jcr.stores;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
+import edu.mayo.kmdp.repository.artifact.dao.DaoResult;
+import edu.mayo.kmdp.repository.artifact.jcr.JcrAdapter;
+import edu.mayo.kmdp.repository.artifact.jcr.JcrDao;
+import edu.mayo.kmdp.repository.artifact.jcr.stores.SegmentStoreMaintenance.MaintenanceWindow;
+import edu.mayo.kmdp.repository.artifact.jcr.stores.SegmentStoreMaintenance.Metrics;
+import java.io.File;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class SegmentStoreMaintenanceTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(SegmentStoreMaintenanceTest.class);
+
+  @TempDir
+  File baseDir;
+
+  @Test
+  void testWindow() {
+    MaintenanceWindow night = MaintenanceWindow.parse("01:00-05:00");
+    assertTrue(night.contains(LocalTime.of(1, 0)));
+    assertTrue(night.contains(LocalTime.of(4, 59)));
+    assertFalse(night.contains(LocalTime.of(5, 0)));
+    assertFalse(night.contains(LocalTime.of(12, 0)));
+
+    MaintenanceWindow midnight = MaintenanceWindow.parse("22:00 - 02:00");
+    assertTrue(midnight.contains(LocalTime.of(23, 0)));
+    assertTrue(midnight.contains(LocalTime.of(1, 0)));
+    assertFalse(midnight.contains(LocalTime.of(12, 0)));
+  }
+
+  @Test
+  void testDisabledByDefault() {
+    SegmentStoreRepository store = SegmentStoreRepository.open(cfg());
+    assertNull(store.startMaintenance(() -> 0L, cfg()));
+    store.close();
+  }
+
+  @Test
+  void testCollectsGarbage() {
+    SegmentStoreRepository store = SegmentStoreRepository.open(cfg());
+    JcrDao dao = new JcrDao(store.getRepository(), store::close);
+    JcrAdapter adapter = new JcrAdapter(dao);
+
+    // payloads large enough to be stored in the blob store
+    byte[] payload = new byte[64 * 1024];
+    for (int j = 0; j < 20; j++) {
+      UUID artifactId = UUID.randomUUID();
+      for (int k = 0; k < 5; k++) {
+        Arrays.fill(payload, (byte) (j * 5 + k));
+        save(adapter, artifactId, "v" + k, payload);
+      }
+    }
+    dao.clear();
+
+    SegmentStoreMaintenance maintenance = new SegmentStoreMaintenance(store,
+        dao.getLatencyMonitor()::getRecentNanos, 0, null, true, Integer.MAX_VALUE, 0);
+    // the revision GC retains the generations of the previous compactions
+    for (int j = 0; j < 3; j++) {
+      assertTrue(maintenance.runNow());
+    }
+    Metrics metrics = maintenance.getMetrics();
+    logger.info("Segment store maintenance :: {}", metrics);
+    assertEquals(3, metrics.getRuns());
+    assertEquals(0, metrics.getFailures());
+    assertEquals(0, metrics.getCancelled());
+    assertTrue(metrics.getTotalMillis() >= metrics.getLastMillis());
+
+    maintenance.close();
+    adapter.shutdown();
+  }
+
+  @Test
+  void testPostponedWhenBusy() {
+    SegmentStoreRepository store = SegmentStoreRepository.open(cfg());
+    SegmentStoreMaintenance maintenance = new SegmentStoreMaintenance(store,
+        () -> Long.MAX_VALUE, 0, null, false, 50, 24);
+
+    assertFalse(maintenance.runIfDue());
+    assertEquals(1, maintenance.getMetrics().getPostponed());
+    assertEquals(0, maintenance.getMetrics().getRuns());
+
+    maintenance.close();
+    store.close();
+  }
+
+  @Test
+  void testSkippedOutsideWindow() {
+    SegmentStoreRepository store = SegmentStoreRepository.open(cfg());
+    LocalTime later = LocalTime.now().plusHours(2);
+    SegmentStoreMaintenance maintenance = new SegmentStoreMaintenance(store,
+        () -> 0L, 0, new MaintenanceWindow(later, later.plusMinutes(1)), false, 50, 24);
+
+    assertFalse(maintenance.runIfDue());
+    assertEquals(0, maintenance.getMetrics().getPostponed());
+    assertEquals(0, maintenance.getMetrics().getRuns());
+
+    maintenance.close();
+    store.close();
+  }
+
+  private void save(JcrAdapter adapter, UUID artifactId, String version, byte[] payload) {
+    try (DaoResult<ArtifactVersion> ignored =
+        adapter.saveResource("1", artifactId, version, payload, new HashMap<>())) {
+      // saved
+    }
+  }
+
+  private KnowledgeArtifactRepositoryServerProperties cfg() {
+    return new KnowledgeArtifactRepositoryServerProperties(
+        SegmentStoreMaintenanceTest.class.getResourceAsStream("/application.test.properties"))
+        .with(KnowledgeArtifactRepositoryOptions.BASE_DIR, baseDir.getAbsolutePath())
+        .with(KnowledgeArtifactRepositoryOptions.SEGMENT_MEMORY_MAPPING, "false")
+        .with(KnowledgeArtifactRepositoryOptions.SEGMENT_CACHE_SIZE, "16");
+  }
+}
@@ -0,0 +1,134 @@
+package edu.mayo.kmdp.repository.artifact.jcr.stores;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties;
+import edu.mayo.kmdp.repository.artifact.KnowledgeArtifactRepositoryServerProperties.KnowledgeArtifactRepositoryOptions;
+import edu.mayo.kmdp.repository.artifact.dao.ArtifactVersion;
+import edu.mayo.kmdp.repository.artifact.dao.DaoResult;
+import edu.mayo.kmdp.repository.artifact.jcr.JcrAdapter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SegmentStoreRepositoryTest {
+
+  @TempDir
+  File baseDir;
+
+  @Test
+  void testSurvivesRestart() {
+    UUID artifactId = UUID.randomUUID();
+
+    var store = SegmentStoreRepository.open(cfg());
+    var dao = new JcrAdapter(store.getRepository(), store::close);
+    try (DaoResult<ArtifactVersion> ignored =
+        dao.saveResource("1", artifactId, "v1", "persisted".getBytes())) {
+      // saved
+    }
+    dao.shutdown();
+
+    assertTrue(new File(baseDir, SegmentStoreRepository.SEGMENT_DIR).isDirectory());
+
+    var reopened = SegmentStoreRepository.open(cfg());
+    var dao2 = new JcrAdapter(reopened.getRepository(), reopened::close);
+    try (DaoResult<ArtifactVersion> version =
+        dao2.getLatestResourceVersion("1", artifactId, false)) {
+      assertEquals("persisted", new String(dao2.getData("1", version.getValue())));
+    }
+    dao2.shutdown();
+  }
+
+  @Test
+  void testDeduplicatesLargeBinaries() {
+    for (BlobStoreType type : BlobStoreType.values()) {
+      File dir = new File(baseDir, type.name());
+      var store = SegmentStoreRepository.open(dir, false, 16, type, 4096);
+      var dao = new JcrAdapter(store.getRepository(), store::close);
+
+      byte[] payload = new byte[256 * 1024];
+      new Random(42).nextBytes(payload);
+      List<UUID> ids = new ArrayList<>();
+      for (int j = 0; j < 10; j++) {
+        UUID artifactId = UUID.randomUUID();
+        ids.add(artifactId);
+        save(dao, artifactId, "v1", payload);
+      }
+      long stored = size(store.getBlobDir());
+      assertTrue(stored >= payload.length, type + " should hold the binary");
+      assertTrue(stored < 2L * payload.length, type + " should store the binary once");
+
+      for (UUID artifactId : ids) {
+        try (DaoResult<ArtifactVersion> version =
+            dao.getLatestResourceVersion("1", artifactId, false)) {
+          assertArrayEquals(payload, dao.getData("1", version.getValue()));
+        }
+      }
+      dao.shutdown();
+    }
+  }
+
+  @Test
+  void testInlinesSmallBinaries() {
+    var store = SegmentStoreRepository.open(baseDir, false, 16, BlobStoreType.DATASTORE, 4096);
+    var dao = new JcrAdapter(store.getRepository(), store::close);
+    UUID artifactId = UUID.randomUUID();
+    byte[] payload = new byte[1024];
+    new Random(42).nextBytes(payload);
+    save(dao, artifactId, "v1", payload);
+
+    assertEquals(0, size(store.getBlobDir()));
+    try (DaoResult<ArtifactVersion> version =
+        dao.getLatestResourceVersion("1", artifactId, false)) {
+      assertArrayEquals(payload, dao.getData("1", version.getValue()));
+    }
+    dao.shutdown();
+  }
+
+  @Test
+  void testRequiresBaseDir() {
+    var cfg = KnowledgeArtifactRepositoryServerProperties.emptyConfig();
+    assertThrows(IllegalStateException.class, () -> SegmentStoreRepository.open(cfg));
+  }
+
+  private void save(JcrAdapter dao, UUID artifactId, String version, byte[] payload) {
+    try (DaoResult<ArtifactVersion> ignored =
+        dao.saveResource("1", artifactId, version, payload, new HashMap<>())) {
+      // saved
+    }
+  }
+
+  private long size(File dir) {
+    if (!dir.isDirectory()) {
+      return 0;
+    }
+    try (Stream<Path> files = Files.walk(dir.toPath())) {
+      return files.filter(Files::isRegularFile)
+          .mapToLong(file -> file.toFile().length())
+          .sum();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private KnowledgeArtifactRepositoryServerProperties cfg() {
+    return new KnowledgeArtifactRepositoryServerProperties(
+        SegmentStoreRepositoryTest.class.getResourceAsStream("/application.test.properties"))
+        .with(KnowledgeArtifactRepositoryOptions.BASE_DIR, baseDir.getAbsolutePath())
+        .with(KnowledgeArtifactRepositoryOptions.SEGMENT_MEMORY_MAPPING, "false")
+        .with(KnowledgeArtifactRepositoryOptions.SEGMENT_CACHE_SIZE, "16");
+  }
+}